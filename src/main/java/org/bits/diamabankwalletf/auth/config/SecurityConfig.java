@@ -32,6 +32,9 @@ public class SecurityConfig {
                         .requestMatchers("/api/customer/register").permitAll()
                         .requestMatchers("/api/wallet/initiateBill").permitAll()
                         .requestMatchers("/api/dsd/payments/status").permitAll()
+                        .requestMatchers("/api/advertisements/images/**").permitAll()
+                        // Cache and job administration: only wallets listed in security.admin-phone-numbers
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
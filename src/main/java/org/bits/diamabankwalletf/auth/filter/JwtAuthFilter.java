@@ -8,22 +8,28 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.auth.config.JwtConfig;
 import org.bits.diamabankwalletf.auth.security.JwtService;
-import org.bits.diamabankwalletf.model.Wallet;
-import org.bits.diamabankwalletf.repository.WalletRepository;
+import org.bits.diamabankwalletf.auth.security.WalletTokenClaims;
+import org.bits.diamabankwalletf.dto.WalletPrincipal;
+import org.bits.diamabankwalletf.service.WalletPrincipalCache;
 import org.bits.diamabankwalletf.utils.IpAddressUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Slf4j
 @Component
@@ -31,9 +37,14 @@ import java.util.Optional;
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final WalletRepository walletRepository;
+    private final WalletPrincipalCache walletPrincipalCache;
     private final JwtConfig jwtConfig;
     private final IpAddressUtils ipAddressUtils;
+    private final SecurityContextRepository securityContextRepository = new RequestAttributeSecurityContextRepository();
+
+    // Wallets allowed on /api/admin/** (ROLE_ADMIN); none by default
+    @Value("${security.admin-phone-numbers:}")
+    private Set<String> adminPhoneNumbers;
 
 
     @Override
@@ -59,14 +70,16 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
 
         // Log ALL headers for debugging
-        log.debug("=== ALL REQUEST HEADERS ===");
-        java.util.Enumeration<String> headerNames = request.getHeaderNames();
-        while (headerNames.hasMoreElements()) {
-            String headerName = headerNames.nextElement();
-            String headerValue = request.getHeader(headerName);
-            log.debug("Header: {} = {}", headerName, headerValue);
+        if (log.isDebugEnabled()) {
+            log.debug("=== ALL REQUEST HEADERS ===");
+            java.util.Enumeration<String> headerNames = request.getHeaderNames();
+            while (headerNames.hasMoreElements()) {
+                String headerName = headerNames.nextElement();
+                String headerValue = request.getHeader(headerName);
+                log.debug("Header: {} = {}", headerName, headerValue);
+            }
+            log.debug("=============================");
         }
-        log.debug("=============================");
 
         // Try to extract JWT token from multiple sources
         String jwt = null;
@@ -133,8 +146,9 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         log.debug("JWT token found via: {}, length: {}", tokenSource, jwt.length());
 
         try {
-            // First, validate the token structure and expiration
-            if (!jwtService.isTokenValid(jwt)) {
+            // Verify signature and expiration once; the claims are reused for the rest of the request
+            WalletTokenClaims claims = jwtService.parseVerifiedClaims(jwt);
+            if (claims == null) {
                 log.warn("Invalid JWT token from {} for request: {}", tokenSource, requestURI);
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                 response.setContentType("application/json");
@@ -142,13 +156,12 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                 return;
             }
 
-            // Extract mobile number from token
-            String mobileNumber = jwtService.extractUsername(jwt);
+            String mobileNumber = claims.subject();
             log.debug("Extracted mobile number from token: {}", mobileNumber);
 
             if (mobileNumber != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                // Find wallet by mobile number
-                Optional<Wallet> walletOpt = walletRepository.findByPhoneNumber(mobileNumber);
+                // Find wallet by mobile number (auth columns only, briefly cached)
+                Optional<WalletPrincipal> walletOpt = walletPrincipalCache.findByPhoneNumber(mobileNumber);
 
                 if (walletOpt.isEmpty()) {
                     log.warn("Wallet not found for mobile number: {}", mobileNumber);
@@ -158,7 +171,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                     return;
                 }
 
-                Wallet wallet = walletOpt.get();
+                WalletPrincipal wallet = walletOpt.get();
                 log.debug("Wallet found: {}", wallet.getWalletNumber());
 
                 // Check if wallet is blocked
@@ -173,8 +186,8 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                 // Create UserDetails from wallet
                 UserDetails userDetails = createUserDetailsFromWallet(wallet);
 
-                // Validate token with user details
-                if (!jwtService.isTokenValid(jwt, userDetails)) {
+                // Token subject must still match the wallet it resolved to
+                if (!mobileNumber.equals(userDetails.getUsername())) {
                     log.warn("Token validation failed for user: {}", mobileNumber);
                     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                     response.setContentType("application/json");
@@ -191,6 +204,8 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+                // Kept on the request so async dispatches of non-blocking endpoints stay authenticated
+                securityContextRepository.saveContext(SecurityContextHolder.getContext(), request, response);
 
                 log.debug("Authentication set in SecurityContext for user: {} via {}", mobileNumber, tokenSource);
 
@@ -198,6 +213,10 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                 request.setAttribute("walletNumber", wallet.getWalletNumber());
                 request.setAttribute("bankCode", wallet.getBankCode());
                 request.setAttribute("clientCode", wallet.getClientCode());
+                request.setAttribute(WalletTokenClaims.REQUEST_ATTRIBUTE, claims);
+                if (claims.deviceId() != null) {
+                    request.setAttribute("deviceId", claims.deviceId());
+                }
             }
         } catch (Exception e) {
             log.error("JWT validation error for request {}: {}", requestURI, e.getMessage());
@@ -222,20 +241,24 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                 servletPath.equals("/api/nationalities") ||
                 servletPath.equals("/api/wallet/initiateBill") ||
                 servletPath.equals("/api/customer/register") ||
-                servletPath.equals("/api/dsd/payments/status");
+                servletPath.equals("/api/dsd/payments/status") ||
+                servletPath.startsWith("/api/advertisements/images/");
     }
     /**
-     * Create a UserDetails object from a Wallet entity
+     * Create a UserDetails object from a wallet principal
      */
-    private UserDetails createUserDetailsFromWallet(Wallet wallet) {
+    private UserDetails createUserDetailsFromWallet(WalletPrincipal wallet) {
+        List<GrantedAuthority> authorities = adminPhoneNumbers.contains(wallet.getMobileNumber())
+                ? List.of(new SimpleGrantedAuthority("ROLE_WALLET"), new SimpleGrantedAuthority("ROLE_ADMIN"))
+                : List.of(new SimpleGrantedAuthority("ROLE_WALLET"));
         return new User(
                 wallet.getMobileNumber(),
                 wallet.getWalletPin() != null ? wallet.getWalletPin() : "", // PIN as password
-                wallet.getBlockAction() == null || wallet.getBlockAction() != 'Y', // isEnabled (not blocked)
+                !wallet.isBlocked(), // isEnabled (not blocked)
                 true, // accountNonExpired
                 true, // credentialsNonExpired
-                wallet.getBlockAction() == null || wallet.getBlockAction() != 'Y', // accountNonLocked
-                Collections.singletonList(new SimpleGrantedAuthority("ROLE_WALLET"))
+                !wallet.isBlocked(), // accountNonLocked
+                authorities
         );
     }
 }
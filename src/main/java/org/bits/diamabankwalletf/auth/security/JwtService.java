@@ -31,6 +31,9 @@ public class JwtService {
     private static final String CLIENT_CODE_CLAIM = "clientCode";
     private static final String BANK_CODE_CLAIM = "bankCode";
 
+    private volatile Key signingKey;
+    private volatile JwtParser jwtParser;
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -79,50 +82,51 @@ public class JwtService {
 
 
     public boolean isTokenValid(String token) {
-        try {
-            log.debug("=== SIMPLE TOKEN VALIDATION ===");
-            log.debug("Validating token, length: {}", token.length());
+        return parseVerifiedClaims(token) != null;
+    }
 
+    /**
+     * Verifies the token once (signature, expiry, subject) and returns its wallet claims,
+     * or null when the token is not acceptable.
+     */
+    public WalletTokenClaims parseVerifiedClaims(String token) {
+        try {
             Claims claims = extractAllClaims(token);
-            log.debug("Claims extracted successfully");
 
             Date expiration = claims.getExpiration();
-            boolean isExpired = expiration.before(new Date());
-
-            log.debug("Token expiration: {}", expiration);
-            log.debug("Current time: {}", new Date());
-            log.debug("Token expired: {}", isExpired);
-
-            if (isExpired) {
+            if (expiration == null || expiration.before(new Date())) {
                 log.warn("Token is expired");
-                return false;
+                return null;
             }
 
             String phoneNumber = claims.getSubject();
-            log.debug("Token subject (phone): {}", phoneNumber);
-
             if (phoneNumber == null || phoneNumber.isEmpty()) {
                 log.warn("Token has no subject (phone number)");
-                return false;
+                return null;
             }
 
-            log.debug("Simple token validation successful");
-            return true;
+            log.debug("Token verified for subject: {}, expires: {}", phoneNumber, expiration);
+            return new WalletTokenClaims(
+                    phoneNumber,
+                    claims.get(WALLET_NUMBER_CLAIM, String.class),
+                    claims.get(BANK_CODE_CLAIM, String.class),
+                    claims.get(CLIENT_CODE_CLAIM, String.class),
+                    claims.get(DEVICE_ID_CLAIM, String.class),
+                    expiration
+            );
 
         } catch (ExpiredJwtException e) {
             log.warn("Token expired: {}", e.getMessage());
-            return false;
+            return null;
         } catch (MalformedJwtException e) {
             log.error("Malformed token: {}", e.getMessage());
-            return false;
+            return null;
         } catch (SignatureException e) {
             log.error("Invalid token signature: {}", e.getMessage());
-            return false;
+            return null;
         } catch (Exception e) {
             log.error("Token validation error: {}", e.getMessage());
-            return false;
-        } finally {
-            log.debug("===============================");
+            return null;
         }
     }
 
@@ -189,17 +193,31 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
+        return getParser()
                 .parseClaimsJws(token)
                 .getBody();
     }
 
+    // The parser and key are immutable and thread-safe, so they are built once
+    private JwtParser getParser() {
+        JwtParser parser = jwtParser;
+        if (parser == null) {
+            parser = Jwts.parserBuilder()
+                    .setSigningKey(getSigningKey())
+                    .build();
+            jwtParser = parser;
+        }
+        return parser;
+    }
+
     private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtConfig.getSecretKey());
-        return Keys.hmacShaKeyFor(keyBytes);
+        Key key = signingKey;
+        if (key == null) {
+            byte[] keyBytes = Decoders.BASE64.decode(jwtConfig.getSecretKey());
+            key = Keys.hmacShaKeyFor(keyBytes);
+            signingKey = key;
+        }
+        return key;
     }
 
     public long getExpirationTime() {
@@ -0,0 +1,19 @@
+package org.bits.diamabankwalletf.auth.security;
+
+import java.util.Date;
+
+/**
+ * Claims of a wallet JWT whose signature and expiry have already been verified.
+ * JwtAuthFilter stores it on the request under {@link #REQUEST_ATTRIBUTE} so later
+ * code can read the wallet identity without parsing the token again.
+ */
+public record WalletTokenClaims(
+        String subject,
+        String walletNumber,
+        String bankCode,
+        String clientCode,
+        String deviceId,
+        Date expiration
+) {
+    public static final String REQUEST_ATTRIBUTE = "walletTokenClaims";
+}
@@ -1,25 +1,101 @@
 package org.bits.diamabankwalletf.config;
 
 import io.netty.channel.ChannelOption;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.bits.diamabankwalletf.service.ServiceAccountTokenManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ReactorClientHttpRequestFactory;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.time.Duration;
 
 @Configuration
 public class AppConfig {
 
+    /**
+     * Connection pool shared by every call to the wallet backend. Idle and long-lived
+     * connections are evicted in the background so a backend restart or a load-balancer
+     * idle cut does not surface as a failed request on a stale socket.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider walletBackendConnectionProvider(
+            @Value("${wallet.backend.pool.max-connections:200}") int maxConnections,
+            @Value("${wallet.backend.pool.pending-acquire-max-count:500}") int pendingAcquireMaxCount,
+            @Value("${wallet.backend.pool.pending-acquire-timeout-ms:5000}") long pendingAcquireTimeoutMs,
+            @Value("${wallet.backend.pool.max-idle-time-ms:30000}") long maxIdleTimeMs,
+            @Value("${wallet.backend.pool.max-life-time-ms:300000}") long maxLifeTimeMs,
+            @Value("${wallet.backend.pool.evict-in-background-ms:60000}") long evictInBackgroundMs) {
+        return ConnectionProvider.builder("wallet-backend")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                .maxLifeTime(Duration.ofMillis(maxLifeTimeMs))
+                .evictInBackground(Duration.ofMillis(evictInBackgroundMs))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public HttpClient walletBackendHttpClient(ConnectionProvider walletBackendConnectionProvider,
+                                              @Value("${wallet.backend.connect-timeout-ms:10000}") int connectTimeoutMs,
+                                              @Value("${wallet.backend.timeouts.default:30s}") Duration responseTimeout) {
+        return HttpClient.create(walletBackendConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(responseTimeout);
+    }
+
     @Bean
-    public WebClient webClient() {
+    public WebClient webClient(HttpClient walletBackendHttpClient,
+                               ObjectProvider<ServiceAccountTokenManager> tokenManager) {
         return WebClient.builder()
-                .clientConnector(new ReactorClientHttpConnector(HttpClient.create()
-                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 10000)
-                        .responseTimeout(Duration.ofSeconds(30))))
+                .clientConnector(new ReactorClientHttpConnector(walletBackendHttpClient))
+                .filter(retryOnExpiredServiceToken(tokenManager))
                 .build();
     }
+
+    /**
+     * Blocking client for the few callers that still use RestTemplate; it draws from the
+     * same connection pool as the WebClient.
+     */
+    @Bean
+    public RestTemplate restTemplate(HttpClient walletBackendHttpClient,
+                                     @Value("${wallet.backend.timeouts.default:30s}") Duration responseTimeout) {
+        ReactorClientHttpRequestFactory requestFactory = new ReactorClientHttpRequestFactory(walletBackendHttpClient);
+        requestFactory.setReadTimeout(responseTimeout);
+        return new RestTemplate(requestFactory);
+    }
+
+    /**
+     * Retries a backend call once with a fresh service-account token when the cached one
+     * is rejected with a 401. Calls that did not use the managed token are left untouched.
+     */
+    private ExchangeFilterFunction retryOnExpiredServiceToken(ObjectProvider<ServiceAccountTokenManager> tokenManager) {
+        return (request, next) -> next.exchange(request).flatMap(response -> {
+            String usedToken = request.headers().getFirst(HttpHeaders.AUTHORIZATION);
+            if (response.statusCode().value() != HttpStatus.UNAUTHORIZED.value() || usedToken == null
+                    || !tokenManager.getObject().isCurrentToken(usedToken)) {
+                return Mono.just(response);
+            }
+            return response.releaseBody()
+                    .then(Mono.fromCallable(() -> tokenManager.getObject().refreshAfterUnauthorized(usedToken))
+                            .subscribeOn(Schedulers.boundedElastic()))
+                    .flatMap(freshToken -> next.exchange(ClientRequest.from(request)
+                            .headers(headers -> headers.set(HttpHeaders.AUTHORIZATION, freshToken))
+                            .build()));
+        });
+    }
 }
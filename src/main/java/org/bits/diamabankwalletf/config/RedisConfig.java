@@ -0,0 +1,38 @@
+package org.bits.diamabankwalletf.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Redis connection, created only when a feature is configured to use Redis.
+ * Boot's Redis auto-configuration is excluded so single-node deployments do not
+ * get a connection factory (and a failing health check) they never use.
+ */
+@Configuration
+@ConditionalOnProperty(name = "otp.store.type", havingValue = "redis")
+public class RedisConfig {
+
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory(
+            @Value("${redis.host:localhost}") String host,
+            @Value("${redis.port:6379}") int port,
+            @Value("${redis.password:}") String password,
+            @Value("${redis.database:0}") int database) {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(host, port);
+        configuration.setDatabase(database);
+        if (!password.isEmpty()) {
+            configuration.setPassword(password);
+        }
+        return new LettuceConnectionFactory(configuration);
+    }
+
+    @Bean
+    public StringRedisTemplate stringRedisTemplate(LettuceConnectionFactory redisConnectionFactory) {
+        return new StringRedisTemplate(redisConnectionFactory);
+    }
+}
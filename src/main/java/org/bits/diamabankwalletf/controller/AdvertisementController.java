@@ -3,13 +3,18 @@ package org.bits.diamabankwalletf.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.model.Advertisement;
+import org.bits.diamabankwalletf.service.AdvertisementImageCache;
 import org.bits.diamabankwalletf.service.AdvertisementService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/advertisements")
@@ -18,6 +23,7 @@ import java.util.Map;
 public class AdvertisementController {
 
     private final AdvertisementService advertisementService;
+    private final AdvertisementImageCache advertisementImageCache;
 
     @GetMapping
     public ResponseEntity<List<Map<String, Object>>> getAdvertisements(
@@ -27,6 +33,29 @@ public class AdvertisementController {
         return ResponseEntity.ok(ads);
     }
 
+    /**
+     * Serve an advertisement image by the SHA-256 of its content. The bytes behind a hash
+     * never change, so clients and proxies may cache the response indefinitely.
+     */
+    @GetMapping("/images/{hash}")
+    public ResponseEntity<byte[]> getAdvertisementImage(
+            @PathVariable("hash") String hash,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = "\"" + hash + "\"";
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        return advertisementImageCache.getImage(hash)
+                .map(image -> ResponseEntity.ok()
+                        .eTag(etag)
+                        .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                        .contentType(MediaType.parseMediaType(image.contentType()))
+                        .contentLength(image.bytes().length)
+                        .body(image.bytes()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
 
     @PostMapping
     public ResponseEntity<?> createAdvertisement(@RequestBody CreateAdRequest request) {
@@ -11,10 +11,10 @@ import org.bits.diamabankwalletf.exception.AccountLockedException;
 import org.bits.diamabankwalletf.model.Wallet;
 import org.bits.diamabankwalletf.model.WalletDetails;
 import org.bits.diamabankwalletf.repository.DeviceRepository;
-import org.bits.diamabankwalletf.repository.NationalityRepository;
 import org.bits.diamabankwalletf.repository.WalletRepository;
 import org.bits.diamabankwalletf.service.*;
 import org.bits.diamabankwalletf.utils.IpAddressUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AccountStatusException;
@@ -37,17 +37,11 @@ public class AuthController {
     private final IpAddressUtils ipAddressUtils;
     private final AuthService authService;
     private final DeviceService deviceService;
-    private final BranchService branchService;
     private final NotificationService notificationService;
-    private final ProviderService providerService;
-    private final AdvertisementService advertisementService;
-    private final EpsProfileService profileService;
     private final WalletService walletService;
-    private final ProcessingService processingService;
-    private final BankService bankService;
     private final WalletAuthService walletAuthService;
     private final PinExpiryService pinExpiryService;
-    private final NationalityRepository nationalityRepository;
+    private final LoginBootstrapService loginBootstrapService;
 
     // Constants for better maintainability
     private static final String PERSONAL_CLIENT_TYPE = "P";
@@ -77,14 +71,15 @@ public class AuthController {
             return versionCheckResponse;
         }
 
-        // Find and validate wallet (authentication still from WALLET_DATA only)
-        Optional<Wallet> walletOpt = walletRepository.findByPhoneNumber(phoneNumber);
-        if (walletOpt.isEmpty()) {
+        // Wallet, customer and registered device in one read (authentication still from WALLET_DATA only)
+        Optional<LoginContext> contextOpt = walletAuthService.loadLoginContext(phoneNumber, authRequest.getDeviceId());
+        if (contextOpt.isEmpty()) {
             log.warn("Login failed: wallet not found for phoneNumber=[{}]", phoneNumber);
             return createUnauthorizedResponse("User not found", null);
         }
 
-        Wallet wallet = walletOpt.get();
+        LoginContext loginContext = contextOpt.get();
+        Wallet wallet = loginContext.getWallet();
 
         // Validate client type
         if (!isValidClientType(wallet)) {
@@ -101,7 +96,7 @@ public class AuthController {
         log.info("=== ABOUT TO CHECK BLOCKING STATUS ===");
         log.info("Phone number: {}", phoneNumber);
 
-        boolean userBlocked = walletAuthService.isUserBlocked(phoneNumber);
+        boolean userBlocked = walletAuthService.isUserBlocked(loginContext);
         log.info("Block check result: {}", userBlocked);
 
         if (userBlocked) {
@@ -111,7 +106,7 @@ public class AuthController {
 
         log.info("Block check passed, continuing with login");
 
-        boolean userCancelled = walletAuthService.isUserCancelled(phoneNumber);
+        boolean userCancelled = walletAuthService.isUserCancelled(loginContext);
         log.info("Cancelled check result: {}", userCancelled);
 
         if (userCancelled) {
@@ -123,7 +118,7 @@ public class AuthController {
 
         // Verify PIN
         if (!walletAuthService.verifyPin(wallet, pin)) {
-            return handleFailedPinVerification(wallet, phoneNumber);
+            return handleFailedPinVerification(loginContext, phoneNumber);
         }
 
         log.info("PIN verification successful for phoneNumber=[{}]", phoneNumber);
@@ -137,10 +132,10 @@ public class AuthController {
         log.info("All PIN checks passed for phoneNumber=[{}], proceeding with normal login", phoneNumber);
 
         // Record successful login in both tables
-        walletAuthService.recordSuccessfulLogin(wallet);
+        walletAuthService.recordSuccessfulLogin(loginContext);
 
         // Handle device verification
-        return handleDeviceVerification(authRequest, wallet, ipAddress);
+        return handleDeviceVerification(authRequest, loginContext, ipAddress, request.getHeader(HttpHeaders.IF_NONE_MATCH));
     }
 
     @PostMapping("/verify-otp")
@@ -168,7 +163,7 @@ public class AuthController {
 
         log.info("OTP verification successful, continuing with login flow for phoneNumber=[{}]", phoneNumber);
         String ipAddress = ipAddressUtils.getClientIp(httpRequest);
-        return processLogin(phoneNumber, deviceId, ipAddress);
+        return processLogin(phoneNumber, deviceId, ipAddress, httpRequest.getHeader(HttpHeaders.IF_NONE_MATCH));
     }
 
     @PostMapping("/init-pin")
@@ -212,8 +207,8 @@ public class AuthController {
         return wallet.getClientType() != null && wallet.getClientType().toString().equals(PERSONAL_CLIENT_TYPE);
     }
 
-    private ResponseEntity<?> handleFailedPinVerification(Wallet wallet, String phoneNumber) {
-        boolean shouldBlock = walletAuthService.handleFailedLogin(wallet);
+    private ResponseEntity<?> handleFailedPinVerification(LoginContext loginContext, String phoneNumber) {
+        boolean shouldBlock = walletAuthService.handleFailedLogin(loginContext);
         log.info("Login failed: invalid PIN for phoneNumber=[{}], blockRequired=[{}]", phoneNumber, shouldBlock);
 
 
@@ -263,10 +258,12 @@ public class AuthController {
         return null; // No PIN issues
     }
 
-    private ResponseEntity<?> handleDeviceVerification(AuthRequest authRequest, Wallet wallet, String ipAddress) {
+    private ResponseEntity<?> handleDeviceVerification(AuthRequest authRequest, LoginContext loginContext, String ipAddress,
+                                                       String ifNoneMatch) {
+        final Wallet wallet = loginContext.getWallet();
         final String phoneNumber = authRequest.getPhoneNumber();
         final String deviceId = authRequest.getDeviceId();
-        final String storedDeviceId = deviceService.getDeviceId(phoneNumber);
+        final String storedDeviceId = loginContext.getRegisteredDeviceId();
 
         log.info("Device check: phoneNumber=[{}], requestDeviceId=[{}], storedDeviceId=[{}]",
                 phoneNumber, deviceId, storedDeviceId);
@@ -281,7 +278,7 @@ public class AuthController {
         String token = jwtService.generateWalletToken(wallet, deviceId, ipAddress);
         log.info("JWT token generated successfully for phoneNumber=[{}]", phoneNumber);
 
-        return buildWalletResponse(wallet, token, SUCCESS_RESP_CODE);
+        return buildWalletResponse(wallet, token, SUCCESS_RESP_CODE, ifNoneMatch);
     }
 
     private ResponseEntity<?> handleNewDevice(String phoneNumber) {
@@ -307,26 +304,27 @@ public class AuthController {
         }
     }
 
-    private ResponseEntity<?> processLogin(String phoneNumber, String deviceId, String ipAddress) {
-        // Find wallet by phone number (authentication still from WALLET_DATA only)
-        Optional<Wallet> walletOpt = walletRepository.findByPhoneNumber(phoneNumber);
-        if (walletOpt.isEmpty()) {
+    private ResponseEntity<?> processLogin(String phoneNumber, String deviceId, String ipAddress, String ifNoneMatch) {
+        // Wallet and customer in one read (authentication still from WALLET_DATA only)
+        Optional<LoginContext> contextOpt = walletAuthService.loadLoginContext(phoneNumber, deviceId);
+        if (contextOpt.isEmpty()) {
             log.warn("processLogin: wallet not found for phoneNumber=[{}]", phoneNumber);
             return createUnauthorizedResponse("User not found", null);
         }
 
-        Wallet wallet = walletOpt.get();
+        LoginContext loginContext = contextOpt.get();
+        Wallet wallet = loginContext.getWallet();
         log.info("processLogin: wallet found for phoneNumber=[{}], bankCode=[{}]",
                 phoneNumber, wallet.getBankCode());
 
         // Check if user is blocked - ONLY from CUSTOMER_DWS table
-        if (walletAuthService.isUserBlocked(phoneNumber)) {
+        if (walletAuthService.isUserBlocked(loginContext)) {
             log.warn("processLogin: user blocked (from customer table) for phoneNumber=[{}]", phoneNumber);
             throw new AccountLockedException(BLOCKED_ACCOUNT_CODE);
         }
 
         // Check if user is cancelled/deactivated (status = 'C')
-        if (walletAuthService.isUserCancelled(phoneNumber)) {
+        if (walletAuthService.isUserCancelled(loginContext)) {
             log.warn("processLogin: user cancelled for phoneNumber=[{}]", phoneNumber);
             throw new AccountCancelledException(BLOCKED_ACCOUNT_CODE);
         }
@@ -336,10 +334,15 @@ public class AuthController {
         String token = jwtService.generateWalletToken(wallet, deviceId, ipAddress);
         log.info("processLogin: wallet JWT token generated successfully for phoneNumber=[{}]", phoneNumber);
 
-        return buildWalletResponse(wallet, token, SUCCESS_RESP_CODE);
+        return buildWalletResponse(wallet, token, SUCCESS_RESP_CODE, ifNoneMatch);
     }
 
-    private ResponseEntity<AuthResponse> buildWalletResponse(Wallet wallet, String token, String respCode) {
+    /**
+     * When the client's If-None-Match matches the bank's bootstrap ETag, the cached
+     * reference lists are left out of the response; the ETag header is always sent.
+     */
+    private ResponseEntity<AuthResponse> buildWalletResponse(Wallet wallet, String token, String respCode,
+                                                             String ifNoneMatch) {
         final String phoneNumber = wallet.getMobileNumber();
         final String bankCode = wallet.getBankCode();
         final String walletNumber = wallet.getWalletNumber();
@@ -351,13 +354,20 @@ public class AuthController {
         WalletDetails walletDetails = new WalletDetails(wallet);
 
         // Fetch all required data efficiently
-        WalletResponseData responseData = fetchWalletResponseData(wallet, bankCode);
+        LoginBootstrap bootstrap = loginBootstrapService.getBootstrap(bankCode);
+        boolean bootstrapUnchanged = bootstrap.getEtag() != null && bootstrap.getEtag().equals(ifNoneMatch);
+        WalletResponseData responseData = fetchWalletResponseData(wallet, bootstrap, bootstrapUnchanged);
 
         log.info("Wallet login successful for phoneNumber=[{}], walletNumber=[{}]", phoneNumber, walletNumber);
 
         logResponseDataSizes(phoneNumber, responseData);
 
-        return ResponseEntity.ok(AuthResponse.builder()
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (bootstrap.getEtag() != null) {
+            ok.eTag(bootstrap.getEtag());
+        }
+
+        return ok.body(AuthResponse.builder()
                 .success(true)
                 .token(token)
                 .message("Login successful")
@@ -386,67 +396,40 @@ public class AuthController {
                 .build());
     }
 
-    private WalletResponseData fetchWalletResponseData(Wallet wallet, String bankCode) {
+    private WalletResponseData fetchWalletResponseData(Wallet wallet, LoginBootstrap bootstrap, boolean bootstrapUnchanged) {
         log.info("Fetching response data for wallet phoneNumber=[{}], walletNumber=[{}]",
                 wallet.getMobileNumber(), wallet.getWalletNumber());
 
         WalletResponseData.WalletResponseDataBuilder builder = WalletResponseData.builder();
 
-        // Bank wording
-        builder.bankWording(bankService.getBankWording(bankCode));
+        // Bank wording and ads delay are small, always sent
+        builder.bankWording(bootstrap.getBankWording())
+                .adsDelay(bootstrap.getAdsDelay());
 
         // Notifications - use client code if available
         List<?> notificationList = wallet.getClientCode() != null ?
                 notificationService.getNotificationList(wallet.getClientCode()) : List.of();
         builder.notificationList(notificationList);
 
-        // Secret questions
-        List<JSONObject> walletQuestionsList = fetchSecretQuestions();
-        builder.walletQuestionsList(walletQuestionsList);
-
-        List<?> nationalities = fetchNationalities();
-        builder.nationalitiesList(nationalities);
+        builder.reasonList(walletService.getReasonList(bootstrap.getBankCode(), wallet.getClientCode()));
 
-        // Various service lists
-        builder.reasonList(walletService.getReasonList(bankCode, wallet.getClientCode()))
-                .providerList(providerService.getProviderList())
-                .airtimeProviderList(providerService.getAirtimeProviderList())
-                .processingCodes(processingService.getProcessingCodes())
-                .branchList(branchService.getAllBranches(bankCode));
+        if (bootstrapUnchanged) {
+            log.debug("Client already holds login bootstrap {}, omitting reference lists", bootstrap.getEtag());
+            return builder.build();
+        }
 
-        // Advertisement data
-        List<?> ads = advertisementService.getAdsForBank(bankCode);
-        int adsDelay = Integer.parseInt(profileService.getEpsProfile("ADS_DELAY_WALLET"));
-        builder.ads(ads).adsDelay(adsDelay);
+        // Cached per-bank reference data
+        builder.walletQuestionsList(bootstrap.getQuestionsList())
+                .nationalitiesList(bootstrap.getNationalitiesList())
+                .providerList(bootstrap.getProviderList())
+                .airtimeProviderList(bootstrap.getAirtimeProviderList())
+                .processingCodes(bootstrap.getProcessingCodes())
+                .branchList(bootstrap.getBranchList())
+                .ads(bootstrap.getAds());
 
         return builder.build();
     }
 
-    @SuppressWarnings("unchecked")
-    private List<JSONObject> fetchSecretQuestions() {
-        try {
-            JResponseService secretQResponse = walletService.getWalletQuestionsList();
-
-            if (secretQResponse != null && SUCCESS_RESP_CODE.equals(secretQResponse.getRespCode())) {
-                List<JSONObject> questions = (List<JSONObject>) secretQResponse.getResult();
-                log.info("Successfully fetched {} secret questions for wallet",
-                        questions != null ? questions.size() : 0);
-                return questions != null ? questions : List.of();
-            } else {
-                log.warn("Failed to fetch secret questions: {}",
-                        secretQResponse != null ? secretQResponse.getMessage() : "Unknown error");
-                return List.of();
-            }
-        } catch (Exception e) {
-            log.error("Error fetching secret questions for wallet: {}", e.getMessage());
-            return List.of();
-        }
-    }
-
-    private List<?> fetchNationalities() {
-        return nationalityRepository.findAll();
-    }
-
     private void logResponseDataSizes(String phoneNumber, WalletResponseData data) {
         log.debug("Response data sizes for phoneNumber=[{}]: notifications=[{}], questions=[{}], " +
                         "reasons=[{}], providers=[{}], airtimeProviders=[{}], processingCodes=[{}], " +
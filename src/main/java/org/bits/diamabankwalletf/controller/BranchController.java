@@ -64,6 +64,7 @@ public class BranchController {
      * @param longitude User's current longitude
      * @param bankCode Bank code to filter branches
      * @param maxDistance Maximum distance in kilometers (optional)
+     * @param limit Maximum number of branches to return (optional)
      * @return List of nearby branches
      */
     @GetMapping("/nearby")
@@ -71,13 +72,14 @@ public class BranchController {
             @RequestParam Double latitude,
             @RequestParam Double longitude,
             @RequestParam String bankCode,
-            @RequestParam(required = false) Double maxDistance) {
+            @RequestParam(required = false) Double maxDistance,
+            @RequestParam(required = false) Integer limit) {
 
         log.info("Finding nearby branches at [{}, {}] for bank: {}",
                 latitude, longitude, bankCode);
 
         List<Map<String, Object>> nearbyBranches = branchService.getNearbyBranches(
-                latitude, longitude, bankCode, maxDistance);
+                latitude, longitude, bankCode, maxDistance, limit);
 
         if (nearbyBranches.isEmpty()) {
             return ResponseEntity.noContent().build();
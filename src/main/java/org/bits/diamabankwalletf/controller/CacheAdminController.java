@@ -0,0 +1,72 @@
+package org.bits.diamabankwalletf.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.service.FeeRuleEngine;
+import org.bits.diamabankwalletf.service.LoginBootstrapService;
+import org.bits.diamabankwalletf.service.WalletMessageDictionary;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/cache")
+@RequiredArgsConstructor
+@Slf4j
+public class CacheAdminController {
+
+    private final LoginBootstrapService loginBootstrapService;
+    private final FeeRuleEngine feeRuleEngine;
+    private final WalletMessageDictionary walletMessageDictionary;
+
+    /**
+     * Drop the cached login reference data for one bank, or for all banks when no bankCode is given
+     */
+    @PostMapping("/login-bootstrap/invalidate")
+    public ResponseEntity<Map<String, Object>> invalidateLoginBootstrap(
+            @RequestParam(value = "bankCode", required = false) String bankCode) {
+        log.info("Login bootstrap invalidation requested for bankCode=[{}]", bankCode);
+
+        if (bankCode == null || bankCode.isEmpty()) {
+            loginBootstrapService.invalidateAll();
+        } else {
+            loginBootstrapService.invalidate(bankCode);
+        }
+        return ResponseEntity.ok(Map.of("respCode", "000", "message", "Login bootstrap invalidated"));
+    }
+
+    /**
+     * Reload the in-memory AUTHORIZATION_FEES rules after the table was changed
+     */
+    @PostMapping("/fees/reload")
+    public ResponseEntity<Map<String, Object>> reloadFeeRules() {
+        log.info("Fee rule reload requested");
+
+        try {
+            feeRuleEngine.reload();
+            return ResponseEntity.ok(Map.of("respCode", "000", "message", "Fee rules reloaded"));
+        } catch (Exception e) {
+            log.error("Fee rule reload failed", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("respCode", "999", "message", "Fee rule reload failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Reload the in-memory WALLET_MESSAGES dictionary after the table was changed
+     */
+    @PostMapping("/wallet-messages/reload")
+    public ResponseEntity<Map<String, Object>> reloadWalletMessages() {
+        log.info("Wallet messages reload requested");
+
+        try {
+            walletMessageDictionary.reload();
+            return ResponseEntity.ok(Map.of("respCode", "000", "message", "Wallet messages reloaded"));
+        } catch (Exception e) {
+            log.error("Wallet messages reload failed", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("respCode", "999", "message", "Wallet messages reload failed: " + e.getMessage()));
+        }
+    }
+}
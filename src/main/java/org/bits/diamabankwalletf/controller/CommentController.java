@@ -11,8 +11,6 @@ import org.springframework.web.bind.annotation.RestController;
 
 import org.springframework.web.bind.annotation.*;
 
-import jakarta.mail.MessagingException;
-
 @RestController
 @RequestMapping("/api")
 public class CommentController {
@@ -25,23 +23,19 @@ public class CommentController {
 
     @PostMapping("/comments")
     public ResponseEntity<String> sendComment(@RequestBody CommentRequest request) {
-        try {
-            emailService.sendCustomerComment(request);
-            return ResponseEntity.ok("Comment sent successfully.");
-        } catch (MessagingException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error sending email: " + e.getMessage());
+        if (!emailService.sendCustomerComment(request)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Error sending email: too many pending emails, please try again later");
         }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body("Comment accepted for delivery.");
     }
 
     @PostMapping("/complaints")
     public ResponseEntity<String> submitComplaint(@RequestBody ComplaintRequest request) {
-        try {
-            emailService.sendComplaintEmail(request);
-            return ResponseEntity.ok("Complaint submitted successfully");
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Failed to submit complaint: " + e.getMessage());
+        if (!emailService.sendComplaintEmail(request)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Failed to submit complaint: too many pending emails, please try again later");
         }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body("Complaint submitted successfully");
     }
 }
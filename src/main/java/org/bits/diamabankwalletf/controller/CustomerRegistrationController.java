@@ -8,20 +8,24 @@ import org.bits.diamabankwalletf.model.Nationality;
 import org.bits.diamabankwalletf.repository.NationalityRepository;
 import org.bits.diamabankwalletf.service.DocumentUploadService;
 import org.bits.diamabankwalletf.service.OtpVerificationService;
+import org.bits.diamabankwalletf.service.PendingRegistrationStore;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.bits.diamabankwalletf.service.WalletCreationService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 @RestController
 @RequiredArgsConstructor
@@ -33,9 +37,10 @@ public class CustomerRegistrationController {
     private final OtpVerificationService otpVerificationService;
     private final DocumentUploadService documentUploadService;
     private final NationalityRepository nationalityRepository;
+    private final RequestIdGenerator requestIdGenerator;
 
     // Storage for complete registration data (including biometrics) - keyed by authCode
-    private static final Map<String, CustomerRegistrationRequest> CREATE_CUSTOMER_MAP = new ConcurrentHashMap<>();
+    private final PendingRegistrationStore pendingRegistrationStore;
 
 
     @GetMapping("/api/nationalities")
@@ -75,7 +80,7 @@ public class CustomerRegistrationController {
             // Handle response
             if ("000".equals(response.getRespCode())) {
                 // Store complete request data with biometrics for later use during OTP verification
-                CREATE_CUSTOMER_MAP.put(response.getAuthCode(), request);
+                pendingRegistrationStore.put(response.getAuthCode(), request);
 
                 log.info("Customer registration successful with authCode: {}, stored biometric data for upload",
                         response.getAuthCode());
@@ -131,33 +136,12 @@ public class CustomerRegistrationController {
             walletRequest.setPin(encryptedPin);
         }
 
-        walletRequest.setRequestId(generateRequestId());
-        walletRequest.setRequestDate(generateTimestamp());
+        walletRequest.setRequestId(requestIdGenerator.nextRequestId());
+        walletRequest.setRequestDate(requestIdGenerator.currentTimestamp());
 
         return walletRequest;
     }
 
-    /**
-     * Generate request ID
-     */
-    private String generateRequestId() {
-        // Format: YYMMDD + 6 random digits
-        SimpleDateFormat sdf = new SimpleDateFormat("yyMMdd");
-        String datePrefix = sdf.format(new Date());
-
-        // Generate 6 random digits
-        Random random = new Random();
-        String randomDigits = String.format("%06d", random.nextInt(1000000));
-
-        return datePrefix + randomDigits;
-    }
-
-    /**
-     * Generate timestamp for request
-     */
-    private String generateTimestamp() {
-        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-    }
 
     @PostMapping("/api/otp/verify")
     public ResponseEntity<ResponseServiceJson> verifyOtp(@RequestBody OtpVerRequest request) {
@@ -198,8 +182,9 @@ public class CustomerRegistrationController {
                     String customerId = extractCustomerIdFromResponse(response);
 
                     if (customerId != null) {
-                        // Retrieve stored registration data with biometrics
-                        CustomerRegistrationRequest registrationData = CREATE_CUSTOMER_MAP.get(request.getAuthCode());
+                        // Retrieve (and remove) stored registration data with biometrics
+                        CustomerRegistrationRequest registrationData =
+                                pendingRegistrationStore.take(request.getAuthCode()).orElse(null);
 
                         if (registrationData != null) {
                             log.info("Found stored registration data for authCode: {}, uploading documents for customer: {}",
@@ -221,9 +206,6 @@ public class CustomerRegistrationController {
                                 // Don't fail the OTP verification, just log the warning
                             }
 
-                            // Clean up stored data after successful processing
-                            CREATE_CUSTOMER_MAP.remove(request.getAuthCode());
-
                         } else {
                             log.warn("No stored registration data found for authCode: {}, skipping document upload",
                                     request.getAuthCode());
@@ -360,8 +342,7 @@ public class CustomerRegistrationController {
 
         // Try to decode with our service
         try {
-            DocumentUploadService tempService = new DocumentUploadService();
-            byte[] decoded = tempService.decodeBase64Image(base64String);
+            byte[] decoded = documentUploadService.decodeBase64Image(base64String);
             if (decoded != null) {
                 analysis.put("decodingStatus", "SUCCESS");
                 analysis.put("decodedBytes", decoded.length);
@@ -439,6 +420,50 @@ public class CustomerRegistrationController {
         }
     }
 
+    /**
+     * Manual document upload with the images as multipart files instead of base64 JSON
+     */
+    @PostMapping(value = "/api/customer/upload-documents", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<CustomerRegistrationResponse> uploadDocumentFiles(
+            @RequestParam("customerId") String customerId,
+            @RequestPart(value = "faceImage", required = false) MultipartFile faceImage,
+            @RequestPart(value = "documentFront", required = false) MultipartFile documentFront,
+            @RequestPart(value = "documentBack", required = false) MultipartFile documentBack) {
+        log.info("Manual multipart document upload request for customer: {}", customerId);
+
+        try {
+            if (customerId == null || customerId.trim().isEmpty()) {
+                CustomerRegistrationResponse errorResponse = new CustomerRegistrationResponse();
+                errorResponse.setRespCode("400");
+                errorResponse.setMessage("Customer ID is required");
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+
+            int uploadResult = documentUploadService.uploadAllDocumentFiles(
+                    customerId, faceImage, documentFront, documentBack);
+
+            CustomerRegistrationResponse response = new CustomerRegistrationResponse();
+            if (uploadResult == 0) {
+                response.setRespCode("000");
+                response.setMessage("Documents uploaded successfully");
+                log.info("Manual multipart document upload successful for customer: {}", customerId);
+            } else {
+                response.setRespCode("999");
+                response.setMessage("Document upload failed");
+                log.error("Manual multipart document upload failed for customer: {}", customerId);
+            }
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("Error during manual multipart document upload for customer: " + customerId, e);
+            CustomerRegistrationResponse errorResponse = new CustomerRegistrationResponse();
+            errorResponse.setRespCode("999");
+            errorResponse.setMessage("Upload failed: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
     /**
      * DTO for manual document upload requests
      */
@@ -0,0 +1,35 @@
+package org.bits.diamabankwalletf.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.service.IdempotencyService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/idempotency")
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyAdminController {
+
+    private final IdempotencyService idempotencyService;
+
+    /**
+     * Clear a key whose request timed out once the backend confirmed it was not processed, so
+     * that the customer can retry it
+     */
+    @PostMapping("/unknown/clear")
+    public ResponseEntity<Map<String, Object>> clearUnknown(@RequestParam("operation") String operation,
+                                                            @RequestParam("owner") String owner,
+                                                            @RequestParam("key") String key) {
+        log.info("Clearing unknown idempotency key for operation={}, owner={}", operation, owner);
+
+        if (!idempotencyService.clearUnknown(operation, owner, key)) {
+            return ResponseEntity.status(404)
+                    .body(Map.of("respCode", "404", "message", "No idempotency key with an unknown outcome"));
+        }
+        return ResponseEntity.ok(Map.of("respCode", "000", "message", "Idempotency key cleared"));
+    }
+}
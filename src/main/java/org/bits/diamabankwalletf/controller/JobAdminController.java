@@ -0,0 +1,36 @@
+package org.bits.diamabankwalletf.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.jobs.JobCoordinator;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/jobs")
+@RequiredArgsConstructor
+@Slf4j
+public class JobAdminController {
+
+    private final JobCoordinator jobCoordinator;
+
+    /**
+     * Latest runs of the coordinated scheduled jobs on all nodes, most recent first
+     */
+    @GetMapping("/runs")
+    public ResponseEntity<Map<String, Object>> recentRuns(
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(Map.of(
+                    "respCode", "000",
+                    "node", jobCoordinator.getNodeId(),
+                    "runs", jobCoordinator.recentRuns(Math.max(1, Math.min(limit, 500)))));
+        } catch (Exception e) {
+            log.error("Could not read job run history", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("respCode", "999", "message", "Job run history unavailable: " + e.getMessage()));
+        }
+    }
+}
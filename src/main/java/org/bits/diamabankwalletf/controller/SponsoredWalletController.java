@@ -4,16 +4,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.dto.*;
 import org.bits.diamabankwalletf.service.SponsoredWalletService;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Random;
-
 @RestController
 @RequestMapping("/api/sponsor")
 @RequiredArgsConstructor
@@ -21,22 +18,18 @@ import java.util.Random;
 public class SponsoredWalletController {
 
     private final SponsoredWalletService sponsoredWalletService;
+    private final RequestIdGenerator requestIdGenerator;
 
     @PostMapping("/daily-limits")
     public ResponseEntity<ResponseService> sponsoredWalletDailyLimits(@RequestBody RequestGetDailyLimitSponsorWallet request) {
 
         if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            request.setRequestId(datePrefix + randomDigits);
+            request.setRequestId(requestIdGenerator.nextRequestId());
             log.debug("RequestId généré: {}", request.getRequestId());
         }
 
         if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            request.setRequestDate(dateFormat.format(new Date()));
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
             log.debug("RequestDate générée: {}", request.getRequestDate());
         }
 
@@ -58,17 +51,12 @@ public class SponsoredWalletController {
         log.info("Demande reçue pour lier un portefeuille sponsorisé: {}", request.getWalletNumberSponsored());
 
         if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            request.setRequestId(datePrefix + randomDigits);
+            request.setRequestId(requestIdGenerator.nextRequestId());
             log.debug("RequestId généré: {}", request.getRequestId());
         }
 
         if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            request.setRequestDate(dateFormat.format(new Date()));
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
             log.debug("RequestDate générée: {}", request.getRequestDate());
         }
 
@@ -112,17 +100,12 @@ public class SponsoredWalletController {
 
         // Compléter les champs manquants dans la requête
         if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            request.setRequestId(datePrefix + randomDigits);
+            request.setRequestId(requestIdGenerator.nextRequestId());
             log.debug("Generated requestId: {}", request.getRequestId());
         }
 
         if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            request.setRequestDate(dateFormat.format(new Date()));
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
             log.debug("Generated requestDate: {}", request.getRequestDate());
         }
 
@@ -192,18 +175,13 @@ public class SponsoredWalletController {
 
         // Generate requestId if not provided
         if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            request.setRequestId(datePrefix + randomDigits);
+            request.setRequestId(requestIdGenerator.nextRequestId());
             log.debug("Generated requestId: {}", request.getRequestId());
         }
 
         // Generate requestDate if not provided
         if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            request.setRequestDate(dateFormat.format(new Date()));
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
             log.debug("Generated requestDate: {}", request.getRequestDate());
         }
 
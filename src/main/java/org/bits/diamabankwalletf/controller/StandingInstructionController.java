@@ -5,16 +5,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.dto.*;
 import org.bits.diamabankwalletf.service.StandingInstructionService;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Random;
-
 @RestController
 @RequestMapping("/api/standing-instruction")
 @RequiredArgsConstructor
@@ -23,6 +20,7 @@ public class StandingInstructionController {
 
     private final StandingInstructionService standingInstructionService;
     private final PinEncryptionUtil pinEncryptionUtil;
+    private final RequestIdGenerator requestIdGenerator;
 
     @PostMapping("/list")
     public ResponseEntity<JResponseService> listStandingInstructions(@RequestBody RequestStandingInstructionList request) {
@@ -30,17 +28,12 @@ public class StandingInstructionController {
 
         // Set default values if not provided
         if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            request.setRequestId(datePrefix + randomDigits);
+            request.setRequestId(requestIdGenerator.nextRequestId());
             log.debug("Generated requestId: {}", request.getRequestId());
         }
 
         if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            request.setRequestDate(dateFormat.format(new Date()));
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
             log.debug("Generated requestDate: {}", request.getRequestDate());
         }
 
@@ -64,18 +57,13 @@ public class StandingInstructionController {
 
         // Generate requestId if not provided
         if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            request.setRequestId(datePrefix + randomDigits);
+            request.setRequestId(requestIdGenerator.nextRequestId());
             log.debug("Generated requestId: {}", request.getRequestId());
         }
 
         // Generate requestDate if not provided
         if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            request.setRequestDate(dateFormat.format(new Date()));
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
             log.debug("Generated requestDate: {}", request.getRequestDate());
         }
 
@@ -93,17 +81,12 @@ public class StandingInstructionController {
 
         // Generate requestId and requestDate if not provided
         if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            request.setRequestId(datePrefix + randomDigits);
+            request.setRequestId(requestIdGenerator.nextRequestId());
             log.debug("Generated requestId: {}", request.getRequestId());
         }
 
         if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            request.setRequestDate(dateFormat.format(new Date()));
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
             log.debug("Generated requestDate: {}", request.getRequestDate());
         }
 
@@ -120,18 +103,13 @@ public class StandingInstructionController {
 
         // Generate requestId if not provided
         if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            request.setRequestId(datePrefix + randomDigits);
+            request.setRequestId(requestIdGenerator.nextRequestId());
             log.debug("Generated requestId: {}", request.getRequestId());
         }
 
         // Generate requestDate if not provided
         if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            request.setRequestDate(dateFormat.format(new Date()));
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
             log.debug("Generated requestDate: {}", request.getRequestDate());
         }
 
@@ -12,15 +12,20 @@ import org.bits.diamabankwalletf.repository.CustomerRepository;
 import org.bits.diamabankwalletf.repository.WalletRepository;
 import org.bits.diamabankwalletf.service.*;
 import org.bits.diamabankwalletf.service.WalletTransferService;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.text.SimpleDateFormat;
+import java.security.Principal;
 import java.util.*;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/wallet")
@@ -38,6 +43,8 @@ public class WalletController {
     private final BankService bankService;
     private final WalletRepository walletRepository;
     private final CustomerRepository customerRepository;
+    private final IdempotencyService idempotencyService;
+    private final RequestIdGenerator requestIdGenerator;
 
     @PostMapping("/qr/customer")
     public ResponseEntity<ResponseServiceJson> getOrGenerateCustomerQR(@RequestBody RequestGetCustomerQR request) {
@@ -48,18 +55,13 @@ public class WalletController {
         try {
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.info("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.info("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -466,16 +468,11 @@ public class WalletController {
 
             // Generate request tracking fields if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
             log.debug("Calculating fee for: ProcessingCode={}, Amount={}, ActionCode={}",
@@ -552,16 +549,11 @@ public class WalletController {
 
         // Fill in missing required fields
         if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            request.setRequestId(datePrefix + randomDigits);
+            request.setRequestId(requestIdGenerator.nextRequestId());
         }
 
         if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            request.setRequestDate(dateFormat.format(new Date()));
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
         }
 
         JResponseService response = walletTransactionsService.getLast5Transactions(request);
@@ -583,16 +575,11 @@ public class WalletController {
 
         // Fill in missing required fields
         if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            request.setRequestId(datePrefix + randomDigits);
+            request.setRequestId(requestIdGenerator.nextRequestId());
         }
 
         if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            request.setRequestDate(dateFormat.format(new Date()));
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
         }
 
         JResponseService response = walletTransactionsService.getPendingTransactions(request);
@@ -618,17 +605,12 @@ public class WalletController {
         log.info("Received wallet enquiry request for wallet: {}", request.getWalletNumber());
 
         if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            request.setRequestId(datePrefix + randomDigits);
+            request.setRequestId(requestIdGenerator.nextRequestId());
             log.debug("Generated requestId: {}", request.getRequestId());
         }
 
         if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            request.setRequestDate(dateFormat.format(new Date()));
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
             log.debug("Generated requestDate: {}", request.getRequestDate());
         }
         if (request.getBank() == null || request.getBank().isEmpty()) {
@@ -644,41 +626,55 @@ public class WalletController {
     }
 
     @PostMapping("/qrtransfer")
-    public ResponseEntity<ResponseService> qrtransferToWallet(@RequestBody RequestQrPayment request) {
+    public Mono<ResponseEntity<ResponseService>> qrtransferToWallet(@RequestBody RequestQrPayment request,
+                                                                    @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                                    Principal principal) {
         log.info("Received qr transfer request: {}", request.getRequestId());
         request.setBank("00100");
-        ResponseService response = walletTransferService.qrtransferToWallet(request);
-        log.info("QR transfer response code: {}", response.getRespCode());
-        return ResponseEntity.ok(response);
+        return offServletThread(() -> idempotencyService.execute("qrtransfer", ownerOf(principal), IdempotencyService.keyOf(idempotencyKey, request.getRequestId()),
+                        request, ResponseService.class, () -> walletTransferService.qrtransferToWallet(request)))
+                .map(response -> {
+                    log.info("QR transfer response code: {}", response.getRespCode());
+                    return ResponseEntity.ok(response);
+                });
     }
 
     @PostMapping("/transfer")
-    public ResponseEntity<ResponseServiceJson> transferToWallet(@RequestBody RequestWalletToWallet request) {
+    public Mono<ResponseEntity<ResponseServiceJson>> transferToWallet(@RequestBody RequestWalletToWallet request,
+                                                                      @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                                      Principal principal) {
         log.info("Received wallet-to-wallet transfer request: {}", request.getRequestId());
         request.setSrcBank("00100");
-        ResponseServiceJson response = walletTransferService.transferToWallet(request);
-        log.info("Wallet transfer response code: {}", response.getRespCode());
-        return ResponseEntity.ok(response);
+        return offServletThread(() -> idempotencyService.execute("transfer", ownerOf(principal), IdempotencyService.keyOf(idempotencyKey, request.getRequestId()),
+                        request, ResponseServiceJson.class, () -> walletTransferService.transferToWallet(request)))
+                .map(response -> {
+                    log.info("Wallet transfer response code: {}", response.getRespCode());
+                    return ResponseEntity.ok(response);
+                });
     }
 
     @PostMapping("/transfer-to-account")
-    public ResponseEntity<ResponseServiceJson> transferToAccount(@RequestBody RequestWalletToBankAccount request) {
+    public Mono<ResponseEntity<ResponseServiceJson>> transferToAccount(@RequestBody RequestWalletToBankAccount request,
+                                                                       @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                                       Principal principal) {
         log.info("Received wallet-to-account transfer request: {}", request.getRequestId());
-        ResponseServiceJson response = walletTransferService.transferToAccount(request);
-
-        log.info("Wallet-to-account transfer completed with response code: {}", response.getRespCode());
-        return ResponseEntity.ok(response);
+        return offServletThread(() -> idempotencyService.execute("transfer-to-account", ownerOf(principal), IdempotencyService.keyOf(idempotencyKey, request.getRequestId()),
+                        request, ResponseServiceJson.class, () -> walletTransferService.transferToAccount(request)))
+                .map(response -> {
+                    log.info("Wallet-to-account transfer completed with response code: {}", response.getRespCode());
+                    return ResponseEntity.ok(response);
+                });
     }
 
     @PostMapping("/account-name-enquiry")
-    public ResponseEntity<ResponseServiceJson> accountNameEnquiry(@RequestBody RequestWalletToBankAccountNE request) {
+    public Mono<ResponseEntity<ResponseServiceJson>> accountNameEnquiry(@RequestBody RequestWalletToBankAccountNE request) {
         log.info("Received account name enquiry request for account: {}", request.getDesAccount());
 
-        ResponseServiceJson response = walletTransferService.accountNameEnquiry(request);
-
-        log.info("Account name enquiry completed with response code: {}", response.getRespCode());
-
-        return ResponseEntity.ok(response);
+        return offServletThread(() -> walletTransferService.accountNameEnquiry(request))
+                .map(response -> {
+                    log.info("Account name enquiry completed with response code: {}", response.getRespCode());
+                    return ResponseEntity.ok(response);
+                });
     }
 
     @PostMapping("/linked-accounts")
@@ -697,7 +693,7 @@ public class WalletController {
     }
 
     @PostMapping("/account-to-wallet")
-    public ResponseEntity<ResponseServiceJson> accountToWallet(@RequestBody AccountToWalletRequest request) {
+    public Mono<ResponseEntity<ResponseServiceJson>> accountToWallet(@RequestBody AccountToWalletRequest request) {
         String identifier = "W".equals(request.getSource()) ?
                 "wallet: " + request.getWalletNumber() :
                 "phone: " + request.getPhoneNumber();
@@ -705,30 +701,38 @@ public class WalletController {
         log.info("Received account-to-wallet transfer request for {} from account: {}",
                 identifier, request.getSrcAccount());
 
-        ResponseServiceJson response = walletTransferService.accountToWallet(request);
-
-        log.info("Account-to-wallet transfer completed with response code: {}", response.getRespCode());
-
-        return ResponseEntity.ok(response);
+        return offServletThread(() -> walletTransferService.accountToWallet(request))
+                .map(response -> {
+                    log.info("Account-to-wallet transfer completed with response code: {}", response.getRespCode());
+                    return ResponseEntity.ok(response);
+                });
     }
 
     @PostMapping("/wallet-to-mobile-money")
-    public ResponseEntity<ResponseService> transferToMobileMoney(@RequestBody RequestWalletToMB request) {
+    public Mono<ResponseEntity<ResponseService>> transferToMobileMoney(@RequestBody RequestWalletToMB request,
+                                                                       @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                                       Principal principal) {
         log.info("Received wallet-to-mobile-money transfer request: {}", request.getRequestId());
 
-        ResponseService response = walletTransferService.transferToMobileMoney(request);
-
-        log.info("Wallet-to-mobile-money transfer completed with response code: {}", response.getRespCode());
-
-        return ResponseEntity.ok(response);
+        return offServletThread(() -> idempotencyService.execute("wallet-to-mobile-money", ownerOf(principal), IdempotencyService.keyOf(idempotencyKey, request.getRequestId()),
+                        request, ResponseService.class, () -> walletTransferService.transferToMobileMoney(request)))
+                .map(response -> {
+                    log.info("Wallet-to-mobile-money transfer completed with response code: {}", response.getRespCode());
+                    return ResponseEntity.ok(response);
+                });
     }
 
     @PostMapping("/money-voucher")
-    public ResponseEntity<ResponseService> moneyVoucher(@RequestBody RequestMoneyVoucher request) {
+    public Mono<ResponseEntity<ResponseService>> moneyVoucher(@RequestBody RequestMoneyVoucher request,
+                                                              @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                              Principal principal) {
         log.info("Received money voucher: {}", request.getRequestId());
-        ResponseService response = moneyVoucherService.moneyVoucher(request);
-        log.info("Money voucher request completed with response code: {}", response.getRespCode());
-        return ResponseEntity.ok(response);
+        return offServletThread(() -> idempotencyService.execute("money-voucher", ownerOf(principal), IdempotencyService.keyOf(idempotencyKey, request.getRequestId()),
+                        request, ResponseService.class, () -> moneyVoucherService.moneyVoucher(request)))
+                .map(response -> {
+                    log.info("Money voucher request completed with response code: {}", response.getRespCode());
+                    return ResponseEntity.ok(response);
+                });
     }
 
     @PostMapping("/lastThirty")
@@ -777,22 +781,17 @@ public class WalletController {
     }
 
     @PostMapping("/mobile-money-enquiry")
-    public ResponseEntity<ResponseServiceJson> mobileMoneyNameEnquiry(@RequestBody RequestWalletToMobileMoneyNE request) {
+    public Mono<ResponseEntity<ResponseServiceJson>> mobileMoneyNameEnquiry(@RequestBody RequestWalletToMobileMoneyNE request) {
         log.info("Received mobile money name enquiry request for receiver: {}", request.getReceiverPhone());
 
         // Ensure required fields are present
         if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            request.setRequestId(datePrefix + randomDigits);
+            request.setRequestId(requestIdGenerator.nextRequestId());
             log.debug("Generated requestId: {}", request.getRequestId());
         }
 
         if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            request.setRequestDate(dateFormat.format(new Date()));
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
             log.debug("Generated requestDate: {}", request.getRequestDate());
         }
 
@@ -800,12 +799,9 @@ public class WalletController {
             request.setBank("00100");
         }
 
-        // Call the service
-        ResponseServiceJson response = walletTransferService.mobileMoneyNameEnquiry(request);
-
-        log.info("Mobile money name enquiry completed with response code: {}", response.getRespCode());
-
-        return ResponseEntity.ok(response);
+        // Call the service; the servlet thread is released while the backend answers
+        return offServletThread(() -> walletTransferService.mobileMoneyNameEnquiry(request))
+                .map(ResponseEntity::ok);
     }
 
     /**
@@ -948,4 +944,20 @@ public class WalletController {
 
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Customer the idempotency keys are scoped to: the phone number the JWT was issued for
+     */
+    private static String ownerOf(Principal principal) {
+        return principal != null ? principal.getName() : null;
+    }
+
+    /**
+     * Assembles and subscribes to {@code call} on the bounded elastic pool: the wallet lookups,
+     * PIN encryption, idempotency claim and token fetch before the backend call all block, and
+     * must not hold the servlet thread that Spring MVC hands the Mono back on
+     */
+    static <T> Mono<T> offServletThread(Supplier<Mono<T>> call) {
+        return Mono.defer(call).subscribeOn(Schedulers.boundedElastic());
+    }
 }
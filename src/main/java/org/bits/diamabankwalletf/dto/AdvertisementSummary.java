@@ -0,0 +1,17 @@
+package org.bits.diamabankwalletf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.Date;
+
+/**
+ * Advertisement row without its IMAGE BLOB.
+ */
+@Value
+@AllArgsConstructor
+public class AdvertisementSummary {
+    String id;
+    String description;
+    Date lastUpdate;
+}
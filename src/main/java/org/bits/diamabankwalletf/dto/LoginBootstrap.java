@@ -0,0 +1,28 @@
+package org.bits.diamabankwalletf.dto;
+
+import lombok.Builder;
+import lombok.Value;
+import net.sf.json.JSONObject;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-bank reference data sent with every successful login. Built once per bank by
+ * LoginBootstrapService; the etag identifies this exact content.
+ */
+@Value
+@Builder
+public class LoginBootstrap {
+    String bankCode;
+    String bankWording;
+    List<JSONObject> questionsList;
+    List<?> nationalitiesList;
+    List<?> providerList;
+    List<?> airtimeProviderList;
+    List<?> processingCodes;
+    List<Map<String, Object>> branchList;
+    List<?> ads;
+    int adsDelay;
+    String etag;
+}
@@ -0,0 +1,34 @@
+package org.bits.diamabankwalletf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import org.bits.diamabankwalletf.model.Customer;
+import org.bits.diamabankwalletf.model.Wallet;
+
+/**
+ * Everything a login decides on before and after the PIN check, read in one query
+ * (WalletRepository.findLoginContexts) and shared by the whole login flow: the wallet with its
+ * PIN and PIN expiry fields, the CUSTOMER_DWS row when there is one, and the login's device
+ * when it is registered to the phone number (null otherwise).
+ */
+@Value
+@AllArgsConstructor
+public class LoginContext {
+    Wallet wallet;
+    Customer customer;
+    String registeredDeviceId;
+
+    /**
+     * Blocked in CUSTOMER_DWS or locked wallet; a wallet without customer row is never blocked.
+     */
+    public boolean isBlocked() {
+        return customer != null && ("Y".equals(customer.getBlockAccess()) || "L".equals(wallet.getStatusWallet()));
+    }
+
+    /**
+     * Cancelled (status 'C') wallet; a wallet without customer row is never cancelled.
+     */
+    public boolean isCancelled() {
+        return customer != null && "C".equals(wallet.getStatusWallet());
+    }
+}
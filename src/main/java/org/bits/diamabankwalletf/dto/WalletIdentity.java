@@ -0,0 +1,19 @@
+package org.bits.diamabankwalletf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * The WALLET_DATA columns needed to resolve a phone number, mobile number or client code
+ * to a wallet number, loaded without hydrating the full Wallet entity.
+ */
+@Value
+@AllArgsConstructor
+public class WalletIdentity {
+    String walletNumber;
+    String statusWallet;
+    String bankCode;
+    String phoneNumber;
+    String mobileNumber;
+    String clientCode;
+}
@@ -0,0 +1,25 @@
+package org.bits.diamabankwalletf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * The handful of WALLET_DATA columns needed to authenticate a request,
+ * loaded without hydrating the full Wallet entity.
+ */
+@Value
+@AllArgsConstructor
+public class WalletPrincipal {
+    String walletNumber;
+    String bankCode;
+    String clientCode;
+    String mobileNumber;
+    String phoneNumber;
+    String walletPin;
+    Character blockAction;
+    String statusWallet;
+
+    public boolean isBlocked() {
+        return blockAction != null && blockAction == 'Y';
+    }
+}
@@ -0,0 +1,24 @@
+package org.bits.diamabankwalletf.exception;
+
+/**
+ * Thrown instead of calling the wallet backend when the endpoint's circuit is open or its
+ * concurrency limit is reached.
+ */
+public class WalletBackendUnavailableException extends RuntimeException {
+    private final String endpoint;
+    private final String reason;
+
+    public WalletBackendUnavailableException(String endpoint, String reason) {
+        super("Wallet backend endpoint " + endpoint + " is temporarily unavailable (" + reason + ")");
+        this.endpoint = endpoint;
+        this.reason = reason;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,242 @@
+package org.bits.diamabankwalletf.filter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.utils.SecurityUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects abusive login, forgot-PIN and OTP traffic with a 429 before it reaches Spring
+ * Security, the PIN check or the database. Each rule keeps one token bucket per phone number
+ * (read from the JSON body), client IP or device (Device-ID header or deviceId body field).
+ * Rules come from {@code rate-limit.rules.<name>.*}; without any, the defaults below apply.
+ *
+ * <p>The client IP is the connection's remote address. Forwarding headers are only read
+ * when that address is one of {@code rate-limit.trusted-proxies}, and then the rightmost
+ * X-Forwarded-For entry that is not a trusted proxy is used, so a client cannot pick a new
+ * IP bucket per request by sending its own headers.
+ *
+ * <p>Buckets live on the node that served the request, so limits are per node: behind a load
+ * balancer spreading requests over N nodes, a client gets up to N times each limit. This is
+ * the only forgot-PIN attempt limit, which should be set with that in mind.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String RULES_PREFIX = "rate-limit.rules";
+    private static final List<String> PHONE_FIELDS = List.of("phoneNumber", "phone");
+    private static final String DEVICE_HEADER = "Device-ID";
+    private static final String DEVICE_FIELD = "deviceId";
+
+    private static final Map<String, RateLimitRule> DEFAULT_RULES = Map.of(
+            "login-phone", new RateLimitRule(List.of("/api/auth/login"), RateLimitRule.Key.PHONE, 10, Duration.ofMinutes(15)),
+            "login-device", new RateLimitRule(List.of("/api/auth/login"), RateLimitRule.Key.DEVICE, 20, Duration.ofMinutes(15)),
+            "login-ip", new RateLimitRule(List.of("/api/auth/login"), RateLimitRule.Key.IP, 60, Duration.ofMinutes(1)),
+            "forgot-pin-phone", new RateLimitRule(List.of("/api/auth/forgot-pin/initiate"), RateLimitRule.Key.PHONE, 3, Duration.ofHours(24)),
+            "forgot-pin-ip", new RateLimitRule(List.of("/api/auth/forgot-pin/**"), RateLimitRule.Key.IP, 10, Duration.ofHours(1)),
+            "otp-phone", new RateLimitRule(List.of("/api/auth/verify-otp", "/api/otp/**"), RateLimitRule.Key.PHONE, 10, Duration.ofMinutes(15)),
+            "otp-ip", new RateLimitRule(List.of("/api/auth/verify-otp", "/api/otp/**"), RateLimitRule.Key.IP, 30, Duration.ofMinutes(1)));
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Map<String, RateLimitRule> rules;
+    private final Set<String> trustedProxies;
+    private final Cache<String, TokenBucket> buckets;
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RateLimitFilter(ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           Environment environment,
+                           @Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.max-buckets:200000}") long maxBuckets,
+                           @Value("${rate-limit.trusted-proxies:}") List<String> trustedProxies) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.trustedProxies = Set.copyOf(trustedProxies.stream().map(String::trim).filter(ip -> !ip.isEmpty()).toList());
+
+        Map<String, RateLimitRule> configured = Binder.get(environment)
+                .bind(RULES_PREFIX, Bindable.mapOf(String.class, RateLimitRule.class))
+                .orElse(Map.of());
+        this.rules = new LinkedHashMap<>(configured.isEmpty() ? DEFAULT_RULES : configured);
+
+        long longestPeriodNanos = rules.values().stream().mapToLong(rule -> rule.period().toNanos()).max().orElse(0);
+        // An idle bucket is full again after its period; dropping it then loses nothing
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(Math.max(longestPeriodNanos, 1), TimeUnit.NANOSECONDS)
+                .build();
+
+        log.info("Rate limiting {} with {} rules: {}, trusted proxies: {}",
+                enabled ? "enabled" : "disabled", rules.size(), rules.keySet(), this.trustedProxies);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || matchingRules(request.getRequestURI()).isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Map<String, RateLimitRule> matching = matchingRules(request.getRequestURI());
+
+        HttpServletRequest readableRequest = request;
+        JsonNode body = null;
+        if (needsBody(matching)) {
+            SensitiveDataRequestWrapper wrapper = request instanceof SensitiveDataRequestWrapper cached
+                    ? cached
+                    : new SensitiveDataRequestWrapper(request);
+            readableRequest = wrapper;
+            body = parseBody(wrapper.getBody());
+        }
+
+        long now = System.nanoTime();
+        for (Map.Entry<String, RateLimitRule> entry : matching.entrySet()) {
+            RateLimitRule rule = entry.getValue();
+            String key = keyOf(rule.key(), request, body);
+            if (key == null) {
+                continue;
+            }
+            TokenBucket bucket = buckets.get(entry.getKey() + ":" + key,
+                    k -> new TokenBucket(rule.capacity(), rule.period().toNanos()));
+            long waitNanos = bucket.tryAcquire(now);
+            if (waitNanos > 0) {
+                reject(response, entry.getKey(), rule, key, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+                return;
+            }
+        }
+
+        filterChain.doFilter(readableRequest, response);
+    }
+
+    private Map<String, RateLimitRule> matchingRules(String uri) {
+        Map<String, RateLimitRule> matching = new LinkedHashMap<>();
+        rules.forEach((name, rule) -> {
+            if (rule.paths().stream().anyMatch(pattern -> pathMatcher.match(pattern, uri))) {
+                matching.put(name, rule);
+            }
+        });
+        return matching;
+    }
+
+    private boolean needsBody(Map<String, RateLimitRule> matching) {
+        return matching.values().stream().anyMatch(rule -> rule.key() != RateLimitRule.Key.IP);
+    }
+
+    private JsonNode parseBody(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            // Not JSON: only the IP rules apply, the controller reports the bad request
+            return null;
+        }
+    }
+
+    private String keyOf(RateLimitRule.Key key, HttpServletRequest request, JsonNode body) {
+        return switch (key) {
+            case IP -> clientIp(request);
+            case PHONE -> PHONE_FIELDS.stream()
+                    .map(field -> scalarField(body, field))
+                    .filter(value -> value != null)
+                    .findFirst()
+                    .orElse(null);
+            case DEVICE -> {
+                String device = request.getHeader(DEVICE_HEADER);
+                yield device != null && !device.isBlank() ? device : scalarField(body, DEVICE_FIELD);
+            }
+        };
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (!trustedProxies.contains(remoteAddr)) {
+            return remoteAddr;
+        }
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor == null) {
+            return remoteAddr;
+        }
+        // Entries are appended by each proxy: walk back over ours to the first one we did not add
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!hop.isEmpty() && !trustedProxies.contains(hop)) {
+                return hop;
+            }
+        }
+        return remoteAddr;
+    }
+
+    /**
+     * A string, number or boolean field as text: "phoneNumber": 221770000000 must hit the same
+     * bucket as "phoneNumber": "221770000000"
+     */
+    private static String scalarField(JsonNode body, String field) {
+        if (body == null) {
+            return null;
+        }
+        JsonNode node = body.path(field);
+        if (!node.isValueNode() || node.isNull()) {
+            return null;
+        }
+        String value = node.asText().trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private void reject(HttpServletResponse response, String ruleName, RateLimitRule rule, String key,
+                        long retryAfterMs) throws IOException {
+        rejections.computeIfAbsent(ruleName, name -> Counter.builder("ratelimit.rejected")
+                .tag("rule", name)
+                .register(meterRegistry)).increment();
+        log.warn("Rate limit {} exceeded for {} {}", ruleName, rule.key().name().toLowerCase(),
+                rule.key() == RateLimitRule.Key.PHONE ? SecurityUtils.maskPhoneNumber(key) : key);
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        // Rounded up: a client retrying after a rounded-down delay would be refused again
+        response.setHeader("Retry-After", String.valueOf(Math.max(1, (retryAfterMs + 999) / 1000)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", false);
+        body.put("message", "Too many attempts. Please try again later");
+        body.put("respCode", "RATE_LIMIT_EXCEEDED");
+        body.put("retryAfter", retryAfterMs);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
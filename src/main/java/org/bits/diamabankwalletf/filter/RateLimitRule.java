@@ -0,0 +1,18 @@
+package org.bits.diamabankwalletf.filter;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * One rate limit applied by {@link RateLimitFilter}: at most {@code capacity} requests per
+ * {@code period} for each phone number, client IP or device calling one of {@code paths}
+ * (Ant patterns). Bound from {@code rate-limit.rules.<name>.*}.
+ */
+public record RateLimitRule(List<String> paths, Key key, int capacity, Duration period) {
+
+    public enum Key {
+        PHONE,
+        IP,
+        DEVICE
+    }
+}
@@ -54,6 +54,10 @@ public class SensitiveDataRequestWrapper extends HttpServletRequestWrapper {
         return new BufferedReader(new InputStreamReader(getInputStream()));
     }
 
+    public byte[] getBody() {
+        return body;
+    }
+
     // Method to access the body for logging (with sensitive data masked)
     public String getMaskedBody() {
         try {
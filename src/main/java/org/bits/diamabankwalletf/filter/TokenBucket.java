@@ -0,0 +1,39 @@
+package org.bits.diamabankwalletf.filter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept as a single timestamp: the instant at which the bucket would be full again
+ * (the GCRA formulation). Each request pushes it forward by one refill interval and is refused
+ * when that would put it more than one period ahead of now. Updated with compare-and-set only.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+    TokenBucket(int capacity, long periodNanos) {
+        this.intervalNanos = Math.max(1, periodNanos / capacity);
+        this.burstNanos = periodNanos - intervalNanos;
+    }
+
+    /**
+     * Takes one token.
+     *
+     * @return 0 when the request is allowed, otherwise the nanoseconds until a token is available
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long base = current == Long.MIN_VALUE || current - nowNanos < 0 ? nowNanos : current;
+            long wait = base - nowNanos - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, base + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.bits.diamabankwalletf.jobs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lease store in the application database, shared by all nodes. A lease row is taken with an
+ * UPDATE conditioned on its end being past, or created by the first INSERT; both are atomic on
+ * Oracle and H2 without any row lock held while the job runs.
+ *
+ * <pre>
+ * CREATE TABLE WALLET_JOB_LEASES (
+ *     LEASE_NAME   VARCHAR2(100) PRIMARY KEY,
+ *     OWNER        VARCHAR2(100) NOT NULL,
+ *     LEASED_UNTIL NUMBER(19)    NOT NULL
+ * );
+ * CREATE TABLE WALLET_JOB_NODES (
+ *     NODE_ID   VARCHAR2(100) PRIMARY KEY,
+ *     LAST_SEEN NUMBER(19)    NOT NULL
+ * );
+ * CREATE TABLE WALLET_JOB_RUNS (
+ *     JOB_NAME      VARCHAR2(100) NOT NULL,
+ *     NODE_ID       VARCHAR2(100) NOT NULL,
+ *     STARTED_AT    NUMBER(19)    NOT NULL,
+ *     DURATION_MS   NUMBER(19)    NOT NULL,
+ *     OUTCOME       VARCHAR2(20)  NOT NULL,
+ *     ERROR_MESSAGE VARCHAR2(500)
+ * );
+ * CREATE INDEX WALLET_JOB_RUNS_STARTED ON WALLET_JOB_RUNS (STARTED_AT);
+ * </pre>
+ */
+@Service
+@ConditionalOnProperty(name = "jobs.lease-store", havingValue = "jdbc")
+@Slf4j
+public class JdbcJobLeaseStore implements JobLeaseStore {
+
+    private static final String TAKE_OVER_SQL =
+            "UPDATE WALLET_JOB_LEASES SET OWNER = ?, LEASED_UNTIL = ? WHERE LEASE_NAME = ? AND LEASED_UNTIL <= ?";
+    private static final String INSERT_LEASE_SQL =
+            "INSERT INTO WALLET_JOB_LEASES (LEASE_NAME, OWNER, LEASED_UNTIL) VALUES (?, ?, ?)";
+    private static final String EXTEND_SQL =
+            "UPDATE WALLET_JOB_LEASES SET LEASED_UNTIL = ? WHERE LEASE_NAME = ? AND OWNER = ?";
+    private static final String HEARTBEAT_SQL = "UPDATE WALLET_JOB_NODES SET LAST_SEEN = ? WHERE NODE_ID = ?";
+    private static final String INSERT_NODE_SQL = "INSERT INTO WALLET_JOB_NODES (NODE_ID, LAST_SEEN) VALUES (?, ?)";
+    private static final String LIVE_NODES_SQL = "SELECT NODE_ID FROM WALLET_JOB_NODES WHERE LAST_SEEN >= ? ORDER BY NODE_ID";
+    private static final String INSERT_RUN_SQL = "INSERT INTO WALLET_JOB_RUNS "
+            + "(JOB_NAME, NODE_ID, STARTED_AT, DURATION_MS, OUTCOME, ERROR_MESSAGE) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String RECENT_RUNS_SQL = "SELECT JOB_NAME, NODE_ID, STARTED_AT, DURATION_MS, OUTCOME, ERROR_MESSAGE "
+            + "FROM WALLET_JOB_RUNS ORDER BY STARTED_AT DESC FETCH FIRST ? ROWS ONLY";
+    private static final String PURGE_RUNS_SQL = "DELETE FROM WALLET_JOB_RUNS WHERE STARTED_AT < ?";
+    private static final String PURGE_NODES_SQL = "DELETE FROM WALLET_JOB_NODES WHERE LAST_SEEN < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long historyRetentionMillis;
+
+    public JdbcJobLeaseStore(JdbcTemplate jdbcTemplate,
+                             @Value("${jobs.history.retention-days:30}") long historyRetentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.historyRetentionMillis = TimeUnit.DAYS.toMillis(historyRetentionDays);
+        log.info("JDBC job lease store initialized (historyRetention={}d)", historyRetentionDays);
+    }
+
+    @Override
+    public boolean tryAcquire(String lease, String owner, long now, long until) {
+        if (jdbcTemplate.update(TAKE_OVER_SQL, owner, until, lease, now) == 1) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update(INSERT_LEASE_SQL, lease, owner, until);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // The row exists and its lease is still running
+            return false;
+        }
+    }
+
+    @Override
+    public void renew(Collection<String> leases, String owner, long until) {
+        if (!leases.isEmpty()) {
+            jdbcTemplate.batchUpdate(EXTEND_SQL, leases, leases.size(), (ps, lease) -> {
+                ps.setLong(1, until);
+                ps.setString(2, lease);
+                ps.setString(3, owner);
+            });
+        }
+    }
+
+    @Override
+    public void release(String lease, String owner, long until) {
+        jdbcTemplate.update(EXTEND_SQL, until, lease, owner);
+    }
+
+    @Override
+    public void heartbeat(String node, long now) {
+        if (jdbcTemplate.update(HEARTBEAT_SQL, now, node) == 0) {
+            try {
+                jdbcTemplate.update(INSERT_NODE_SQL, node, now);
+            } catch (DuplicateKeyException e) {
+                jdbcTemplate.update(HEARTBEAT_SQL, now, node);
+            }
+        }
+    }
+
+    @Override
+    public List<String> liveNodes(long seenSince) {
+        return jdbcTemplate.queryForList(LIVE_NODES_SQL, String.class, seenSince);
+    }
+
+    @Override
+    public void recordRun(JobRun run) {
+        String error = run.error() != null && run.error().length() > 500 ? run.error().substring(0, 500) : run.error();
+        jdbcTemplate.update(INSERT_RUN_SQL, run.job(), run.node(), run.startedAt(), run.durationMs(), run.outcome(), error);
+    }
+
+    @Override
+    public List<JobRun> recentRuns(int limit) {
+        return jdbcTemplate.query(RECENT_RUNS_SQL, (rs, rowNum) -> new JobRun(
+                rs.getString("JOB_NAME"),
+                rs.getString("NODE_ID"),
+                rs.getLong("STARTED_AT"),
+                rs.getLong("DURATION_MS"),
+                rs.getString("OUTCOME"),
+                rs.getString("ERROR_MESSAGE")), limit);
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.history.purge-interval-ms:3600000}")
+    public void purgeHistory() {
+        long now = System.currentTimeMillis();
+        try {
+            int purged = jdbcTemplate.update(PURGE_RUNS_SQL, now - historyRetentionMillis);
+            jdbcTemplate.update(PURGE_NODES_SQL, now - TimeUnit.DAYS.toMillis(1));
+            if (purged > 0) {
+                log.info("Purged {} job runs older than the history retention", purged);
+            }
+        } catch (Exception e) {
+            log.error("Error purging job history", e);
+        }
+    }
+}
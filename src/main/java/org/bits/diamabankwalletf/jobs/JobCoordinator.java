@@ -0,0 +1,200 @@
+package org.bits.diamabankwalletf.jobs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Makes a scheduled job run once per tick across all nodes, although every node fires it.
+ * A node runs the job (or one shard of it) only while it holds the matching lease in the
+ * {@link JobLeaseStore}; held leases are renewed with the heartbeat, so a long run keeps its
+ * lease and a crashed node's lease runs out after {@code jobs.lease-ms}. The heartbeat has its
+ * own thread: the scheduler thread is the one busy running the job. After a run the lease
+ * is kept for {@code jobs.hold-after-run-ms} from its start, so that a node whose tick fires a
+ * little later does not run the job again.
+ *
+ * <p>Sharded jobs split their key space into a fixed number of shards with one lease each.
+ * Every node walks all shards, starting at a different one according to its position among
+ * the live nodes, so the shards are spread over the nodes and each one runs once.
+ */
+@Component
+@Slf4j
+public class JobCoordinator {
+
+    private static final String SUCCEEDED = "SUCCEEDED";
+    private static final String FAILED = "FAILED";
+
+    private final JobLeaseStore store;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId;
+    private final long leaseMillis;
+    private final long holdAfterRunMillis;
+    private final long nodeTimeoutMillis;
+    private final long heartbeatIntervalMillis;
+    private final Set<String> heldLeases = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "job-coordinator-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public JobCoordinator(JobLeaseStore store,
+                          MeterRegistry meterRegistry,
+                          @Value("${jobs.node-id:}") String nodeId,
+                          @Value("${jobs.lease-ms:120000}") long leaseMs,
+                          @Value("${jobs.hold-after-run-ms:300000}") long holdAfterRunMs,
+                          @Value("${jobs.node-timeout-ms:90000}") long nodeTimeoutMs,
+                          @Value("${jobs.heartbeat-interval-ms:30000}") long heartbeatIntervalMs) {
+        this.store = store;
+        this.meterRegistry = meterRegistry;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.leaseMillis = leaseMs;
+        this.holdAfterRunMillis = holdAfterRunMs;
+        this.nodeTimeoutMillis = nodeTimeoutMs;
+        this.heartbeatIntervalMillis = heartbeatIntervalMs;
+    }
+
+    @PostConstruct
+    public void init() {
+        heartbeat();
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMillis, heartbeatIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        log.info("Job coordinator started on node {} (lease={}ms, holdAfterRun={}ms)",
+                nodeId, leaseMillis, holdAfterRunMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+    }
+
+    /**
+     * Announces this node and extends the leases of the jobs it is running.
+     */
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        try {
+            store.heartbeat(nodeId, now);
+            store.renew(List.copyOf(heldLeases), nodeId, now + leaseMillis);
+        } catch (Exception e) {
+            log.error("Job coordinator heartbeat failed on node {}", nodeId, e);
+        }
+    }
+
+    /**
+     * Runs {@code task} if no other node runs or just ran {@code job}.
+     *
+     * @return whether this node ran it
+     */
+    public boolean runExclusive(String job, Runnable task) {
+        return runLeased(job, job, task);
+    }
+
+    /**
+     * Runs {@code task} for each of the {@code shards} shards of {@code job} that no other
+     * node runs or just ran. With one shard this is {@link #runExclusive}.
+     *
+     * @param task receives the shard index, from 0 to {@code shards - 1}
+     * @return number of shards this node ran
+     */
+    public int runSharded(String job, int shards, IntConsumer task) {
+        if (shards <= 1) {
+            return runExclusive(job, () -> task.accept(0)) ? 1 : 0;
+        }
+
+        int start = 0;
+        try {
+            List<String> live = store.liveNodes(System.currentTimeMillis() - nodeTimeoutMillis);
+            int position = live.indexOf(nodeId);
+            if (position > 0) {
+                start = position * shards / live.size();
+            }
+        } catch (Exception e) {
+            log.warn("Could not read live nodes, walking shards of {} from the first: {}", job, e.getMessage());
+        }
+
+        int ran = 0;
+        for (int i = 0; i < shards; i++) {
+            int shard = (start + i) % shards;
+            if (runLeased(job, job + "#" + shard, () -> task.accept(shard))) {
+                ran++;
+            }
+        }
+        return ran;
+    }
+
+    public List<JobRun> recentRuns(int limit) {
+        return store.recentRuns(limit);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private boolean runLeased(String job, String lease, Runnable task) {
+        long startedAt = System.currentTimeMillis();
+        try {
+            if (!store.tryAcquire(lease, nodeId, startedAt, startedAt + leaseMillis)) {
+                log.debug("{} is held by another node, skipping", lease);
+                return false;
+            }
+        } catch (Exception e) {
+            log.error("Could not acquire lease {}, skipping this run", lease, e);
+            return false;
+        }
+        heldLeases.add(lease);
+
+        long started = System.nanoTime();
+        String outcome = SUCCEEDED;
+        String error = null;
+        try {
+            log.info("Running {} on node {}", lease, nodeId);
+            task.run();
+        } catch (Exception e) {
+            outcome = FAILED;
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            log.error("Job {} failed on node {}", lease, nodeId, e);
+        } finally {
+            heldLeases.remove(lease);
+        }
+        long durationNanos = System.nanoTime() - started;
+
+        Timer.builder("jobs.run")
+                .tag("job", job)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        try {
+            store.recordRun(new JobRun(lease, nodeId, startedAt, TimeUnit.NANOSECONDS.toMillis(durationNanos), outcome, error));
+            store.release(lease, nodeId, Math.max(System.currentTimeMillis(), startedAt + holdAfterRunMillis));
+        } catch (Exception e) {
+            // The lease then simply runs out; only the history entry may be missing
+            log.error("Could not record the end of {}", lease, e);
+        }
+        return true;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
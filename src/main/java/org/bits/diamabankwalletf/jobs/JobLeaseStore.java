@@ -0,0 +1,42 @@
+package org.bits.diamabankwalletf.jobs;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Leases, node heartbeats and run history behind {@link JobCoordinator}. A lease is a named
+ * row that one node holds until a given instant; whoever holds it runs the job it names. Lease
+ * instants come from the nodes' clocks, which are expected to be kept in sync (NTP).
+ */
+public interface JobLeaseStore {
+
+    /**
+     * Takes {@code lease} for {@code owner} until {@code until} when nobody holds it or the
+     * previous lease ended before {@code now}. Atomic across every node sharing the store.
+     */
+    boolean tryAcquire(String lease, String owner, long now, long until);
+
+    /**
+     * Extends the leases in {@code leases} that {@code owner} still holds.
+     */
+    void renew(Collection<String> leases, String owner, long until);
+
+    /**
+     * Ends a lease held by {@code owner} at {@code until}; nobody can take it before then.
+     */
+    void release(String lease, String owner, long until);
+
+    void heartbeat(String node, long now);
+
+    /**
+     * Nodes that sent a heartbeat since {@code seenSince}, sorted by id.
+     */
+    List<String> liveNodes(long seenSince);
+
+    void recordRun(JobRun run);
+
+    /**
+     * Latest runs, most recent first.
+     */
+    List<JobRun> recentRuns(int limit);
+}
@@ -0,0 +1,10 @@
+package org.bits.diamabankwalletf.jobs;
+
+/**
+ * One execution of a coordinated job (or of one shard of it) on one node.
+ *
+ * @param outcome SUCCEEDED or FAILED
+ * @param error   message of the failure, null when the run succeeded
+ */
+public record JobRun(String job, String node, long startedAt, long durationMs, String outcome, String error) {
+}
@@ -0,0 +1,95 @@
+package org.bits.diamabankwalletf.jobs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-node lease store: leases and history live on the heap, so jobs are only kept from
+ * overlapping on this node. Use the JDBC store as soon as more than one node runs the jobs.
+ */
+@Service
+@ConditionalOnProperty(name = "jobs.lease-store", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class LocalJobLeaseStore implements JobLeaseStore {
+
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+    private final Map<String, Long> nodes = new ConcurrentHashMap<>();
+    private final Deque<JobRun> runs = new ArrayDeque<>();
+    private final int historySize;
+
+    public LocalJobLeaseStore(@Value("${jobs.history.size:200}") int historySize) {
+        this.historySize = historySize;
+        log.info("Local job lease store initialized (historySize={})", historySize);
+    }
+
+    @Override
+    public boolean tryAcquire(String lease, String owner, long now, long until) {
+        boolean[] acquired = new boolean[1];
+        leases.compute(lease, (name, current) -> {
+            if (current != null && current.until() > now) {
+                return current;
+            }
+            acquired[0] = true;
+            return new Lease(owner, until);
+        });
+        return acquired[0];
+    }
+
+    @Override
+    public void renew(Collection<String> names, String owner, long until) {
+        for (String name : names) {
+            leases.computeIfPresent(name, (n, current) -> current.owner().equals(owner) ? new Lease(owner, until) : current);
+        }
+    }
+
+    @Override
+    public void release(String lease, String owner, long until) {
+        leases.computeIfPresent(lease, (name, current) -> current.owner().equals(owner) ? new Lease(owner, until) : current);
+    }
+
+    @Override
+    public void heartbeat(String node, long now) {
+        nodes.put(node, now);
+    }
+
+    @Override
+    public List<String> liveNodes(long seenSince) {
+        return nodes.entrySet().stream()
+                .filter(entry -> entry.getValue() >= seenSince)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+    }
+
+    @Override
+    public synchronized void recordRun(JobRun run) {
+        runs.addFirst(run);
+        while (runs.size() > historySize) {
+            runs.removeLast();
+        }
+    }
+
+    @Override
+    public synchronized List<JobRun> recentRuns(int limit) {
+        List<JobRun> recent = new ArrayList<>(Math.min(limit, runs.size()));
+        Iterator<JobRun> iterator = runs.iterator();
+        while (iterator.hasNext() && recent.size() < limit) {
+            recent.add(iterator.next());
+        }
+        return recent;
+    }
+
+    private record Lease(String owner, long until) {
+    }
+}
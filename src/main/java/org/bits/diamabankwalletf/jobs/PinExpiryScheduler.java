@@ -3,6 +3,7 @@ package org.bits.diamabankwalletf.jobs;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.service.PinExpiryService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -12,6 +13,10 @@ import org.springframework.stereotype.Component;
 public class PinExpiryScheduler {
 
     private final PinExpiryService pinExpiryService;
+    private final JobCoordinator jobCoordinator;
+
+    @Value("${jobs.pin-expiry.shards:1}")
+    private int shards;
 
     /**
      * Job quotidien pour gérer l'expiration des PINs
@@ -22,17 +27,23 @@ public class PinExpiryScheduler {
         log.info("Starting daily PIN expiry notification job");
 
         try {
-            // 1. Marquer les PINs expirés pour changement forcé
-            pinExpiryService.markExpiredPinsForChange();
-
-            // 2. Envoyer notifications 7 jours avant expiration
-            pinExpiryService.sendSevenDayExpiryNotifications();
-
-            // 3. Envoyer notifications 3 jours avant expiration
-            pinExpiryService.sendThreeDayExpiryNotifications();
-
-            // 4. Envoyer notifications 1 jour avant expiration
-            pinExpiryService.sendOneDayExpiryNotifications();
+            int ran = jobCoordinator.runSharded("pin-expiry-notifications", shards, shard -> {
+                // 1. Marquer les PINs expirés pour changement forcé
+                pinExpiryService.markExpiredPinsForChange("pin-expired-daily", shard, shards);
+
+                // 2. Envoyer notifications 7 jours avant expiration
+                pinExpiryService.sendSevenDayExpiryNotifications(shard, shards);
+
+                // 3. Envoyer notifications 3 jours avant expiration
+                pinExpiryService.sendThreeDayExpiryNotifications(shard, shards);
+
+                // 4. Envoyer notifications 1 jour avant expiration
+                pinExpiryService.sendOneDayExpiryNotifications(shard, shards);
+            });
+            if (ran == 0) {
+                log.info("PIN expiry notification job handled by other nodes");
+                return;
+            }
 
             // 5. Afficher les statistiques
             PinExpiryService.PinExpiryStats stats = pinExpiryService.getPinExpiryStats();
@@ -53,7 +64,11 @@ public class PinExpiryScheduler {
         log.info("Checking for expired PINs");
 
         try {
-            pinExpiryService.markExpiredPinsForChange();
+            int ran = jobCoordinator.runSharded("pin-expiry-check", shards,
+                    shard -> pinExpiryService.markExpiredPinsForChange("pin-expired-check", shard, shards));
+            if (ran == 0) {
+                return;
+            }
 
             PinExpiryService.PinExpiryStats stats = pinExpiryService.getPinExpiryStats();
             if (stats.getExpiredCount() > 0) {
@@ -73,12 +88,14 @@ public class PinExpiryScheduler {
         log.info("Generating weekly PIN expiry report");
 
         try {
-            PinExpiryService.PinExpiryStats stats = pinExpiryService.getPinExpiryStats();
-
-            log.info("=== WEEKLY PIN EXPIRY REPORT ===");
-            log.info("Wallets with expired PINs: {}", stats.getExpiredCount());
-            log.info("Wallets with PINs expiring today: {}", stats.getExpiringTodayCount());
-            log.info("================================");
+            jobCoordinator.runExclusive("pin-expiry-weekly-report", () -> {
+                PinExpiryService.PinExpiryStats stats = pinExpiryService.getPinExpiryStats();
+
+                log.info("=== WEEKLY PIN EXPIRY REPORT ===");
+                log.info("Wallets with expired PINs: {}", stats.getExpiredCount());
+                log.info("Wallets with PINs expiring today: {}", stats.getExpiringTodayCount());
+                log.info("================================");
+            });
 
         } catch (Exception e) {
             log.error("Error generating weekly PIN expiry report", e);
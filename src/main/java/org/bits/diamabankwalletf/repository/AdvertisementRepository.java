@@ -1,5 +1,6 @@
 package org.bits.diamabankwalletf.repository;
 
+import org.bits.diamabankwalletf.dto.AdvertisementSummary;
 import org.bits.diamabankwalletf.model.Advertisement;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -12,4 +13,12 @@ import java.util.List;
 public interface AdvertisementRepository extends JpaRepository<Advertisement, String> {
     @Query("SELECT a FROM Advertisement a WHERE a.bankCode = :bankCode")
     List<Advertisement> findByBankCode(@Param("bankCode") String bankCode);
+
+    @Query("SELECT new org.bits.diamabankwalletf.dto.AdvertisementSummary(a.id, a.description, a.lastUpdate) " +
+            "FROM Advertisement a WHERE a.bankCode = :bankCode")
+    List<AdvertisementSummary> findSummariesByBankCode(@Param("bankCode") String bankCode);
+
+    @Query("SELECT new org.bits.diamabankwalletf.dto.AdvertisementSummary(a.id, a.description, a.lastUpdate) " +
+            "FROM Advertisement a")
+    List<AdvertisementSummary> findAllSummaries();
 }
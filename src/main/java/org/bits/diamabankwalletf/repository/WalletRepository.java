@@ -1,18 +1,37 @@
 package org.bits.diamabankwalletf.repository;
 
+import org.bits.diamabankwalletf.dto.LoginContext;
+import org.bits.diamabankwalletf.dto.WalletIdentity;
+import org.bits.diamabankwalletf.dto.WalletPrincipal;
 import org.bits.diamabankwalletf.model.Wallet;
 import org.bits.diamabankwalletf.utils.WalletDataPK;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
 public interface WalletRepository extends JpaRepository<Wallet, WalletDataPK> {
     Optional<Wallet> findByPhoneNumber(String phoneNumber);
 
+    @Query("SELECT new org.bits.diamabankwalletf.dto.WalletPrincipal(w.walletNumber, w.bankCode, w.clientCode, " +
+            "w.mobileNumber, w.phoneNumber, w.walletPin, w.blockAction, w.statusWallet) " +
+            "FROM Wallet w WHERE w.phoneNumber = :phoneNumber")
+    Optional<WalletPrincipal> findPrincipalByPhoneNumber(@Param("phoneNumber") String phoneNumber);
+
+    /**
+     * Wallet, CUSTOMER_DWS row and, when it is registered to this phone number, the login's
+     * device, in one query. Empty when no wallet has this phone number; should CUSTOMER_DWS
+     * hold several rows for it, they come in customer ID order.
+     */
+    @Query("SELECT new org.bits.diamabankwalletf.dto.LoginContext(w, c, d.deviceId) FROM Wallet w " +
+            "LEFT JOIN Customer c ON c.phoneNumber = w.phoneNumber " +
+            "LEFT JOIN Device d ON d.phoneNumber = w.phoneNumber AND d.deviceId = :deviceId " +
+            "WHERE w.phoneNumber = :phoneNumber " +
+            "ORDER BY c.customerId")
+    List<LoginContext> findLoginContexts(@Param("phoneNumber") String phoneNumber, @Param("deviceId") String deviceId);
+
     @Query("SELECT w FROM Wallet w WHERE w.phoneNumber = :phoneNumber AND w.bankCode = :bankCode")
     Optional<Wallet> findByPhoneNumberAndBankCode(@Param("phoneNumber") String phoneNumber, @Param("bankCode") String bankCode);
 
@@ -25,6 +44,17 @@ public interface WalletRepository extends JpaRepository<Wallet, WalletDataPK> {
     @Query("SELECT w FROM Wallet w WHERE w.mobileNumber = :mobileNumber AND w.statusWallet = 'A'")
     Optional<Wallet> findByMobileNumber(@Param("mobileNumber") String mobileNumber);
 
+    /**
+     * Every wallet an identifier can designate, in one narrow query: by phone number or client
+     * code within the bank, or by mobile number (active 'A' wallets only, as in findByMobileNumber).
+     */
+    @Query("SELECT new org.bits.diamabankwalletf.dto.WalletIdentity(w.walletNumber, w.statusWallet, w.bankCode, " +
+            "w.phoneNumber, w.mobileNumber, w.clientCode) FROM Wallet w " +
+            "WHERE (w.bankCode = :bankCode AND (w.phoneNumber = :identifier OR w.clientCode = :identifier)) " +
+            "OR (w.mobileNumber = :identifier AND w.statusWallet = 'A')")
+    List<WalletIdentity> findIdentitiesByIdentifier(@Param("identifier") String identifier,
+                                                    @Param("bankCode") String bankCode);
+
     @Query("SELECT w FROM Wallet w WHERE w.walletNumber = :walletNumber AND w.bankCode = :bankCode")
     Optional<Wallet> findByWalletNumberAndBankCode(
             @Param("walletNumber") String walletNumber,
@@ -36,31 +66,10 @@ public interface WalletRepository extends JpaRepository<Wallet, WalletDataPK> {
             @Param("bankCode") String bankCode);
 
     /**
-     * Trouver les portefeuilles avec PIN expiré
-     */
-    @Query("SELECT w FROM Wallet w WHERE w.pinExpiryDate < CURRENT_DATE AND w.statusWallet = 'A' AND w.pinChangeRequired = 'N'")
-    List<Wallet> findWalletsWithExpiredPin();
-
-    /**
-     * Trouver les portefeuilles nécessitant une notification d'expiration (7 jours)
-     */
-    @Query("SELECT w FROM Wallet w WHERE w.pinExpiryDate BETWEEN CURRENT_DATE AND :sevenDaysFromNow " +
-            "AND w.statusWallet = 'A' AND w.pinExpiryNotificationSent = 'N'")
-    List<Wallet> findWalletsNeedingSevenDayNotification(@Param("sevenDaysFromNow") Date sevenDaysFromNow);
-
-    /**
-     * Trouver les portefeuilles nécessitant une notification d'expiration (3 jours)
-     */
-    @Query("SELECT w FROM Wallet w WHERE w.pinExpiryDate BETWEEN CURRENT_DATE AND :threeDaysFromNow " +
-            "AND w.statusWallet = 'A' AND w.pinExpiryNotificationSent IN ('N', '7')")
-    List<Wallet> findWalletsNeedingThreeDayNotification(@Param("threeDaysFromNow") Date threeDaysFromNow);
-
-    /**
-     * Trouver les portefeuilles nécessitant une notification d'expiration (1 jour)
+     * Compter les portefeuilles avec PIN expiré non encore marqués pour changement
      */
-    @Query("SELECT w FROM Wallet w WHERE w.pinExpiryDate BETWEEN CURRENT_DATE AND :oneDayFromNow " +
-            "AND w.statusWallet = 'A' AND w.pinExpiryNotificationSent IN ('N', '7', '3')")
-    List<Wallet> findWalletsNeedingOneDayNotification(@Param("oneDayFromNow") Date oneDayFromNow);
+    @Query("SELECT COUNT(w) FROM Wallet w WHERE w.pinExpiryDate < CURRENT_DATE AND w.statusWallet = 'A' AND w.pinChangeRequired = 'N'")
+    Long countWalletsWithExpiredPin();
 
     /**
      * Compter les portefeuilles avec PIN expirant aujourd'hui
@@ -1,36 +1,194 @@
 package org.bits.diamabankwalletf.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.bits.diamabankwalletf.model.CustomerActivity;
-import org.bits.diamabankwalletf.repository.CustomerActivityRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Records CUSTOMER_ACTIVITY_TRACKING rows off the request thread. Activities are put on a
+ * bounded queue and a single writer thread inserts them with JDBC batches, flushing when a
+ * batch is full or the flush interval elapses. When the queue is full the activity is either
+ * dropped (counted) or the caller blocks, depending on activity.tracking.overflow-policy.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ActivityTrackingService {
 
-    private final CustomerActivityRepository activityRepository;
+    private static final String INSERT_SQL = "INSERT INTO CUSTOMER_ACTIVITY_TRACKING " +
+            "(OP_TIMESTAMP, USER_CODE, USER_IP, OP_LINK, OP_DESC, DEVICE_ID, USER_AGENT) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<ActivityRecord> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final boolean blockWhenFull;
+
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private final DistributionSummary batchSizeSummary;
+    private final Timer lagTimer;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public ActivityTrackingService(JdbcTemplate jdbcTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${activity.tracking.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${activity.tracking.batch-size:200}") int batchSize,
+                                   @Value("${activity.tracking.flush-interval-ms:1000}") long flushIntervalMs,
+                                   @Value("${activity.tracking.overflow-policy:DROP}") String overflowPolicy) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.blockWhenFull = "BLOCK".equalsIgnoreCase(overflowPolicy);
+
+        Gauge.builder("activity.tracking.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        this.droppedCounter = Counter.builder("activity.tracking.dropped").register(meterRegistry);
+        this.failedCounter = Counter.builder("activity.tracking.failed").register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("activity.tracking.batch.size").register(meterRegistry);
+        this.lagTimer = Timer.builder("activity.tracking.lag")
+                .description("Time from enqueue to insert")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::drainLoop, "activity-tracking-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Activity tracking writer started (batchSize={}, flushIntervalMs={}, blockWhenFull={})",
+                batchSize, flushIntervalMs, blockWhenFull);
+    }
 
     public void saveUserActivityTracking(String userCode, String ip, String link, String desc,
                                          String userAgent, String deviceId) {
+        ActivityRecord activity = new ActivityRecord(
+                new Timestamp(System.currentTimeMillis()),
+                truncate(userCode, 15),
+                truncate(ip, 32),
+                truncate(link, 1024),
+                truncate(desc, 256),
+                truncate(deviceId, 256),
+                truncate(userAgent, 512),
+                System.nanoTime());
+
         try {
-            CustomerActivity activity = new CustomerActivity();
-            activity.setOpTimestamp(new Timestamp(System.currentTimeMillis()));
-            activity.setUserCode(userCode);
-            activity.setUserIp(ip);
-            activity.setOpLink(link);
-            activity.setOpDesc(desc);
-            activity.setUserAgent(userAgent);
-            activity.setDeviceId(deviceId);
-
-            activityRepository.save(activity);
-            log.debug("Activity tracking saved for user: {}", userCode);
+            if (blockWhenFull) {
+                queue.put(activity);
+            } else if (!queue.offer(activity)) {
+                droppedCounter.increment();
+                log.debug("Activity tracking queue full, dropping activity for user: {}", userCode);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedCounter.increment();
+        }
+    }
+
+    private void drainLoop() {
+        List<ActivityRecord> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ActivityRecord first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    ActivityRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown requested: fall through and flush whatever is already collected
+                queue.drainTo(batch);
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<ActivityRecord> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, activity) -> {
+                ps.setTimestamp(1, activity.opTimestamp());
+                ps.setString(2, activity.userCode());
+                ps.setString(3, activity.userIp());
+                ps.setString(4, activity.opLink());
+                ps.setString(5, activity.opDesc());
+                ps.setString(6, activity.deviceId());
+                ps.setString(7, activity.userAgent());
+            });
+            batchSizeSummary.record(batch.size());
+            log.debug("Activity tracking batch saved: {} rows", batch.size());
         } catch (Exception e) {
-            log.error("Failed to save activity tracking", e);
+            // One bad row (e.g. a duplicate OP_TIMESTAMP/USER_CODE key) must not lose the whole batch
+            log.warn("Activity tracking batch insert failed, retrying row by row: {}", e.getMessage());
+            for (ActivityRecord activity : batch) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, activity.opTimestamp(), activity.userCode(), activity.userIp(),
+                            activity.opLink(), activity.opDesc(), activity.deviceId(), activity.userAgent());
+                } catch (Exception rowError) {
+                    failedCounter.increment();
+                    log.error("Failed to save activity tracking for user: {}", activity.userCode(), rowError);
+                }
+            }
         }
+
+        long now = System.nanoTime();
+        for (ActivityRecord activity : batch) {
+            lagTimer.record(now - activity.enqueuedAt(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // The writer notices the flag within one flush interval and drains the queue before exiting
+        running = false;
+        if (writerThread != null) {
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("Activity tracking writer stopped, {} activities left unsaved", queue.size());
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    private record ActivityRecord(Timestamp opTimestamp, String userCode, String userIp, String opLink,
+                                  String opDesc, String deviceId, String userAgent, long enqueuedAt) {
     }
 }
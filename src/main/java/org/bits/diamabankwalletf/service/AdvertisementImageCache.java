@@ -0,0 +1,170 @@
+package org.bits.diamabankwalletf.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.dto.AdvertisementSummary;
+import org.bits.diamabankwalletf.model.Advertisement;
+import org.bits.diamabankwalletf.repository.AdvertisementRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Serves advertisement images by the SHA-256 of their bytes. Images live in a
+ * byte-bounded LRU; the hash of each ad is remembered per (id, lastUpdate) so listing
+ * ads only reads a BLOB when an ad is new or was changed.
+ *
+ * <p>The image endpoint is public, so a request for a hash nobody knows must stay cheap:
+ * malformed hashes are refused outright, misses are remembered for a short while, and
+ * the ads are re-indexed from their (id, lastUpdate) summaries at most once per interval,
+ * reading only the BLOBs of ads not indexed yet.
+ */
+@Service
+@Slf4j
+public class AdvertisementImageCache {
+
+    private static final Pattern HASH_FORMAT = Pattern.compile("[0-9a-f]{64}");
+
+    private final AdvertisementRepository advertisementRepository;
+    private final Cache<String, AdImage> images;
+    private final Cache<String, Boolean> misses;
+    private final long reindexIntervalMillis;
+    private final AtomicLong lastReindex = new AtomicLong();
+    private final Map<String, ImageRef> refsByAdId = new ConcurrentHashMap<>();
+    private final Map<String, String> adIdsByHash = new ConcurrentHashMap<>();
+
+    public AdvertisementImageCache(AdvertisementRepository advertisementRepository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${ads.image-cache.max-bytes:67108864}") long maxBytes,
+                                   @Value("${ads.image-cache.miss-ttl-ms:60000}") long missTtlMs,
+                                   @Value("${ads.image-cache.reindex-interval-ms:60000}") long reindexIntervalMs) {
+        this.advertisementRepository = advertisementRepository;
+        this.images = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String hash, AdImage image) -> image.bytes().length)
+                .recordStats()
+                .build();
+        this.misses = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMillis(missTtlMs))
+                .build();
+        this.reindexIntervalMillis = reindexIntervalMs;
+        CaffeineCacheMetrics.monitor(meterRegistry, images, "advertisementImages");
+    }
+
+    /**
+     * Content hash of the ad's image, or null when the ad has no image.
+     */
+    public String resolveHash(AdvertisementSummary ad) {
+        long lastUpdate = ad.getLastUpdate() != null ? ad.getLastUpdate().getTime() : 0L;
+        ImageRef ref = refsByAdId.get(ad.getId());
+        if (ref != null && ref.lastUpdate() == lastUpdate) {
+            return ref.hash();
+        }
+
+        return advertisementRepository.findById(ad.getId())
+                .map(this::register)
+                .orElse(null);
+    }
+
+    public Optional<AdImage> getImage(String hash) {
+        if (hash == null || !HASH_FORMAT.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        AdImage cached = images.getIfPresent(hash);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        if (misses.getIfPresent(hash) != null) {
+            return Optional.empty();
+        }
+
+        String adId = adIdsByHash.get(hash);
+        if (adId != null) {
+            advertisementRepository.findById(adId).ifPresent(this::register);
+        } else {
+            // Unknown hash (e.g. after a restart)
+            reindexIfDue(hash);
+        }
+
+        AdImage image = images.getIfPresent(hash);
+        if (image == null) {
+            misses.put(hash, Boolean.TRUE);
+        }
+        return Optional.ofNullable(image);
+    }
+
+    /**
+     * Indexes the ads that are new or changed since they were last seen, unless another
+     * request already did within the re-index interval.
+     */
+    private void reindexIfDue(String hash) {
+        long now = System.currentTimeMillis();
+        long last = lastReindex.get();
+        if (now - last < reindexIntervalMillis || !lastReindex.compareAndSet(last, now)) {
+            return;
+        }
+        log.info("Advertisement image {} not indexed, re-indexing advertisements", hash);
+        advertisementRepository.findAllSummaries().forEach(this::resolveHash);
+    }
+
+    private String register(Advertisement ad) {
+        if (ad.getImage() == null || ad.getImage().length == 0) {
+            refsByAdId.remove(ad.getId());
+            return null;
+        }
+
+        String hash = sha256(ad.getImage());
+        long lastUpdate = ad.getLastUpdate() != null ? ad.getLastUpdate().getTime() : 0L;
+
+        ImageRef previous = refsByAdId.put(ad.getId(), new ImageRef(lastUpdate, hash));
+        if (previous != null && !previous.hash().equals(hash)) {
+            adIdsByHash.remove(previous.hash(), ad.getId());
+        }
+        adIdsByHash.put(hash, ad.getId());
+        misses.invalidate(hash);
+        images.put(hash, new AdImage(hash, ad.getImage(), detectContentType(ad.getImage())));
+        return hash;
+    }
+
+    private static String detectContentType(byte[] bytes) {
+        try {
+            String guessed = URLConnection.guessContentTypeFromStream(new ByteArrayInputStream(bytes));
+            return Objects.requireNonNullElse(guessed, "image/jpeg");
+        } catch (Exception e) {
+            return "image/jpeg";
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public record AdImage(String hash, byte[] bytes, String contentType) {
+    }
+
+    private record ImageRef(long lastUpdate, String hash) {
+    }
+}
@@ -2,6 +2,7 @@ package org.bits.diamabankwalletf.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.dto.AdvertisementSummary;
 import org.bits.diamabankwalletf.model.Advertisement;
 import org.bits.diamabankwalletf.repository.AdvertisementRepository;
 import org.springframework.stereotype.Service;
@@ -15,13 +16,17 @@ import java.util.stream.Collectors;
 @Slf4j
 public class AdvertisementService {
 
+    public static final String IMAGE_PATH = "/api/advertisements/images/";
+
     private final AdvertisementRepository advertisementRepository;
+    private final AdvertisementImageCache advertisementImageCache;
 
     public List<Map<String, Object>> getAdsForBank(String bankCode) {
         try {
             log.info("Getting advertisements for bankCode=[{}]", bankCode);
 
-            List<Advertisement> ads = advertisementRepository.findByBankCode(bankCode);
+            // Images are served separately by content hash, so the BLOBs are not loaded here
+            List<AdvertisementSummary> ads = advertisementRepository.findSummariesByBankCode(bankCode);
 
             return ads.stream()
                     .map(ad -> {
@@ -30,12 +35,8 @@ public class AdvertisementService {
                         adMap.put("description", ad.getDescription());
                         adMap.put("date", ad.getLastUpdate().getTime());
 
-                        if (ad.getImage() != null) {
-                            String base64Image = Base64.getEncoder().encodeToString(ad.getImage());
-                            adMap.put("imageBase64", base64Image);
-                        } else {
-                            adMap.put("imageBase64", "");
-                        }
+                        String imageHash = advertisementImageCache.resolveHash(ad);
+                        adMap.put("imageUrl", imageHash != null ? IMAGE_PATH + imageHash : "");
 
                         return adMap;
                     })
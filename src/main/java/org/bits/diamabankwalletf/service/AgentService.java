@@ -4,24 +4,16 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.dto.*;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Random;
-
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AgentService {
 
-    @Value("${wallet.backend.url}")
-    private String walletBackendUrl;
-
     @Value("${wallet.backend.endpoints.agent-activity}")
     private String agentActivityEndpoint;
 
@@ -43,30 +35,24 @@ public class AgentService {
     @Value("${wallet.backend.endpoints.agent-to-wallet}")
     private String agentToWalletEndpoint;
 
-    private final WebClient webClient;
-    private final WalletCreationService walletCreationService;
+    private final WalletBackendGateway walletBackendGateway;
     private final PinEncryptionUtil pinEncryptionUtil;
+    private final RequestIdGenerator requestIdGenerator;
 
 
     public JResponseService getAgentActivity(RequestAgentActivity request) {
         try {
-            String url = walletBackendUrl + agentActivityEndpoint;
-            log.info("Calling agent activity endpoint at: {}", url);
+            log.info("Calling agent activity endpoint: {}", agentActivityEndpoint);
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -78,17 +64,7 @@ public class AgentService {
 
             log.debug("Request body: {}", request);
 
-            // Get the token from the existing WalletCreationService
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token for transaction history");
-
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(JResponseService.class)
+            return walletBackendGateway.post(agentActivityEndpoint, request, JResponseService.class)
                     .doOnError(error -> log.error("Error calling wallet backend for agent activity", error))
                     .onErrorResume(error -> {
                         JResponseService errorResponse = new JResponseService();
@@ -108,23 +84,17 @@ public class AgentService {
 
     public ResponseService getAgentStatement(RequestAgenteStatement request) {
         try {
-            String url = walletBackendUrl + agentStatementEndpoint;
-            log.info("Calling agent statement endpoint at: {}", url);
+            log.info("Calling agent statement endpoint: {}", agentStatementEndpoint);
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -136,17 +106,7 @@ public class AgentService {
 
             log.debug("Request body: {}", request);
 
-            // Get the token from the existing WalletCreationService
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token for agent statement");
-
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(agentStatementEndpoint, request, ResponseService.class)
                     .doOnError(error -> log.error("Error calling wallet backend for agent statement", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -166,23 +126,17 @@ public class AgentService {
 
     public ResponseService debitWallet(RequestDebitWallet request) {
         try {
-            String url = walletBackendUrl + agentCashOutEndpoint;
-            log.info("Calling agent cashout at: {}", url);
+            log.info("Calling agent cashout: {}", agentCashOutEndpoint);
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -200,17 +154,7 @@ public class AgentService {
 
             log.debug("Request body: {}", request);
 
-            // Get the token from the existing WalletCreationService
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token for agent cashout");
-
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(agentCashOutEndpoint, request, ResponseService.class)
                     .doOnError(error -> log.error("Error calling wallet backend for agent cashout", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -230,23 +174,17 @@ public class AgentService {
 
     public ResponseService agentMoneyVoucher(RequestMoneyVoucher request) {
         try {
-            String url = walletBackendUrl + agentVoucherEndpoint;
-            log.info("Calling agent voucher at: {}", url);
+            log.info("Calling agent voucher: {}", agentVoucherEndpoint);
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -264,17 +202,7 @@ public class AgentService {
 
             log.debug("Request body: {}", request);
 
-            // Get the token from the existing WalletCreationService
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token for agent voucher");
-
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(agentVoucherEndpoint, request, ResponseService.class)
                     .doOnError(error -> log.error("Error calling wallet backend for agent voucher", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -294,23 +222,17 @@ public class AgentService {
 
     public ResponseServiceJson agentCashMoneyVoucher(RequestCashMoneyVoucher request) {
         try {
-            String url = walletBackendUrl + agentCashVoucherEndpoint;
-            log.info("Calling agent cash voucher at: {}", url);
+            log.info("Calling agent cash voucher: {}", agentCashVoucherEndpoint);
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -328,17 +250,7 @@ public class AgentService {
 
             log.debug("Request body: {}", request);
 
-            // Get the token from the existing WalletCreationService
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token for agent cash voucher");
-
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(agentCashVoucherEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> log.error("Error calling wallet backend for agent cash voucher", error))
                     .onErrorResume(error -> {
                         ResponseServiceJson errorResponse = new ResponseServiceJson();
@@ -358,23 +270,17 @@ public class AgentService {
 
     public ResponseService agentToAccount(RequestWalletToBankAccount request) {
         try {
-            String url = walletBackendUrl + agentWalletToAccountEndpoint;
-            log.info("Calling agent wallet to account at: {}", url);
+            log.info("Calling agent wallet to account: {}", agentWalletToAccountEndpoint);
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -386,17 +292,7 @@ public class AgentService {
 
             log.debug("Request body: {}", request);
 
-            // Get the token from the existing WalletCreationService
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token for agent wallet to account ");
-
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(agentWalletToAccountEndpoint, request, ResponseService.class)
                     .doOnError(error -> log.error("Error calling wallet backend for agent to account", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -416,23 +312,17 @@ public class AgentService {
 
     public ResponseService agentToWallet(RequestWalletToWallet request) {
         try {
-            String url = walletBackendUrl + agentToWalletEndpoint;
-            log.info("Calling agent to wallet at: {}", url);
+            log.info("Calling agent to wallet: {}", agentToWalletEndpoint);
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -444,17 +334,7 @@ public class AgentService {
 
             log.debug("Request body: {}", request);
 
-            // Get the token from the existing WalletCreationService
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token for agent to wallet");
-
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(agentToWalletEndpoint, request, ResponseService.class)
                     .doOnError(error -> log.error("Error calling wallet backend for agent to wallet", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -8,14 +8,12 @@ import org.bits.diamabankwalletf.dto.ResponseServiceJson;
 import org.bits.diamabankwalletf.model.Bank;
 import org.bits.diamabankwalletf.model.RequestListBanks;
 import org.bits.diamabankwalletf.repository.BankRepository;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 @Service
@@ -24,8 +22,8 @@ import java.util.*;
 public class BankService {
 
     private final BankRepository bankRepository;
-    private final WalletCreationService walletCreationService;
-    private final WebClient webClient;
+    private final WalletBackendGateway walletBackendGateway;
+    private final RequestIdGenerator requestIdGenerator;
 
 
     @Value("${wallet.backend.url}")
@@ -74,17 +72,12 @@ public class BankService {
             log.info("Calling list banks endpoint at: {}", url);
 
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
 
@@ -92,25 +85,7 @@ public class BankService {
                 request.setEntityId("CUSTOMER");
             }
 
-
-            String token = walletCreationService.getServiceAccountToken();
-            if (token == null) {
-                log.error("Failed to obtain token for PIN check");
-                JResponseService errorResponse = new JResponseService();
-                errorResponse.setRespCode("999");
-                errorResponse.setMessage("Error obtaining authentication token");
-                return errorResponse;
-            }
-
-
-
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(JResponseService.class)
+            return walletBackendGateway.post(listBanksEndpoint, request, JResponseService.class)
                     .doOnError(error -> {
                         log.error("Error calling list banks API", error);
                         if (error instanceof WebClientResponseException) {
@@ -0,0 +1,78 @@
+package org.bits.diamabankwalletf.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Last wallet key reached by a chunked batch job, saved in the same transaction as the chunk it
+ * closes. A job that stopped half way (crash, redeploy) resumes after that key when it runs
+ * again on the same day; a checkpoint left from an earlier day is ignored, since the set of
+ * matching wallets has moved on. Finished jobs clear their row.
+ *
+ * <pre>
+ * CREATE TABLE WALLET_BATCH_CHECKPOINTS (
+ *     JOB_NAME                VARCHAR2(64)  PRIMARY KEY,
+ *     RUN_DATE                DATE          NOT NULL,
+ *     LAST_WALLET_NUMBER      VARCHAR2(100) NOT NULL,
+ *     LAST_SUPPLEMENTARY_DATA VARCHAR2(200) NOT NULL,
+ *     LAST_BANK_CODE          VARCHAR2(5)   NOT NULL,
+ *     PROCESSED               NUMBER(19)    NOT NULL,
+ *     UPDATED_AT              NUMBER(19)    NOT NULL
+ * );
+ * </pre>
+ */
+@Service
+@RequiredArgsConstructor
+public class BatchCheckpointStore {
+
+    private static final String SELECT_SQL =
+            "SELECT LAST_WALLET_NUMBER, LAST_SUPPLEMENTARY_DATA, LAST_BANK_CODE, PROCESSED "
+                    + "FROM WALLET_BATCH_CHECKPOINTS WHERE JOB_NAME = ? AND RUN_DATE = ?";
+    private static final String UPDATE_SQL =
+            "UPDATE WALLET_BATCH_CHECKPOINTS SET RUN_DATE = ?, LAST_WALLET_NUMBER = ?, LAST_SUPPLEMENTARY_DATA = ?, "
+                    + "LAST_BANK_CODE = ?, PROCESSED = ?, UPDATED_AT = ? WHERE JOB_NAME = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO WALLET_BATCH_CHECKPOINTS (JOB_NAME, RUN_DATE, LAST_WALLET_NUMBER, LAST_SUPPLEMENTARY_DATA, "
+                    + "LAST_BANK_CODE, PROCESSED, UPDATED_AT) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM WALLET_BATCH_CHECKPOINTS WHERE JOB_NAME = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<Checkpoint> load(String job, LocalDate runDate) {
+        List<Checkpoint> rows = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new Checkpoint(
+                new WalletKey(rs.getString("LAST_WALLET_NUMBER"),
+                        rs.getString("LAST_SUPPLEMENTARY_DATA"),
+                        rs.getString("LAST_BANK_CODE")),
+                rs.getLong("PROCESSED")), job, Date.valueOf(runDate));
+        return rows.stream().findFirst();
+    }
+
+    public void save(String job, LocalDate runDate, WalletKey last, long processed) {
+        long now = System.currentTimeMillis();
+        int updated = jdbcTemplate.update(UPDATE_SQL, Date.valueOf(runDate), last.walletNumber(),
+                last.supplementaryData1(), last.bankCode(), processed, now, job);
+        if (updated == 0) {
+            jdbcTemplate.update(INSERT_SQL, job, Date.valueOf(runDate), last.walletNumber(),
+                    last.supplementaryData1(), last.bankCode(), processed, now);
+        }
+    }
+
+    public void clear(String job) {
+        jdbcTemplate.update(DELETE_SQL, job);
+    }
+
+    /**
+     * Primary key of WALLET_DATA, in the order the batch jobs page through it.
+     */
+    public record WalletKey(String walletNumber, String supplementaryData1, String bankCode) {
+    }
+
+    public record Checkpoint(WalletKey last, long processed) {
+    }
+}
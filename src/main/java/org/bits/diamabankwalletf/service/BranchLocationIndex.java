@@ -0,0 +1,220 @@
+package org.bits.diamabankwalletf.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.model.BranchData;
+import org.bits.diamabankwalletf.repository.BranchDataRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory grid of BRANCH_DATA coordinates. Points are bucketed into fixed-size
+ * latitude/longitude cells so radius queries only visit the cells overlapping the
+ * search circle; nearest-N queries widen the radius until enough points are found.
+ * The grid is rebuilt from the database on a schedule and swapped in one step.
+ */
+@Service
+@Slf4j
+public class BranchLocationIndex {
+
+    static final double EARTH_RADIUS_KM = 6371;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+    private static final double MAX_DISTANCE_KM = Math.PI * EARTH_RADIUS_KM;
+
+    private final BranchDataRepository branchDataRepository;
+    private final double cellDegrees;
+
+    private volatile Grid grid;
+
+    public BranchLocationIndex(BranchDataRepository branchDataRepository,
+                               @Value("${branches.location-index.cell-degrees:0.1}") double cellDegrees) {
+        this.branchDataRepository = branchDataRepository;
+        this.cellDegrees = cellDegrees;
+    }
+
+    @Scheduled(fixedDelayString = "${branches.location-index.refresh-interval-ms:600000}",
+            initialDelayString = "${branches.location-index.refresh-interval-ms:600000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("Branch location index refresh failed, keeping previous index", e);
+        }
+    }
+
+    public void refresh() {
+        List<BranchData> rows = branchDataRepository.findAllWithCoordinates();
+        Grid next = new Grid(cellDegrees);
+        for (BranchData row : rows) {
+            try {
+                next.add(new BranchPoint(row.getAtmId(), row.getAtmName(), row.getAddress(),
+                        row.getLatitude(), row.getLongitude(),
+                        Double.parseDouble(row.getLatitude()), Double.parseDouble(row.getLongitude())));
+            } catch (NumberFormatException e) {
+                log.debug("Skipping branch {} with unreadable coordinates", row.getAtmId());
+            }
+        }
+        grid = next;
+        log.info("Branch location index built with {} points in {} cells", next.size, next.cells.size());
+    }
+
+    /**
+     * Points within {@code maxDistanceKm} (all points when null), closest first,
+     * truncated to {@code limit} when one is given.
+     */
+    public List<NearbyBranch> findNearby(double latitude, double longitude, Double maxDistanceKm, Integer limit) {
+        Grid current = currentGrid();
+        if (limit != null && limit <= 0) {
+            limit = null;
+        }
+
+        if (maxDistanceKm != null) {
+            return truncate(current.within(latitude, longitude, maxDistanceKm), limit);
+        }
+        if (limit == null) {
+            return current.within(latitude, longitude, MAX_DISTANCE_KM);
+        }
+
+        // Nearest-N without a radius: widen the search circle until it holds enough points
+        double radius = Math.max(cellDegrees * KM_PER_DEGREE, 1);
+        while (true) {
+            List<NearbyBranch> found = current.within(latitude, longitude, radius);
+            if (found.size() >= limit || radius >= MAX_DISTANCE_KM) {
+                return truncate(found, limit);
+            }
+            radius = Math.min(radius * 2, MAX_DISTANCE_KM);
+        }
+    }
+
+    private Grid currentGrid() {
+        Grid current = grid;
+        if (current == null) {
+            synchronized (this) {
+                if (grid == null) {
+                    refresh();
+                }
+                current = grid;
+            }
+        }
+        return current;
+    }
+
+    private static List<NearbyBranch> truncate(List<NearbyBranch> sorted, Integer limit) {
+        return limit != null && sorted.size() > limit ? sorted.subList(0, limit) : sorted;
+    }
+
+    // Haversine formula to calculate distance between two coordinates in kilometers
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return EARTH_RADIUS_KM * c;
+    }
+
+    public record BranchPoint(String atmId, String name, String address,
+                              String latitudeText, String longitudeText,
+                              double latitude, double longitude) {
+    }
+
+    public record NearbyBranch(BranchPoint branch, double distanceKm) {
+    }
+
+    private static final class Grid {
+
+        private final double cellDegrees;
+        private final int latCells;
+        private final int lonCells;
+        private final Map<Long, List<BranchPoint>> cells = new HashMap<>();
+        private int size;
+
+        Grid(double cellDegrees) {
+            this.cellDegrees = cellDegrees;
+            this.latCells = (int) Math.ceil(180 / cellDegrees);
+            this.lonCells = (int) Math.ceil(360 / cellDegrees);
+        }
+
+        void add(BranchPoint point) {
+            long key = (long) latIndex(point.latitude()) * lonCells + lonIndex(point.longitude());
+            cells.computeIfAbsent(key, k -> new ArrayList<>()).add(point);
+            size++;
+        }
+
+        List<NearbyBranch> within(double latitude, double longitude, double radiusKm) {
+            List<NearbyBranch> result = new ArrayList<>();
+
+            // Any point within radiusKm differs in latitude by at most radiusKm / KM_PER_DEGREE
+            double latSpan = radiusKm / KM_PER_DEGREE;
+            int minLat = latIndex(latitude - latSpan);
+            int maxLat = latIndex(latitude + latSpan);
+
+            // Longitude span widens towards the poles; give up on narrowing it past that
+            double maxAbsLat = Math.abs(latitude) + latSpan;
+            boolean allLongitudes = maxAbsLat >= 89 || radiusKm >= MAX_DISTANCE_KM / 2;
+            int lonSpanCells = allLongitudes ? lonCells
+                    : (int) Math.ceil(latSpan / Math.cos(Math.toRadians(maxAbsLat)) / cellDegrees) + 1;
+            int centerLon = lonIndex(longitude);
+
+            if (cells.size() <= (long) (maxLat - minLat + 1) * Math.min(lonCells, 2L * lonSpanCells + 1)) {
+                // Sparse grid: walking the occupied cells is cheaper than probing empty ones
+                for (List<BranchPoint> cell : cells.values()) {
+                    collect(cell, latitude, longitude, radiusKm, result);
+                }
+            } else {
+                for (int lat = minLat; lat <= maxLat; lat++) {
+                    if (2 * lonSpanCells + 1 >= lonCells) {
+                        for (int lon = 0; lon < lonCells; lon++) {
+                            collect(lat, lon, latitude, longitude, radiusKm, result);
+                        }
+                    } else {
+                        for (int offset = -lonSpanCells; offset <= lonSpanCells; offset++) {
+                            int lon = Math.floorMod(centerLon + offset, lonCells);
+                            collect(lat, lon, latitude, longitude, radiusKm, result);
+                        }
+                    }
+                }
+            }
+
+            result.sort(Comparator.comparingDouble(NearbyBranch::distanceKm));
+            return result;
+        }
+
+        private void collect(int lat, int lon, double latitude, double longitude, double radiusKm,
+                             List<NearbyBranch> result) {
+            List<BranchPoint> cell = cells.get((long) lat * lonCells + lon);
+            if (cell != null) {
+                collect(cell, latitude, longitude, radiusKm, result);
+            }
+        }
+
+        private static void collect(List<BranchPoint> cell, double latitude, double longitude, double radiusKm,
+                                    List<NearbyBranch> result) {
+            for (BranchPoint point : cell) {
+                double distance = distanceKm(latitude, longitude, point.latitude(), point.longitude());
+                if (distance <= radiusKm) {
+                    result.add(new NearbyBranch(point, distance));
+                }
+            }
+        }
+
+        private int latIndex(double latitude) {
+            double clamped = Math.max(-90, Math.min(90, latitude));
+            return Math.min(latCells - 1, (int) Math.floor((clamped + 90) / cellDegrees));
+        }
+
+        private int lonIndex(double longitude) {
+            return Math.floorMod((int) Math.floor((longitude + 180) / cellDegrees), lonCells);
+        }
+    }
+}
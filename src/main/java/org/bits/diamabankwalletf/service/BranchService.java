@@ -20,6 +20,7 @@ public class BranchService {
 
     private final BranchRepository branchRepository;
     private final BranchDataRepository branchDataRepository;
+    private final BranchLocationIndex branchLocationIndex;
 
     /**
      * Get all branches for the bank
@@ -90,66 +91,31 @@ public class BranchService {
      * @param longitude User's longitude
      * @param bankCode The bank code
      * @param maxDistance Maximum distance in kilometers (optional)
+     * @param limit Maximum number of branches to return (optional)
      * @return List of nearby branches with distance information
      */
     public List<Map<String, Object>> getNearbyBranches(
             Double latitude,
             Double longitude,
             String bankCode,
-            Double maxDistance) {
+            Double maxDistance,
+            Integer limit) {
 
         log.info("Finding nearby branches at coordinates [{}, {}] for bankCode=[{}]",
                 latitude, longitude, bankCode);
 
-        // Get branches with location data
-        List<BranchData> branchesWithLocation = branchDataRepository.findAllWithCoordinates();
-
-        // Calculate distances and filter
-        return branchesWithLocation.stream()
-                .map(branchData -> {
-                    try {
-                        double branchLat = Double.parseDouble(branchData.getLatitude());
-                        double branchLng = Double.parseDouble(branchData.getLongitude());
-
-                        // Calculate distance using Haversine formula
-                        double distance = calculateDistance(
-                                latitude, longitude, branchLat, branchLng);
-
-                        if (maxDistance == null || distance <= maxDistance) {
-                            Map<String, Object> result = new HashMap<>();
-                            result.put("id", branchData.getAtmId());
-                            result.put("name", branchData.getAtmName());
-                            result.put("address", branchData.getAddress());
-                            result.put("distance", Math.round(distance * 100.0) / 100.0); // Round to 2 decimals
-                            result.put("latitude", branchData.getLatitude());
-                            result.put("longitude", branchData.getLongitude());
-                            return result;
-                        }
-                        return null;
-                    } catch (NumberFormatException e) {
-                        return null;
-                    }
+        // Served from the in-memory grid, already sorted by distance
+        return branchLocationIndex.findNearby(latitude, longitude, maxDistance, limit).stream()
+                .map(nearby -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("id", nearby.branch().atmId());
+                    result.put("name", nearby.branch().name());
+                    result.put("address", nearby.branch().address());
+                    result.put("distance", Math.round(nearby.distanceKm() * 100.0) / 100.0); // Round to 2 decimals
+                    result.put("latitude", nearby.branch().latitudeText());
+                    result.put("longitude", nearby.branch().longitudeText());
+                    return result;
                 })
-                .filter(map -> map != null)
-                .sorted((m1, m2) -> Double.compare(
-                        (Double) m1.get("distance"),
-                        (Double) m2.get("distance")))
                 .collect(Collectors.toList());
     }
-
-    // Haversine formula to calculate distance between two coordinates in kilometers
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // Earth's radius in kilometers
-
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-
-        return R * c;
-    }
 }
@@ -6,6 +6,7 @@ import org.springframework.web.client.HttpServerErrorException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.dto.*;
+import org.bits.diamabankwalletf.exception.WalletBackendUnavailableException;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
@@ -22,6 +23,7 @@ public class DSDService {
 
     private final WalletCreationService walletCreationService;
     private final PinEncryptionUtil pinEncryptionUtil;
+    private final WalletBackendGateway walletBackendGateway;
 
     @Value("${wallet.backend.url}")
     private String walletBackendUrl;
@@ -29,7 +31,7 @@ public class DSDService {
     @Value("${wallet.backend.endpoints.pending-operations}")
     private String pendingOperationsEndpoint;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
 
     // ================================================================
     // INITIATE PAYMENT
@@ -70,7 +72,8 @@ public class DSDService {
             log.info("📤 Payload: {}", body);
 
             ResponseEntity<Map> apiResponse =
-                    restTemplate.exchange(url, HttpMethod.POST, request, Map.class);
+                    walletBackendGateway.execute("/dsd/initiate",
+                            () -> restTemplate.exchange(url, HttpMethod.POST, request, Map.class));
 
             return parseDSDResponse(apiResponse, response);
 
@@ -99,7 +102,8 @@ public class DSDService {
             log.info("🌐 GET {}", url);
 
             ResponseEntity<Map> apiResponse =
-                    restTemplate.exchange(url, HttpMethod.GET, request, Map.class);
+                    walletBackendGateway.execute(pendingOperationsEndpoint,
+                            () -> restTemplate.exchange(url, HttpMethod.GET, request, Map.class));
 
             return parseResponseService(apiResponse, response);
 
@@ -139,7 +143,8 @@ public class DSDService {
             log.info("🌐 POST {} with body: {}", url, requestBody);
 
             ResponseEntity<Map> apiResponse =
-                    restTemplate.exchange(url, HttpMethod.POST, httpRequest, Map.class);
+                    walletBackendGateway.execute("/dsd/status",
+                            () -> restTemplate.exchange(url, HttpMethod.POST, httpRequest, Map.class));
 
             // Parse response from backend
             return parseResponseServiceFromMap(apiResponse, response);
@@ -169,6 +174,8 @@ public class DSDService {
                 return response;
             }
 
+        } catch (WalletBackendUnavailableException e) {
+            return handleExceptionRS(e, response);
         } catch (Exception e) {
             log.error("Error querying DSD payment status: {}", e.getMessage(), e);
             response.setStatus("ANNULE");
@@ -234,7 +241,8 @@ public class DSDService {
             log.info("🌐 POST {}", url);
 
             ResponseEntity<Map> apiResponse =
-                    restTemplate.exchange(url, HttpMethod.POST, request, Map.class);
+                    walletBackendGateway.execute("/validate",
+                            () -> restTemplate.exchange(url, HttpMethod.POST, request, Map.class));
 
             return parseDSDResponse(apiResponse, response);
 
@@ -268,7 +276,8 @@ public class DSDService {
             log.info("🌐 POST {}", url);
 
             ResponseEntity<Map> apiResponse =
-                    restTemplate.exchange(url, HttpMethod.POST, request, Map.class);
+                    walletBackendGateway.execute("/reject",
+                            () -> restTemplate.exchange(url, HttpMethod.POST, request, Map.class));
 
             return parseDSDResponse(apiResponse, response);
 
@@ -351,7 +360,7 @@ public class DSDService {
     private DSDResponse handleException(Exception e, DSDResponse r) {
         log.error("❌ ERROR: {}", e.getMessage(), e);
         r.setStatus("ANNULE");
-        r.setRespCode("500");
+        r.setRespCode(e instanceof WalletBackendUnavailableException ? "999" : "500");
         r.setMessage("Error: " + e.getMessage());
         return r;
     }
@@ -359,7 +368,7 @@ public class DSDService {
     private ResponseService handleExceptionRS(Exception e, ResponseService r) {
         log.error("❌ ERROR: {}", e.getMessage(), e);
         r.setStatus("ANNULE");
-        r.setRespCode("500");
+        r.setRespCode(e instanceof WalletBackendUnavailableException ? "999" : "500");
         r.setMessage("Error: " + e.getMessage());
         return r;
     }
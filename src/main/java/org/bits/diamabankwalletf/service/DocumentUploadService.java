@@ -1,17 +1,29 @@
 package org.bits.diamabankwalletf.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @Slf4j
@@ -23,196 +35,235 @@ public class DocumentUploadService {
     @Value("${wallet.upload.doc.directory:/home/wallet/ScannedFiles/DOC_IMAGE}")
     private String docUploadDirectory;
 
+    private final long maxImageBytes;
+    private final long maxImagePixels;
+    private final ExecutorService uploadExecutor;
+    private final Timer registrationUploadTimer;
+
+    public DocumentUploadService(MeterRegistry meterRegistry,
+                                 @Value("${wallet.upload.max-image-bytes:10485760}") long maxImageBytes,
+                                 @Value("${wallet.upload.max-image-pixels:40000000}") long maxImagePixels,
+                                 @Value("${wallet.upload.threads:4}") int uploadThreads,
+                                 @Value("${wallet.upload.queue-capacity:64}") int queueCapacity) {
+        this.maxImageBytes = maxImageBytes;
+        this.maxImagePixels = maxImagePixels;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        // When the queue is full the caller processes its own images instead of failing
+        this.uploadExecutor = new ThreadPoolExecutor(uploadThreads, uploadThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "document-upload-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.registrationUploadTimer = Timer.builder("documents.upload.registration")
+                .description("Time to store the face and document images of one customer")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Target file name prefix, size and directory of each KYC image
+     */
+    private enum ImageKind {
+        FACE("Face", "FACE__", 600, 600),
+        DOC_FRONT("Document front", "DOC_FRONT__", 640, 480),
+        DOC_BACK("Document back", "DOC_BACK__", 640, 480);
+
+        final String label;
+        final String filePrefix;
+        final int width;
+        final int height;
+
+        ImageKind(String label, String filePrefix, int width, int height) {
+            this.label = label;
+            this.filePrefix = filePrefix;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
     /**
      * Upload face image from base64 string
      */
     public int uploadFaceImage(String customerId, String base64Image) {
-        if (base64Image == null || base64Image.trim().isEmpty()) {
-            log.warn("Face image is null or empty for customer: {}", customerId);
-            return 0; // No image to upload
-        }
+        return uploadBase64Image(customerId, base64Image, ImageKind.FACE);
+    }
 
-        try {
-            // Create directory if it doesn't exist
-            Path uploadPath = Paths.get(faceUploadDirectory);
-            Files.createDirectories(uploadPath);
+    /**
+     * Upload document front image from base64 string
+     */
+    public int uploadDocumentFront(String customerId, String base64Image) {
+        return uploadBase64Image(customerId, base64Image, ImageKind.DOC_FRONT);
+    }
 
-            // Decode base64 image
-            byte[] imageBytes = decodeBase64Image(base64Image);
-            if (imageBytes == null) {
-                return -1;
-            }
+    /**
+     * Upload document back image from base64 string
+     */
+    public int uploadDocumentBack(String customerId, String base64Image) {
+        return uploadBase64Image(customerId, base64Image, ImageKind.DOC_BACK);
+    }
 
-            // Create BufferedImage from bytes
-            ByteArrayInputStream bis = new ByteArrayInputStream(imageBytes);
-            BufferedImage originalImage = ImageIO.read(bis);
-            bis.close();
+    /**
+     * Upload all documents for a customer
+     */
+    public int uploadAllDocuments(String customerId, String faceImage, String docFront, String docBack) {
+        return uploadConcurrently(customerId,
+                () -> uploadFaceImage(customerId, faceImage),
+                () -> uploadDocumentFront(customerId, docFront),
+                () -> uploadDocumentBack(customerId, docBack));
+    }
 
-            if (originalImage == null) {
-                log.error("Failed to read image data for customer: {}", customerId);
-                return -1;
-            }
+    /**
+     * Upload all documents for a customer from multipart files; each image is decoded straight
+     * from the request stream without a base64 or byte[] copy of the payload
+     */
+    public int uploadAllDocumentFiles(String customerId, MultipartFile faceImage, MultipartFile docFront,
+                                      MultipartFile docBack) {
+        return uploadConcurrently(customerId,
+                () -> uploadImageFile(customerId, faceImage, ImageKind.FACE),
+                () -> uploadImageFile(customerId, docFront, ImageKind.DOC_FRONT),
+                () -> uploadImageFile(customerId, docBack, ImageKind.DOC_BACK));
+    }
 
-            // Resize image to 600x600
-            BufferedImage resizedImage = createResizedCopy(originalImage, 600, 600, true);
+    private int uploadConcurrently(String customerId, Callable<Integer> face, Callable<Integer> docFront,
+                                   Callable<Integer> docBack) {
+        long start = System.nanoTime();
+        List<Future<Integer>> uploads = new ArrayList<>(3);
+        uploads.add(uploadExecutor.submit(face));
+        uploads.add(uploadExecutor.submit(docFront));
+        uploads.add(uploadExecutor.submit(docBack));
 
-            // Save to file
-            File savedFile = new File(uploadPath.toFile(), "FACE__" + customerId + ".png");
-            boolean success = ImageIO.write(resizedImage, "png", savedFile);
+        int result = 0;
+        ImageKind[] kinds = ImageKind.values();
+        for (int i = 0; i < uploads.size(); i++) {
+            int uploadResult;
+            try {
+                uploadResult = uploads.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                uploadResult = -1;
+            } catch (ExecutionException e) {
+                log.error("Error uploading {} image for customer: {}", kinds[i].label.toLowerCase(), customerId,
+                        e.getCause());
+                uploadResult = -1;
+            }
 
-            if (success) {
-                log.info("Face image uploaded successfully for customer: {} to {}",
-                        customerId, savedFile.getAbsolutePath());
-                return 0;
-            } else {
-                log.error("Failed to write face image for customer: {}", customerId);
-                return -1;
+            if (uploadResult == -1) {
+                result = -1;
+                log.error("Failed to upload {} image for customer: {}", kinds[i].label.toLowerCase(), customerId);
             }
+        }
+        registrationUploadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 
-        } catch (Exception e) {
-            log.error("Error uploading face image for customer: " + customerId, e);
-            return -1;
+        if (result == 0) {
+            log.info("All documents uploaded successfully for customer: {}", customerId);
         }
+
+        return result;
     }
 
-    /**
-     * Upload document front image from base64 string
-     */
-    public int uploadDocumentFront(String customerId, String base64Image) {
+    private int uploadBase64Image(String customerId, String base64Image, ImageKind kind) {
         if (base64Image == null || base64Image.trim().isEmpty()) {
-            log.warn("Document front image is null or empty for customer: {}", customerId);
-            return 0;
+            log.warn("{} image is null or empty for customer: {}", kind.label, customerId);
+            return 0; // No image to upload
         }
 
-        try {
-            // Create directory if it doesn't exist
-            Path uploadPath = Paths.get(docUploadDirectory);
-            Files.createDirectories(uploadPath);
-
-            // Decode base64 image
-            byte[] imageBytes = decodeBase64Image(base64Image);
-            if (imageBytes == null) {
-                return -1;
-            }
-
-            // Create BufferedImage from bytes
-            ByteArrayInputStream bis = new ByteArrayInputStream(imageBytes);
-            BufferedImage originalImage = ImageIO.read(bis);
-            bis.close();
-
-            if (originalImage == null) {
-                log.error("Failed to read document front image data for customer: {}", customerId);
-                return -1;
-            }
+        // Decoded size is about 3/4 of the base64 length; reject before decoding anything
+        if (base64Image.length() / 4L * 3 > maxImageBytes) {
+            log.error("{} image for customer {} exceeds the {} byte limit", kind.label, customerId, maxImageBytes);
+            return -1;
+        }
 
-            // Resize image to 640x480
-            BufferedImage resizedImage = createResizedCopy(originalImage, 640, 480, true);
+        byte[] imageBytes = decodeBase64Image(base64Image);
+        if (imageBytes == null) {
+            return -1;
+        }
+        return storeImage(customerId, new ByteArrayInputStream(imageBytes), kind);
+    }
 
-            // Save to file
-            File savedFile = new File(uploadPath.toFile(), "DOC_FRONT__" + customerId + ".png");
-            boolean success = ImageIO.write(resizedImage, "png", savedFile);
+    private int uploadImageFile(String customerId, MultipartFile file, ImageKind kind) {
+        if (file == null || file.isEmpty()) {
+            log.warn("{} image is null or empty for customer: {}", kind.label, customerId);
+            return 0;
+        }
 
-            if (success) {
-                log.info("Document front image uploaded successfully for customer: {} to {}",
-                        customerId, savedFile.getAbsolutePath());
-                return 0;
-            } else {
-                log.error("Failed to write document front image for customer: {}", customerId);
-                return -1;
-            }
+        if (file.getSize() > maxImageBytes) {
+            log.error("{} image for customer {} is {} bytes, over the {} byte limit",
+                    kind.label, customerId, file.getSize(), maxImageBytes);
+            return -1;
+        }
 
-        } catch (Exception e) {
-            log.error("Error uploading document front image for customer: " + customerId, e);
+        try {
+            return storeImage(customerId, file.getInputStream(), kind);
+        } catch (IOException e) {
+            log.error("Error reading {} image upload for customer: {}", kind.label.toLowerCase(), customerId, e);
             return -1;
         }
     }
 
     /**
-     * Upload document back image from base64 string
+     * Decode the image from the stream, resize it and save it as PNG. The dimensions are
+     * checked from the image header before any pixel is decoded, and large images are
+     * subsampled while decoding so the full-resolution raster is never held in memory.
      */
-    public int uploadDocumentBack(String customerId, String base64Image) {
-        if (base64Image == null || base64Image.trim().isEmpty()) {
-            log.warn("Document back image is null or empty for customer: {}", customerId);
-            return 0;
-        }
-
-        try {
+    private int storeImage(String customerId, InputStream source, ImageKind kind) {
+        try (InputStream in = source; ImageInputStream input = ImageIO.createImageInputStream(in)) {
             // Create directory if it doesn't exist
-            Path uploadPath = Paths.get(docUploadDirectory);
+            Path uploadPath = Paths.get(kind == ImageKind.FACE ? faceUploadDirectory : docUploadDirectory);
             Files.createDirectories(uploadPath);
 
-            // Decode base64 image
-            byte[] imageBytes = decodeBase64Image(base64Image);
-            if (imageBytes == null) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                log.error("Failed to read {} image data for customer: {}", kind.label.toLowerCase(), customerId);
                 return -1;
             }
 
-            // Create BufferedImage from bytes
-            ByteArrayInputStream bis = new ByteArrayInputStream(imageBytes);
-            BufferedImage originalImage = ImageIO.read(bis);
-            bis.close();
-
-            if (originalImage == null) {
-                log.error("Failed to read document back image data for customer: {}", customerId);
-                return -1;
+            ImageReader reader = readers.next();
+            BufferedImage originalImage;
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxImagePixels) {
+                    log.error("{} image for customer {} is {}x{}, over the {} pixel limit",
+                            kind.label, customerId, width, height, maxImagePixels);
+                    return -1;
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.min(width / kind.width, height / kind.height));
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                originalImage = reader.read(0, param);
+            } finally {
+                reader.dispose();
             }
 
-            // Resize image to 640x480
-            BufferedImage resizedImage = createResizedCopy(originalImage, 640, 480, true);
+            // Resize image to the target size
+            BufferedImage resizedImage = createResizedCopy(originalImage, kind.width, kind.height, true);
 
             // Save to file
-            File savedFile = new File(uploadPath.toFile(), "DOC_BACK__" + customerId + ".png");
+            File savedFile = new File(uploadPath.toFile(), kind.filePrefix + customerId + ".png");
             boolean success = ImageIO.write(resizedImage, "png", savedFile);
 
             if (success) {
-                log.info("Document back image uploaded successfully for customer: {} to {}",
-                        customerId, savedFile.getAbsolutePath());
+                log.info("{} image uploaded successfully for customer: {} to {}",
+                        kind.label, customerId, savedFile.getAbsolutePath());
                 return 0;
             } else {
-                log.error("Failed to write document back image for customer: {}", customerId);
+                log.error("Failed to write {} image for customer: {}", kind.label.toLowerCase(), customerId);
                 return -1;
             }
 
         } catch (Exception e) {
-            log.error("Error uploading document back image for customer: " + customerId, e);
+            log.error("Error uploading " + kind.label.toLowerCase() + " image for customer: " + customerId, e);
             return -1;
         }
     }
 
-    /**
-     * Upload all documents for a customer
-     */
-    public int uploadAllDocuments(String customerId, String faceImage, String docFront, String docBack) {
-        int result = 0;
-
-        // Upload face image
-        int faceResult = uploadFaceImage(customerId, faceImage);
-        if (faceResult == -1) {
-            result = -1;
-            log.error("Failed to upload face image for customer: {}", customerId);
-        }
-
-        // Upload document front
-        int frontResult = uploadDocumentFront(customerId, docFront);
-        if (frontResult == -1) {
-            result = -1;
-            log.error("Failed to upload document front for customer: {}", customerId);
-        }
-
-        // Upload document back
-        int backResult = uploadDocumentBack(customerId, docBack);
-        if (backResult == -1) {
-            result = -1;
-            log.error("Failed to upload document back for customer: {}", customerId);
-        }
-
-        if (result == 0) {
-            log.info("All documents uploaded successfully for customer: {}", customerId);
-        }
-
-        return result;
-    }
-
     /**
      * Decode base64 image string to byte array with multiple fallback strategies
      */
@@ -427,4 +478,9 @@ public class DocumentUploadService {
             return false;
         }
     }
+
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdown();
+    }
 }
@@ -0,0 +1,250 @@
+package org.bits.diamabankwalletf.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends template emails off the request thread. Emails are put on a bounded queue and a small
+ * pool of workers renders them (the Thymeleaf engine keeps parsed templates cached) and hands
+ * them to the mail sender a batch at a time, so a batch shares one SMTP connection. Messages
+ * the relay refused are retried with exponential backoff up to mail.outbox.max-attempts.
+ */
+@Service
+@Slf4j
+public class EmailOutboxService {
+
+    private final JavaMailSender mailSender;
+    private final TemplateEngine templateEngine;
+    private final BlockingQueue<PendingEmail> queue;
+    private final int workers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryInitialMs;
+    private final long retryMaxMs;
+    private final ScheduledExecutorService retryScheduler;
+
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final Counter rejectedCounter;
+    private final Timer lagTimer;
+    private final String senderEmail;
+
+    private volatile boolean running;
+    private final List<Thread> workerThreads = new ArrayList<>();
+
+    public EmailOutboxService(JavaMailSender mailSender,
+                              TemplateEngine templateEngine,
+                              MeterRegistry meterRegistry,
+                              @Value("${spring.mail.username}") String senderEmail,
+                              @Value("${mail.outbox.queue-capacity:1000}") int queueCapacity,
+                              @Value("${mail.outbox.workers:2}") int workers,
+                              @Value("${mail.outbox.batch-size:20}") int batchSize,
+                              @Value("${mail.outbox.max-attempts:5}") int maxAttempts,
+                              @Value("${mail.outbox.retry-initial-ms:2000}") long retryInitialMs,
+                              @Value("${mail.outbox.retry-max-ms:300000}") long retryMaxMs) {
+        this.mailSender = mailSender;
+        this.templateEngine = templateEngine;
+        this.senderEmail = senderEmail;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryInitialMs = retryInitialMs;
+        this.retryMaxMs = retryMaxMs;
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mail-outbox-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("mail.outbox.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        this.sentCounter = Counter.builder("mail.outbox.messages").tag("outcome", "sent").register(meterRegistry);
+        this.retriedCounter = Counter.builder("mail.outbox.messages").tag("outcome", "retried").register(meterRegistry);
+        this.failedCounter = Counter.builder("mail.outbox.messages").tag("outcome", "failed").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("mail.outbox.messages").tag("outcome", "rejected").register(meterRegistry);
+        this.lagTimer = Timer.builder("mail.outbox.lag")
+                .description("Time from enqueue to hand-over to the mail relay")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::workLoop, "mail-outbox-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workerThreads.add(worker);
+        }
+        log.info("Email outbox started (workers={}, batchSize={}, maxAttempts={})", workers, batchSize, maxAttempts);
+    }
+
+    /**
+     * Queues an email rendered from {@code template} with {@code variables}.
+     *
+     * @return false when the queue is full and the email was not accepted
+     */
+    public boolean enqueue(String to, String subject, String template, Map<String, Object> variables) {
+        PendingEmail email = new PendingEmail(to, subject, template, variables, 1, System.nanoTime());
+        if (!queue.offer(email)) {
+            rejectedCounter.increment();
+            log.warn("Email outbox full, rejecting '{}' to {}", subject, to);
+            return false;
+        }
+        return true;
+    }
+
+    private void workLoop() {
+        List<PendingEmail> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingEmail first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                // Shutdown requested: send whatever is already collected
+                queue.drainTo(batch, batchSize);
+            }
+
+            if (!batch.isEmpty()) {
+                deliver(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(List<PendingEmail> batch) {
+        Map<MimeMessage, PendingEmail> messages = new LinkedHashMap<>();
+        for (PendingEmail email : batch) {
+            try {
+                messages.put(render(email), email);
+            } catch (Exception e) {
+                // A template or address error does not get better with retries
+                failedCounter.increment();
+                log.error("Could not build email '{}' from template {}", email.subject(), email.template(), e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Map<Object, Exception> failed = Map.of();
+        try {
+            // One call for the whole batch: the sender keeps a single SMTP connection for it
+            mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            failed = e.getFailedMessages();
+            if (failed.isEmpty()) {
+                failed = new LinkedHashMap<>();
+                for (MimeMessage message : messages.keySet()) {
+                    failed.put(message, e);
+                }
+            }
+        } catch (MailException e) {
+            failed = new LinkedHashMap<>();
+            for (MimeMessage message : messages.keySet()) {
+                failed.put(message, e);
+            }
+        }
+
+        long now = System.nanoTime();
+        for (Map.Entry<MimeMessage, PendingEmail> entry : messages.entrySet()) {
+            PendingEmail email = entry.getValue();
+            Exception error = failed.get(entry.getKey());
+            if (error == null) {
+                sentCounter.increment();
+                lagTimer.record(now - email.enqueuedAt(), TimeUnit.NANOSECONDS);
+            } else {
+                retry(email, error);
+            }
+        }
+    }
+
+    private MimeMessage render(PendingEmail email) throws MessagingException {
+        Context context = new Context();
+        context.setVariables(email.variables());
+        String htmlContent = templateEngine.process(email.template(), context);
+
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+        helper.setFrom(senderEmail); // From = SMTP login
+        helper.setTo(email.to());
+        helper.setSubject(email.subject());
+        helper.setText(htmlContent, true);
+        return message;
+    }
+
+    private void retry(PendingEmail email, Exception error) {
+        if (email.attempt() >= maxAttempts) {
+            failedCounter.increment();
+            log.error("Giving up on email '{}' to {} after {} attempts: {}",
+                    email.subject(), email.to(), email.attempt(), error.getMessage());
+            return;
+        }
+
+        long delayMs = Math.min(retryMaxMs, retryInitialMs << Math.min(email.attempt() - 1, 20));
+        retriedCounter.increment();
+        log.warn("Email '{}' to {} failed (attempt {}), retrying in {} ms: {}",
+                email.subject(), email.to(), email.attempt(), delayMs, error.getMessage());
+
+        PendingEmail next = email.nextAttempt();
+        retryScheduler.schedule(() -> {
+            if (!queue.offer(next)) {
+                failedCounter.increment();
+                log.error("Email outbox full, dropping retry of '{}' to {}", next.subject(), next.to());
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Workers notice the flag within one poll and send what is queued before exiting
+        running = false;
+        retryScheduler.shutdownNow();
+        for (Thread worker : workerThreads) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("Email outbox stopped, {} emails left unsent", queue.size());
+    }
+
+    private record PendingEmail(String to, String subject, String template, Map<String, Object> variables,
+                                int attempt, long enqueuedAt) {
+
+        PendingEmail nextAttempt() {
+            return new PendingEmail(to, subject, template, variables, attempt + 1, enqueuedAt);
+        }
+    }
+}
@@ -3,75 +3,59 @@ package org.bits.diamabankwalletf.service;
 import org.bits.diamabankwalletf.dto.CommentRequest;
 import org.bits.diamabankwalletf.dto.ComplaintRequest;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
-import org.thymeleaf.context.Context;
+
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
 public class EmailService {
 
-    private final JavaMailSender mailSender;
-    private final TemplateEngine templateEngine;
+    private final EmailOutboxService emailOutboxService;
 
     @Value("${app.mail.to}")
     private String feedbackEmail;
 
-    public EmailService(JavaMailSender mailSender, TemplateEngine templateEngine) {
-        this.mailSender = mailSender;
-        this.templateEngine = templateEngine;
+    public EmailService(EmailOutboxService emailOutboxService) {
+        this.emailOutboxService = emailOutboxService;
     }
-    @Value("${spring.mail.username}")
-    private String senderEmail;
-
-    public void sendCustomerComment(CommentRequest request) throws MessagingException {
-        Context context = new Context();
-        context.setVariable("userName", request.getUserName());
-        context.setVariable("userPhone", request.getUserPhone());
-        context.setVariable("category", request.getCategory());
-        context.setVariable("subject", request.getSubject());
-        context.setVariable("comment", request.getComment());
-        context.setVariable("email", request.getEmail());
-
-        String htmlContent = templateEngine.process("comment-email", context);
 
-        MimeMessage mimeMessage = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "UTF-8");
-        helper.setFrom(senderEmail); // ✅ force From = SMTP login
-        helper.setTo(feedbackEmail);
-        helper.setSubject("Nouveau commentaire: " + request.getSubject());
-        helper.setText(htmlContent, true);
-
-        mailSender.send(mimeMessage);
+    /**
+     * Queue le commentaire client ; le rendu et l'envoi SMTP se font hors du thread de la requête
+     *
+     * @return false si la file d'envoi est pleine
+     */
+    public boolean sendCustomerComment(CommentRequest request) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("userName", request.getUserName());
+        variables.put("userPhone", request.getUserPhone());
+        variables.put("category", request.getCategory());
+        variables.put("subject", request.getSubject());
+        variables.put("comment", request.getComment());
+        variables.put("email", request.getEmail());
+
+        return emailOutboxService.enqueue(feedbackEmail, "Nouveau commentaire: " + request.getSubject(),
+                "comment-email", variables);
     }
 
-    public void sendComplaintEmail(ComplaintRequest request) throws MessagingException {
-        Context context = new Context();
-        context.setVariable("userName", request.getUserName());
-        context.setVariable("userPhone", request.getUserPhone());
-        context.setVariable("complaintType", request.getComplaintType());
-        context.setVariable("priority", request.getPriority());
-        context.setVariable("title", request.getTitle());
-        context.setVariable("description", request.getDescription());
-        context.setVariable("incidentDate", request.getIncidentDate());
-        context.setVariable("transactionRef", request.getTransactionRef());
-        context.setVariable("contactMethod", request.getContactMethod());
-        context.setVariable("alternateContact", request.getAlternateContact());
-
-        String htmlContent = templateEngine.process("complaint-template", context);
-
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-        helper.setFrom(senderEmail); // ✅
-        helper.setTo(feedbackEmail);
-        helper.setSubject("📌 Nouvelle Plainte Client");
-        helper.setText(htmlContent, true);
-
-        mailSender.send(message);
+    /**
+     * Queue la plainte client ; le rendu et l'envoi SMTP se font hors du thread de la requête
+     *
+     * @return false si la file d'envoi est pleine
+     */
+    public boolean sendComplaintEmail(ComplaintRequest request) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("userName", request.getUserName());
+        variables.put("userPhone", request.getUserPhone());
+        variables.put("complaintType", request.getComplaintType());
+        variables.put("priority", request.getPriority());
+        variables.put("title", request.getTitle());
+        variables.put("description", request.getDescription());
+        variables.put("incidentDate", request.getIncidentDate());
+        variables.put("transactionRef", request.getTransactionRef());
+        variables.put("contactMethod", request.getContactMethod());
+        variables.put("alternateContact", request.getAlternateContact());
+
+        return emailOutboxService.enqueue(feedbackEmail, "📌 Nouvelle Plainte Client", "complaint-template", variables);
     }
-
-
 }
@@ -4,7 +4,6 @@ package org.bits.diamabankwalletf.service;
 import org.bits.diamabankwalletf.dto.FeeCalculationRequest;
 import org.bits.diamabankwalletf.dto.FeeCalculationResponse;
 import org.bits.diamabankwalletf.model.AuthorizationFee;
-import org.bits.diamabankwalletf.repository.AuthorizationFeeRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,14 +11,14 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.List;
+import java.util.Optional;
 
 @Service
 public class FeeCalculationService {
     private static final Logger logger = LoggerFactory.getLogger(FeeCalculationService.class);
 
     @Autowired
-    private AuthorizationFeeRepository feeRepository;
+    private FeeRuleEngine feeRuleEngine;
 
     /**
      * Calculate fee based on authorization_fees table rules
@@ -42,8 +41,8 @@ public class FeeCalculationService {
 
         BigDecimal amount = BigDecimal.valueOf(request.getTransactionAmount());
 
-        // Find applicable fee rules
-        List<AuthorizationFee> applicableFees = feeRepository.findApplicableFees(
+        // Find the most specific applicable fee rule
+        Optional<AuthorizationFee> applicableFee = feeRuleEngine.findApplicableFee(
                 request.getProcessingCode(),
                 request.getCurrencyCode(),
                 request.getWalletProductCode(),
@@ -55,7 +54,7 @@ public class FeeCalculationService {
                 amount
         );
 
-        if (applicableFees.isEmpty()) {
+        if (applicableFee.isEmpty()) {
             logger.warn("No fee rule found for processingCode: {}, amount: {}",
                     request.getProcessingCode(), amount);
 
@@ -67,8 +66,7 @@ public class FeeCalculationService {
                     .build();
         }
 
-        // Use the first (most specific) rule
-        AuthorizationFee feeRule = applicableFees.get(0);
+        AuthorizationFee feeRule = applicableFee.get();
 
         logger.info("Applying fee rule - Index: {}, Wording: {}, Rate: {}, Fixed: {}",
                 feeRule.getIndexFees(),
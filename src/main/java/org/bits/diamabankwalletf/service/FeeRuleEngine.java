@@ -0,0 +1,139 @@
+package org.bits.diamabankwalletf.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.model.AuthorizationFee;
+import org.bits.diamabankwalletf.repository.AuthorizationFeeRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory copy of AUTHORIZATION_FEES used to quote fees without a query per request.
+ * Rules are grouped by the exact-match columns and each group is kept in the order
+ * {@link AuthorizationFeeRepository#findApplicableFees} returns (MINIMUM DESC with NULLs first,
+ * as Oracle does, then MAXIMUM ASC), so the first rule whose message type and amount band
+ * match is the one the SQL path would have picked. The whole index is rebuilt and swapped
+ * on a schedule or through CacheAdminController.
+ */
+@Service
+@Slf4j
+public class FeeRuleEngine {
+
+    private static final Comparator<AuthorizationFee> SQL_ORDER = Comparator
+            .comparing(AuthorizationFee::getMinimum, Comparator.nullsFirst(Comparator.<BigDecimal>reverseOrder()))
+            .thenComparing(AuthorizationFee::getMaximum, Comparator.nullsLast(Comparator.<BigDecimal>naturalOrder()))
+            .thenComparing(AuthorizationFee::getIndexFees, Comparator.nullsLast(Comparator.<Long>naturalOrder()));
+
+    private final AuthorizationFeeRepository feeRepository;
+
+    private volatile Map<RuleKey, AuthorizationFee[]> index;
+    private volatile int ruleCount;
+
+    public FeeRuleEngine(AuthorizationFeeRepository feeRepository, MeterRegistry meterRegistry) {
+        this.feeRepository = feeRepository;
+        Gauge.builder("fees.engine.rules", this, engine -> engine.ruleCount).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            reload();
+        } catch (Exception e) {
+            // Quotes fall back to the repository query until the next successful reload
+            log.error("Initial fee rule load failed", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${fees.engine.refresh-interval-ms:300000}",
+            initialDelayString = "${fees.engine.refresh-interval-ms:300000}")
+    public void scheduledReload() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("Fee rule reload failed, keeping previous rules", e);
+        }
+    }
+
+    public void reload() {
+        List<AuthorizationFee> rules = feeRepository.findAll();
+
+        Map<RuleKey, List<AuthorizationFee>> grouped = new HashMap<>();
+        int indexed = 0;
+        for (AuthorizationFee rule : rules) {
+            RuleKey key = new RuleKey(rule.getProcessingCode(), rule.getCurrencyCode(),
+                    rule.getWalletProductCode(), rule.getWalletType(), rule.getActionCode(),
+                    rule.getBankCode(), rule.getOriginTransaction());
+            // A NULL in an equality column never matches in SQL either
+            if (key.hasNull()) {
+                continue;
+            }
+            grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(rule);
+            indexed++;
+        }
+
+        Map<RuleKey, AuthorizationFee[]> next = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((key, group) -> {
+            group.sort(SQL_ORDER);
+            next.put(key, group.toArray(new AuthorizationFee[0]));
+        });
+
+        index = Map.copyOf(next);
+        ruleCount = indexed;
+        log.info("Loaded {} fee rules into {} groups", indexed, next.size());
+    }
+
+    /**
+     * The rule {@code findApplicableFees(...).get(0)} would return for the same arguments.
+     */
+    public Optional<AuthorizationFee> findApplicableFee(String processingCode, String currencyCode,
+                                                        String walletProductCode, String walletType,
+                                                        String actionCode, String bankCode,
+                                                        String originTransaction, String messageType,
+                                                        BigDecimal amount) {
+        Map<RuleKey, AuthorizationFee[]> current = index;
+        if (current == null) {
+            List<AuthorizationFee> fees = feeRepository.findApplicableFees(processingCode, currencyCode,
+                    walletProductCode, walletType, actionCode, bankCode, originTransaction, messageType, amount);
+            return fees.isEmpty() ? Optional.empty() : Optional.of(fees.get(0));
+        }
+
+        AuthorizationFee[] candidates = current.get(new RuleKey(processingCode, currencyCode,
+                walletProductCode, walletType, actionCode, bankCode, originTransaction));
+        if (candidates == null) {
+            return Optional.empty();
+        }
+
+        for (AuthorizationFee rule : candidates) {
+            if (rule.getMessageType() != null && !rule.getMessageType().equals(messageType)) {
+                continue;
+            }
+            if (rule.getMinimum() != null && amount.compareTo(rule.getMinimum()) < 0) {
+                continue;
+            }
+            if (rule.getMaximum() != null && amount.compareTo(rule.getMaximum()) > 0) {
+                continue;
+            }
+            return Optional.of(rule);
+        }
+        return Optional.empty();
+    }
+
+    private record RuleKey(String processingCode, String currencyCode, String walletProductCode,
+                           String walletType, String actionCode, String bankCode, String originTransaction) {
+
+        boolean hasNull() {
+            return processingCode == null || currencyCode == null || walletProductCode == null
+                    || walletType == null || actionCode == null || bankCode == null || originTransaction == null;
+        }
+    }
+}
@@ -13,19 +13,16 @@ import org.bits.diamabankwalletf.repository.SmsLogRepository;
 import org.bits.diamabankwalletf.repository.WalletRepository;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
 import org.bits.diamabankwalletf.utils.SecurityUtils;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
-import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
 
 @Slf4j
 @Service
@@ -38,20 +35,15 @@ public class ForgotPinService {
     private final WalletAuthService walletAuthService;
     private final SecurityQuestionService securityQuestionService;
     private final SmsLogRepository smsLogRepository;
-    private final WebClient webClient;
+    private final WalletBackendGateway walletBackendGateway;
     private final PinEncryptionUtil pinEncryptionUtil;
     private final SecretQuestionRepository secretQuestionRepository;
-
-    private final WalletCreationService walletCreationService;
+    private final RequestIdGenerator requestIdGenerator;
 
     @Value("${wallet.backend.endpoints.reset-pin:/ResetPin}")
     private String resetPinEndpoint;
-    @Value("${wallet.backend.url}")
-    private String walletBackendUrl;
 
     // Configuration constants
-    private static final int MAX_DAILY_ATTEMPTS = 3;
-    private static final int MAX_HOURLY_ATTEMPTS_PER_IP = 10;
     private static final int SESSION_TOKEN_VALIDITY_MINUTES = 10;
     private static final int VERIFICATION_TOKEN_VALIDITY_MINUTES = 15;
     private static final int RESET_TOKEN_VALIDITY_MINUTES = 10;
@@ -63,12 +55,7 @@ public class ForgotPinService {
         log.info("Initiating forgot PIN for phoneNumber=[{}], ipAddress=[{}]",
                 SecurityUtils.maskPhoneNumber(phoneNumber), ipAddress);
 
-        // Rate limiting checks
-        if (!canInitiateForgotPin(phoneNumber, ipAddress)) {
-            log.warn("Rate limit exceeded for forgot PIN - phoneNumber=[{}]",
-                    SecurityUtils.maskPhoneNumber(phoneNumber));
-            return buildRateLimitResponse();
-        }
+        // Attempts per phone and per IP are limited by RateLimitFilter before we get here
 
         // Find and validate wallet
         Optional<Wallet> walletOpt = walletRepository.findByPhoneNumber(phoneNumber);
@@ -428,28 +415,14 @@ public class ForgotPinService {
             resetPinRequest.setDocId(wallet.getDocumentId());
 
             // Generate requestId and requestDate
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new java.util.Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            resetPinRequest.setRequestId(datePrefix + randomDigits);
+            resetPinRequest.setRequestId(requestIdGenerator.nextRequestId());
 
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            resetPinRequest.setRequestDate(dateFormat.format(new java.util.Date()));
+            resetPinRequest.setRequestDate(requestIdGenerator.currentTimestamp());
 
             resetPinRequest.setEntityId("CUSTOMER");
 
             // Call backend API using WalletService pattern
-            String url = walletBackendUrl + resetPinEndpoint;
-            String token = walletCreationService.getServiceAccountToken();
-
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(resetPinRequest)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(resetPinEndpoint, resetPinRequest, ResponseService.class)
                     .doOnError(error -> log.error("Error calling backend ResetPin API", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -468,28 +441,6 @@ public class ForgotPinService {
         }
     }
 
-    private boolean canInitiateForgotPin(String phoneNumber, String ipAddress) {
-        LocalDateTime oneDayAgo = LocalDateTime.now().minusHours(24);
-        LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
-
-        long dailyAttempts = forgotPinAttemptRepository.countAttemptsSince(phoneNumber, oneDayAgo);
-        long hourlyIpAttempts = forgotPinAttemptRepository.countAttemptsByIpSince(ipAddress, oneHourAgo);
-
-        return dailyAttempts < MAX_DAILY_ATTEMPTS && hourlyIpAttempts < MAX_HOURLY_ATTEMPTS_PER_IP;
-    }
-
-    private ForgotPinResponse buildRateLimitResponse() {
-        LocalDateTime tomorrow = LocalDateTime.now().plusHours(24);
-        long retryAfterMs = java.time.Duration.between(LocalDateTime.now(), tomorrow).toMillis();
-
-        return ForgotPinResponse.builder()
-                .success(false)
-                .message("Too many attempts today. Please try again tomorrow")
-                .respCode("RATE_LIMIT_EXCEEDED")
-                .retryAfter(retryAfterMs)
-                .build();
-    }
-
     private boolean isTokenExpired(LocalDateTime expiry) {
         return expiry != null && LocalDateTime.now().isAfter(expiry);
     }
@@ -503,20 +454,11 @@ public class ForgotPinService {
             backendReq.setPhoneNumber(request.getPhoneNumber());
             backendReq.setOtp(request.getOtp());
             backendReq.setAuthCode(request.getDeviceId());   // comes from ResetPin response
-            backendReq.setRequestId(SecurityUtils.generateRequestId());
-            backendReq.setRequestDate(SecurityUtils.getCurrentTimestamp());
+            backendReq.setRequestId(requestIdGenerator.nextRequestId());
+            backendReq.setRequestDate(requestIdGenerator.currentTimestamp());
             backendReq.setEntityId("CUSTOMER");
 
-            String url = walletBackendUrl + "/CheckOtp";
-            String token = walletCreationService.getServiceAccountToken();
-
-            ResponseServiceJson backendResp = webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(backendReq)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            ResponseServiceJson backendResp = walletBackendGateway.post("/CheckOtp", backendReq, ResponseServiceJson.class)
                     .block();
 
             if (backendResp != null && "000".equals(backendResp.getRespCode())) {
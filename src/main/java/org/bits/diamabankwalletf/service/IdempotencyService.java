@@ -0,0 +1,223 @@
+package org.bits.diamabankwalletf.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Runs a money-moving request at most once per idempotency key. The key is the client's
+ * Idempotency-Key header, or its requestId when it sent one, and is scoped to the operation
+ * and the authenticated customer: one customer's key never replays another's response. Duplicates arriving while the
+ * first request runs on this node share its result; duplicates on other nodes (JDBC store)
+ * poll until it completes. A completed response is replayed for the replay window, and a key
+ * reused with a different request body is refused. A respCode 999 releases the key, so that the
+ * client can retry as before, only when the request never reached the wallet backend (see
+ * {@link WalletBackendGateway#REQUEST_SENT}); after a timeout or a dropped connection the backend
+ * may have processed it, so the key is marked unknown and refused until it is reconciled.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final String LOCAL_ERROR_CODE = "999";
+    private static final String MISMATCH_MESSAGE = "Idempotency-Key already used for a different request";
+    private static final String BUSY_MESSAGE = "A request with this Idempotency-Key is still being processed";
+    private static final String UNKNOWN_MESSAGE = "The outcome of the request with this Idempotency-Key is unknown; "
+            + "check the transaction status before retrying";
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Duration pollInterval;
+    private final long maxWaitMillis;
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyStore store,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${idempotency.poll-interval-ms:250}") long pollIntervalMs,
+                              @Value("${idempotency.max-wait-ms:30000}") long maxWaitMs) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.pollInterval = Duration.ofMillis(pollIntervalMs);
+        this.maxWaitMillis = maxWaitMs;
+    }
+
+    /**
+     * Idempotency key of a request: the header when present, otherwise the client's requestId.
+     */
+    public static String keyOf(String idempotencyKey, String requestId) {
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            return idempotencyKey.trim();
+        }
+        return requestId != null && !requestId.isBlank() ? requestId.trim() : null;
+    }
+
+    /**
+     * Runs {@code call} unless a request from the same owner with the same operation and key
+     * already ran or is running.
+     *
+     * @param owner   authenticated customer (the principal name); without one the request is
+     *                not deduplicated
+     * @param request body used to detect a key reused for a different request; hashed before
+     *                {@code call} gets a chance to modify it
+     */
+    public <T> Mono<T> execute(String operation, String owner, String key, Object request, Class<T> responseType,
+                               Supplier<Mono<T>> call) {
+        if (key == null || owner == null || owner.isBlank()) {
+            return call.get();
+        }
+        String scopedKey = operation + ":" + owner + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        return Mono.defer(() -> {
+            AtomicReference<InFlight> self = new AtomicReference<>();
+            Mono<T> shared = claimAndRun(operation, scopedKey, fingerprint, responseType, call,
+                    System.currentTimeMillis() + maxWaitMillis)
+                    .doFinally(signal -> inFlight.remove(scopedKey, self.get()))
+                    .cache();
+            self.set(new InFlight(fingerprint, shared));
+
+            InFlight running = inFlight.putIfAbsent(scopedKey, self.get());
+            if (running == null) {
+                return shared;
+            }
+            if (!running.fingerprint().equals(fingerprint)) {
+                count(operation, "mismatch");
+                return Mono.just(rejection(responseType, MISMATCH_MESSAGE));
+            }
+            count(operation, "joined");
+            return running.result().cast(responseType);
+        });
+    }
+
+    private <T> Mono<T> claimAndRun(String operation, String key, String fingerprint, Class<T> responseType,
+                                    Supplier<Mono<T>> call, long deadline) {
+        return Mono.defer(() -> {
+            IdempotencyStore.Claim claim = store.claim(key, fingerprint);
+            switch (claim.status()) {
+                case COMPLETED:
+                    count(operation, "replayed");
+                    log.info("Replaying stored response for {}", key);
+                    return Mono.just(read(claim.response(), responseType));
+                case UNKNOWN:
+                    count(operation, "unknown");
+                    return Mono.just(rejection(responseType, UNKNOWN_MESSAGE));
+                case MISMATCH:
+                    count(operation, "mismatch");
+                    log.warn("Idempotency key {} reused with a different request body", key);
+                    return Mono.just(rejection(responseType, MISMATCH_MESSAGE));
+                case IN_PROGRESS:
+                    if (System.currentTimeMillis() >= deadline) {
+                        count(operation, "busy");
+                        return Mono.just(rejection(responseType, BUSY_MESSAGE));
+                    }
+                    // Store calls may block (JDBC): poll on a thread that is allowed to
+                    return Mono.delay(pollInterval, Schedulers.boundedElastic())
+                            .then(claimAndRun(operation, key, fingerprint, responseType, call, deadline));
+                default:
+                    count(operation, "executed");
+                    AtomicBoolean requestSent = new AtomicBoolean();
+                    return call.get()
+                            .contextWrite(Context.of(WalletBackendGateway.REQUEST_SENT, requestSent))
+                            .publishOn(Schedulers.boundedElastic())
+                            .doOnNext(response -> complete(operation, key, response, requestSent.get()))
+                            .doOnError(error -> abandon(operation, key, requestSent.get()))
+                            .switchIfEmpty(Mono.fromRunnable(() -> abandon(operation, key, requestSent.get())));
+            }
+        });
+    }
+
+    private void complete(String operation, String key, Object response, boolean requestSent) {
+        try {
+            JsonNode json = objectMapper.valueToTree(response);
+            if (LOCAL_ERROR_CODE.equals(json.path("respCode").asText(null))) {
+                abandon(operation, key, requestSent);
+            } else {
+                store.complete(key, objectMapper.writeValueAsString(json));
+            }
+        } catch (Exception e) {
+            // The response still goes back to the client; the claim stays pending until the
+            // in-flight timeout, so a quick retry does not run the request a second time
+            log.error("Could not store response for idempotency key {}", key, e);
+        }
+    }
+
+    /**
+     * Ends a claim whose request produced no usable backend answer.
+     */
+    private void abandon(String operation, String key, boolean requestSent) {
+        if (!requestSent) {
+            store.release(key);
+            return;
+        }
+        count(operation, "marked_unknown");
+        log.warn("Request for idempotency key {} may have reached the backend without an answer; "
+                + "refusing retries until it is reconciled", key);
+        store.markUnknown(key);
+    }
+
+    /**
+     * Lets the client retry {@code key} after ops checked with the backend that the request
+     * whose outcome was unknown did not go through.
+     *
+     * @return false when the key is not marked unknown
+     */
+    public boolean clearUnknown(String operation, String owner, String key) {
+        boolean cleared = store.clearUnknown(operation + ":" + owner + ":" + key);
+        if (cleared) {
+            log.info("Idempotency key {}:{}:{} cleared after reconciliation", operation, owner, key);
+        }
+        return cleared;
+    }
+
+    private <T> T read(String response, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(response, responseType);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable stored response for " + responseType.getSimpleName(), e);
+        }
+    }
+
+    private <T> T rejection(Class<T> responseType, String message) {
+        return objectMapper.convertValue(Map.of("respCode", LOCAL_ERROR_CODE, "message", message), responseType);
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+
+    private void count(String operation, String outcome) {
+        counters.computeIfAbsent(operation + "|" + outcome, k -> Counter.builder("wallet.idempotency.requests")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)).increment();
+    }
+
+    private record InFlight(String fingerprint, Mono<?> result) {
+    }
+}
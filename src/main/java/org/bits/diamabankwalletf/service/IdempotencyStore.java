@@ -0,0 +1,60 @@
+package org.bits.diamabankwalletf.service;
+
+/**
+ * Idempotency keys of money-moving requests. A key is claimed by the first request carrying
+ * it, which then either completes it with its serialized response, releases it when it failed
+ * before the backend saw the request, or marks it unknown when the request may have reached the
+ * backend without an answer (timeout, dropped connection). Completed keys are replayed and unknown
+ * ones refused for the replay window, or until an unknown key is cleared after reconciliation; a
+ * claim still pending after the in-flight timeout is considered abandoned and can be taken over.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims {@code key} for a request whose body hashes to {@code fingerprint}, or reports
+     * what already holds it. Atomic across every node sharing the store.
+     */
+    Claim claim(String key, String fingerprint);
+
+    void complete(String key, String response);
+
+    /**
+     * Forgets a claim so that the next request with the same key runs again.
+     */
+    void release(String key);
+
+    /**
+     * Keeps a claimed key from running again: the request may have been processed by the backend.
+     */
+    void markUnknown(String key);
+
+    /**
+     * Forgets a key marked unknown, once its request was reconciled with the backend.
+     *
+     * @return false when the key is not currently marked unknown
+     */
+    boolean clearUnknown(String key);
+
+    enum Status {
+        ACQUIRED,
+        IN_PROGRESS,
+        COMPLETED,
+        UNKNOWN,
+        MISMATCH
+    }
+
+    /**
+     * @param response serialized response when {@code status} is COMPLETED, otherwise null
+     */
+    record Claim(Status status, String response) {
+
+        static final Claim ACQUIRED = new Claim(Status.ACQUIRED, null);
+        static final Claim IN_PROGRESS = new Claim(Status.IN_PROGRESS, null);
+        static final Claim UNKNOWN = new Claim(Status.UNKNOWN, null);
+        static final Claim MISMATCH = new Claim(Status.MISMATCH, null);
+
+        static Claim completed(String response) {
+            return new Claim(Status.COMPLETED, response);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.bits.diamabankwalletf.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-node idempotency store. Pending claims expire after the in-flight timeout, completed
+ * and unknown ones after the replay window; the size bound caps memory, at the price of
+ * forgetting the oldest keys early under a flood of distinct keys.
+ */
+@Service
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "memory", matchIfMissing = true)
+@Slf4j
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, Entry> entries;
+
+    public InMemoryIdempotencyStore(MeterRegistry meterRegistry,
+                                    @Value("${idempotency.max-entries:100000}") long maxEntries,
+                                    @Value("${idempotency.replay-window-minutes:1440}") long replayWindowMinutes,
+                                    @Value("${idempotency.in-flight-timeout-ms:60000}") long inFlightTimeoutMs) {
+        long replayNanos = TimeUnit.MINUTES.toNanos(replayWindowMinutes);
+        long inFlightNanos = TimeUnit.MILLISECONDS.toNanos(inFlightTimeoutMs);
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return entry.response() != null || entry.unknown() ? replayNanos : inFlightNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "idempotencyKeys");
+        log.info("In-memory idempotency store initialized (maxEntries={}, replayWindow={}min)",
+                maxEntries, replayWindowMinutes);
+    }
+
+    @Override
+    public Claim claim(String key, String fingerprint) {
+        Claim[] claim = new Claim[1];
+        entries.asMap().compute(key, (k, existing) -> {
+            if (existing == null) {
+                claim[0] = Claim.ACQUIRED;
+                return new Entry(fingerprint, null, false);
+            }
+            if (!existing.fingerprint().equals(fingerprint)) {
+                claim[0] = Claim.MISMATCH;
+            } else if (existing.unknown()) {
+                claim[0] = Claim.UNKNOWN;
+            } else {
+                claim[0] = existing.response() != null ? Claim.completed(existing.response()) : Claim.IN_PROGRESS;
+            }
+            return existing;
+        });
+        return claim[0];
+    }
+
+    @Override
+    public void complete(String key, String response) {
+        entries.asMap().computeIfPresent(key, (k, existing) -> new Entry(existing.fingerprint(), response, false));
+    }
+
+    @Override
+    public void release(String key) {
+        entries.invalidate(key);
+    }
+
+    @Override
+    public void markUnknown(String key) {
+        entries.asMap().computeIfPresent(key, (k, existing) -> existing.response() == null
+                ? new Entry(existing.fingerprint(), null, true) : existing);
+    }
+
+    @Override
+    public boolean clearUnknown(String key) {
+        boolean[] cleared = new boolean[1];
+        entries.asMap().computeIfPresent(key, (k, existing) -> {
+            cleared[0] = existing.unknown();
+            return existing.unknown() ? null : existing;
+        });
+        return cleared[0];
+    }
+
+    private record Entry(String fingerprint, String response, boolean unknown) {
+    }
+}
@@ -0,0 +1,144 @@
+package org.bits.diamabankwalletf.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-node OTP store. Each phone has one immutable record replaced under the map's
+ * per-key compute, and each record expires once both its code and its rate-limit window
+ * are over. The size bound protects memory against floods of distinct phone numbers.
+ * Also serves as the stand-in for {@link RedisOtpStateStore} in tests.
+ */
+@Service
+@ConditionalOnProperty(name = "otp.store.type", havingValue = "memory", matchIfMissing = true)
+@Slf4j
+public class InMemoryOtpStateStore implements OtpStateStore {
+
+    private final Cache<String, OtpState> states;
+
+    public InMemoryOtpStateStore(@Value("${otp.store.max-entries:100000}") long maxEntries) {
+        this.states = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, OtpState>() {
+                    @Override
+                    public long expireAfterCreate(String key, OtpState state, long currentTime) {
+                        return remainingNanos(state);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, OtpState state, long currentTime, long currentDuration) {
+                        return remainingNanos(state);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, OtpState state, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        log.info("In-memory OTP state store initialized (maxEntries={})", maxEntries);
+    }
+
+    @Override
+    public IssueResult checkIssue(String phoneNumber, Policy policy) {
+        return evaluate(live(states.getIfPresent(phoneNumber)), System.currentTimeMillis(), policy);
+    }
+
+    @Override
+    public IssueResult issue(String phoneNumber, String otp, Policy policy) {
+        IssueResult[] result = new IssueResult[1];
+        states.asMap().compute(phoneNumber, (key, existing) -> {
+            long now = System.currentTimeMillis();
+            OtpState current = live(existing);
+            result[0] = evaluate(current, now, policy);
+            if (result[0] != IssueResult.ALLOWED) {
+                return current;
+            }
+
+            boolean newWindow = current == null || current.lastRequest() == 0
+                    || now - current.windowStart() >= policy.windowMillis();
+            int count = newWindow ? 1 : current.requestCount() + 1;
+            long windowStart = newWindow ? now : current.windowStart();
+            long expiresAt = Math.max(windowStart + policy.windowMillis(), now + policy.otpTtlMillis());
+            return new OtpState(otp, now, 0, count, windowStart, now, expiresAt);
+        });
+        return result[0];
+    }
+
+    @Override
+    public VerificationState recordVerificationAttempt(String phoneNumber, Policy policy) {
+        OtpState updated = states.asMap().compute(phoneNumber, (key, existing) -> {
+            OtpState current = live(existing);
+            if (current == null) {
+                // Attempts are counted even without a code, as a guessing brake
+                long now = System.currentTimeMillis();
+                return new OtpState(null, 0, 1, 0, now, 0, now + policy.otpTtlMillis());
+            }
+            return current.withAttempts(current.attempts() + 1);
+        });
+        return new VerificationState(updated.attempts(), updated.otp(), updated.otpCreatedAt());
+    }
+
+    @Override
+    public int getVerificationAttempts(String phoneNumber) {
+        OtpState state = live(states.getIfPresent(phoneNumber));
+        return state != null ? state.attempts() : 0;
+    }
+
+    @Override
+    public void clearOtp(String phoneNumber) {
+        states.asMap().computeIfPresent(phoneNumber, (key, existing) -> {
+            OtpState current = live(existing);
+            return current != null ? new OtpState(null, 0, 0, current.requestCount(), current.windowStart(),
+                    current.lastRequest(), current.expiresAt()) : null;
+        });
+    }
+
+    @Override
+    public void remove(String phoneNumber) {
+        states.invalidate(phoneNumber);
+    }
+
+    @Override
+    public long estimatedSize() {
+        return states.estimatedSize();
+    }
+
+    static IssueResult evaluate(OtpState state, long now, Policy policy) {
+        // First request, or the hour window is over
+        if (state == null || now - state.windowStart() >= policy.windowMillis() || state.lastRequest() == 0) {
+            return IssueResult.ALLOWED;
+        }
+        if (now - state.lastRequest() < policy.minIntervalMillis()) {
+            return IssueResult.TOO_FREQUENT;
+        }
+        if (state.requestCount() >= policy.maxRequestsPerWindow()) {
+            return IssueResult.HOURLY_LIMIT_EXCEEDED;
+        }
+        return IssueResult.ALLOWED;
+    }
+
+    private static OtpState live(OtpState state) {
+        return state != null && state.expiresAt() > System.currentTimeMillis() ? state : null;
+    }
+
+    private static long remainingNanos(OtpState state) {
+        long remainingMillis = state.expiresAt() - System.currentTimeMillis();
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+    }
+
+    record OtpState(String otp, long otpCreatedAt, int attempts, int requestCount,
+                    long windowStart, long lastRequest, long expiresAt) {
+
+        OtpState withAttempts(int newAttempts) {
+            return new OtpState(otp, otpCreatedAt, newAttempts, requestCount, windowStart, lastRequest, expiresAt);
+        }
+    }
+}
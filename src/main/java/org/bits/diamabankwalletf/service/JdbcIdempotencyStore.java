@@ -0,0 +1,139 @@
+package org.bits.diamabankwalletf.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Idempotency store in the application database, shared by all nodes and kept across restarts.
+ * The primary key makes the first INSERT win a claim; an expired row is taken over with an
+ * UPDATE conditioned on the CREATED_AT value that was read, so only one node gets it. A key whose
+ * outcome is unknown is a completed row without a RESPONSE.
+ *
+ * <pre>
+ * CREATE TABLE WALLET_IDEMPOTENCY_KEYS (
+ *     IDEMPOTENCY_KEY VARCHAR2(200) PRIMARY KEY,
+ *     FINGERPRINT     VARCHAR2(64)  NOT NULL,
+ *     RESPONSE        CLOB,
+ *     CREATED_AT      NUMBER(19)    NOT NULL,
+ *     COMPLETED_AT    NUMBER(19)
+ * );
+ * CREATE INDEX WALLET_IDEMPOTENCY_KEYS_CREATED ON WALLET_IDEMPOTENCY_KEYS (CREATED_AT);
+ * </pre>
+ */
+@Service
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "jdbc")
+@Slf4j
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO WALLET_IDEMPOTENCY_KEYS (IDEMPOTENCY_KEY, FINGERPRINT, CREATED_AT) VALUES (?, ?, ?)";
+    private static final String SELECT_SQL =
+            "SELECT FINGERPRINT, RESPONSE, CREATED_AT, COMPLETED_AT FROM WALLET_IDEMPOTENCY_KEYS WHERE IDEMPOTENCY_KEY = ?";
+    private static final String TAKE_OVER_SQL =
+            "UPDATE WALLET_IDEMPOTENCY_KEYS SET FINGERPRINT = ?, RESPONSE = NULL, CREATED_AT = ?, COMPLETED_AT = NULL "
+                    + "WHERE IDEMPOTENCY_KEY = ? AND CREATED_AT = ?";
+    private static final String COMPLETE_SQL =
+            "UPDATE WALLET_IDEMPOTENCY_KEYS SET RESPONSE = ?, COMPLETED_AT = ? WHERE IDEMPOTENCY_KEY = ? AND COMPLETED_AT IS NULL";
+    private static final String MARK_UNKNOWN_SQL =
+            "UPDATE WALLET_IDEMPOTENCY_KEYS SET COMPLETED_AT = ? WHERE IDEMPOTENCY_KEY = ? AND COMPLETED_AT IS NULL";
+    private static final String CLEAR_UNKNOWN_SQL =
+            "DELETE FROM WALLET_IDEMPOTENCY_KEYS WHERE IDEMPOTENCY_KEY = ? AND COMPLETED_AT IS NOT NULL AND RESPONSE IS NULL";
+    private static final String RELEASE_SQL =
+            "DELETE FROM WALLET_IDEMPOTENCY_KEYS WHERE IDEMPOTENCY_KEY = ? AND COMPLETED_AT IS NULL";
+    private static final String PURGE_SQL =
+            "DELETE FROM WALLET_IDEMPOTENCY_KEYS WHERE CREATED_AT < ? AND (COMPLETED_AT < ? OR COMPLETED_AT IS NULL)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long replayWindowMillis;
+    private final long inFlightTimeoutMillis;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate,
+                                @Value("${idempotency.replay-window-minutes:1440}") long replayWindowMinutes,
+                                @Value("${idempotency.in-flight-timeout-ms:60000}") long inFlightTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.replayWindowMillis = TimeUnit.MINUTES.toMillis(replayWindowMinutes);
+        this.inFlightTimeoutMillis = inFlightTimeoutMs;
+        log.info("JDBC idempotency store initialized (replayWindow={}min)", replayWindowMinutes);
+    }
+
+    @Override
+    public Claim claim(String key, String fingerprint) {
+        long now = System.currentTimeMillis();
+        try {
+            jdbcTemplate.update(INSERT_SQL, key, fingerprint, now);
+            return Claim.ACQUIRED;
+        } catch (DuplicateKeyException e) {
+            // Held by an earlier request: decide from its row below
+        }
+
+        List<Row> rows = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new Row(
+                rs.getString("FINGERPRINT"),
+                rs.getString("RESPONSE"),
+                rs.getLong("CREATED_AT"),
+                rs.getObject("COMPLETED_AT") != null ? rs.getLong("COMPLETED_AT") : null), key);
+        if (rows.isEmpty()) {
+            // Released between our INSERT and SELECT; the caller polls and claims again
+            return Claim.IN_PROGRESS;
+        }
+
+        Row row = rows.get(0);
+        boolean expired = row.completedAt() != null
+                ? row.completedAt() + replayWindowMillis < now
+                : row.createdAt() + inFlightTimeoutMillis < now;
+        if (expired) {
+            int updated = jdbcTemplate.update(TAKE_OVER_SQL, fingerprint, now, key, row.createdAt());
+            return updated == 1 ? Claim.ACQUIRED : Claim.IN_PROGRESS;
+        }
+        if (!row.fingerprint().equals(fingerprint)) {
+            return Claim.MISMATCH;
+        }
+        if (row.completedAt() == null) {
+            return Claim.IN_PROGRESS;
+        }
+        return row.response() != null ? Claim.completed(row.response()) : Claim.UNKNOWN;
+    }
+
+    @Override
+    public void complete(String key, String response) {
+        jdbcTemplate.update(COMPLETE_SQL, response, System.currentTimeMillis(), key);
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcTemplate.update(RELEASE_SQL, key);
+    }
+
+    @Override
+    public void markUnknown(String key) {
+        jdbcTemplate.update(MARK_UNKNOWN_SQL, System.currentTimeMillis(), key);
+    }
+
+    @Override
+    public boolean clearUnknown(String key) {
+        return jdbcTemplate.update(CLEAR_UNKNOWN_SQL, key) == 1;
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        try {
+            int purged = jdbcTemplate.update(PURGE_SQL, now - inFlightTimeoutMillis, now - replayWindowMillis);
+            if (purged > 0) {
+                log.info("Purged {} expired idempotency keys", purged);
+            }
+        } catch (Exception e) {
+            log.error("Error purging expired idempotency keys", e);
+        }
+    }
+
+    private record Row(String fingerprint, String response, long createdAt, Long completedAt) {
+    }
+}
@@ -0,0 +1,226 @@
+package org.bits.diamabankwalletf.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.dto.CustomerRegistrationRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Single-node pending-registration store. The request itself stays on the heap but its
+ * base64 images are kept decoded (a quarter smaller) and each one larger than the spill
+ * threshold is written to a local directory instead. The heap part is bounded by a byte
+ * budget, entries expire after the OTP window, and spilled files are deleted whenever an
+ * entry leaves the cache. Spill files live in a subdirectory of their own; at startup only
+ * the files this store names are deleted from it, whatever else the directory holds.
+ */
+@Service
+@ConditionalOnProperty(name = "registration.pending.store", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class LocalPendingRegistrationStore implements PendingRegistrationStore {
+
+    // Rough heap cost of the request fields other than the images
+    private static final int BASE_ENTRY_WEIGHT = 2048;
+
+    private static final String SPILL_SUBDIRECTORY = "pending-registrations";
+    private static final String SPILL_FILE_PREFIX = "pending-";
+    private static final String SPILL_FILE_SUFFIX = ".img";
+
+    private final Cache<String, PendingRegistration> entries;
+    private final Path spillDirectory;
+    private final int spillThresholdBytes;
+    private final Map<RemovalCause, Counter> removals = new EnumMap<>(RemovalCause.class);
+
+    public LocalPendingRegistrationStore(MeterRegistry meterRegistry,
+                                         @Value("${registration.pending.ttl-minutes:15}") long ttlMinutes,
+                                         @Value("${registration.pending.max-memory-bytes:67108864}") long maxMemoryBytes,
+                                         @Value("${registration.pending.spill-threshold-bytes:65536}") int spillThresholdBytes,
+                                         @Value("${registration.pending.spill-directory:}") String spillDirectory) throws IOException {
+        this.spillThresholdBytes = spillThresholdBytes;
+        this.spillDirectory = spillDirectory.isEmpty()
+                ? Files.createTempDirectory(SPILL_SUBDIRECTORY)
+                : Files.createDirectories(Paths.get(spillDirectory).resolve(SPILL_SUBDIRECTORY));
+        deleteLeftoverFiles();
+
+        for (RemovalCause cause : RemovalCause.values()) {
+            removals.put(cause, Counter.builder("registration.pending.removals")
+                    .tag("cause", cause.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+
+        this.entries = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .maximumWeight(maxMemoryBytes)
+                .weigher((String authCode, PendingRegistration entry) -> entry.heapBytes())
+                // Expired entries are removed (and their files deleted) even when the store is idle
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener((String authCode, PendingRegistration entry, RemovalCause cause) -> {
+                    removals.get(cause).increment();
+                    // take() reads and deletes the files of the entries it removes itself
+                    if (entry != null && cause != RemovalCause.EXPLICIT) {
+                        entry.deleteFiles();
+                    }
+                    if (cause.wasEvicted()) {
+                        log.info("Pending registration {} dropped ({})", authCode, cause);
+                    }
+                })
+                .build();
+
+        Gauge.builder("registration.pending.size", entries, Cache::estimatedSize).register(meterRegistry);
+        log.info("Pending registrations kept for {} minutes, spilling images over {} bytes to {}",
+                ttlMinutes, spillThresholdBytes, this.spillDirectory);
+    }
+
+    @Override
+    public void put(String authCode, CustomerRegistrationRequest request) {
+        PendingRegistration entry = new PendingRegistration(request,
+                storeImage(authCode, "face", request.getFaceId()),
+                storeImage(authCode, "doc-front", request.getDocumentImg()),
+                storeImage(authCode, "doc-back", request.getDocumentImgBack()));
+
+        request.setFaceId(null);
+        request.setDocumentImg(null);
+        request.setDocumentImgBack(null);
+        // Only the documents are needed once the wallet exists
+        request.setPin(null);
+        request.setAnswer(null);
+
+        entries.put(authCode, entry);
+    }
+
+    @Override
+    public Optional<CustomerRegistrationRequest> take(String authCode) {
+        // Removing claims the entry: a concurrent take for the same authCode gets nothing
+        PendingRegistration entry = entries.asMap().remove(authCode);
+        if (entry == null) {
+            return Optional.empty();
+        }
+
+        try {
+            CustomerRegistrationRequest request = entry.request();
+            request.setFaceId(entry.faceId().read());
+            request.setDocumentImg(entry.documentImg().read());
+            request.setDocumentImgBack(entry.documentImgBack().read());
+            return Optional.of(request);
+        } catch (IOException e) {
+            log.error("Could not read spilled images for pending registration {}", authCode, e);
+            return Optional.empty();
+        } finally {
+            entry.deleteFiles();
+        }
+    }
+
+    private StoredImage storeImage(String authCode, String kind, String image) {
+        if (image == null) {
+            return StoredImage.NONE;
+        }
+
+        byte[] bytes;
+        boolean decoded;
+        try {
+            bytes = Base64.getDecoder().decode(image);
+            decoded = true;
+        } catch (IllegalArgumentException e) {
+            // Data URLs and wrapped base64 are kept as sent; the upload service knows how to read them
+            bytes = image.getBytes(StandardCharsets.ISO_8859_1);
+            decoded = false;
+        }
+        if (bytes.length <= spillThresholdBytes) {
+            return new StoredImage(bytes, null, decoded);
+        }
+
+        try {
+            Path file = spillDirectory.resolve(SPILL_FILE_PREFIX + sanitize(authCode) + "-" + kind + "-"
+                    + UUID.randomUUID() + SPILL_FILE_SUFFIX);
+            Files.write(file, bytes);
+            return new StoredImage(null, file, decoded);
+        } catch (IOException e) {
+            // Keep it in memory rather than lose the registration's documents
+            log.warn("Could not spill {} image for pending registration {}: {}", kind, authCode, e.getMessage());
+            return new StoredImage(bytes, null, decoded);
+        }
+    }
+
+    // Spill files of a previous run: their entries died with it
+    private void deleteLeftoverFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spillDirectory,
+                SPILL_FILE_PREFIX + "*" + SPILL_FILE_SUFFIX)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    static String sanitize(String authCode) {
+        return authCode.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    private record PendingRegistration(CustomerRegistrationRequest request, StoredImage faceId,
+                                       StoredImage documentImg, StoredImage documentImgBack) {
+
+        int heapBytes() {
+            return BASE_ENTRY_WEIGHT + faceId.heapBytes() + documentImg.heapBytes() + documentImgBack.heapBytes();
+        }
+
+        void deleteFiles() {
+            faceId.delete();
+            documentImg.delete();
+            documentImgBack.delete();
+        }
+    }
+
+    /**
+     * An image kept either in memory or as a spill file. {@code decoded} images hold the
+     * image bytes and are base64-encoded again on read; the others hold the text as sent,
+     * one byte per character.
+     */
+    private record StoredImage(byte[] bytes, Path file, boolean decoded) {
+
+        static final StoredImage NONE = new StoredImage(null, null, false);
+
+        String read() throws IOException {
+            byte[] content = bytes != null ? bytes : file != null ? Files.readAllBytes(file) : null;
+            if (content == null) {
+                return null;
+            }
+            return decoded ? Base64.getEncoder().encodeToString(content) : new String(content, StandardCharsets.ISO_8859_1);
+        }
+
+        int heapBytes() {
+            return bytes != null ? bytes.length : 0;
+        }
+
+        void delete() {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Could not delete spilled image {}: {}", file, e.getMessage());
+                }
+            }
+        }
+    }
+}
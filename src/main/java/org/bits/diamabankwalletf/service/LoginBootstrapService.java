@@ -0,0 +1,158 @@
+package org.bits.diamabankwalletf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.json.JSONObject;
+import org.bits.diamabankwalletf.dto.JResponseService;
+import org.bits.diamabankwalletf.dto.LoginBootstrap;
+import org.bits.diamabankwalletf.repository.NationalityRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the per-bank part of the login response (bank wording, secret questions,
+ * nationalities, providers, processing codes, branches, ads) so a login does not
+ * re-query Oracle, call the backend for questions or re-encode ad images.
+ * Entries are rebuilt on a schedule and can be invalidated through CacheAdminController.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LoginBootstrapService {
+
+    private static final String SUCCESS_RESP_CODE = "000";
+
+    private final BankService bankService;
+    private final WalletService walletService;
+    private final BranchService branchService;
+    private final ProviderService providerService;
+    private final ProcessingService processingService;
+    private final AdvertisementService advertisementService;
+    private final EpsProfileService profileService;
+    private final NationalityRepository nationalityRepository;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, LoginBootstrap> bootstraps = new ConcurrentHashMap<>();
+
+    public LoginBootstrap getBootstrap(String bankCode) {
+        LoginBootstrap cached = bootstraps.get(bankCode);
+        if (cached != null) {
+            return cached;
+        }
+
+        BootstrapResult result = load(bankCode);
+        if (result.complete()) {
+            bootstraps.put(bankCode, result.bootstrap());
+        }
+        return result.bootstrap();
+    }
+
+    public void invalidate(String bankCode) {
+        bootstraps.remove(bankCode);
+        log.info("Login bootstrap invalidated for bankCode=[{}]", bankCode);
+    }
+
+    public void invalidateAll() {
+        bootstraps.clear();
+        log.info("Login bootstrap invalidated for all banks");
+    }
+
+    @Scheduled(fixedDelayString = "${login.bootstrap.refresh-interval-ms:300000}",
+            initialDelayString = "${login.bootstrap.refresh-interval-ms:300000}")
+    public void refreshAll() {
+        for (String bankCode : List.copyOf(bootstraps.keySet())) {
+            try {
+                BootstrapResult result = load(bankCode);
+                // Keep serving the previous copy if the backend questions call failed this time
+                if (result.complete()) {
+                    bootstraps.put(bankCode, result.bootstrap());
+                }
+            } catch (Exception e) {
+                log.error("Error refreshing login bootstrap for bankCode=[{}]", bankCode, e);
+            }
+        }
+    }
+
+    private BootstrapResult load(String bankCode) {
+        log.info("Building login bootstrap for bankCode=[{}]", bankCode);
+
+        List<JSONObject> questions = fetchSecretQuestions();
+
+        LoginBootstrap.LoginBootstrapBuilder builder = LoginBootstrap.builder()
+                .bankCode(bankCode)
+                .bankWording(bankService.getBankWording(bankCode))
+                .questionsList(questions)
+                .nationalitiesList(List.copyOf(nationalityRepository.findAll()))
+                .providerList(providerService.getProviderList())
+                .airtimeProviderList(providerService.getAirtimeProviderList())
+                .processingCodes(processingService.getProcessingCodes())
+                .branchList(branchService.getAllBranches(bankCode))
+                .ads(advertisementService.getAdsForBank(bankCode))
+                .adsDelay(Integer.parseInt(profileService.getEpsProfile("ADS_DELAY_WALLET")));
+
+        LoginBootstrap withoutTag = builder.build();
+        LoginBootstrap bootstrap = builder.etag(computeEtag(withoutTag)).build();
+        return new BootstrapResult(bootstrap, !questions.isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<JSONObject> fetchSecretQuestions() {
+        try {
+            JResponseService secretQResponse = walletService.getWalletQuestionsList();
+
+            if (secretQResponse != null && SUCCESS_RESP_CODE.equals(secretQResponse.getRespCode())) {
+                List<JSONObject> questions = (List<JSONObject>) secretQResponse.getResult();
+                log.info("Successfully fetched {} secret questions for wallet",
+                        questions != null ? questions.size() : 0);
+                return questions != null ? questions : List.of();
+            } else {
+                log.warn("Failed to fetch secret questions: {}",
+                        secretQResponse != null ? secretQResponse.getMessage() : "Unknown error");
+                return List.of();
+            }
+        } catch (Exception e) {
+            log.error("Error fetching secret questions for wallet: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Strong ETag over the serialized static sections, so clients can tell whether
+     * the reference data they already hold is still current.
+     */
+    private String computeEtag(LoginBootstrap bootstrap) {
+        try {
+            Map<String, Object> content = new LinkedHashMap<>();
+            content.put("bankWording", bootstrap.getBankWording());
+            content.put("questions", bootstrap.getQuestionsList());
+            content.put("nationalities", bootstrap.getNationalitiesList());
+            content.put("providers", bootstrap.getProviderList());
+            content.put("airtimeProviders", bootstrap.getAirtimeProviderList());
+            content.put("processingCodes", bootstrap.getProcessingCodes());
+            content.put("branches", bootstrap.getBranchList());
+            content.put("ads", bootstrap.getAds());
+            content.put("adsDelay", bootstrap.getAdsDelay());
+
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(content));
+            StringBuilder hex = new StringBuilder("\"");
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.append('"').toString();
+        } catch (Exception e) {
+            log.warn("Could not compute login bootstrap ETag for bankCode=[{}]: {}",
+                    bootstrap.getBankCode(), e.getMessage());
+            return null;
+        }
+    }
+
+    private record BootstrapResult(LoginBootstrap bootstrap, boolean complete) {
+    }
+}
@@ -7,50 +7,36 @@ import org.bits.diamabankwalletf.dto.RequestMoneyVoucher;
 import org.bits.diamabankwalletf.dto.ResponseService;
 import org.bits.diamabankwalletf.dto.ResponseServiceJson;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Random;
-
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MoneyVoucherService {
 
-    private final WebClient webClient;
+    private final WalletBackendGateway walletBackendGateway;
     private final PinEncryptionUtil pinEncryptionUtil;
-    private final WalletCreationService walletCreationService;
-
-    @Value("${wallet.backend.url}")
-    private String walletBackendUrl;
+    private final RequestIdGenerator requestIdGenerator;
 
     @Value("${wallet.backend.endpoints.money-voucher}")
     private String moneyVoucherEndpoint;
 
-    public ResponseService moneyVoucher(RequestMoneyVoucher request) {
+    public Mono<ResponseService> moneyVoucher(RequestMoneyVoucher request) {
         try {
-            String url = walletBackendUrl + moneyVoucherEndpoint;
-            log.info("Calling money voucher endpoint at: {}", url);
+            log.info("Calling money voucher endpoint: {}", moneyVoucherEndpoint);
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
             // Set default source if not provided
@@ -80,16 +66,6 @@ public class MoneyVoucherService {
                 request.setPin(encryptedPin);
             }
 
-            // Get token using the working WalletCreationService method
-            String token = walletCreationService.getServiceAccountToken();
-            if (token == null) {
-                log.error("Failed to obtain token for PIN check");
-                ResponseService errorResponse = new ResponseService();
-                errorResponse.setRespCode("999");
-                errorResponse.setMessage("Error obtaining authentication token");
-                return errorResponse;
-            }
-
             // Log request details (excluding sensitive data)
             log.debug("Request details: walletNumber={}, source={}, requestId={}, requestDate={}, entityId={}",
                     request.getWalletNumber(), request.getSource(), request.getRequestId(),
@@ -97,13 +73,7 @@ public class MoneyVoucherService {
 
             log.debug("Request details: {}", request);
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)  // Use token directly without Bearer prefix, like in WalletCreationService
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(moneyVoucherEndpoint, request, ResponseService.class)
                     .doOnError(error -> {
                         log.error("Error calling PIN check API", error);
                         if (error instanceof WebClientResponseException) {
@@ -122,14 +92,13 @@ public class MoneyVoucherService {
                         log.info("PIN check response: code={}, message={}",
                                 response.getRespCode(), response.getMessage());
                         return response;
-                    })
-                    .block();
+                    });
         } catch (Exception e) {
             log.error("Error calling PIN check API", e);
             ResponseService errorResponse = new ResponseService();
             errorResponse.setRespCode("999");
             errorResponse.setMessage("Error calling PIN check API: " + e.getMessage());
-            return errorResponse;
+            return Mono.just(errorResponse);
         }
     }
 
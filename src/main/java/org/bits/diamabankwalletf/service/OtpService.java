@@ -2,20 +2,15 @@ package org.bits.diamabankwalletf.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.bits.diamabankwalletf.model.SmsLog;
-import org.bits.diamabankwalletf.repository.SmsLogRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
-import java.sql.Timestamp;
-import java.time.LocalDateTime;
+import java.util.Date;
 import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
@@ -23,15 +18,10 @@ import java.util.concurrent.locks.ReentrantLock;
 public class OtpService {
 
     private final Random random = new Random();
-    private final SmsLogRepository smsLog;
+    private final SmsOutboxService smsOutboxService;
 
-    // Thread-safe data structures
-    private final ConcurrentHashMap<String, OtpData> otpStore = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, OtpGenerationInfo> generationInfo = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Integer> verificationAttempts = new ConcurrentHashMap<>();
-
-    // Per-phone-number locks for fine-grained concurrency
-    private final ConcurrentHashMap<String, Lock> phoneLocks = new ConcurrentHashMap<>();
+    // Per-phone OTP, attempts and rate-limit window; in memory or shared through Redis
+    private final OtpStateStore otpStateStore;
 
     @Value("${otp.throttling.max-requests-per-hour}")
     private int maxOtpRequestsPerHour;
@@ -45,80 +35,30 @@ public class OtpService {
     @Value("${otp.throttling.expiry-minutes}")
     private int otpExpiryMinutes;
 
-    /**
-     * Stores OTP with timestamp for expiry checking
-     */
-    private static class OtpData {
-        String otp;
-        LocalDateTime createdAt;
-
-        OtpData(String otp) {
-            this.otp = otp;
-            this.createdAt = LocalDateTime.now();
-        }
-
-        boolean isExpired(int expiryMinutes) {
-            return createdAt.plusMinutes(expiryMinutes).isBefore(LocalDateTime.now());
-        }
-    }
-
-    /**
-     * Tracks OTP generation attempts for rate limiting
-     */
-    private static class OtpGenerationInfo {
-        int count;
-        LocalDateTime windowStart;
-        LocalDateTime lastRequest;
-
-        OtpGenerationInfo() {
-            this.count = 0;
-            this.windowStart = LocalDateTime.now();
-            this.lastRequest = LocalDateTime.now();
-        }
-
-        void incrementCount() {
-            this.count++;
-            this.lastRequest = LocalDateTime.now();
-        }
-
-        void reset() {
-            this.count = 0;
-            this.windowStart = LocalDateTime.now();
-            this.lastRequest = LocalDateTime.now();
-        }
-
-        boolean isWindowExpired() {
-            return !windowStart.plusHours(1).isAfter(LocalDateTime.now());
-        }
-    }
+    private OtpStateStore.Policy policy;
 
     @PostConstruct
     public void init() {
+        policy = new OtpStateStore.Policy(
+                TimeUnit.SECONDS.toMillis(minSecondsBetweenRequests),
+                maxOtpRequestsPerHour,
+                TimeUnit.HOURS.toMillis(1),
+                TimeUnit.MINUTES.toMillis(otpExpiryMinutes));
+
         log.info("OTP Service initialized with configuration:");
         log.info("- Max requests per hour: {}", maxOtpRequestsPerHour);
         log.info("- Min seconds between requests: {}", minSecondsBetweenRequests);
         log.info("- Max verification attempts: {}", maxVerificationAttempts);
         log.info("- OTP expiry minutes: {}", otpExpiryMinutes);
-    }
-
-    /**
-     * Get or create a lock for a specific phone number
-     */
-    private Lock getLock(String phoneNumber) {
-        return phoneLocks.computeIfAbsent(phoneNumber, k -> new ReentrantLock());
+        log.info("- State store: {}", otpStateStore.getClass().getSimpleName());
     }
 
     /**
      * Check if OTP can be sent (public method for external checks)
      */
     public boolean canSendOtp(String phoneNumber) {
-        Lock lock = getLock(phoneNumber);
-        lock.lock();
-        try {
-            return canSendOtpLocked(phoneNumber);
-        } finally {
-            lock.unlock();
-        }
+        log.info("Checking if OTP can be sent to: {}", phoneNumber);
+        return isAllowed(phoneNumber, otpStateStore.checkIssue(phoneNumber, policy));
     }
 
     /**
@@ -126,7 +66,7 @@ public class OtpService {
      */
     public boolean canCheckOtp(String phoneNumber) {
         log.info("Checking if OTP can be verified for: {}", phoneNumber);
-        int attempts = verificationAttempts.getOrDefault(phoneNumber, 0);
+        int attempts = otpStateStore.getVerificationAttempts(phoneNumber);
 
         if (attempts >= maxVerificationAttempts) {
             log.warn("OTP verification rejected - max attempts exceeded for: {}", phoneNumber);
@@ -140,87 +80,47 @@ public class OtpService {
      * Generate OTP for a phone number with rate limiting
      */
     public String generateOtp(String phoneNumber) {
-        Lock lock = getLock(phoneNumber);
-        lock.lock();
-        try {
-            log.info("OTP generation requested for: {}", phoneNumber);
+        log.info("OTP generation requested for: {}", phoneNumber);
 
-            // Check if OTP can be sent (rate limiting)
-            if (!canSendOtpLocked(phoneNumber)) {
-                log.warn("OTP generation rejected due to rate limiting for: {}", phoneNumber);
-                return null;
-            }
+        // Generate 6-digit OTP
+        String otp = String.format("%06d", random.nextInt(1000000));
 
-            // Update generation tracking
-            OtpGenerationInfo info = generationInfo.computeIfAbsent(
-                    phoneNumber,
-                    k -> new OtpGenerationInfo()
-            );
-            info.incrementCount();
-
-            // Generate 6-digit OTP
-            String otp = String.format("%06d", random.nextInt(1000000));
-            log.info("OTP generated for {}: {}", phoneNumber, otp);
-
-            // Store OTP with timestamp
-            otpStore.put(phoneNumber, new OtpData(otp));
-
-            // Reset verification attempts for new OTP
-            verificationAttempts.remove(phoneNumber);
-
-            // Send SMS (async to avoid blocking)
-            try {
-                sendSms(phoneNumber, otp);
-            } catch (Exception e) {
-                log.error("Failed to send SMS for {}: {}", phoneNumber, e.getMessage());
-                // OTP still valid even if SMS fails - user might retry
-            }
-
-            return otp;
-
-        } finally {
-            lock.unlock();
+        // Rate-limit check, request counting, storing the OTP and resetting attempts in one step
+        if (!isAllowed(phoneNumber, otpStateStore.issue(phoneNumber, otp, policy))) {
+            log.warn("OTP generation rejected due to rate limiting for: {}", phoneNumber);
+            return null;
         }
-    }
+        log.info("OTP generated for {}", phoneNumber);
 
-    /**
-     * Check if OTP can be sent (must be called within lock)
-     */
-    private boolean canSendOtpLocked(String phoneNumber) {
-        log.info("Checking if OTP can be sent to: {}", phoneNumber);
-
-        LocalDateTime now = LocalDateTime.now();
-        OtpGenerationInfo info = generationInfo.get(phoneNumber);
-
-        // First request - allow it
-        if (info == null) {
-            return true;
-        }
-
-        // Reset counter if hour window has expired
-        if (info.isWindowExpired()) {
-            log.info("Hour window expired, resetting OTP request counter for: {}", phoneNumber);
-            info.reset();
-            return true;
+        // Send SMS (async to avoid blocking)
+        try {
+            sendSms(phoneNumber, otp);
+        } catch (Exception e) {
+            log.error("Failed to send SMS for {}: {}", phoneNumber, e.getMessage());
+            // OTP still valid even if SMS fails - user might retry
         }
 
-        // Check minimum time between requests (rate limiting)
-        long secondsSinceLastRequest = java.time.Duration.between(info.lastRequest, now).getSeconds();
-        if (secondsSinceLastRequest < minSecondsBetweenRequests) {
-            log.warn("OTP request rejected - too frequent for: {} - {} seconds since last request",
-                    phoneNumber, secondsSinceLastRequest);
-            return false;
-        }
+        return otp;
+    }
 
-        // Check hourly limit
-        if (info.count >= maxOtpRequestsPerHour) {
-            log.warn("OTP request rejected - hourly limit ({}) exceeded for: {}",
-                    maxOtpRequestsPerHour, phoneNumber);
-            return false;
+    private boolean isAllowed(String phoneNumber, OtpStateStore.IssueResult result) {
+        switch (result) {
+            case TOO_FREQUENT -> {
+                log.warn("OTP request rejected - too frequent for: {} - minimum {} seconds between requests",
+                        phoneNumber, minSecondsBetweenRequests);
+                return false;
+            }
+            case HOURLY_LIMIT_EXCEEDED -> {
+                log.warn("OTP request rejected - hourly limit ({}) exceeded for: {}",
+                        maxOtpRequestsPerHour, phoneNumber);
+                return false;
+            }
+            default -> {
+                return true;
+            }
         }
-
-        return true;
     }
+
     /**
      * Verify OTP for a phone number
      */
@@ -233,10 +133,8 @@ public class OtpService {
         }
 
         // Atomically increment verification attempts
-        int attempts = verificationAttempts.compute(
-                phoneNumber,
-                (key, val) -> (val == null) ? 1 : val + 1
-        );
+        OtpStateStore.VerificationState state = otpStateStore.recordVerificationAttempt(phoneNumber, policy);
+        int attempts = state.attempts();
 
         // Check max attempts AFTER incrementing
         if (attempts > maxVerificationAttempts) {
@@ -246,21 +144,19 @@ public class OtpService {
         }
 
         // Get stored OTP data
-        OtpData otpData = otpStore.get(phoneNumber);
-        if (otpData == null) {
+        if (state.otp() == null) {
             log.warn("No OTP found for: {}", phoneNumber);
             return false;
         }
 
         // Check if OTP has expired
-        if (otpData.isExpired(otpExpiryMinutes)) {
-            log.warn("OTP expired for: {} (created at: {})", phoneNumber, otpData.createdAt);
-            otpStore.remove(phoneNumber);
+        if (state.otpCreatedAt() + policy.otpTtlMillis() < System.currentTimeMillis()) {
+            log.warn("OTP expired for: {} (created at: {})", phoneNumber, new Date(state.otpCreatedAt()));
             return false;
         }
 
         // Verify OTP
-        boolean isValid = otpData.otp.equals(otp);
+        boolean isValid = state.otp().equals(otp);
 
         if (isValid) {
             log.info("OTP verification successful for: {}", phoneNumber);
@@ -273,9 +169,8 @@ public class OtpService {
         return isValid;
     }
     public void removeOtpCounts(String phoneNumber) {
-        otpStore.remove(phoneNumber);
-        verificationAttempts.remove(phoneNumber);
         // DON'T reset generation attempts so hourly limits are still enforced
+        otpStateStore.clearOtp(phoneNumber);
     }
 
     /**
@@ -289,81 +184,8 @@ public class OtpService {
                 otp
         );
 
-        SmsLog smsLogEntry = new SmsLog();
-        smsLogEntry.setMsisdn(phoneNumber);
-        smsLogEntry.setSenderModule("WB");
-        smsLogEntry.setTimestamp(new Timestamp(System.currentTimeMillis()));
-        smsLogEntry.setSmsStatus('N');
-        smsLogEntry.setSmsText(smsMessage);
-
-        try {
-            smsLog.save(smsLogEntry);
-            log.info("SMS queued successfully for: {}", phoneNumber);
-        } catch (Exception e) {
-            log.error("Failed to save SMS log for {}: {}", phoneNumber, e.getMessage(), e);
-            throw e;
-        }
-    }
-
-    /**
-     * Scheduled cleanup of expired data (runs every 5 minutes)
-     * Prevents memory leaks from abandoned OTP requests
-     */
-    @Scheduled(fixedDelay = 300000, initialDelay = 300000) // 5 minutes
-    public void cleanupExpiredData() {
-        log.info("Starting scheduled cleanup of expired OTP data");
-
-        LocalDateTime now = LocalDateTime.now();
-        int removedOtps = 0;
-        int removedGenInfo = 0;
-        int removedVerifyAttempts = 0;
-        int removedLocks = 0;
-
-        try {
-            // Clean expired OTPs
-            for (Map.Entry<String, OtpData> entry : otpStore.entrySet()) {
-                if (entry.getValue().isExpired(otpExpiryMinutes)) {
-                    otpStore.remove(entry.getKey());
-                    removedOtps++;
-                }
-            }
-
-            // Clean old generation info (older than 2 hours)
-            for (Map.Entry<String, OtpGenerationInfo> entry : generationInfo.entrySet()) {
-                if (entry.getValue().windowStart.plusHours(2).isBefore(now)) {
-                    generationInfo.remove(entry.getKey());
-                    removedGenInfo++;
-                }
-            }
-
-            // Clean old verification attempts (older than 1 hour)
-            // This is safe because OTP expires after otpExpiryMinutes anyway
-            for (String phoneNumber : verificationAttempts.keySet()) {
-                OtpData otpData = otpStore.get(phoneNumber);
-                if (otpData == null || otpData.createdAt.plusHours(1).isBefore(now)) {
-                    verificationAttempts.remove(phoneNumber);
-                    removedVerifyAttempts++;
-                }
-            }
-
-            // Clean unused locks (no activity in 2 hours)
-            for (String phoneNumber : phoneLocks.keySet()) {
-                OtpGenerationInfo info = generationInfo.get(phoneNumber);
-                if (info == null || info.lastRequest.plusHours(2).isBefore(now)) {
-                    phoneLocks.remove(phoneNumber);
-                    removedLocks++;
-                }
-            }
-
-            log.info("Cleanup completed - Removed: {} OTPs, {} generation info, {} verification attempts, {} locks",
-                    removedOtps, removedGenInfo, removedVerifyAttempts, removedLocks);
-
-            // Log current memory usage
-            logMemoryUsage();
-
-        } catch (Exception e) {
-            log.error("Error during cleanup: {}", e.getMessage(), e);
-        }
+        smsOutboxService.sendOtp(phoneNumber, smsMessage);
+        log.info("SMS queued successfully for: {}", phoneNumber);
     }
 
     /**
@@ -371,20 +193,14 @@ public class OtpService {
      */
     @Scheduled(fixedDelay = 600000, initialDelay = 600000) // 10 minutes
     public void logMemoryUsage() {
-        log.info("OTP Service Memory Usage - OTPs: {}, Generation Info: {}, Verification Attempts: {}, Locks: {}",
-                otpStore.size(), generationInfo.size(), verificationAttempts.size(), phoneLocks.size());
+        log.info("OTP Service state store - tracked phone numbers: {}", otpStateStore.estimatedSize());
     }
 
     /**
      * Get current statistics (for monitoring/debugging)
      */
-    public Map<String, Integer> getStatistics() {
-        return Map.of(
-                "activeOtps", otpStore.size(),
-                "generationTracking", generationInfo.size(),
-                "verificationTracking", verificationAttempts.size(),
-                "activeLocks", phoneLocks.size()
-        );
+    public Map<String, Long> getStatistics() {
+        return Map.of("trackedPhoneNumbers", otpStateStore.estimatedSize());
     }
 
     /**
@@ -392,10 +208,7 @@ public class OtpService {
      */
     public void forceCleanup(String phoneNumber) {
         log.info("Force cleanup requested for: {}", phoneNumber);
-        otpStore.remove(phoneNumber);
-        generationInfo.remove(phoneNumber);
-        verificationAttempts.remove(phoneNumber);
-        phoneLocks.remove(phoneNumber);
+        otpStateStore.remove(phoneNumber);
         log.info("Force cleanup completed for: {}", phoneNumber);
     }
 }
@@ -0,0 +1,55 @@
+package org.bits.diamabankwalletf.service;
+
+/**
+ * Per-phone OTP state: the current code, its verification attempts and the request
+ * rate-limit window, kept as one record that expires on its own. Every operation is
+ * atomic for a phone number, so several nodes can share one store.
+ */
+public interface OtpStateStore {
+
+    /**
+     * Checks the rate limits without recording a request.
+     */
+    IssueResult checkIssue(String phoneNumber, Policy policy);
+
+    /**
+     * Checks the rate limits and, if allowed, stores {@code otp} as the current code,
+     * counts the request and resets the verification attempts, all in one step.
+     */
+    IssueResult issue(String phoneNumber, String otp, Policy policy);
+
+    /**
+     * Counts one verification attempt and returns the state to verify against.
+     */
+    VerificationState recordVerificationAttempt(String phoneNumber, Policy policy);
+
+    int getVerificationAttempts(String phoneNumber);
+
+    /**
+     * Drops the current code and its attempts but keeps the rate-limit window.
+     */
+    void clearOtp(String phoneNumber);
+
+    void remove(String phoneNumber);
+
+    /**
+     * Approximate number of tracked phone numbers, or -1 when the backend cannot tell cheaply.
+     */
+    long estimatedSize();
+
+    enum IssueResult {
+        ALLOWED,
+        TOO_FREQUENT,
+        HOURLY_LIMIT_EXCEEDED
+    }
+
+    record Policy(long minIntervalMillis, int maxRequestsPerWindow, long windowMillis, long otpTtlMillis) {
+    }
+
+    /**
+     * @param otp current code, or null when none is stored
+     * @param otpCreatedAt creation time of the code in epoch millis
+     */
+    record VerificationState(int attempts, String otp, long otpCreatedAt) {
+    }
+}
@@ -4,23 +4,18 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.dto.RequestCheckOtp;
 import org.bits.diamabankwalletf.dto.ResponseServiceJson;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Random;
-
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OtpVerificationService {
 
-    private final WebClient webClient;
-    private final WalletCreationService walletCreationService; // Needed for token
+    private final WalletBackendGateway walletBackendGateway;
+    private final RequestIdGenerator requestIdGenerator;
 
     @Value("${wallet.backend.url}")
     private String walletBackendUrl;
@@ -41,18 +36,13 @@ public class OtpVerificationService {
         try {
             log.info("Verifying OTP for phone: {}, authCode: {}", phoneNumber, authCode);
 
-            // Get token from existing service
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             // Create the request object
             RequestCheckOtp request = new RequestCheckOtp();
             request.setPhoneNumber(phoneNumber);
             request.setAuthCode(authCode);
             request.setOtp(otp);
-            request.setRequestId(generateRequestId());
-            request.setRequestDate(generateTimestamp());
+            request.setRequestId(requestIdGenerator.nextRequestId());
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
             request.setEntityId(entityId);
 
             log.debug("OTP verification request: {}", request);
@@ -61,13 +51,7 @@ public class OtpVerificationService {
             log.info("Calling OTP verification endpoint at: {}", url);
 
             // Use WebClient to make the call
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(verifyOtpEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> log.error("Error verifying OTP", error))
                     .onErrorResume(error -> {
                         ResponseServiceJson errorResponse = new ResponseServiceJson();
@@ -84,24 +68,4 @@ public class OtpVerificationService {
             return errorResponse;
         }
     }
-
-    /**
-     * Generate request ID in the format yyMMddXXXXXX where XXXXXX is 6 random digits
-     */
-    private String generateRequestId() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyMMdd");
-        String datePrefix = sdf.format(new Date());
-
-        Random random = new Random();
-        String randomDigits = String.format("%06d", random.nextInt(1000000));
-
-        return datePrefix + randomDigits;
-    }
-
-    /**
-     * Generate timestamp for request in the format yyyy-MM-dd HH:mm:ss
-     */
-    private String generateTimestamp() {
-        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-    }
 }
@@ -0,0 +1,25 @@
+package org.bits.diamabankwalletf.service;
+
+import org.bits.diamabankwalletf.dto.CustomerRegistrationRequest;
+
+import java.util.Optional;
+
+/**
+ * Registration requests, biometric images included, waiting for their OTP verification.
+ * Entries are keyed by the backend authCode and expire with the OTP window.
+ */
+public interface PendingRegistrationStore {
+
+    /**
+     * Stores the request; the store takes ownership of it and may clear its image fields.
+     * The PIN and security answer are never kept, they are no longer needed once the wallet
+     * is created.
+     */
+    void put(String authCode, CustomerRegistrationRequest request);
+
+    /**
+     * Removes the request and returns it with its images restored, if it has not expired.
+     * Of concurrent calls for the same authCode, at most one gets the request.
+     */
+    Optional<CustomerRegistrationRequest> take(String authCode);
+}
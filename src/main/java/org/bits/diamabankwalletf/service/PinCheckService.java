@@ -5,24 +5,20 @@ import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.dto.RequestCheckPin;
 import org.bits.diamabankwalletf.dto.ResponseServiceJson;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Random;
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PinCheckService {
 
-    private final WebClient webClient;
+    private final WalletBackendGateway walletBackendGateway;
     private final PinEncryptionUtil pinEncryptionUtil;
-    private final WalletCreationService walletCreationService;
+    private final RequestIdGenerator requestIdGenerator;
 
     @Value("${wallet.backend.url}")
     private String walletBackendUrl;
@@ -36,17 +32,12 @@ public class PinCheckService {
             log.info("Calling PIN check endpoint at: {}", url);
 
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
             if (request.getSource() == null || request.getSource().isEmpty()) {
@@ -72,26 +63,11 @@ public class PinCheckService {
                 request.setPin(encryptedPin);
             }
 
-            String token = walletCreationService.getServiceAccountToken();
-            if (token == null) {
-                log.error("Failed to obtain token for PIN check");
-                ResponseServiceJson errorResponse = new ResponseServiceJson();
-                errorResponse.setRespCode("999");
-                errorResponse.setMessage("Error obtaining authentication token");
-                return errorResponse;
-            }
-
             log.debug("Request details: walletNumber={}, source={}, requestId={}, requestDate={}, entityId={}",
                     request.getWalletNumber(), request.getSource(), request.getRequestId(),
                     request.getRequestDate(), request.getEntityId());
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(checkPinEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> {
                         log.error("Error calling PIN check API", error);
                         if (error instanceof WebClientResponseException) {
@@ -5,12 +5,22 @@ import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.model.Wallet;
 import org.bits.diamabankwalletf.repository.WalletRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
@@ -18,11 +28,17 @@ import java.util.List;
 public class PinExpiryService {
 
     private final WalletRepository walletRepository;
-    private final NotificationService notificationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BatchCheckpointStore checkpointStore;
+    private final SmsOutboxService smsOutboxService;
 
     @Value("${wallet.pin.expiry.months:3}")
     private int pinExpiryMonths;
 
+    @Value("${wallet.pin.expiry.chunk-size:1000}")
+    private int chunkSize;
+
     /**
      * Initialise les dates d'expiration pour les nouveaux PINs
      */
@@ -98,97 +114,181 @@ public class PinExpiryService {
     /**
      * Met à jour les portefeuilles avec PIN expiré
      */
-    @Transactional
     public void markExpiredPinsForChange() {
-        List<Wallet> expiredWallets = walletRepository.findWalletsWithExpiredPin();
+        markExpiredPinsForChange(0, 1);
+    }
 
-        log.info("Found {} wallets with expired PINs", expiredWallets.size());
+    /**
+     * Met à jour les portefeuilles avec PIN expiré de la partition {@code shard} sur {@code shards}
+     */
+    public void markExpiredPinsForChange(int shard, int shards) {
+        markExpiredPinsForChange("pin-expired", shard, shards);
+    }
 
-        for (Wallet wallet : expiredWallets) {
-            forcePinChange(wallet);
-        }
+    /**
+     * Comme {@link #markExpiredPinsForChange(int, int)}, avec son propre point de reprise
+     * {@code job} : deux jobs planifiés séparément ne doivent pas reprendre l'un après l'autre
+     */
+    public void markExpiredPinsForChange(String job, int shard, int shards) {
+        // Heure comprise, comme CURRENT_DATE sous Oracle : un PIN expiré ce matin est marqué dès ce jour
+        LocalDateTime now = LocalDateTime.now();
+        long marked = processInChunks(jobName(job, shard, shards), now.toLocalDate(),
+                "PIN_EXPIRY_DATE < ? AND STATUS_WALLET = 'A' AND PIN_CHANGE_REQUIRED = 'N'" + shardCondition(shard, shards),
+                List.of(Timestamp.valueOf(now)),
+                "PIN_CHANGE_REQUIRED = 'Y'",
+                null);
+
+        log.info("Marked {} wallets with expired PINs for change", marked);
     }
 
     /**
      * Envoie les notifications d'expiration (7 jours)
      */
-    @Transactional
     public void sendSevenDayExpiryNotifications() {
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.DAY_OF_MONTH, 7);
-        Date sevenDaysFromNow = calendar.getTime();
-
-        List<Wallet> wallets = walletRepository.findWalletsNeedingSevenDayNotification(sevenDaysFromNow);
-
-        log.info("Sending 7-day expiry notifications to {} wallets", wallets.size());
+        sendSevenDayExpiryNotifications(0, 1);
+    }
 
-        for (Wallet wallet : wallets) {
-            sendPinExpiryNotification(wallet, 7);
-            wallet.setPinExpiryNotificationSent('7');
-            walletRepository.save(wallet);
-        }
+    public void sendSevenDayExpiryNotifications(int shard, int shards) {
+        sendExpiryNotifications(7, "'N'", '7', shard, shards);
     }
 
     /**
      * Envoie les notifications d'expiration (3 jours)
      */
-    @Transactional
     public void sendThreeDayExpiryNotifications() {
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.DAY_OF_MONTH, 3);
-        Date threeDaysFromNow = calendar.getTime();
-
-        List<Wallet> wallets = walletRepository.findWalletsNeedingThreeDayNotification(threeDaysFromNow);
-
-        log.info("Sending 3-day expiry notifications to {} wallets", wallets.size());
+        sendThreeDayExpiryNotifications(0, 1);
+    }
 
-        for (Wallet wallet : wallets) {
-            sendPinExpiryNotification(wallet, 3);
-            wallet.setPinExpiryNotificationSent('3');
-            walletRepository.save(wallet);
-        }
+    public void sendThreeDayExpiryNotifications(int shard, int shards) {
+        sendExpiryNotifications(3, "'N', '7'", '3', shard, shards);
     }
 
     /**
      * Envoie les notifications d'expiration (1 jour)
      */
-    @Transactional
     public void sendOneDayExpiryNotifications() {
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.DAY_OF_MONTH, 1);
-        Date oneDayFromNow = calendar.getTime();
-
-        List<Wallet> wallets = walletRepository.findWalletsNeedingOneDayNotification(oneDayFromNow);
+        sendOneDayExpiryNotifications(0, 1);
+    }
 
-        log.info("Sending 1-day expiry notifications to {} wallets", wallets.size());
+    public void sendOneDayExpiryNotifications(int shard, int shards) {
+        sendExpiryNotifications(1, "'N', '7', '3'", '1', shard, shards);
+    }
 
-        for (Wallet wallet : wallets) {
-            sendPinExpiryNotification(wallet, 1);
-            wallet.setPinExpiryNotificationSent('1');
-            walletRepository.save(wallet);
-        }
+    /**
+     * Notifie les portefeuilles dont le PIN expire d'ici {@code daysRemaining} jours et qui n'ont
+     * pas encore reçu cette notification, puis passe leur indicateur à {@code sentFlag}
+     */
+    private void sendExpiryNotifications(int daysRemaining, String pendingFlags, char sentFlag, int shard, int shards) {
+        // Fenêtre de maintenant à maintenant + N jours, heure comprise : l'avis « expire demain »
+        // part bien la veille
+        LocalDateTime now = LocalDateTime.now();
+        String message = buildExpiryMessage(daysRemaining);
+        long notified = processInChunks(jobName("pin-expiry-notice-" + daysRemaining, shard, shards), now.toLocalDate(),
+                "PIN_EXPIRY_DATE BETWEEN ? AND ? AND STATUS_WALLET = 'A' "
+                        + "AND PIN_EXPIRY_NOTIFICATION_SENT IN (" + pendingFlags + ")" + shardCondition(shard, shards),
+                List.of(Timestamp.valueOf(now), Timestamp.valueOf(now.plusDays(daysRemaining))),
+                "PIN_EXPIRY_NOTIFICATION_SENT = '" + sentFlag + "'",
+                phones -> smsOutboxService.insertBulk(phones, message));
+
+        log.info("Sent {}-day expiry notifications to {} wallets", daysRemaining, notified);
     }
 
     /**
-     * Envoie une notification d'expiration de PIN
+     * Parcourt les portefeuilles vérifiant {@code condition} par tranches de {@code chunkSize}, dans
+     * l'ordre de la clé primaire. Chaque tranche est mise à jour par un seul UPDATE borné à sa plage
+     * de clés, ses SMS sont insérés par {@code onChunk} et le point de reprise avance, le tout dans
+     * une même transaction : après un arrêt, le job reprend à la tranche suivante sans perdre ni
+     * doubler de SMS.
+     *
+     * @return nombre de portefeuilles traités, y compris avant une reprise
      */
-    private void sendPinExpiryNotification(Wallet wallet, int daysRemaining) {
-        try {
-            String message = buildExpiryMessage(daysRemaining);
-            String phoneNumber = wallet.getPhoneNumber() != null ?
-                    wallet.getPhoneNumber() : wallet.getMobileNumber();
+    private long processInChunks(String job, LocalDate runDate, String condition, List<Object> params,
+                                 String assignment, Consumer<List<String>> onChunk) {
+        Optional<BatchCheckpointStore.Checkpoint> checkpoint = checkpointStore.load(job, runDate);
+        BatchCheckpointStore.WalletKey after = checkpoint.map(BatchCheckpointStore.Checkpoint::last).orElse(null);
+        long processed = checkpoint.map(BatchCheckpointStore.Checkpoint::processed).orElse(0L);
+        if (after != null) {
+            log.info("Resuming {} after wallet {} ({} already processed)", job, after.walletNumber(), processed);
+        }
+
+        long started = System.nanoTime();
+        while (true) {
+            BatchCheckpointStore.WalletKey from = after;
+            long done = processed;
+            Chunk chunk = transactionTemplate.execute(status -> {
+                List<Object> selectParams = new ArrayList<>(params);
+                String sql = "SELECT WALLET_NUMBER, SUPPLEMENTARY_DATA_1, BANK_CODE, PHONE_NUMBER, MOBILE_NUMBER "
+                        + "FROM WALLET_DATA WHERE " + condition + keyAfter(from, selectParams)
+                        + " ORDER BY WALLET_NUMBER, SUPPLEMENTARY_DATA_1, BANK_CODE FETCH FIRST " + chunkSize + " ROWS ONLY";
+                List<ChunkRow> rows = jdbcTemplate.query(sql, (rs, rowNum) -> new ChunkRow(
+                        new BatchCheckpointStore.WalletKey(rs.getString("WALLET_NUMBER"),
+                                rs.getString("SUPPLEMENTARY_DATA_1"),
+                                rs.getString("BANK_CODE")),
+                        rs.getString("PHONE_NUMBER") != null ? rs.getString("PHONE_NUMBER") : rs.getString("MOBILE_NUMBER")),
+                        selectParams.toArray());
+                if (rows.isEmpty()) {
+                    return null;
+                }
+
+                BatchCheckpointStore.WalletKey last = rows.get(rows.size() - 1).key();
+                List<Object> updateParams = new ArrayList<>(params);
+                String update = "UPDATE WALLET_DATA SET " + assignment + " WHERE " + condition
+                        + keyAfter(from, updateParams) + keyUpTo(last, updateParams);
+                jdbcTemplate.update(update, updateParams.toArray());
+
+                if (onChunk != null) {
+                    onChunk.accept(rows.stream().map(ChunkRow::phoneNumber).filter(Objects::nonNull).toList());
+                }
+                checkpointStore.save(job, runDate, last, done + rows.size());
+                return new Chunk(last, rows.size());
+            });
+
+            if (chunk == null) {
+                break;
+            }
+            after = chunk.last();
+            processed += chunk.size();
+            log.debug("{}: {} wallets processed", job, processed);
+        }
+        checkpointStore.clear(job);
 
-            // TODO: Intégrer avec votre service de notification SMS/Push
-            // notificationService.sendSMS(phoneNumber, message);
-            // notificationService.sendPushNotification(wallet.getClientCode(), message);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        log.info("{} finished: {} wallets in {} ms ({} wallets/s)", job, processed, elapsedMs,
+                elapsedMs > 0 ? processed * 1000 / elapsedMs : processed);
+        return processed;
+    }
 
-            log.info("PIN expiry notification sent to wallet: {}, days remaining: {}",
-                    wallet.getWalletNumber(), daysRemaining);
+    private static String jobName(String job, int shard, int shards) {
+        return shards > 1 ? job + "#" + shard + "/" + shards : job;
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to send PIN expiry notification for wallet: {}",
-                    wallet.getWalletNumber(), e);
+    /**
+     * Partition des portefeuilles par hachage du numéro de portefeuille (ORA_HASH existe sous
+     * Oracle comme sous H2), stable tant que le nombre de partitions ne change pas
+     */
+    private static String shardCondition(int shard, int shards) {
+        return shards > 1 ? " AND ORA_HASH(WALLET_NUMBER, " + (shards - 1) + ") = " + shard : "";
+    }
+
+    /**
+     * Condition de clé strictement supérieure à {@code key}, écrite sans comparaison de tuples
+     * (non supportée par Oracle) pour rester sur un parcours d'index de la clé primaire
+     */
+    private static String keyAfter(BatchCheckpointStore.WalletKey key, List<Object> params) {
+        if (key == null) {
+            return "";
         }
+        params.addAll(List.of(key.walletNumber(), key.walletNumber(), key.supplementaryData1(),
+                key.supplementaryData1(), key.bankCode()));
+        return " AND (WALLET_NUMBER > ? OR (WALLET_NUMBER = ? AND (SUPPLEMENTARY_DATA_1 > ? "
+                + "OR (SUPPLEMENTARY_DATA_1 = ? AND BANK_CODE > ?))))";
+    }
+
+    private static String keyUpTo(BatchCheckpointStore.WalletKey key, List<Object> params) {
+        params.addAll(List.of(key.walletNumber(), key.walletNumber(), key.supplementaryData1(),
+                key.supplementaryData1(), key.bankCode()));
+        return " AND (WALLET_NUMBER < ? OR (WALLET_NUMBER = ? AND (SUPPLEMENTARY_DATA_1 < ? "
+                + "OR (SUPPLEMENTARY_DATA_1 = ? AND BANK_CODE <= ?))))";
     }
 
     /**
@@ -217,10 +317,10 @@ public class PinExpiryService {
      */
     public PinExpiryStats getPinExpiryStats() {
         Long expiringToday = walletRepository.countWalletsWithPinExpiringToday();
-        List<Wallet> expiredWallets = walletRepository.findWalletsWithExpiredPin();
+        Long expired = walletRepository.countWalletsWithExpiredPin();
 
         return new PinExpiryStats(
-                expiredWallets.size(),
+                expired.intValue(),
                 expiringToday.intValue()
         );
     }
@@ -240,4 +340,10 @@ public class PinExpiryService {
         public int getExpiredCount() { return expiredCount; }
         public int getExpiringTodayCount() { return expiringTodayCount; }
     }
+
+    private record ChunkRow(BatchCheckpointStore.WalletKey key, String phoneNumber) {
+    }
+
+    private record Chunk(BatchCheckpointStore.WalletKey last, int size) {
+    }
 }
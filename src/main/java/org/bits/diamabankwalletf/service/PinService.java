@@ -10,17 +10,13 @@ import org.bits.diamabankwalletf.dto.ResponseService;
 import org.bits.diamabankwalletf.model.Wallet;
 import org.bits.diamabankwalletf.repository.WalletRepository;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Optional;
-import java.util.Random;
 
 @Service
 @RequiredArgsConstructor
@@ -39,11 +35,11 @@ public class PinService {
     @Value("${wallet.backend.endpoints.reset-pin-q}")
     private String resetPinQUrl;
 
-    private final WalletCreationService walletCreationService;
-    private final WebClient webClient;
+    private final WalletBackendGateway walletBackendGateway;
     private final PinEncryptionUtil pinEncryptionUtil;
     private final WalletRepository walletRepository;
     private final PinExpiryService pinExpiryService;
+    private final RequestIdGenerator requestIdGenerator;
 
     public ResponseService changePin(RequestChangePin request) {
         try {
@@ -81,18 +77,13 @@ public class PinService {
 
             // Add requestId and requestDate if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.info("[CHANGE PIN] Generated requestId: {}", request.getRequestId());
                 addedMissingFields = true;
             }
 
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.info("[CHANGE PIN] Generated requestDate: {}", request.getRequestDate());
                 addedMissingFields = true;
             }
@@ -116,20 +107,9 @@ public class PinService {
                 log.info("[CHANGE PIN] - entityId: {}", request.getEntityId());
             }
 
-            // Get token from token service
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("[CHANGE PIN] Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             // Make the API call
             log.info("[CHANGE PIN] Sending request to backend API...");
-            ResponseService response = webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            ResponseService response = walletBackendGateway.post(changePinUrl, request, ResponseService.class)
                     .doOnError(error -> log.error("[CHANGE PIN] Error calling wallet backend for ChangePin", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -218,37 +198,21 @@ public class PinService {
 
             // Add requestId and requestDate if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.info("[RESET PIN] Generated requestId: {}", request.getRequestId());
             }
 
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.info("[RESET PIN] Generated requestDate: {}", request.getRequestDate());
             }
 
             request.setNewPinCode(pinEncryptionUtil.encryptPin(request.getNewPinCode(),request.getBank()));
             request.setConfPinCode(pinEncryptionUtil.encryptPin(request.getConfPinCode(),request.getBank()));
 
-            // Get token from token service
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("[RESET PIN] Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             // Make the API call
             log.info("[RESET PIN] Sending reset request to backend API...");
-            ResponseService response = webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            ResponseService response = walletBackendGateway.post(resetPinUrl, request, ResponseService.class)
                     .doOnError(error -> log.error("[RESET PIN] Error calling wallet backend for resetPin", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -337,37 +301,21 @@ public class PinService {
 
             // Add requestId and requestDate if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.info("[RESET PIN Q] Generated requestId: {}", request.getRequestId());
             }
 
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.info("[RESET PIN Q] Generated requestDate: {}", request.getRequestDate());
             }
 
             request.setNewPinCode(pinEncryptionUtil.encryptPin(request.getNewPinCode(),request.getBank()));
             request.setConfPinCode(pinEncryptionUtil.encryptPin(request.getConfPinCode(),request.getBank()));
 
-            // Get token from token service
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("[RESET PIN Q] Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             // Make the API call
             log.info("[RESET PIN Q] Sending resetPinQ request to backend API...");
-            ResponseService response = webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            ResponseService response = walletBackendGateway.post(resetPinQUrl, request, ResponseService.class)
                     .doOnError(error -> log.error("[RESET PIN Q] Error calling wallet backend for resetPinQ", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
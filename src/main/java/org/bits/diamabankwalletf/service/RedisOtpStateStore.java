@@ -0,0 +1,130 @@
+package org.bits.diamabankwalletf.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * OTP store shared by all nodes. Each phone is one Redis hash ({@code otp:state:<phone>})
+ * whose TTL covers both the code and the rate-limit window; the rate-limit check, the
+ * request counter and the attempt counter are updated by Lua scripts so concurrent
+ * requests on different nodes cannot both pass a limit.
+ */
+@Service
+@ConditionalOnProperty(name = "otp.store.type", havingValue = "redis")
+@Slf4j
+public class RedisOtpStateStore implements OtpStateStore {
+
+    private static final String KEY_PREFIX = "otp:state:";
+
+    // KEYS[1] state hash; ARGV: now, otp, minIntervalMs, maxPerWindow, windowMs, otpTtlMs, checkOnly
+    private static final RedisScript<Long> ISSUE_SCRIPT = new DefaultRedisScript<>("""
+            local now = tonumber(ARGV[1])
+            local s = redis.call('HMGET', KEYS[1], 'count', 'windowStart', 'lastRequest')
+            local count = tonumber(s[1]) or 0
+            local windowStart = tonumber(s[2])
+            local lastRequest = tonumber(s[3])
+            if windowStart == nil or lastRequest == nil or now - windowStart >= tonumber(ARGV[5]) then
+              count = 0
+              windowStart = now
+              lastRequest = nil
+            end
+            if lastRequest ~= nil and now - lastRequest < tonumber(ARGV[3]) then return 1 end
+            if count >= tonumber(ARGV[4]) then return 2 end
+            if ARGV[7] == '1' then return 0 end
+            redis.call('HSET', KEYS[1], 'otp', ARGV[2], 'createdAt', now, 'attempts', 0,
+              'count', count + 1, 'windowStart', windowStart, 'lastRequest', now)
+            redis.call('PEXPIRE', KEYS[1], math.max(windowStart + tonumber(ARGV[5]) - now, tonumber(ARGV[6])))
+            return 0
+            """, Long.class);
+
+    // KEYS[1] state hash; ARGV: otpTtlMs
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ATTEMPT_SCRIPT = new DefaultRedisScript<>("""
+            local attempts = redis.call('HINCRBY', KEYS[1], 'attempts', 1)
+            if redis.call('PTTL', KEYS[1]) < 0 then
+              redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            end
+            local v = redis.call('HMGET', KEYS[1], 'otp', 'createdAt')
+            return {tostring(attempts), v[1] or '', v[2] or ''}
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisOtpStateStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        log.info("Redis OTP state store initialized");
+    }
+
+    @Override
+    public IssueResult checkIssue(String phoneNumber, Policy policy) {
+        return runIssueScript(phoneNumber, "", policy, true);
+    }
+
+    @Override
+    public IssueResult issue(String phoneNumber, String otp, Policy policy) {
+        return runIssueScript(phoneNumber, otp, policy, false);
+    }
+
+    private IssueResult runIssueScript(String phoneNumber, String otp, Policy policy, boolean checkOnly) {
+        Long code = redisTemplate.execute(ISSUE_SCRIPT, List.of(key(phoneNumber)),
+                String.valueOf(System.currentTimeMillis()),
+                otp,
+                String.valueOf(policy.minIntervalMillis()),
+                String.valueOf(policy.maxRequestsPerWindow()),
+                String.valueOf(policy.windowMillis()),
+                String.valueOf(policy.otpTtlMillis()),
+                checkOnly ? "1" : "0");
+
+        if (code == null || code == 0) {
+            return IssueResult.ALLOWED;
+        }
+        return code == 1 ? IssueResult.TOO_FREQUENT : IssueResult.HOURLY_LIMIT_EXCEEDED;
+    }
+
+    @Override
+    public VerificationState recordVerificationAttempt(String phoneNumber, Policy policy) {
+        List<?> result = redisTemplate.execute(ATTEMPT_SCRIPT, List.of(key(phoneNumber)),
+                String.valueOf(policy.otpTtlMillis()));
+        if (result == null || result.size() < 3) {
+            throw new IllegalStateException("Unexpected OTP attempt script result: " + result);
+        }
+
+        int attempts = Integer.parseInt(String.valueOf(result.get(0)));
+        String otp = String.valueOf(result.get(1));
+        String createdAt = String.valueOf(result.get(2));
+        return new VerificationState(attempts,
+                otp.isEmpty() ? null : otp,
+                createdAt.isEmpty() ? 0L : Long.parseLong(createdAt));
+    }
+
+    @Override
+    public int getVerificationAttempts(String phoneNumber) {
+        Object attempts = redisTemplate.opsForHash().get(key(phoneNumber), "attempts");
+        return attempts != null ? Integer.parseInt(attempts.toString()) : 0;
+    }
+
+    @Override
+    public void clearOtp(String phoneNumber) {
+        redisTemplate.opsForHash().delete(key(phoneNumber), "otp", "createdAt", "attempts");
+    }
+
+    @Override
+    public void remove(String phoneNumber) {
+        redisTemplate.delete(key(phoneNumber));
+    }
+
+    @Override
+    public long estimatedSize() {
+        return -1;
+    }
+
+    private static String key(String phoneNumber) {
+        return KEY_PREFIX + phoneNumber;
+    }
+}
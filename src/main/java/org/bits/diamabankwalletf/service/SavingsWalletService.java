@@ -6,28 +6,21 @@ import org.bits.diamabankwalletf.dto.*;
 import org.bits.diamabankwalletf.model.SavingAccount;
 import org.bits.diamabankwalletf.repository.SavingAccountRepository;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
-import java.util.Random;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SavingsWalletService {
-    private final WebClient webClient;
+    private final WalletBackendGateway walletBackendGateway;
     private final PinEncryptionUtil pinEncryptionUtil;
-    private final WalletCreationService walletCreationService;
-
-    @Value("${wallet.backend.url}")
-    private String walletBackendUrl;
+    private final RequestIdGenerator requestIdGenerator;
 
     @Value("${wallet.backend.endpoints.create-savings-wallet}")
     private String createSavingsWalletEndpoint;
@@ -51,21 +44,15 @@ public class SavingsWalletService {
 
     public ResponseService savingEStatement(RequestEStatement request) {
         try {
-            String url = walletBackendUrl + savingsWalletEStatementEndpoint;
-            log.info("Calling savings wallet statement endpoint at: {}", url);
+            log.info("Calling savings wallet statement endpoint: {}", savingsWalletEStatementEndpoint);
 
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
             if (request.getSource() == null || request.getSource().isEmpty()) {
@@ -90,26 +77,11 @@ public class SavingsWalletService {
                 request.setBank("00100");
             }
 
-            String token = walletCreationService.getServiceAccountToken();
-            if (token == null) {
-                log.error("Failed to obtain token for saving wallet e-statement");
-                ResponseService errorResponse = new ResponseService();
-                errorResponse.setRespCode("999");
-                errorResponse.setMessage("Error obtaining authentication token");
-                return errorResponse;
-            }
-
             log.debug("Request details: walletNumber={}, source={}, requestId={}, requestDate={}, entityId={}, bank={}",
                     request.getWalletNumber(), request.getSource(), request.getRequestId(),
                     request.getRequestDate(), request.getEntityId(), request.getBank());
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(savingsWalletEStatementEndpoint, request, ResponseService.class)
                     .doOnError(error -> {
                         log.error("Error calling savings wallet e-statement API", error);
                         if (error instanceof WebClientResponseException) {
@@ -142,21 +114,15 @@ public class SavingsWalletService {
 
     public JResponseService last5SavingsWallet(RequestEStatement request) {
         try {
-            String url = walletBackendUrl + last5SavingsWalletEndpoint;
-            log.info("Calling savings wallet last5 endpoint at: {}", url);
+            log.info("Calling savings wallet last5 endpoint: {}", last5SavingsWalletEndpoint);
 
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
             if (request.getSource() == null || request.getSource().isEmpty()) {
@@ -176,26 +142,11 @@ public class SavingsWalletService {
                 request.setPin(encryptedPin);
             }
 
-            String token = walletCreationService.getServiceAccountToken();
-            if (token == null) {
-                log.error("Failed to obtain token for saving wallet credit");
-                JResponseService errorResponse = new JResponseService();
-                errorResponse.setRespCode("999");
-                errorResponse.setMessage("Error obtaining authentication token");
-                return errorResponse;
-            }
-
             log.debug("Request details: walletNumber={}, source={}, requestId={}, requestDate={}, entityId={}",
                     request.getWalletNumber(), request.getSource(), request.getRequestId(),
                     request.getRequestDate(), request.getEntityId());
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(JResponseService.class)
+            return walletBackendGateway.post(last5SavingsWalletEndpoint, request, JResponseService.class)
                     .doOnError(error -> {
                         log.error("Error calling savings wallet last5 API", error);
                         if (error instanceof WebClientResponseException) {
@@ -227,21 +178,15 @@ public class SavingsWalletService {
 
     public ResponseService creditSavingsWallet(RequestCreditSaving request) {
         try {
-            String url = walletBackendUrl + creditSavingsWalletEndpoint;
-            log.info("Calling savings wallet credit endpoint at: {}", url);
+            log.info("Calling savings wallet credit endpoint: {}", creditSavingsWalletEndpoint);
 
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
             if (request.getSource() == null || request.getSource().isEmpty()) {
@@ -257,26 +202,11 @@ public class SavingsWalletService {
             }
 
 
-            String token = walletCreationService.getServiceAccountToken();
-            if (token == null) {
-                log.error("Failed to obtain token for saving wallet credit");
-                ResponseService errorResponse = new ResponseService();
-                errorResponse.setRespCode("999");
-                errorResponse.setMessage("Error obtaining authentication token");
-                return errorResponse;
-            }
-
             log.debug("Request details: walletNumber={}, source={}, requestId={}, requestDate={}, entityId={}",
                     request.getWalletNumber(), request.getSource(), request.getRequestId(),
                     request.getRequestDate(), request.getEntityId());
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(creditSavingsWalletEndpoint, request, ResponseService.class)
                     .doOnError(error -> {
                         log.error("Error calling savings wallet credit API", error);
                         if (error instanceof WebClientResponseException) {
@@ -308,21 +238,15 @@ public class SavingsWalletService {
 
     public ResponseService debitSavingsWallet(RequestDebitSaving request) {
         try {
-            String url = walletBackendUrl + debitSavingsWalletEndpoint;
-            log.info("Calling savings wallet debit endpoint at: {}", url);
+            log.info("Calling savings wallet debit endpoint: {}", debitSavingsWalletEndpoint);
 
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
             if (request.getSource() == null || request.getSource().isEmpty()) {
@@ -338,26 +262,11 @@ public class SavingsWalletService {
             }
 
 
-            String token = walletCreationService.getServiceAccountToken();
-            if (token == null) {
-                log.error("Failed to obtain token for saving wallet debit");
-                ResponseService errorResponse = new ResponseService();
-                errorResponse.setRespCode("999");
-                errorResponse.setMessage("Error obtaining authentication token");
-                return errorResponse;
-            }
-
             log.debug("Request details: walletNumber={}, source={}, requestId={}, requestDate={}, entityId={}",
                     request.getWalletNumber(), request.getSource(), request.getRequestId(),
                     request.getRequestDate(), request.getEntityId());
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(debitSavingsWalletEndpoint, request, ResponseService.class)
                     .doOnError(error -> {
                         log.error("Error calling savings wallet debit API", error);
                         if (error instanceof WebClientResponseException) {
@@ -389,21 +298,15 @@ public class SavingsWalletService {
 
     public ResponseServiceJson savingsWalletBalance(RequestSavingBalance request) {
         try {
-            String url = walletBackendUrl + balanceSavingsWalletEndpoint;
-            log.info("Calling savings wallet balance endpoint at: {}", url);
+            log.info("Calling savings wallet balance endpoint: {}", balanceSavingsWalletEndpoint);
 
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
             if (request.getSource() == null || request.getSource().isEmpty()) {
@@ -419,26 +322,11 @@ public class SavingsWalletService {
             }
             
 
-            String token = walletCreationService.getServiceAccountToken();
-            if (token == null) {
-                log.error("Failed to obtain token for saving wallet balance");
-                ResponseServiceJson errorResponse = new ResponseServiceJson();
-                errorResponse.setRespCode("999");
-                errorResponse.setMessage("Error obtaining authentication token");
-                return errorResponse;
-            }
-
             log.debug("Request details: walletNumber={}, source={}, requestId={}, requestDate={}, entityId={}",
                     request.getWalletNumber(), request.getSource(), request.getRequestId(),
                     request.getRequestDate(), request.getEntityId());
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(balanceSavingsWalletEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> {
                         log.error("Error calling savings wallet balance API", error);
                         if (error instanceof WebClientResponseException) {
@@ -474,21 +362,15 @@ public class SavingsWalletService {
 
     public ResponseServiceJson createSavingsWallet(RequestCheckPin request) {
         try {
-            String url = walletBackendUrl + createSavingsWalletEndpoint;
-            log.info("Calling savings wallet creation endpoint at: {}", url);
+            log.info("Calling savings wallet creation endpoint: {}", createSavingsWalletEndpoint);
 
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
             if (request.getSource() == null || request.getSource().isEmpty()) {
@@ -514,26 +396,11 @@ public class SavingsWalletService {
                 request.setPin(encryptedPin);
             }
 
-            String token = walletCreationService.getServiceAccountToken();
-            if (token == null) {
-                log.error("Failed to obtain token for saving wallet creation");
-                ResponseServiceJson errorResponse = new ResponseServiceJson();
-                errorResponse.setRespCode("999");
-                errorResponse.setMessage("Error obtaining authentication token");
-                return errorResponse;
-            }
-
             log.debug("Request details: walletNumber={}, source={}, requestId={}, requestDate={}, entityId={}",
                     request.getWalletNumber(), request.getSource(), request.getRequestId(),
                     request.getRequestDate(), request.getEntityId());
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(createSavingsWalletEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> {
                         log.error("Error calling savings wallet creation API", error);
                         if (error instanceof WebClientResponseException) {
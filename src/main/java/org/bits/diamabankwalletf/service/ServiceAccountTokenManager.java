@@ -0,0 +1,309 @@
+package org.bits.diamabankwalletf.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.dto.ResponseServiceJson;
+import org.bits.diamabankwalletf.dto.TokenRequest;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the service-account token used for every wallet backend call.
+ * The token is refreshed in the background shortly before it expires (JWT {@code exp}
+ * claim, or the configured TTL when the token is opaque), and concurrent callers that
+ * find no usable token all wait on the same in-flight {@code /getToken} request.
+ */
+@Service
+@Slf4j
+public class ServiceAccountTokenManager {
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    private final RequestIdGenerator requestIdGenerator;
+
+    @Value("${wallet.backend.url}")
+    private String walletBackendUrl;
+
+    @Value("${wallet.backend.api.username}")
+    private String apiUsername;
+
+    @Value("${wallet.backend.api.password}")
+    private String apiPassword;
+
+    @Value("${wallet.backend.token.ttl-seconds:300}")
+    private long tokenTtlSeconds;
+
+    @Value("${wallet.backend.token.refresh-ahead-seconds:60}")
+    private long refreshAheadSeconds;
+
+    private final AtomicReference<CachedToken> cachedToken = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<CachedToken>> inFlightRefresh = new AtomicReference<>();
+
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "service-token-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ServiceAccountTokenManager(WebClient webClient, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                      RequestIdGenerator requestIdGenerator) {
+        this.webClient = webClient;
+        this.objectMapper = objectMapper;
+        this.requestIdGenerator = requestIdGenerator;
+
+        FunctionCounter.builder("wallet.backend.token.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("wallet.backend.token.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("wallet.backend.token.refreshes", refreshes, LongAdder::sum)
+                .tag("outcome", "success").register(meterRegistry);
+        FunctionCounter.builder("wallet.backend.token.refreshes", refreshFailures, LongAdder::sum)
+                .tag("outcome", "failure").register(meterRegistry);
+        FunctionCounter.builder("wallet.backend.token.invalidations", invalidations, LongAdder::sum)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns a valid service-account token, fetching one only when nothing usable is cached.
+     * Inside the refresh-ahead window the current token is still returned while a
+     * background refresh replaces it.
+     */
+    public String getToken() {
+        long now = System.currentTimeMillis();
+        CachedToken current = cachedToken.get();
+
+        if (current != null && now < current.expiresAt()) {
+            hits.increment();
+            if (now >= current.refreshAt()) {
+                refreshAsync();
+            }
+            return current.token();
+        }
+
+        misses.increment();
+        try {
+            return refreshAsync().join().token();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Error obtaining API token", cause);
+        }
+    }
+
+    /**
+     * Whether the given Authorization value is the token currently handed out by this manager.
+     */
+    public boolean isCurrentToken(String token) {
+        CachedToken current = cachedToken.get();
+        return current != null && current.token().equals(token);
+    }
+
+    /**
+     * Drops the cached token after the backend rejected it with a 401 and returns a fresh one.
+     * If another caller already replaced the rejected token, the newer token is reused.
+     */
+    public String refreshAfterUnauthorized(String rejectedToken) {
+        CachedToken current = cachedToken.get();
+        if (current != null && current.token().equals(rejectedToken)
+                && cachedToken.compareAndSet(current, null)) {
+            invalidations.increment();
+            log.warn("Wallet backend rejected the cached service token, invalidating it");
+        }
+        return getToken();
+    }
+
+    public void invalidate() {
+        if (cachedToken.getAndSet(null) != null) {
+            invalidations.increment();
+        }
+    }
+
+    private CompletableFuture<CachedToken> refreshAsync() {
+        while (true) {
+            CompletableFuture<CachedToken> existing = inFlightRefresh.get();
+            if (existing != null) {
+                return existing;
+            }
+
+            CompletableFuture<CachedToken> refresh = new CompletableFuture<>();
+            if (inFlightRefresh.compareAndSet(null, refresh)) {
+                refreshExecutor.execute(() -> {
+                    try {
+                        CachedToken fresh = fetchToken();
+                        cachedToken.set(fresh);
+                        refreshes.increment();
+                        refresh.complete(fresh);
+                    } catch (Throwable t) {
+                        refreshFailures.increment();
+                        refresh.completeExceptionally(t);
+                    } finally {
+                        inFlightRefresh.compareAndSet(refresh, null);
+                    }
+                });
+                return refresh;
+            }
+        }
+    }
+
+    private CachedToken fetchToken() {
+        String token = requestToken();
+        long now = System.currentTimeMillis();
+        long expiresAt = resolveExpiry(token, now);
+        long lifetime = expiresAt - now;
+        long refreshAt = expiresAt - Math.min(refreshAheadSeconds * 1000L, lifetime / 2);
+        log.debug("Cached service token valid until {}", new Date(expiresAt));
+        return new CachedToken(token, expiresAt, refreshAt);
+    }
+
+    /**
+     * Uses the JWT {@code exp} claim when the token carries one, otherwise the configured TTL.
+     * The signature is not checked here; the backend remains the authority on validity.
+     */
+    private long resolveExpiry(String token, long now) {
+        long fallback = now + tokenTtlSeconds * 1000L;
+        String[] parts = token.split("\\.");
+        if (parts.length < 2) {
+            return fallback;
+        }
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(parts[1]);
+            JsonNode claims = objectMapper.readTree(new String(payload, StandardCharsets.UTF_8));
+            if (claims.hasNonNull("exp")) {
+                long exp = claims.get("exp").asLong() * 1000L;
+                if (exp > now) {
+                    return exp;
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Service token is not a readable JWT, using configured TTL: {}", e.getMessage());
+        }
+        return fallback;
+    }
+
+    private String requestToken() {
+        try {
+            log.info("Obtaining API token with service account: {}", apiUsername);
+            TokenRequest tokenRequest = new TokenRequest();
+            tokenRequest.setUsername(apiUsername);
+            tokenRequest.setPassword(apiPassword);
+            tokenRequest.setRequestId(requestIdGenerator.nextRequestId());
+            tokenRequest.setRequestDate(requestIdGenerator.currentTimestamp());
+
+            log.debug("Token request for requestId: {}", tokenRequest.getRequestId());
+
+            ResponseEntity<ResponseServiceJson> response = webClient.post()
+                    .uri(walletBackendUrl + "/getToken")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(tokenRequest)
+                    .retrieve()
+                    .toEntity(ResponseServiceJson.class)
+                    .block();
+
+            if (response != null && response.getBody() != null &&
+                    "000".equals(response.getBody().getRespCode())) {
+
+                log.info("Successfully obtained API token");
+                String token = null;
+
+                // PRIMARY METHOD: Extract token from Authorization header
+                List<String> authHeaders = response.getHeaders().get(HttpHeaders.AUTHORIZATION);
+                if (authHeaders != null && !authHeaders.isEmpty()) {
+                    String authHeader = authHeaders.get(0);
+                    if (authHeader.startsWith("Bearer ")) {
+                        token = authHeader.substring(7);
+                        log.debug("Token extracted from Authorization header (first 15 chars): {}",
+                                token.length() > 15 ? token.substring(0, 15) + "..." : token);
+                        return token;
+                    } else {
+                        token = authHeader;
+                        log.debug("Token extracted from Authorization header without Bearer prefix");
+                    }
+                }
+
+                List<String> tokenHeaders = response.getHeaders().get("Token");
+                if (token == null && tokenHeaders != null && !tokenHeaders.isEmpty()) {
+                    token = tokenHeaders.get(0);
+                    log.debug("Token extracted from Token header");
+                    return token;
+                }
+
+                ResponseServiceJson body = response.getBody();
+                if (token == null && body != null) {
+                    if (body.getAuthCode() != null && body.getAuthCode().length() > 20) {
+                        token = body.getAuthCode();
+                        log.debug("Token extracted from authCode field");
+                        return token;
+                    }
+
+                    if (body.getResult() != null) {
+                        JsonNode resultNode = body.getResult();
+                        if (resultNode.has("token")) {
+                            token = resultNode.get("token").asText();
+                            log.debug("Token extracted from result.token field");
+                            return token;
+                        } else if (resultNode.has("access_token")) {
+                            token = resultNode.get("access_token").asText();
+                            log.debug("Token extracted from result.access_token field");
+                            return token;
+                        } else if (resultNode.has("jwt")) {
+                            token = resultNode.get("jwt").asText();
+                            log.debug("Token extracted from result.jwt field");
+                            return token;
+                        }
+
+                        log.debug("Result structure: {}", resultNode.toString());
+                    }
+                }
+                if (token != null) {
+                    return token;
+                }
+                log.error("Could not extract JWT token from response");
+                throw new RuntimeException("Token not found in response");
+            } else {
+                String errorMsg = (response != null && response.getBody() != null) ?
+                        response.getBody().getMessage() : "null response";
+                log.error("Failed to obtain API token: {}", errorMsg);
+                throw new RuntimeException("Failed to obtain API token: " + errorMsg);
+            }
+        } catch (Exception e) {
+            log.error("Error obtaining API token", e);
+            throw new RuntimeException("Error obtaining API token", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private record CachedToken(String token, long expiresAt, long refreshAt) {
+    }
+}
@@ -0,0 +1,187 @@
+package org.bits.diamabankwalletf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.dto.CustomerRegistrationRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Pending-registration store on a directory shared by all nodes (e.g. an NFS mount), so the
+ * OTP verification can be handled by a different node than the registration. Each entry is
+ * a directory holding the request as JSON and one file per image; the JSON is moved into
+ * place last, so an entry is only visible once complete. The PIN and security answer are
+ * removed before anything is written. take() claims an entry by renaming its JSON, so only
+ * one node can get it. Nothing is kept on the heap.
+ */
+@Service
+@ConditionalOnProperty(name = "registration.pending.store", havingValue = "shared")
+@Slf4j
+public class SharedPendingRegistrationStore implements PendingRegistrationStore {
+
+    private static final String REQUEST_FILE = "request.json";
+    private static final String FACE_FILE = "face";
+    private static final String DOC_FRONT_FILE = "doc-front";
+    private static final String DOC_BACK_FILE = "doc-back";
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final long ttlMillis;
+    private final Counter expiredCounter;
+    private final AtomicLong lastSweepSize = new AtomicLong();
+
+    public SharedPendingRegistrationStore(ObjectMapper objectMapper,
+                                          MeterRegistry meterRegistry,
+                                          @Value("${registration.pending.shared-directory}") String directory,
+                                          @Value("${registration.pending.ttl-minutes:15}") long ttlMinutes) throws IOException {
+        this.objectMapper = objectMapper;
+        this.directory = Files.createDirectories(Paths.get(directory));
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+
+        this.expiredCounter = Counter.builder("registration.pending.removals")
+                .tag("cause", "expired")
+                .register(meterRegistry);
+        meterRegistry.gauge("registration.pending.size", lastSweepSize);
+        log.info("Pending registrations kept for {} minutes in shared directory {}", ttlMinutes, this.directory);
+    }
+
+    @Override
+    public void put(String authCode, CustomerRegistrationRequest request) {
+        Path entry = entryDirectory(authCode);
+        try {
+            Files.createDirectories(entry);
+            writeImage(entry.resolve(FACE_FILE), request.getFaceId());
+            writeImage(entry.resolve(DOC_FRONT_FILE), request.getDocumentImg());
+            writeImage(entry.resolve(DOC_BACK_FILE), request.getDocumentImgBack());
+
+            request.setFaceId(null);
+            request.setDocumentImg(null);
+            request.setDocumentImgBack(null);
+            // Never write secrets to the shared directory; only the documents are needed later
+            request.setPin(null);
+            request.setAnswer(null);
+
+            Path tmp = entry.resolve(REQUEST_FILE + "." + UUID.randomUUID() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), request);
+            Files.move(tmp, entry.resolve(REQUEST_FILE), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // The wallet is already created; losing the documents must not fail the registration
+            log.error("Could not store pending registration {}", authCode, e);
+            deleteEntry(entry);
+        }
+    }
+
+    @Override
+    public Optional<CustomerRegistrationRequest> take(String authCode) {
+        Path entry = entryDirectory(authCode);
+        Path requestFile = entry.resolve(REQUEST_FILE + "." + UUID.randomUUID() + ".claimed");
+        try {
+            // The rename succeeds for exactly one caller, on whichever node
+            Files.move(entry.resolve(REQUEST_FILE), requestFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log.error("Could not claim pending registration {}", authCode, e);
+            return Optional.empty();
+        }
+
+        try {
+            if (isExpired(requestFile)) {
+                deleteEntry(entry);
+                expiredCounter.increment();
+                return Optional.empty();
+            }
+
+            CustomerRegistrationRequest request = objectMapper.readValue(requestFile.toFile(),
+                    CustomerRegistrationRequest.class);
+            request.setFaceId(readImage(entry.resolve(FACE_FILE)));
+            request.setDocumentImg(readImage(entry.resolve(DOC_FRONT_FILE)));
+            request.setDocumentImgBack(readImage(entry.resolve(DOC_BACK_FILE)));
+            deleteEntry(entry);
+            return Optional.of(request);
+        } catch (IOException e) {
+            log.error("Could not read pending registration {}", authCode, e);
+            deleteEntry(entry);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Deletes abandoned registrations; any node may run it, deletes are idempotent.
+     */
+    @Scheduled(fixedDelayString = "${registration.pending.sweep-interval-ms:60000}")
+    public void removeExpired() {
+        long remaining = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path entry : entries) {
+                Path requestFile = entry.resolve(REQUEST_FILE);
+                // Entries still being written have no request file yet; judge them by the directory
+                Path marker = Files.exists(requestFile) ? requestFile : entry;
+                if (isExpired(marker)) {
+                    deleteEntry(entry);
+                    expiredCounter.increment();
+                } else {
+                    remaining++;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error sweeping pending registrations in {}", directory, e);
+        }
+        lastSweepSize.set(remaining);
+    }
+
+    private boolean isExpired(Path path) throws IOException {
+        return Files.getLastModifiedTime(path).toMillis() + ttlMillis < System.currentTimeMillis();
+    }
+
+    private Path entryDirectory(String authCode) {
+        return directory.resolve(LocalPendingRegistrationStore.sanitize(authCode));
+    }
+
+    private static void writeImage(Path file, String image) throws IOException {
+        if (image != null) {
+            Files.writeString(file, image, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static String readImage(Path file) throws IOException {
+        return Files.exists(file) ? Files.readString(file, StandardCharsets.ISO_8859_1) : null;
+    }
+
+    private static void deleteEntry(Path entry) {
+        if (!Files.exists(entry)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(entry)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("Could not delete {}: {}", path, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not delete pending registration {}: {}", entry, e.getMessage());
+        }
+    }
+}
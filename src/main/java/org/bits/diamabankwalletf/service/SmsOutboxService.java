@@ -0,0 +1,277 @@
+package org.bits.diamabankwalletf.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes outgoing SMS to EPS_SMS_LOG (status 'N', sent by the SMS gateway).
+ *
+ * <p>OTPs are queued and inserted with JDBC batches by a single writer thread, so request
+ * threads never wait on the insert; an OTP that finds the queue full is inserted directly.
+ * Bulk notifications are inserted in one batch in the caller's transaction instead, so they
+ * commit or roll back together with the flags that mark them as sent, and they never share
+ * the writer with OTPs. The same bulk text to the same phone is inserted once per dedupe
+ * window; a phone counts as notified only once its transaction committed.
+ *
+ * <p>SMS_TS is the table's key. Every row gets its own microsecond, and the microseconds of
+ * each millisecond are split between {@code sms.outbox.node-slots} nodes by
+ * {@code request-id.node-id}, so that nodes writing in the same millisecond never collide.
+ * The slot count defaults to every node id that request-id.node-digits allows.
+ */
+@Service
+@Slf4j
+public class SmsOutboxService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO EPS_SMS_LOG (SMS_TS, MSISDN, SENDER_MODULE, SMS_TEXT, SMS_STATUS) VALUES (?, ?, ?, ?, 'N')";
+    private static final String SENDER_MODULE = "WB";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<SmsMessage> otpQueue;
+    private final int batchSize;
+    private final long idleWaitMs;
+    private final int nodeSlot;
+    private final int nodeSlots;
+    private final AtomicLong lastTimestampMicros = new AtomicLong();
+    private final Cache<String, Boolean> recentBulk;
+
+    private final Counter bulkCounter;
+    private final Counter deduplicatedCounter;
+    private final Counter failedCounter;
+    private final Timer lagTimer;
+    private final Timer bulkLagTimer;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public SmsOutboxService(JdbcTemplate jdbcTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${sms.outbox.otp-queue-capacity:1000}") int otpQueueCapacity,
+                            @Value("${sms.outbox.batch-size:200}") int batchSize,
+                            @Value("${sms.outbox.idle-wait-ms:50}") long idleWaitMs,
+                            @Value("${sms.outbox.dedupe-window-minutes:1440}") long dedupeWindowMinutes,
+                            @Value("${sms.outbox.dedupe-max-entries:500000}") long dedupeMaxEntries,
+                            @Value("${request-id.node-id:}") String nodeId,
+                            @Value("${request-id.node-digits:1}") int nodeDigits,
+                            @Value("${sms.outbox.node-slots:0}") int nodeSlots) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.otpQueue = new ArrayBlockingQueue<>(otpQueueCapacity);
+        this.batchSize = batchSize;
+        this.idleWaitMs = idleWaitMs;
+        this.recentBulk = Caffeine.newBuilder()
+                .maximumSize(dedupeMaxEntries)
+                .expireAfterWrite(dedupeWindowMinutes, TimeUnit.MINUTES)
+                .build();
+
+        // Every node id RequestIdGenerator accepts must have its own slot; it also refuses to
+        // start a multi-node deployment without a node id
+        int nodeIds = nodeDigits >= 1 && nodeDigits <= 3 ? (int) Math.pow(10, nodeDigits) : -1;
+        this.nodeSlots = nodeSlots == 0 ? nodeIds : nodeSlots;
+        if (nodeIds < 0 || this.nodeSlots < nodeIds || this.nodeSlots > 1000) {
+            throw new IllegalArgumentException("sms.outbox.node-slots " + this.nodeSlots + " must cover the "
+                    + nodeIds + " node ids of request-id.node-digits=" + nodeDigits
+                    + " and stay at most 1000 (request-id.node-digits at most 3)");
+        }
+        String node = nodeId.trim();
+        if (!node.chars().allMatch(Character::isDigit) || node.length() > nodeDigits) {
+            throw new IllegalArgumentException("request-id.node-id " + node + " does not fit in " + nodeDigits + " digits");
+        }
+        this.nodeSlot = node.isEmpty() ? 0 : Integer.parseInt(node);
+
+        Gauge.builder("sms.outbox.queue.depth", otpQueue, BlockingQueue::size)
+                .tag("priority", "otp")
+                .register(meterRegistry);
+        this.bulkCounter = Counter.builder("sms.outbox.bulk.inserted").register(meterRegistry);
+        this.deduplicatedCounter = Counter.builder("sms.outbox.deduplicated").register(meterRegistry);
+        this.failedCounter = Counter.builder("sms.outbox.failed").register(meterRegistry);
+        this.lagTimer = Timer.builder("sms.outbox.lag")
+                .description("Time from enqueue to insert")
+                .tag("priority", "otp")
+                .register(meterRegistry);
+        this.bulkLagTimer = Timer.builder("sms.outbox.lag")
+                .description("Time from enqueue to insert")
+                .tag("priority", "bulk")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::drainLoop, "sms-outbox-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("SMS outbox writer started (batchSize={}, otpCapacity={}, node slot {}/{})",
+                batchSize, otpQueue.remainingCapacity(), nodeSlot, nodeSlots);
+    }
+
+    /**
+     * Queues an OTP message; never blocks on a full queue.
+     */
+    public void sendOtp(String phoneNumber, String text) {
+        SmsMessage message = new SmsMessage(nextTimestamp(), phoneNumber, text, System.nanoTime());
+        if (!otpQueue.offer(message)) {
+            log.warn("SMS outbox OTP queue full, inserting directly for: {}", phoneNumber);
+            flush(List.of(message));
+        }
+    }
+
+    /**
+     * Inserts the same notification for each phone number with one JDBC batch, in the caller's
+     * transaction; a phone number listed twice, or already sent this text within the dedupe
+     * window, gets a single SMS. Errors are thrown so that the caller's transaction rolls back.
+     * The bulk lag covers the time from this call to the commit that persists the rows.
+     */
+    public void insertBulk(List<String> phoneNumbers, String text) {
+        long enqueuedAt = System.nanoTime();
+        String textHash = sha256(text);
+        List<String> dedupeKeys = new ArrayList<>();
+        List<String> pending = new ArrayList<>();
+        for (String phoneNumber : phoneNumbers.stream().distinct().toList()) {
+            String dedupeKey = phoneNumber + "|" + textHash;
+            if (recentBulk.getIfPresent(dedupeKey) != null) {
+                deduplicatedCounter.increment();
+            } else {
+                dedupeKeys.add(dedupeKey);
+                pending.add(phoneNumber);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, pending, pending.size(), (ps, phoneNumber) -> {
+            ps.setTimestamp(1, nextTimestamp());
+            ps.setString(2, phoneNumber);
+            ps.setString(3, SENDER_MODULE);
+            ps.setString(4, text);
+        });
+
+        Runnable persisted = () -> {
+            dedupeKeys.forEach(key -> recentBulk.put(key, Boolean.TRUE));
+            bulkCounter.increment(pending.size());
+            bulkLagTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    persisted.run();
+                }
+            });
+        } else {
+            persisted.run();
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Next SMS_TS of this node: a microsecond of the current millisecond (or later, under load)
+     * whose value modulo the slot count is this node's slot
+     */
+    private Timestamp nextTimestamp() {
+        long micros = lastTimestampMicros.updateAndGet(last -> {
+            long next = Math.max(last + nodeSlots, TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+            return next - Math.floorMod(next, nodeSlots) + nodeSlot;
+        });
+        Timestamp timestamp = new Timestamp(TimeUnit.MICROSECONDS.toMillis(micros));
+        timestamp.setNanos((int) TimeUnit.MICROSECONDS.toNanos(micros % 1_000_000));
+        return timestamp;
+    }
+
+    private void drainLoop() {
+        List<SmsMessage> batch = new ArrayList<>(batchSize);
+        while (running || !otpQueue.isEmpty()) {
+            otpQueue.drainTo(batch, batchSize);
+            if (batch.isEmpty()) {
+                try {
+                    SmsMessage next = otpQueue.poll(idleWaitMs, TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                } catch (InterruptedException e) {
+                    // Shutdown requested: the loop drains whatever is left
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<SmsMessage> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, message) -> {
+                ps.setTimestamp(1, message.timestamp());
+                ps.setString(2, message.phoneNumber());
+                ps.setString(3, SENDER_MODULE);
+                ps.setString(4, message.text());
+            });
+            log.debug("SMS outbox batch saved: {} rows", batch.size());
+        } catch (Exception e) {
+            // One bad row must not lose the whole batch
+            log.warn("SMS outbox batch insert failed, retrying row by row: {}", e.getMessage());
+            for (SmsMessage message : batch) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, message.timestamp(), message.phoneNumber(), SENDER_MODULE, message.text());
+                } catch (Exception rowError) {
+                    failedCounter.increment();
+                    log.error("Failed to save SMS for: {}", message.phoneNumber(), rowError);
+                }
+            }
+        }
+
+        long now = System.nanoTime();
+        for (SmsMessage message : batch) {
+            lagTimer.record(now - message.enqueuedAt(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writerThread != null) {
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("SMS outbox writer stopped, {} messages left unsaved", otpQueue.size());
+    }
+
+    private record SmsMessage(Timestamp timestamp, String phoneNumber, String text, long enqueuedAt) {
+    }
+}
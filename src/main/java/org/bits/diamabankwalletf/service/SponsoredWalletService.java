@@ -4,23 +4,18 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.dto.*;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Random;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SponsoredWalletService {
 
-    private final WebClient webClient;
-    private final WalletCreationService walletCreationService;
+    private final WalletBackendGateway walletBackendGateway;
     private final PinEncryptionUtil pinEncryptionUtil;
+    private final RequestIdGenerator requestIdGenerator;
 
     @Value("${wallet.backend.url}")
     private String walletBackendUrl;
@@ -46,17 +41,12 @@ public class SponsoredWalletService {
     public ResponseService sponsorWalletDailyLimits(RequestGetDailyLimitSponsorWallet request) {
         try {
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -70,19 +60,8 @@ public class SponsoredWalletService {
             String url = walletBackendUrl + listSponsoringWalletsEndpoint;
             log.info("Calling daily limits endpoint at: {}", url);
 
-            // Obtenir le token d'authentification
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             // Appeler le service backend
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(listSponsoringWalletsEndpoint, request, ResponseService.class)
                     .doOnError(error -> log.error("Error calling wallet backend", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -107,26 +86,16 @@ public class SponsoredWalletService {
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
-            // Get authentication token
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token for sponsored wallet update (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             String url = walletBackendUrl + updateSponsoredWalletEndpoint;
             log.info("Calling update sponsored wallet endpoint at: {}", url);
 
@@ -137,13 +106,7 @@ public class SponsoredWalletService {
             }
 
             // Make API call to backend
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(updateSponsoredWalletEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> log.error("Error calling wallet backend", error))
                     .block();
         } catch (Exception e) {
@@ -163,39 +126,23 @@ public class SponsoredWalletService {
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
-            // Get API token
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             if (request.getPin() != null && !request.getPin().isEmpty()) {
                 String encryptedPin = pinEncryptionUtil.encryptPin(request.getPin(), "00100");
                 log.info("PIN encrypted for bank code: {}", "00100");
                 request.setPin(encryptedPin);
             }
             log.info(request.toString());
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization",  token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(unlinkSponsoredWalletEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> log.error("Error calling wallet backend", error))
                     .onErrorResume(error -> {
                         ResponseServiceJson errorResponse = new ResponseServiceJson();
@@ -218,17 +165,12 @@ public class SponsoredWalletService {
     public JResponseService getListSponsoringWallets(RequestListSponsoringWallets request) {
         try {
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -248,19 +190,8 @@ public class SponsoredWalletService {
             String url = walletBackendUrl + listSponsoringWalletsEndpoint;
             log.info("Calling list sponsoring wallets endpoint at: {}", url);
 
-            // Obtenir le token d'authentification
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             // Appeler le service backend
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(JResponseService.class)
+            return walletBackendGateway.post(listSponsoringWalletsEndpoint, request, JResponseService.class)
                     .doOnError(error -> log.error("Error calling wallet backend", error))
                     .onErrorResume(error -> {
                         JResponseService errorResponse = new JResponseService();
@@ -281,26 +212,15 @@ public class SponsoredWalletService {
 
     public JResponseService getSponsoredWallets(RequestListSponsoredWallets request) {
         try {
-            String url = walletBackendUrl +
-                    (listSponsoredWalletsEndpoint != null ? listSponsoredWalletsEndpoint : "/ListSponsoredWallets");
+            String endpoint = listSponsoredWalletsEndpoint != null ? listSponsoredWalletsEndpoint : "/ListSponsoredWallets";
+            String url = walletBackendUrl + endpoint;
             log.info("Calling sponsored wallets endpoint at: {}", url);
 
-            // Get token from WalletCreationService
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             enrichRequestWithDefaults(request);
 
             log.debug("Request to sponsored wallets API: {}", request);
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(JResponseService.class)
+            return walletBackendGateway.post(endpoint, request, JResponseService.class)
                     .doOnError(error -> log.error("Erreur lors de l'appel au backend wallet", error))
                     .block();
         } catch (Exception e) {
@@ -315,18 +235,13 @@ public class SponsoredWalletService {
 
     private void enrichRequestWithDefaults(RequestListSponsoredWallets request) {
         if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            request.setRequestId(datePrefix + randomDigits);
+            request.setRequestId(requestIdGenerator.nextRequestId());
             log.debug("Generated requestId: {}", request.getRequestId());
         }
 
         // Generate requestDate if not provided
         if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            request.setRequestDate(dateFormat.format(new Date()));
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
             log.debug("Generated requestDate: {}", request.getRequestDate());
         }
 
@@ -357,24 +272,14 @@ public class SponsoredWalletService {
 
             // Générer un requestId si non fourni
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             // Générer une requestDate si non fournie
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
-            // Obtenir le token d'accès
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Utilisation du token (premiers 10 caractères): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
 
             if (request.getPin() != null && !request.getPin().isEmpty()) {
                 String encryptedPin = pinEncryptionUtil.encryptPin(request.getPin(), "00100");
@@ -387,13 +292,7 @@ public class SponsoredWalletService {
 
 
             // Appeler l'API de wallet backend
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(sponsorWalletEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> log.error("Erreur lors de l'appel au backend wallet", error))
                     .block();
 
@@ -4,27 +4,22 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.dto.*;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class StandingInstructionService {
 
-    private final WebClient webClient;
-    private final WalletCreationService walletCreationService;
+    private final WalletBackendGateway walletBackendGateway;
     private final PinEncryptionUtil pinEncryptionUtil;
+    private final RequestIdGenerator requestIdGenerator;
 
     @Value("${wallet.backend.url}")
     private String walletBackendUrl;
@@ -46,20 +41,7 @@ public class StandingInstructionService {
             String url = walletBackendUrl + deleteStandingInstructionEndpoint;
             log.info("Calling standing instruction deletion endpoint at: {}", url);
 
-            // Get token using WalletCreationService
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
-
-
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(deleteStandingInstructionEndpoint, request, ResponseService.class)
                     .doOnError(error -> log.error("Error calling wallet backend", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -83,19 +65,10 @@ public class StandingInstructionService {
         try {
             String url = walletBackendUrl + updateSIEndpoint;
             log.info("Calling standing instruction update endpoint at: {}", url);
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
 
             request.setPin(pinEncryptionUtil.encryptPin(request.getPin(), "00100"));
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(updateSIEndpoint, request, ResponseService.class)
                     .doOnError(error -> log.error("Error calling wallet backend", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -118,24 +91,14 @@ public class StandingInstructionService {
             String url = walletBackendUrl + createSiEndpoint;
             log.info("Calling standing instruction creation endpoint at: {}", url);
 
-            // Get the token from wallet creation service
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             // Generate requestId in format yymmddxxxxxx if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             // Generate requestDate in format yyyy-mm-dd hh:mm:ss if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
             Map<String, Object> requestMap = new HashMap<>();
@@ -161,13 +124,7 @@ public class StandingInstructionService {
 
             log.debug("Request body: {}", requestMap);
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestMap)
-                    .header(HttpHeaders.AUTHORIZATION, token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(createSiEndpoint, requestMap, ResponseServiceJson.class)
                     .doOnError(error -> log.error("Error calling standing instruction API", error))
                     .onErrorResume(error -> {
                         ResponseServiceJson errorResponse = new ResponseServiceJson();
@@ -192,36 +149,20 @@ public class StandingInstructionService {
             String url = walletBackendUrl + standingInstructionListEndpoint;
             log.info("Calling standing instruction list endpoint at: {}", url);
 
-            // Get the token from WalletCreationService
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             // Generate required fields if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
             log.debug("Request body: {}", request);
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(JResponseService.class)
+            return walletBackendGateway.post(standingInstructionListEndpoint, request, JResponseService.class)
                     .doOnError(error -> log.error("Error calling wallet backend", error))
                     .onErrorResume(error -> {
                         JResponseService errorResponse = new JResponseService();
@@ -5,16 +5,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.dto.RequestTopUpPurchase;
 import org.bits.diamabankwalletf.dto.ResponseService;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Random;
-
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -25,9 +20,10 @@ public class TopUpPurchaseService {
 
     @Value("${wallet.backend.endpoints.top-up-purchase}")
     private String topUpPurchaseEndpoint;
-    private final WebClient webClient;
+    private final WalletBackendGateway walletBackendGateway;
     private final PinEncryptionUtil pinEncryptionUtil;
     private final WalletCreationService walletCreationService;
+    private final RequestIdGenerator requestIdGenerator;
 
     public ResponseService topUpPurchase(RequestTopUpPurchase request) {
         try {
@@ -36,18 +32,13 @@ public class TopUpPurchaseService {
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -68,20 +59,10 @@ public class TopUpPurchaseService {
                 log.info("PIN encrypted for bank code: {}", "00100");
                 request.setPin(encryptedPin);
             }
-            // Get authentication token
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
 
             log.debug("Final request body: {}", request);
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(topUpPurchaseEndpoint, request, ResponseService.class)
                     .doOnError(error -> log.error("Error calling topUpPurchase transfer", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -4,26 +4,19 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.dto.JResponseService;
 import org.bits.diamabankwalletf.dto.RequestListLinkedAcc;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Random;
-
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class WalletAccountService {
 
-    private final WebClient webClient;
-    private final WalletCreationService walletCreationService;
+    private final WalletBackendGateway walletBackendGateway;
+    private final RequestIdGenerator requestIdGenerator;
 
-    @Value("${wallet.backend.url}")
-    private String walletBackendUrl;
     @Value("${wallet.backend.endpoints.wallet-linked-accounts}")
     private String walletLinkedAccountsUrl;
 
@@ -36,17 +29,8 @@ public class WalletAccountService {
             // Ensure request parameters are set
             prepareRequest(request);
 
-            // Get authentication token using WalletCreationService
-            String token = walletCreationService.getServiceAccountToken();
-
             // Call the wallet backend
-            return webClient.post()
-                    .uri(walletBackendUrl + walletLinkedAccountsUrl)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .header("Authorization",  token)
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(JResponseService.class)
+            return walletBackendGateway.post(walletLinkedAccountsUrl, request, JResponseService.class)
                     .doOnSuccess(response -> log.info("Successfully retrieved linked accounts data"))
                     .doOnError(error -> log.error("Error retrieving linked accounts: {}", error.getMessage()))
                     .onErrorResume(error -> {
@@ -85,18 +69,13 @@ public class WalletAccountService {
 
         // Generate requestId if not provided (format: yymmddxxxxxx)
         if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-            SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-            String datePrefix = idFormat.format(new Date());
-            Random random = new Random();
-            String randomDigits = String.format("%06d", random.nextInt(1000000));
-            request.setRequestId(datePrefix + randomDigits);
+            request.setRequestId(requestIdGenerator.nextRequestId());
             log.debug("Generated requestId: {}", request.getRequestId());
         }
 
         // Generate requestDate if not provided (format: yyyy-MM-dd HH:mm:ss)
         if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            request.setRequestDate(dateFormat.format(new Date()));
+            request.setRequestDate(requestIdGenerator.currentTimestamp());
             log.debug("Generated requestDate: {}", request.getRequestDate());
         }
 
@@ -2,6 +2,7 @@ package org.bits.diamabankwalletf.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.dto.LoginContext;
 import org.bits.diamabankwalletf.model.Customer;
 import org.bits.diamabankwalletf.model.Wallet;
 import org.bits.diamabankwalletf.repository.CustomerRepository;
@@ -11,6 +12,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 @Slf4j
@@ -22,6 +24,7 @@ public class WalletAuthService {
     private final CustomerRepository customerRepository;
     private final PinEncryptionUtil pinEncryptionUtil;
     private final PinExpiryService pinExpiryService;
+    private final WalletPrincipalCache walletPrincipalCache;
 
     public boolean verifyPin(Wallet wallet, String plainPin) {
         String storedPin = wallet.getWalletPin();
@@ -52,82 +55,36 @@ public class WalletAuthService {
     }
 
     /**
-     * Check if user is blocked - ONLY from CUSTOMER_DWS table
+     * Wallet, customer row and, when registered, the login's device, read in one query.
      */
-    public boolean isUserBlocked(String phoneNumber) {
-        try {
-            log.info("=== CHECKING USER BLOCKED STATUS ===");
-            log.info("Phone number: {}", phoneNumber);
-
-            Optional<Customer> customerOpt = customerRepository.findByPhoneNumber(phoneNumber);
-
-            if (customerOpt.isEmpty()) {
-                log.warn("Customer not found for block check: phoneNumber=[{}]", phoneNumber);
-                log.info("Returning FALSE (customer not found)");
-                return false;
-            }
-
-            Customer customer = customerOpt.get();
-            String blockAccessValue = customer.getBlockAccess();
-
-            log.info("Customer found - ID: {}", customer.getFirstName()); // or whatever ID field you have
-            log.info("Block access value from DB: '{}'", blockAccessValue);
-            log.info("Block access equals 'Y'? {}", "Y".equals(blockAccessValue));
-
-
-            Optional<Wallet> wallet = walletRepository.findByPhoneNumber(phoneNumber);
-
-            boolean isBlocked = "Y".equals(customer.getBlockAccess()) ||"L".equals(wallet.get().getStatusWallet());
-
-
-            log.info("Final blocking decision: {}", isBlocked);
-            log.info("=== END BLOCKING CHECK ===");
-
-            return isBlocked;
-
-        } catch (Exception e) {
-            log.error("Error checking block status for phoneNumber=[{}]", phoneNumber, e);
-            log.info("Returning FALSE due to exception");
-            return false;
+    public Optional<LoginContext> loadLoginContext(String phoneNumber, String deviceId) {
+        List<LoginContext> rows = walletRepository.findLoginContexts(phoneNumber, deviceId);
+        if (rows.size() > 1) {
+            log.warn("{} CUSTOMER_DWS rows for phoneNumber=[{}], using the lowest customer ID", rows.size(), phoneNumber);
         }
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
     }
 
- public boolean isUserCancelled(String phoneNumber) {
-        try {
-            log.info("=== CHECKING USER BLOCKED STATUS ===");
-            log.info("Phone number: {}", phoneNumber);
-
-            Optional<Customer> customerOpt = customerRepository.findByPhoneNumber(phoneNumber);
-
-            if (customerOpt.isEmpty()) {
-                log.warn("Customer not found for block check: phoneNumber=[{}]", phoneNumber);
-                log.info("Returning FALSE (customer not found)");
-                return false;
-            }
-
-            Customer customer = customerOpt.get();
-            String blockAccessValue = customer.getBlockAccess();
-
-            log.info("Customer found - ID: {}", customer.getFirstName()); // or whatever ID field you have
-            log.info("Block access value from DB: '{}'", blockAccessValue);
-            log.info("Block access equals 'Y'? {}", "Y".equals(blockAccessValue));
-
-
-            Optional<Wallet> wallet = walletRepository.findByPhoneNumber(phoneNumber);
-
-            boolean isCancelled = "C".equals(wallet.get().getStatusWallet()) ;
-
-
-            log.info("Final cancelled decision: {}", isCancelled);
-            log.info("=== END  CANCELLED CHECK ===");
-
-            return isCancelled;
-
-        } catch (Exception e) {
-            log.error("Error checking cancel status for phoneNumber=[{}]", phoneNumber, e);
-            log.info("Returning FALSE due to exception");
+    /**
+     * Check if user is blocked - CUSTOMER_DWS block flag or locked wallet
+     */
+    public boolean isUserBlocked(LoginContext context) {
+        if (context.getCustomer() == null) {
+            log.warn("Customer not found for block check: phoneNumber=[{}]", context.getWallet().getPhoneNumber());
             return false;
         }
+        boolean isBlocked = context.isBlocked();
+        log.info("Block check for phoneNumber=[{}]: blockAccess=[{}], statusWallet=[{}], blocked=[{}]",
+                context.getWallet().getPhoneNumber(), context.getCustomer().getBlockAccess(),
+                context.getWallet().getStatusWallet(), isBlocked);
+        return isBlocked;
+    }
+
+    public boolean isUserCancelled(LoginContext context) {
+        boolean isCancelled = context.isCancelled();
+        log.info("Cancelled check for phoneNumber=[{}]: statusWallet=[{}], cancelled=[{}]",
+                context.getWallet().getPhoneNumber(), context.getWallet().getStatusWallet(), isCancelled);
+        return isCancelled;
     }
 
     @Transactional
@@ -138,6 +95,7 @@ public class WalletAuthService {
             wallet.setWalletPin(encryptedPin);
             pinExpiryService.initializePinExpiry(wallet);
             walletRepository.save(wallet);
+            walletPrincipalCache.evict(wallet.getPhoneNumber());
 
             // Also update PIN in customer table if customer exists
             Optional<Customer> customerOpt = customerRepository.findByPhoneNumber(wallet.getPhoneNumber());
@@ -160,7 +118,8 @@ public class WalletAuthService {
     }
 
     @Transactional
-    public boolean handleFailedLogin(Wallet wallet) {
+    public boolean handleFailedLogin(LoginContext context) {
+        Wallet wallet = context.getWallet();
 
         try {
             String phoneNumber = wallet.getPhoneNumber();
@@ -173,10 +132,11 @@ public class WalletAuthService {
             wallet.setNumberTried(currentTries);
 
             boolean shouldBlock = currentTries >= allowedTries;
+            walletPrincipalCache.evict(phoneNumber);
 
 
             // Also update failed attempts in customer table if customer exists
-            Optional<Customer> customerOpt = customerRepository.findByPhoneNumber(phoneNumber);
+            Optional<Customer> customerOpt = Optional.ofNullable(context.getCustomer());
             if (customerOpt.isPresent()) {
                 Customer customer = customerOpt.get();
                 int customerTries = customer.getNumberOfTries() != null ? customer.getNumberOfTries() : 0;
@@ -235,7 +195,8 @@ public class WalletAuthService {
     }
 
     @Transactional
-    public void recordSuccessfulLogin(Wallet wallet) {
+    public void recordSuccessfulLogin(LoginContext context) {
+        Wallet wallet = context.getWallet();
         try {
             String phoneNumber = wallet.getPhoneNumber();
 
@@ -245,7 +206,7 @@ public class WalletAuthService {
             walletRepository.save(wallet);
 
             // Also update customer table if customer exists
-            Optional<Customer> customerOpt = customerRepository.findByPhoneNumber(phoneNumber);
+            Optional<Customer> customerOpt = Optional.ofNullable(context.getCustomer());
             if (customerOpt.isPresent()) {
                 Customer customer = customerOpt.get();
                 customer.setNumberOfTries(0);
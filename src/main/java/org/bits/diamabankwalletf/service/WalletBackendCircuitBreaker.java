@@ -0,0 +1,147 @@
+package org.bits.diamabankwalletf.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+
+/**
+ * Count-based circuit breaker for one wallet backend endpoint. The last {@code windowSize}
+ * calls are kept in a ring; once at least {@code minimumCalls} have been seen and the share of
+ * failures (errors, 5xx, timeouts and calls slower than the slow-call threshold) reaches the
+ * threshold, the circuit opens and calls are refused for {@code openDurationMs}. After that a
+ * few trial calls are let through: if they all succeed the circuit closes, otherwise it opens again.
+ */
+@Slf4j
+final class WalletBackendCircuitBreaker {
+
+    enum State {
+        CLOSED(0), OPEN(1), HALF_OPEN(2);
+
+        private final int code;
+
+        State(int code) {
+            this.code = code;
+        }
+
+        int code() {
+            return code;
+        }
+    }
+
+    record Settings(int windowSize, int minimumCalls, int failureRatePercent, long slowCallMs,
+                    long openDurationMs, int halfOpenCalls) {
+    }
+
+    private final String endpoint;
+    private final Settings settings;
+
+    private final boolean[] window;
+    private int windowIndex;
+    private int recordedCalls;
+    private int failedCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSucceeded;
+
+    WalletBackendCircuitBreaker(String endpoint, Settings settings) {
+        this.endpoint = endpoint;
+        this.settings = settings;
+        this.window = new boolean[settings.windowSize()];
+    }
+
+    /**
+     * Whether a call may go out now. Every permitted call must be followed by exactly one of
+     * {@link #onSuccess}, {@link #onFailure} or {@link #onIgnored}.
+     */
+    synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < settings.openDurationMs()) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight + halfOpenSucceeded >= settings.halfOpenCalls()) {
+                return false;
+            }
+            halfOpenInFlight++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess(long durationMs) {
+        if (durationMs >= settings.slowCallMs()) {
+            onFailure();
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+            if (++halfOpenSucceeded >= settings.halfOpenCalls()) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        record(false);
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+            if (recordedCalls >= settings.minimumCalls()
+                    && failedCalls * 100 >= settings.failureRatePercent() * recordedCalls) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * Releases a permission without counting the call, e.g. when it was cancelled or refused
+     * by the bulkhead.
+     */
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && halfOpenInFlight > 0) {
+            halfOpenInFlight--;
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failed) {
+        if (recordedCalls == window.length) {
+            if (window[windowIndex]) {
+                failedCalls--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        window[windowIndex] = failed;
+        if (failed) {
+            failedCalls++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transitionTo(State next) {
+        log.warn("Wallet backend circuit for {} moved from {} to {}", endpoint, state, next);
+        state = next;
+        halfOpenInFlight = 0;
+        halfOpenSucceeded = 0;
+        if (next == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+        }
+        if (next == State.CLOSED) {
+            Arrays.fill(window, false);
+            windowIndex = 0;
+            recordedCalls = 0;
+            failedCalls = 0;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package org.bits.diamabankwalletf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.handler.timeout.ReadTimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.exception.WalletBackendUnavailableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Single entry point for JSON POSTs to the wallet backend. Callers pass the endpoint path
+ * (the value of a wallet.backend.endpoints.* property) and the payload; the gateway adds the
+ * service-account token, applies the response timeout configured under
+ * wallet.backend.timeouts.&lt;endpoint-name&gt; and records latency and payload sizes per endpoint.
+ * <p>
+ * Each endpoint also has its own circuit breaker and concurrency bulkhead, so a slow or failing
+ * backend operation is refused immediately with a {@link WalletBackendUnavailableException}
+ * instead of holding request threads for the full response timeout.
+ */
+@Service
+@Slf4j
+public class WalletBackendGateway {
+
+    private static final String ENDPOINTS_PREFIX = "wallet.backend.endpoints";
+    private static final String TIMEOUTS_PREFIX = "wallet.backend.timeouts";
+    private static final String BULKHEAD_PREFIX = "wallet.backend.bulkhead";
+
+    /**
+     * Reactor context key of an {@link AtomicBoolean} that {@link #post} sets once the request is
+     * written to an open connection: from then on the backend may have acted on it, whatever the
+     * outcome seen here.
+     */
+    public static final String REQUEST_SENT = WalletBackendGateway.class.getName() + ".requestSent";
+
+    private final WebClient webClient;
+    private final ServiceAccountTokenManager tokenManager;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String walletBackendUrl;
+    private final Duration defaultTimeout;
+    private final int defaultMaxConcurrent;
+    private final WalletBackendCircuitBreaker.Settings circuitSettings;
+
+    private final Map<String, String> endpointNamesByPath = new HashMap<>();
+    private final Map<String, Duration> timeoutsByName;
+    private final Map<String, Integer> maxConcurrentByName;
+    private final ConcurrentMap<String, EndpointPolicy> policies = new ConcurrentHashMap<>();
+
+    public WalletBackendGateway(WebClient webClient,
+                                ServiceAccountTokenManager tokenManager,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                Environment environment,
+                                @Value("${wallet.backend.url}") String walletBackendUrl,
+                                @Value("${wallet.backend.timeouts.default:30s}") Duration defaultTimeout,
+                                @Value("${wallet.backend.bulkhead.default:50}") int defaultMaxConcurrent,
+                                @Value("${wallet.backend.circuit.window-size:50}") int windowSize,
+                                @Value("${wallet.backend.circuit.minimum-calls:20}") int minimumCalls,
+                                @Value("${wallet.backend.circuit.failure-rate-percent:50}") int failureRatePercent,
+                                @Value("${wallet.backend.circuit.slow-call-ms:10000}") long slowCallMs,
+                                @Value("${wallet.backend.circuit.open-duration-ms:30000}") long openDurationMs,
+                                @Value("${wallet.backend.circuit.half-open-calls:3}") int halfOpenCalls) {
+        this.webClient = webClient;
+        this.tokenManager = tokenManager;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.walletBackendUrl = walletBackendUrl;
+        this.defaultTimeout = defaultTimeout;
+        this.defaultMaxConcurrent = defaultMaxConcurrent;
+        this.circuitSettings = new WalletBackendCircuitBreaker.Settings(windowSize, minimumCalls, failureRatePercent,
+                slowCallMs, openDurationMs, halfOpenCalls);
+
+        Binder binder = Binder.get(environment);
+        binder.bind(ENDPOINTS_PREFIX, Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of())
+                .forEach((name, path) -> endpointNamesByPath.putIfAbsent(path, name));
+        this.timeoutsByName = binder.bind(TIMEOUTS_PREFIX, Bindable.mapOf(String.class, Duration.class))
+                .orElse(Map.of());
+        this.maxConcurrentByName = binder.bind(BULKHEAD_PREFIX, Bindable.mapOf(String.class, Integer.class))
+                .orElse(Map.of());
+
+        log.info("Wallet backend gateway initialised with {} named endpoints, {} timeout overrides",
+                endpointNamesByPath.size(), timeoutsByName.size());
+    }
+
+    /**
+     * Posts {@code payload} as JSON to {@code endpoint} (a path relative to wallet.backend.url)
+     * and decodes the body as {@code responseType}. Backend 4xx/5xx answers surface as
+     * {@link WebClientResponseException}, as with a plain {@code retrieve()}.
+     */
+    public <T> Mono<T> post(String endpoint, Object payload, Class<T> responseType) {
+        EndpointPolicy policy = policies.computeIfAbsent(endpoint, this::createPolicy);
+
+        return Mono.deferContextual(context -> {
+                    AtomicBoolean requestSent = context.getOrDefault(REQUEST_SENT, null);
+                    acquire(policy);
+                    long startedAt = System.nanoTime();
+
+                    return Mono.fromCallable(() -> new PreparedCall(tokenManager.getToken(), objectMapper.writeValueAsBytes(payload)))
+                            .flatMap(call -> {
+                                policy.requestSize().record(call.body().length);
+                                Timer.Sample sample = Timer.start(meterRegistry);
+
+                                return webClient.post()
+                                        .uri(walletBackendUrl + endpoint)
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .header(HttpHeaders.AUTHORIZATION, call.token())
+                                        .httpRequest(request -> {
+                                            HttpClientRequest nativeRequest = request.getNativeRequest();
+                                            nativeRequest.responseTimeout(policy.timeout());
+                                            if (requestSent != null) {
+                                                requestSent.set(true);
+                                            }
+                                        })
+                                        .bodyValue(call.body())
+                                        .retrieve()
+                                        .bodyToMono(byte[].class)
+                                        .doOnNext(body -> policy.responseSize().record(body.length))
+                                        .doOnSuccess(body -> sample.stop(timer(policy, "success")))
+                                        .doOnError(error -> sample.stop(timer(policy, outcomeOf(error))));
+                            })
+                            .doOnSuccess(body -> policy.circuitBreaker().onSuccess(elapsedMs(startedAt)))
+                            .doOnError(error -> recordFailure(policy, error, startedAt))
+                            .doFinally(signal -> {
+                                policy.bulkhead().release();
+                                if (signal == SignalType.CANCEL) {
+                                    policy.circuitBreaker().onIgnored();
+                                }
+                            });
+                })
+                .flatMap(body -> Mono.fromCallable(() -> objectMapper.readValue(body, responseType)));
+    }
+
+    /**
+     * Runs a blocking call (e.g. through RestTemplate) to {@code endpoint} behind the same circuit
+     * breaker and bulkhead as {@link #post}. Exceptions from {@code call} are rethrown unchanged.
+     */
+    public <T> T execute(String endpoint, Supplier<T> call) {
+        EndpointPolicy policy = policies.computeIfAbsent(endpoint, this::createPolicy);
+        acquire(policy);
+        long startedAt = System.nanoTime();
+        try {
+            T result = call.get();
+            policy.circuitBreaker().onSuccess(elapsedMs(startedAt));
+            return result;
+        } catch (RuntimeException e) {
+            recordFailure(policy, e, startedAt);
+            throw e;
+        } finally {
+            policy.bulkhead().release();
+        }
+    }
+
+    private void acquire(EndpointPolicy policy) {
+        if (!policy.circuitBreaker().tryAcquirePermission()) {
+            policy.rejectedByCircuit().increment();
+            throw new WalletBackendUnavailableException(policy.name(), "circuit open");
+        }
+        if (!policy.bulkhead().tryAcquire()) {
+            policy.circuitBreaker().onIgnored();
+            policy.rejectedByBulkhead().increment();
+            throw new WalletBackendUnavailableException(policy.name(), "too many concurrent calls");
+        }
+    }
+
+    /**
+     * Backend 4xx answers mean the backend is up and rejected the request, so they count as
+     * successful calls for the circuit breaker.
+     */
+    private static void recordFailure(EndpointPolicy policy, Throwable error, long startedAt) {
+        if ((error instanceof WebClientResponseException responseException
+                && responseException.getStatusCode().is4xxClientError())
+                || error instanceof HttpClientErrorException) {
+            policy.circuitBreaker().onSuccess(elapsedMs(startedAt));
+        } else {
+            policy.circuitBreaker().onFailure();
+        }
+    }
+
+    private static long elapsedMs(long startedAt) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    }
+
+    private EndpointPolicy createPolicy(String endpoint) {
+        String name = endpointNamesByPath.getOrDefault(endpoint, endpoint);
+        Duration timeout = timeoutsByName.getOrDefault(name, defaultTimeout);
+        int maxConcurrent = maxConcurrentByName.getOrDefault(name, defaultMaxConcurrent);
+        log.debug("Wallet backend endpoint {} registered as '{}' with timeout {} and {} concurrent calls",
+                endpoint, name, timeout, maxConcurrent);
+
+        WalletBackendCircuitBreaker circuitBreaker = new WalletBackendCircuitBreaker(name, circuitSettings);
+        Semaphore bulkhead = new Semaphore(maxConcurrent);
+        Gauge.builder("wallet.backend.circuit.state", circuitBreaker, breaker -> breaker.getState().code())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        Gauge.builder("wallet.backend.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        Counter rejectedByCircuit = Counter.builder("wallet.backend.rejected")
+                .tag("endpoint", name)
+                .tag("reason", "circuit_open")
+                .register(meterRegistry);
+        Counter rejectedByBulkhead = Counter.builder("wallet.backend.rejected")
+                .tag("endpoint", name)
+                .tag("reason", "bulkhead_full")
+                .register(meterRegistry);
+
+        DistributionSummary requestSize = DistributionSummary.builder("wallet.backend.request.size")
+                .baseUnit("bytes")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        DistributionSummary responseSize = DistributionSummary.builder("wallet.backend.response.size")
+                .baseUnit("bytes")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        return new EndpointPolicy(name, timeout, requestSize, responseSize, new ConcurrentHashMap<>(),
+                circuitBreaker, bulkhead, rejectedByCircuit, rejectedByBulkhead);
+    }
+
+    private Timer timer(EndpointPolicy policy, String outcome) {
+        return policy.timers().computeIfAbsent(outcome, key -> Timer.builder("wallet.backend.requests")
+                .description("Wallet backend call latency per endpoint and outcome")
+                .tag("endpoint", policy.name())
+                .tag("outcome", key)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private static String outcomeOf(Throwable error) {
+        if (error instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is4xxClientError() ? "client_error" : "server_error";
+        }
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof ReadTimeoutException || cause instanceof TimeoutException) {
+            return "timeout";
+        }
+        return "error";
+    }
+
+    private record PreparedCall(String token, byte[] body) {
+    }
+
+    private record EndpointPolicy(String name, Duration timeout, DistributionSummary requestSize,
+                                  DistributionSummary responseSize, ConcurrentMap<String, Timer> timers,
+                                  WalletBackendCircuitBreaker circuitBreaker, Semaphore bulkhead,
+                                  Counter rejectedByCircuit, Counter rejectedByBulkhead) {
+    }
+}
@@ -4,23 +4,19 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.dto.RequestBalanceEnquiry;
 import org.bits.diamabankwalletf.dto.ResponseServiceJson;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Random;
-
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class WalletBalanceService {
 
-    private final WebClient webClient;
+    private final WalletBackendGateway walletBackendGateway;
     private final WalletCreationService walletCreationService;
+    private final RequestIdGenerator requestIdGenerator;
 
     @Value("${wallet.backend.url}")
     private String walletBackendUrl;
@@ -35,17 +31,12 @@ public class WalletBalanceService {
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
             // Set default source if not provided
@@ -57,20 +48,9 @@ public class WalletBalanceService {
                 }
             }
 
-            // Reuse the token generation from WalletCreationService
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             log.debug("Request body: {}", request);
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(walletBalanceEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> log.error("Error calling wallet balance API", error))
                     .onErrorResume(error -> {
                         ResponseServiceJson errorResponse = new ResponseServiceJson();
@@ -7,10 +7,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.dto.*;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
@@ -21,8 +18,8 @@ import java.util.Map;
 @Slf4j
 public class WalletEnquiryService {
 
-    private final WebClient webClient;
-    private final JdbcTemplate jdbcTemplate;
+    private final WalletBackendGateway walletBackendGateway;
+    private final WalletMessageDictionary walletMessageDictionary;
     private final WalletCreationService walletCreationService;
     private final PinEncryptionUtil pinEncryptionUtil;
 
@@ -41,9 +38,6 @@ public class WalletEnquiryService {
         try {
             String url = walletBackendUrl + walletEnquiryEndpoint;
             log.info("Calling wallet enquiry endpoint at: {}", url);
-            String token = getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
 
             if (request.getBank() == null || request.getBank().isEmpty()) {
                 request.setBank("00100");
@@ -53,13 +47,7 @@ public class WalletEnquiryService {
             Gson gson = new Gson();
             log.debug("Full request as JSON: {}", gson.toJson(request));
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(walletEnquiryEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> log.error("Error calling wallet enquiry", error))
                     .onErrorResume(error -> {
                         ResponseServiceJson errorResponse = new ResponseServiceJson();
@@ -87,12 +75,6 @@ public class WalletEnquiryService {
     }
 
     public String getErrorMessage(String errorCode) {
-        try {
-            String sql = "SELECT MESSAGE FROM WALLET_MESSAGES WHERE RESPONSE_CODE = ?";
-            return jdbcTemplate.queryForObject(sql, String.class, errorCode);
-        } catch (Exception e) {
-            log.error("Error getting error message for code: {}", errorCode, e);
-            return null;
-        }
+        return walletMessageDictionary.getMessage(errorCode);
     }
 }
@@ -0,0 +1,157 @@
+package org.bits.diamabankwalletf.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.dto.WalletIdentity;
+import org.bits.diamabankwalletf.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the phone number / client code a customer types into the wallet it designates,
+ * with one narrow WALLET_DATA query instead of the phone, mobile and client-code entity lookups.
+ * Precedence is unchanged: phone number in the bank, then mobile number when no phone matches,
+ * then client code; an identifier matching several wallets in one column designates none, as the
+ * single-result repository lookups did. Resolutions are cached briefly, unresolved and inactive
+ * ones for a shorter time; services that change a wallet's status must invalidate it.
+ */
+@Service
+@Slf4j
+public class WalletIdentifierResolver {
+
+    private static final String BANK_CODE = "00100";
+    private static final String ACTIVE_STATUS = "N";
+
+    private final WalletRepository walletRepository;
+    private final Cache<String, Resolution> resolutions;
+
+    public WalletIdentifierResolver(WalletRepository walletRepository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${wallets.resolver.max-entries:20000}") long maxEntries,
+                                    @Value("${wallets.resolver.ttl-ms:30000}") long ttlMs,
+                                    @Value("${wallets.resolver.negative-ttl-ms:5000}") long negativeTtlMs) {
+        this.walletRepository = walletRepository;
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        long negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMs);
+        this.resolutions = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, Resolution>() {
+                    @Override
+                    public long expireAfterCreate(String key, Resolution resolution, long currentTime) {
+                        return resolution.activeWallet() != null ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Resolution resolution, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, resolution, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Resolution resolution, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, resolutions, "walletIdentifiers");
+    }
+
+    /**
+     * Active wallet designated by a phone number, or a mobile number when no wallet has that phone.
+     */
+    public String findActiveWalletByPhone(String phoneNumber) {
+        Resolution resolution = resolve(phoneNumber);
+        return resolution != null && isActive(resolution.byPhone()) ? resolution.byPhone().getWalletNumber() : null;
+    }
+
+    /**
+     * Active wallet designated by a phone/mobile number, falling back to the client code.
+     */
+    public String findActiveWallet(String identifier) {
+        Resolution resolution = resolve(identifier);
+        return resolution != null ? resolution.activeWallet() : null;
+    }
+
+    public void invalidate(String identifier) {
+        if (identifier != null) {
+            resolutions.invalidate(identifier);
+        }
+    }
+
+    public void invalidateWallet(String walletNumber) {
+        if (walletNumber != null) {
+            resolutions.asMap().values().removeIf(resolution -> resolution.designates(walletNumber));
+        }
+    }
+
+    private Resolution resolve(String identifier) {
+        if (identifier == null || identifier.isEmpty()) {
+            return null;
+        }
+        try {
+            return resolutions.get(identifier, this::load);
+        } catch (Exception e) {
+            // Not cached: the next call retries the query
+            log.error("Error resolving wallet for identifier: {}", identifier, e);
+            return null;
+        }
+    }
+
+    private Resolution load(String identifier) {
+        List<WalletIdentity> rows = walletRepository.findIdentitiesByIdentifier(identifier, BANK_CODE);
+
+        List<WalletIdentity> phoneMatches = rows.stream()
+                .filter(row -> BANK_CODE.equals(row.getBankCode()) && identifier.equals(row.getPhoneNumber()))
+                .toList();
+        WalletIdentity byPhone = !phoneMatches.isEmpty()
+                ? single(phoneMatches, "phone number", identifier)
+                : single(rows.stream()
+                        .filter(row -> identifier.equals(row.getMobileNumber()) && "A".equals(row.getStatusWallet()))
+                        .toList(), "mobile number", identifier);
+        WalletIdentity byClientCode = single(rows.stream()
+                .filter(row -> BANK_CODE.equals(row.getBankCode()) && identifier.equals(row.getClientCode()))
+                .toList(), "client code", identifier);
+
+        Resolution resolution = new Resolution(byPhone, byClientCode);
+        if (resolution.activeWallet() == null) {
+            log.warn("No active wallet for identifier {} (phone match: {}, client code match: {})", identifier,
+                    byPhone != null ? byPhone.getStatusWallet() : "none",
+                    byClientCode != null ? byClientCode.getStatusWallet() : "none");
+        }
+        return resolution;
+    }
+
+    private static WalletIdentity single(List<WalletIdentity> matches, String column, String identifier) {
+        if (matches.size() > 1) {
+            log.error("Identifier {} matches {} wallets by {}, ignoring that column", identifier, matches.size(), column);
+            return null;
+        }
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    private static boolean isActive(WalletIdentity wallet) {
+        return wallet != null && ACTIVE_STATUS.equals(wallet.getStatusWallet());
+    }
+
+    private record Resolution(WalletIdentity byPhone, WalletIdentity byClientCode) {
+
+        String activeWallet() {
+            if (isActive(byPhone)) {
+                return byPhone.getWalletNumber();
+            }
+            return isActive(byClientCode) ? byClientCode.getWalletNumber() : null;
+        }
+
+        boolean designates(String walletNumber) {
+            return (byPhone != null && walletNumber.equals(byPhone.getWalletNumber()))
+                    || (byClientCode != null && walletNumber.equals(byClientCode.getWalletNumber()));
+        }
+    }
+}
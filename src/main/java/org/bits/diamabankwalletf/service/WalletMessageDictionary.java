@@ -0,0 +1,116 @@
+package org.bits.diamabankwalletf.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory copy of WALLET_MESSAGES used to turn backend response codes into user messages.
+ * The table is loaded at startup and swapped as a whole on a schedule or through
+ * CacheAdminController. A code missing from the snapshot is looked up once and the answer,
+ * including "no such code", is remembered until the next reload or the negative TTL expires,
+ * so a burst of unknown codes during a backend incident does not turn into a query per response.
+ */
+@Service
+@Slf4j
+public class WalletMessageDictionary {
+
+    private static final String LOAD_SQL = "SELECT RESPONSE_CODE, MESSAGE FROM WALLET_MESSAGES";
+    private static final String LOOKUP_SQL = "SELECT MESSAGE FROM WALLET_MESSAGES WHERE RESPONSE_CODE = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<String, Optional<String>> lateLookups;
+    private final Counter lateLookupCounter;
+
+    private volatile Map<String, String> messages = Map.of();
+
+    public WalletMessageDictionary(JdbcTemplate jdbcTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${wallet.messages.negative-ttl-ms:600000}") long negativeTtlMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.lateLookups = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(Duration.ofMillis(negativeTtlMs))
+                .build();
+        Gauge.builder("wallet.messages.size", this, dictionary -> dictionary.messages.size()).register(meterRegistry);
+        this.lateLookupCounter = Counter.builder("wallet.messages.late.lookups").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            reload();
+        } catch (Exception e) {
+            // Codes are looked up one by one (and remembered) until the next successful reload
+            log.error("Initial WALLET_MESSAGES load failed", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.messages.refresh-interval-ms:600000}",
+            initialDelayString = "${wallet.messages.refresh-interval-ms:600000}")
+    public void scheduledReload() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("WALLET_MESSAGES reload failed, keeping previous messages", e);
+        }
+    }
+
+    public void reload() {
+        Map<String, String> loaded = new HashMap<>();
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            String code = rs.getString("RESPONSE_CODE");
+            String message = rs.getString("MESSAGE");
+            if (code != null && message != null) {
+                loaded.putIfAbsent(code, message);
+            }
+        });
+
+        messages = Map.copyOf(loaded);
+        lateLookups.invalidateAll();
+        log.info("WALLET_MESSAGES loaded: {} response codes", loaded.size());
+    }
+
+    /**
+     * Message for a backend response code, or null when WALLET_MESSAGES has none.
+     */
+    public String getMessage(String responseCode) {
+        if (responseCode == null) {
+            return null;
+        }
+        String message = messages.get(responseCode);
+        if (message != null) {
+            return message;
+        }
+        return lateLookups.get(responseCode, this::lookup).orElse(null);
+    }
+
+    private Optional<String> lookup(String responseCode) {
+        lateLookupCounter.increment();
+        try {
+            List<String> found = jdbcTemplate.queryForList(LOOKUP_SQL, String.class, responseCode);
+            if (found.isEmpty() || found.get(0) == null) {
+                log.debug("No WALLET_MESSAGES entry for response code {}", responseCode);
+                return Optional.empty();
+            }
+            return Optional.of(found.get(0));
+        } catch (Exception e) {
+            log.warn("WALLET_MESSAGES lookup failed for code {}: {}", responseCode, e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.bits.diamabankwalletf.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.bits.diamabankwalletf.dto.WalletPrincipal;
+import org.bits.diamabankwalletf.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Short-lived cache of authentication principals keyed by phone number, used by
+ * JwtAuthFilter on every protected request. Services that change the PIN, the
+ * failed-attempt state or the wallet status must evict the affected entry. Inside a
+ * transaction the entry is evicted again after commit: a lookup running before the
+ * commit still reads the old row and would otherwise cache it for the whole TTL.
+ */
+@Service
+@Slf4j
+public class WalletPrincipalCache {
+
+    private final WalletRepository walletRepository;
+    private final Cache<String, WalletPrincipal> principals;
+
+    public WalletPrincipalCache(WalletRepository walletRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${wallet.principal-cache.max-size:20000}") long maxSize,
+                                @Value("${wallet.principal-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.walletRepository = walletRepository;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, "walletPrincipals");
+    }
+
+    public Optional<WalletPrincipal> findByPhoneNumber(String phoneNumber) {
+        WalletPrincipal cached = principals.getIfPresent(phoneNumber);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        // Unknown phone numbers are not cached so a newly created wallet is visible immediately
+        Optional<WalletPrincipal> loaded = walletRepository.findPrincipalByPhoneNumber(phoneNumber);
+        loaded.ifPresent(principal -> principals.put(phoneNumber, principal));
+        return loaded;
+    }
+
+    public void evict(String phoneNumber) {
+        if (phoneNumber != null) {
+            evictNowAndAfterCommit(() -> principals.invalidate(phoneNumber));
+            log.debug("Evicted cached wallet principal for phoneNumber=[{}]", phoneNumber);
+        }
+    }
+
+    public void evictByWalletNumber(String walletNumber) {
+        if (walletNumber != null) {
+            evictNowAndAfterCommit(() -> principals.asMap().values()
+                    .removeIf(principal -> walletNumber.equals(principal.getWalletNumber())));
+        }
+    }
+
+    private void evictNowAndAfterCommit(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
@@ -6,14 +6,12 @@ import org.bits.diamabankwalletf.dto.*;
 import org.bits.diamabankwalletf.model.Wallet;
 import org.bits.diamabankwalletf.repository.WalletRepository;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 @Service
@@ -33,9 +31,12 @@ public class WalletService {
     @Value("${wallet.backend.endpoints.estatement}")
     private String estatementendpoint;
 
-    private final WebClient webClient;
+    private final WalletBackendGateway walletBackendGateway;
     private final PinEncryptionUtil pinEncryptionUtil;
     private final WalletCreationService walletCreationService;
+    private final WalletPrincipalCache walletPrincipalCache;
+    private final WalletIdentifierResolver walletIdentifierResolver;
+    private final RequestIdGenerator requestIdGenerator;
 
     @Value("${wallet.backend.endpoints.last-30-days-trx}")
     private String last30DaysTrxEndpoint;
@@ -47,18 +48,13 @@ public class WalletService {
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -80,20 +76,9 @@ public class WalletService {
                 request.setPin(encryptedPin);
             }
 
-            // Get authentication token
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             log.debug("Final request body: {}", request);
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(JResponseService.class)
+            return walletBackendGateway.post(last30DaysTrxEndpoint, request, JResponseService.class)
                     .doOnError(error -> log.error("Error calling last 30 days transactions", error))
                     .onErrorResume(error -> {
                         JResponseService errorResponse = new JResponseService();
@@ -127,18 +112,13 @@ public class WalletService {
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -159,20 +139,10 @@ public class WalletService {
                 log.info("PIN encrypted for bank code: {}", "00100");
                 request.setPin(encryptedPin);
             }
-            // Get authentication token
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
 
             log.debug("Final request body: {}", request);
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(deactivateWalletEndpoint, request, ResponseService.class)
                     .doOnError(error -> log.error("Error calling deactivatewallet transfer", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -186,6 +156,11 @@ public class WalletService {
                             if (errorMessage != null) {
                                 response.setMessage(errorMessage);
                             }
+                        } else {
+                            walletPrincipalCache.evict(request.getPhoneNumber());
+                            walletPrincipalCache.evictByWalletNumber(request.getWalletNumber());
+                            walletIdentifierResolver.invalidate(request.getPhoneNumber());
+                            walletIdentifierResolver.invalidateWallet(request.getWalletNumber());
                         }
                         return response;
                     })
@@ -206,18 +181,13 @@ public class WalletService {
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -238,20 +208,10 @@ public class WalletService {
                 log.info("PIN encrypted for bank code: {}", "00100");
                 request.setPin(encryptedPin);
             }
-            // Get authentication token
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
 
             log.debug("Final request body: {}", request);
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(estatementendpoint, request, ResponseService.class)
                     .doOnError(error -> log.error("Error calling estatement", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -286,34 +246,20 @@ public class WalletService {
             log.info("Calling secretQ list endpoint at: {}", url);
 
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId : {}", request.getRequestId());
             }
 
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate : {}", request.getRequestDate());
             }
             request.setBank("00100");
             request.setEntityId("CUSTOMER");
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first  10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
 
             log.debug("Final request body : {}", request);
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(JResponseService.class)
+            return walletBackendGateway.post(secretQEndpoint, request, JResponseService.class)
                     .doOnError(error -> log.error("Error calling secretQ list", error))
                     .onErrorResume(error -> {
                         JResponseService errorResponse = new JResponseService();
@@ -3,36 +3,28 @@ package org.bits.diamabankwalletf.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bits.diamabankwalletf.dto.*;
-import org.bits.diamabankwalletf.model.Wallet;
-import org.bits.diamabankwalletf.repository.WalletRepository;
 import org.bits.diamabankwalletf.utils.PinEncryptionUtil;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.simple.SimpleJdbcCall;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.sql.Types;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Optional;
-import java.util.Random;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class WalletTransferService {
 
-    private final WebClient webClient;
+    private final WalletBackendGateway walletBackendGateway;
     private final WalletCreationService walletCreationService;
     private final PinEncryptionUtil pinEncryptionUtil;
-
-    @Value("${wallet.backend.url}")
-    private String walletBackendUrl;
+    private final RequestIdGenerator requestIdGenerator;
 
     @Value("${wallet.backend.endpoints.wallet-to-wallet}")
     private String walletToWalletEndpoint;
@@ -53,7 +45,7 @@ public class WalletTransferService {
     @Value("${wallet.backend.endpoints.qrpayment}")
     private String qrTransferEndpoint;
 
-    private final WalletRepository walletRepository;
+    private final WalletIdentifierResolver walletIdentifierResolver;
 
 
     @Autowired
@@ -65,26 +57,21 @@ public class WalletTransferService {
     @Value("${wallet.backend.endpoints.initiateDsd}")
     private String initiatepayment;
 
+    @Autowired
+    private FeeCalculationService feeCalculationService;
+
+    @Value("${fees.engine.transfer-quotes:false}")
+    private boolean useFeeEngineForTransfers;
+
     public ResponseService initiateBillDsd(RequestInitiateDSD request) {
         try {
-            String url = walletBackendUrl + initiatepayment;
-            log.info("Calling billpayment endpoint at: {}", url);
-
+            log.info("Calling billpayment endpoint: {}", initiatepayment);
 
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
 
             log.debug("Backend request body: {}", request);
 
             // Make the API call
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .header("Authorization", token)
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(initiatepayment, request, ResponseService.class)
                     .doOnError(error -> log.error("Error calling bill payment API", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -108,8 +95,7 @@ public class WalletTransferService {
 
     public ResponseGetWalletLimits getWalletLimits(RequestGetWalletLimits request) {
         try {
-            String url = walletBackendUrl + walletLimitsEndpoint;
-            log.info("Calling wallet limits endpoint at: {}", url);
+            log.info("Calling wallet limits endpoint: {}", walletLimitsEndpoint);
 
             // Normalize wallet request - lookup wallet by phone if needed
             String actualWalletNumber = request.getWalletNumber();
@@ -118,7 +104,7 @@ public class WalletTransferService {
                     request.getPhoneNumber() != null && !request.getPhoneNumber().isEmpty()) {
 
                 log.info("Wallet number not provided, looking up by phone: {}", request.getPhoneNumber());
-                actualWalletNumber = lookupActiveWalletByPhone(request.getPhoneNumber());
+                actualWalletNumber = walletIdentifierResolver.findActiveWalletByPhone(request.getPhoneNumber());
 
                 if (actualWalletNumber == null) {
                     ResponseGetWalletLimits errorResponse = new ResponseGetWalletLimits();
@@ -143,21 +129,10 @@ public class WalletTransferService {
             backendRequest.setBank("00100");
             backendRequest.setWalletNumber(actualWalletNumber);
 
-            // Get authentication token
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             log.debug("Backend request body: {}", backendRequest);
 
             // Make the API call
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(backendRequest)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseGetWalletLimits.class)
+            return walletBackendGateway.post(walletLimitsEndpoint, backendRequest, ResponseGetWalletLimits.class)
                     .doOnError(error -> log.error("Error calling wallet limits API", error))
                     .onErrorResume(error -> {
                         ResponseGetWalletLimits errorResponse = new ResponseGetWalletLimits();
@@ -178,6 +153,11 @@ public class WalletTransferService {
         }
     }
     public FeeCalculationResponse calculateFee(FeeCalculationRequest request) {
+        if (useFeeEngineForTransfers) {
+            // In-memory AUTHORIZATION_FEES rules instead of the CALCULATE_TRANSACTION_FEE function
+            return feeCalculationService.calculateFee(request);
+        }
+
         FeeCalculationResponse response = new FeeCalculationResponse();
         response.setRequestId(request.getRequestId());
 
@@ -216,91 +196,20 @@ public class WalletTransferService {
         return response;
     }
 
-    private String lookupActiveWalletByPhone(String phoneNumber) {
-        try {
-            log.debug("Looking up wallet for phone number: {}", phoneNumber);
-            Optional<Wallet> wallet = walletRepository.findByPhoneNumberAndBankCode(phoneNumber, "00100");
-            if (wallet.isEmpty()) {
-                wallet = walletRepository.findByMobileNumber(phoneNumber);
-            }
-            if (wallet.isPresent()) {
-                Wallet foundWallet = wallet.get();
-                if ("N".equals(foundWallet.getStatusWallet())) {
-                    log.info("Found active wallet: {} for phone: {}",
-                            foundWallet.getWalletNumber(), phoneNumber);
-                    return foundWallet.getWalletNumber();
-                } else {
-                    log.warn("Found wallet {} for phone {} but status is: {}",
-                            foundWallet.getWalletNumber(), phoneNumber, foundWallet.getStatusWallet());
-                    return null;
-                }
-            }
-
-            log.warn("No wallet found for phone number: {}", phoneNumber);
-            return null;
-
-        } catch (Exception e) {
-            log.error("Error looking up wallet for phone number: {}", phoneNumber, e);
-            return null;
-        }
-    }
-    private String lookupActiveWalletByClientId(String clientId) {
-        try {
-            log.debug("Looking up wallet for client ID: {}", clientId);
-            Optional<Wallet> wallet = walletRepository.findByClientCodeAndBankCode(clientId, "00100");
-
-            if (wallet.isPresent()) {
-                Wallet foundWallet = wallet.get();
-                if ("N".equals(foundWallet.getStatusWallet())) {
-                    log.info("Found active wallet: {} for client ID: {}",
-                            foundWallet.getWalletNumber(), clientId);
-                    return foundWallet.getWalletNumber();
-                } else {
-                    log.warn("Found wallet {} for client ID {} but status is: {}",
-                            foundWallet.getWalletNumber(), clientId, foundWallet.getStatusWallet());
-                    return null;
-                }
-            }
-
-            log.warn("No wallet found for client ID: {}", clientId);
-            return null;
-
-        } catch (Exception e) {
-            log.error("Error looking up wallet for client ID: {}", clientId, e);
-            return null;
-        }
-    }
     private String lookupActiveWalletByPhoneOrClientId(String identifier) {
         if (identifier == null || identifier.isEmpty()) {
             log.warn("Empty identifier provided for wallet lookup");
             return null;
         }
 
-        try {
-            log.debug("Looking up wallet for identifier: {}", identifier);
-
-            // First try by phone number
-            String walletByPhone = lookupActiveWalletByPhone(identifier);
-            if (walletByPhone != null) {
-                log.info("Found wallet by phone number: {}", walletByPhone);
-                return walletByPhone;
-            }
-
-            // If not found, try by client ID
-            log.info("Wallet not found by phone, trying client ID lookup for: {}", identifier);
-            String walletByClientId = lookupActiveWalletByClientId(identifier);
-            if (walletByClientId != null) {
-                log.info("Found wallet by client ID: {}", walletByClientId);
-                return walletByClientId;
-            }
-
+        log.debug("Looking up wallet for identifier: {}", identifier);
+        String walletNumber = walletIdentifierResolver.findActiveWallet(identifier);
+        if (walletNumber != null) {
+            log.info("Found active wallet {} for identifier {}", walletNumber, identifier);
+        } else {
             log.warn("No wallet found for identifier (tried phone and client ID): {}", identifier);
-            return null;
-
-        } catch (Exception e) {
-            log.error("Error looking up wallet for identifier: {}", identifier, e);
-            return null;
         }
+        return walletNumber;
     }
 
     private String[] normalizeWalletRequest(String originalSource, String walletNumber, String phoneNumber) {
@@ -328,21 +237,15 @@ public class WalletTransferService {
         return null;
     }
 
-    public ResponseService qrtransferToWallet(RequestQrPayment request) {
+    public Mono<ResponseService> qrtransferToWallet(RequestQrPayment request) {
         try {
-            String url = walletBackendUrl + qrTransferEndpoint;
-            log.info("Calling qr transfer endpoint at: {}", url);
+            log.info("Calling qr transfer endpoint: {}", qrTransferEndpoint);
 
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
             // Normalize source wallet
@@ -356,7 +259,7 @@ public class WalletTransferService {
                 ResponseService errorResponse = new ResponseService();
                 errorResponse.setRespCode("404");
                 errorResponse.setMessage("No active wallet found for the provided source identifier (phone or client ID)");
-                return errorResponse;
+                return Mono.just(errorResponse);
             }
 
             request.setWalletNumber(normalizedSource[0]);
@@ -366,10 +269,6 @@ public class WalletTransferService {
                     request.getWalletNumber(), request.getSource());
 
 
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             if (request.getPin() != null && !request.getPin().isEmpty()) {
                 String encryptedPin = pinEncryptionUtil.encryptPin(request.getPin(), "00100");
                 log.info("PIN encrypted for bank code: {}", "00100");
@@ -383,13 +282,7 @@ public class WalletTransferService {
                 request.setBank("00100");
             }
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post(qrTransferEndpoint, request, ResponseService.class)
                     .doOnError(error -> log.error("Error calling qr transfer", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -397,6 +290,8 @@ public class WalletTransferService {
                         errorResponse.setMessage("Error calling qr transfer: " + error.getMessage());
                         return Mono.just(errorResponse);
                     })
+                    // Unknown codes fall back to a WALLET_MESSAGES query: keep it off the Netty event loop
+                    .publishOn(Schedulers.boundedElastic())
                     .map(response -> {
                         if (!"000".equals(response.getRespCode())) {
                             String errorMessage = walletCreationService.getErrorMessage(response.getRespCode());
@@ -405,33 +300,26 @@ public class WalletTransferService {
                             }
                         }
                         return response;
-                    })
-                    .block();
+                    });
         } catch (Exception e) {
             log.error("Error calling qr transfer", e);
             ResponseService errorResponse = new ResponseService();
             errorResponse.setRespCode("999");
             errorResponse.setMessage("Error calling qr transfer: " + e.getMessage());
-            return errorResponse;
+            return Mono.just(errorResponse);
         }
     }
 
 
-    public ResponseServiceJson transferToWallet(RequestWalletToWallet request) {
+    public Mono<ResponseServiceJson> transferToWallet(RequestWalletToWallet request) {
         try {
-            String url = walletBackendUrl + walletToWalletEndpoint;
-            log.info("Calling wallet-to-wallet transfer endpoint at: {}", url);
+            log.info("Calling wallet-to-wallet transfer endpoint: {}", walletToWalletEndpoint);
 
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
             // Normalize source wallet
@@ -445,7 +333,7 @@ public class WalletTransferService {
                 ResponseServiceJson errorResponse = new ResponseServiceJson();
                 errorResponse.setRespCode("404");
                 errorResponse.setMessage("No active wallet found for the provided source identifier (phone or client ID)");
-                return errorResponse;
+                return Mono.just(errorResponse);
             }
 
             request.setSrcWalletNumber(normalizedSource[0]);
@@ -470,7 +358,7 @@ public class WalletTransferService {
                     ResponseServiceJson errorResponse = new ResponseServiceJson();
                     errorResponse.setRespCode("404");
                     errorResponse.setMessage("No active wallet found for the provided destination identifier (phone or client ID)");
-                    return errorResponse;
+                    return Mono.just(errorResponse);
                 }
             }
 
@@ -479,15 +367,11 @@ public class WalletTransferService {
                 ResponseServiceJson errorResponse = new ResponseServiceJson();
                 errorResponse.setRespCode("400");
                 errorResponse.setMessage("Destination wallet number or identifier (phone/client ID) is required");
-                return errorResponse;
+                return Mono.just(errorResponse);
             }
 
             log.debug("Final destination wallet: {}", request.getDesWalletNumber());
 
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             if (request.getPin() != null && !request.getPin().isEmpty()) {
                 String encryptedPin = pinEncryptionUtil.encryptPin(request.getPin(), "00100");
                 log.info("PIN encrypted for bank code: {}", "00100");
@@ -501,13 +385,7 @@ public class WalletTransferService {
                 request.setDesBank("00100");
             }
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(walletToWalletEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> log.error("Error calling wallet-to-wallet transfer", error))
                     .onErrorResume(error -> {
                         ResponseServiceJson errorResponse = new ResponseServiceJson();
@@ -515,6 +393,8 @@ public class WalletTransferService {
                         errorResponse.setMessage("Error calling wallet-to-wallet transfer: " + error.getMessage());
                         return Mono.just(errorResponse);
                     })
+                    // Unknown codes fall back to a WALLET_MESSAGES query: keep it off the Netty event loop
+                    .publishOn(Schedulers.boundedElastic())
                     .map(response -> {
                         if (!"000".equals(response.getRespCode())) {
                             String errorMessage = walletCreationService.getErrorMessage(response.getRespCode());
@@ -523,21 +403,19 @@ public class WalletTransferService {
                             }
                         }
                         return response;
-                    })
-                    .block();
+                    });
         } catch (Exception e) {
             log.error("Error calling wallet-to-wallet transfer", e);
             ResponseServiceJson errorResponse = new ResponseServiceJson();
             errorResponse.setRespCode("999");
             errorResponse.setMessage("Error calling wallet-to-wallet transfer: " + e.getMessage());
-            return errorResponse;
+            return Mono.just(errorResponse);
         }
     }
 
-    public ResponseServiceJson transferToAccount(RequestWalletToBankAccount request) {
+    public Mono<ResponseServiceJson> transferToAccount(RequestWalletToBankAccount request) {
         try {
-            String url = walletBackendUrl + walletToAccountEndpoint;
-            log.info("Calling wallet-to-account transfer endpoint at: {}", url);
+            log.info("Calling wallet-to-account transfer endpoint: {}", walletToAccountEndpoint);
 
             // Always set the source bank
             request.setSrcBank("00100");
@@ -549,17 +427,12 @@ public class WalletTransferService {
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
             String[] normalized = normalizeWalletRequest(
@@ -572,7 +445,7 @@ public class WalletTransferService {
                 ResponseServiceJson errorResponse = new ResponseServiceJson();
                 errorResponse.setRespCode("404");
                 errorResponse.setMessage("No active wallet found for the provided phone number");
-                return errorResponse;
+                return Mono.just(errorResponse);
             }
 
             request.setWalletNumber(normalized[0]);
@@ -580,10 +453,6 @@ public class WalletTransferService {
 
             log.debug("Normalized request - Wallet: {}, Source: {}",
                     request.getWalletNumber(), request.getSource());
-            // Reuse the token generation from WalletCreationService
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
 
             log.debug("Request body before PIN encryption: {}", request);
 
@@ -596,13 +465,7 @@ public class WalletTransferService {
             request.setBankDes("00100");
             log.debug("Final request body: {}", request);
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(walletToAccountEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> log.error("Error calling wallet-to-account transfer", error))
                     .onErrorResume(error -> {
                         ResponseServiceJson errorResponse = new ResponseServiceJson();
@@ -610,6 +473,8 @@ public class WalletTransferService {
                         errorResponse.setMessage("Error calling wallet-to-account transfer: " + error.getMessage());
                         return Mono.just(errorResponse);
                     })
+                    // Unknown codes fall back to a WALLET_MESSAGES query: keep it off the Netty event loop
+                    .publishOn(Schedulers.boundedElastic())
                     .map(response -> {
                         if (!"000".equals(response.getRespCode())) {
                             String errorMessage = walletCreationService.getErrorMessage(response.getRespCode());
@@ -618,35 +483,28 @@ public class WalletTransferService {
                             }
                         }
                         return response;
-                    })
-                    .block();
+                    });
         } catch (Exception e) {
             log.error("Error calling wallet-to-account transfer", e);
             ResponseServiceJson errorResponse = new ResponseServiceJson();
             errorResponse.setRespCode("999");
             errorResponse.setMessage("Error calling wallet-to-account transfer: " + e.getMessage());
-            return errorResponse;
+            return Mono.just(errorResponse);
         }
     }
 
-    public ResponseServiceJson accountNameEnquiry(RequestWalletToBankAccountNE request) {
+    public Mono<ResponseServiceJson> accountNameEnquiry(RequestWalletToBankAccountNE request) {
         try {
-            String url = walletBackendUrl + walletToAccountNeEndpoint;
-            log.info("Calling account name enquiry endpoint at: {}", url);
+            log.info("Calling account name enquiry endpoint: {}", walletToAccountNeEndpoint);
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
             }
 
 
@@ -660,7 +518,7 @@ public class WalletTransferService {
                 ResponseServiceJson errorResponse = new ResponseServiceJson();
                 errorResponse.setRespCode("404");
                 errorResponse.setMessage("No active wallet found for the provided phone number");
-                return errorResponse;
+                return Mono.just(errorResponse);
             }
 
             request.setWalletNumber(normalized[0]);
@@ -675,20 +533,9 @@ public class WalletTransferService {
             }
             request.setDesBank("00100");
 
-            // Reuse the token generation from WalletCreationService
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars) : {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
-
             log.debug("Request body : {}", request);
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(walletToAccountNeEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> log.error("Error calling account name enquiry", error))
                     .onErrorResume(error -> {
                         ResponseServiceJson errorResponse = new ResponseServiceJson();
@@ -696,6 +543,8 @@ public class WalletTransferService {
                         errorResponse.setMessage("Error calling account name enquiry: " + error.getMessage());
                         return Mono.just(errorResponse);
                     })
+                    // Unknown codes fall back to a WALLET_MESSAGES query: keep it off the Netty event loop
+                    .publishOn(Schedulers.boundedElastic())
                     .map(response -> {
                         if (!"000".equals(response.getRespCode())) {
                             String errorMessage = walletCreationService.getErrorMessage(response.getRespCode());
@@ -704,36 +553,29 @@ public class WalletTransferService {
                             }
                         }
                         return response;
-                    })
-                    .block();
+                    });
         } catch (Exception e) {
             log.error("Error calling account name enquiry", e);
             ResponseServiceJson errorResponse = new ResponseServiceJson();
             errorResponse.setRespCode("999");
             errorResponse.setMessage("Error calling account name enquiry: " + e.getMessage());
-            return errorResponse;
+            return Mono.just(errorResponse);
         }
     }
 
-    public ResponseServiceJson accountToWallet(AccountToWalletRequest request) {
+    public Mono<ResponseServiceJson> accountToWallet(AccountToWalletRequest request) {
         try {
-            String url = walletBackendUrl + accountToWalletEndpoint;
-            log.info("Calling account-to-wallet transfer endpoint at: {}", url);
+            log.info("Calling account-to-wallet transfer endpoint: {}", accountToWalletEndpoint);
 
             // Generate requestId if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             // Generate requestDate if not provided
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -748,7 +590,7 @@ public class WalletTransferService {
                 ResponseServiceJson errorResponse = new ResponseServiceJson();
                 errorResponse.setRespCode("404");
                 errorResponse.setMessage("No active wallet found for the provided phone number");
-                return errorResponse;
+                return Mono.just(errorResponse);
             }
 
             request.setWalletNumber(normalized[0]);
@@ -771,20 +613,10 @@ public class WalletTransferService {
                 log.info("PIN encrypted for bank code: {}", "00100");
                 request.setPin(encryptedPin);
             }
-            // Get authentication token
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
 
             log.debug("Final request body: {}", request);
 
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(accountToWalletEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> log.error("Error calling account-to-wallet transfer", error))
                     .onErrorResume(error -> {
                         ResponseServiceJson errorResponse = new ResponseServiceJson();
@@ -792,6 +624,8 @@ public class WalletTransferService {
                         errorResponse.setMessage("Error calling account-to-wallet transfer: " + error.getMessage());
                         return Mono.just(errorResponse);
                     })
+                    // Unknown codes fall back to a WALLET_MESSAGES query: keep it off the Netty event loop
+                    .publishOn(Schedulers.boundedElastic())
                     .map(response -> {
                         if (!"000".equals(response.getRespCode())) {
                             String errorMessage = walletCreationService.getErrorMessage(response.getRespCode());
@@ -800,35 +634,28 @@ public class WalletTransferService {
                             }
                         }
                         return response;
-                    })
-                    .block();
+                    });
         } catch (Exception e) {
             log.error("Error calling account-to-wallet transfer", e);
             ResponseServiceJson errorResponse = new ResponseServiceJson();
             errorResponse.setRespCode("999");
             errorResponse.setMessage("Error calling account-to-wallet transfer: " + e.getMessage());
-            return errorResponse;
+            return Mono.just(errorResponse);
         }
     }
 
-    public ResponseService transferToMobileMoney(RequestWalletToMB request) {
+    public Mono<ResponseService> transferToMobileMoney(RequestWalletToMB request) {
         try {
-            String url = walletBackendUrl + "/WalletToMobileMoney";
-            log.info("Calling mobile money transfer endpoint at: {}", url);
+            log.info("Calling mobile money transfer endpoint: {}", "/WalletToMobileMoney");
 
             // Add requestId and requestDate if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -842,7 +669,7 @@ public class WalletTransferService {
                 ResponseService errorResponse = new ResponseService();
                 errorResponse.setRespCode("404");
                 errorResponse.setMessage("No active wallet found for the provided phone number");
-                return errorResponse;
+                return Mono.just(errorResponse);
             }
 
             request.setWalletNumber(normalized[0]);
@@ -850,10 +677,6 @@ public class WalletTransferService {
 
             log.debug("Normalized request - Wallet: {}, Source: {}",
                     request.getWalletNumber(), request.getSource());
-            // Get token from token service
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
 
             if (request.getPin() != null && !request.getPin().isEmpty()) {
                 String encryptedPin = pinEncryptionUtil.encryptPin(request.getPin(), "00100");
@@ -865,13 +688,7 @@ public class WalletTransferService {
 
 
             // Make the API call
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseService.class)
+            return walletBackendGateway.post("/WalletToMobileMoney", request, ResponseService.class)
                     .doOnError(error -> log.error("Error calling wallet backend for mobile money transfer", error))
                     .onErrorResume(error -> {
                         ResponseService errorResponse = new ResponseService();
@@ -879,33 +696,27 @@ public class WalletTransferService {
                         errorResponse.setRespCode("999");
                         errorResponse.setMessage("Error calling wallet backend: " + error.getMessage());
                         return Mono.just(errorResponse);
-                    })
-                    .block();
+                    });
         } catch (Exception e) {
             log.error("Error calling wallet backend for mobile money transfer", e);
             ResponseService errorResponse = new ResponseService();
             errorResponse.setStatus("NOK");
             errorResponse.setRespCode("999");
             errorResponse.setMessage("Error calling wallet backend: " + e.getMessage());
-            return errorResponse;
+            return Mono.just(errorResponse);
         }
     }
 
-    public ResponseServiceJson mobileMoneyNameEnquiry(RequestWalletToMobileMoneyNE request) {
+    public Mono<ResponseServiceJson> mobileMoneyNameEnquiry(RequestWalletToMobileMoneyNE request) {
         try {
             // Generate necessary fields if not provided
             if (request.getRequestId() == null || request.getRequestId().isEmpty()) {
-                SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-                String datePrefix = idFormat.format(new Date());
-                Random random = new Random();
-                String randomDigits = String.format("%06d", random.nextInt(1000000));
-                request.setRequestId(datePrefix + randomDigits);
+                request.setRequestId(requestIdGenerator.nextRequestId());
                 log.debug("Generated requestId: {}", request.getRequestId());
             }
 
             if (request.getRequestDate() == null || request.getRequestDate().isEmpty()) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                request.setRequestDate(dateFormat.format(new Date()));
+                request.setRequestDate(requestIdGenerator.currentTimestamp());
                 log.debug("Generated requestDate: {}", request.getRequestDate());
             }
 
@@ -914,37 +725,27 @@ public class WalletTransferService {
                 request.setBank("00100");
             }
 
-            String url = walletBackendUrl + mobileMoneyNeEndpoint;
-            log.info("Calling mobile money name enquiry endpoint at: {}", url);
-
-            // Get service account token
-            String token = walletCreationService.getServiceAccountToken();
-            log.debug("Using token (first 10 chars): {}",
-                    token.length() > 10 ? token.substring(0, 10) + "..." : token);
+            log.info("Calling mobile money name enquiry endpoint: {}", mobileMoneyNeEndpoint);
 
             log.debug("Request body: {}", request);
 
             // Make the API call
-            ResponseServiceJson response = webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .header("Authorization", token)
-                    .retrieve()
-                    .bodyToMono(ResponseServiceJson.class)
+            return walletBackendGateway.post(mobileMoneyNeEndpoint, request, ResponseServiceJson.class)
                     .doOnError(error -> log.error("Error calling wallet backend", error))
-                    .block();
-
-            log.info("Mobile money name enquiry completed with response code: {}",
-                    response != null ? response.getRespCode() : "null");
-
-            return response;
+                    .onErrorResume(error -> {
+                        ResponseServiceJson errorResponse = new ResponseServiceJson();
+                        errorResponse.setRespCode("999");
+                        errorResponse.setMessage("Error calling wallet backend: " + error.getMessage());
+                        return Mono.just(errorResponse);
+                    })
+                    .doOnNext(response -> log.info("Mobile money name enquiry completed with response code: {}",
+                            response.getRespCode()));
         } catch (Exception e) {
             log.error("Error calling wallet backend", e);
             ResponseServiceJson errorResponse = new ResponseServiceJson();
             errorResponse.setRespCode("999");
             errorResponse.setMessage("Error calling wallet backend: " + e.getMessage());
-            return errorResponse;
+            return Mono.just(errorResponse);
         }
     }
 
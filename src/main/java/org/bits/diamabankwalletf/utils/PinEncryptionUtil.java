@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.binary.Base64;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
@@ -25,7 +26,9 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.KeySpec;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Component
@@ -78,13 +81,15 @@ public class PinEncryptionUtil {
     }
 
     /**
-     * Get encryption keys for a specific bank
+     * Get encryption keys for a specific bank. The PBKDF2-derived AES key is computed once
+     * when the keys are loaded, so encryptPin only pays for the GCM cipher itself.
      */
     private BankEncryptionKeys getBankKeys(String bankCode) {
-        log.info("Bank code: {}", bankCode);
+        log.debug("Bank code: {}", bankCode);
         // Check cache first
-        if (bankKeysMap.containsKey(bankCode)) {
-            return bankKeysMap.get(bankCode);
+        BankEncryptionKeys cached = bankKeysMap.get(bankCode);
+        if (cached != null) {
+            return cached;
         }
 
         try {
@@ -98,8 +103,9 @@ public class PinEncryptionUtil {
                     // Decrypt using 3DES, exactly like the server
                     String secretKey = decrypt3DES(encryptedSecretKey);
                     String iv = decrypt3DES(encryptedIv);
+                    SecretKey aesKey = getAESKeyFromPassword(secretKey.toCharArray(), iv.getBytes());
 
-                    return new BankEncryptionKeys(secretKey, iv);
+                    return new BankEncryptionKeys(secretKey, iv, aesKey, encryptedSecretKey, encryptedIv);
                 } catch (Exception e) {
                     log.error("Error decrypting keys for bank: {}", bankCode, e);
                     throw new RuntimeException("Error decrypting keys", e);
@@ -118,6 +124,36 @@ public class PinEncryptionUtil {
         }
     }
 
+    /**
+     * Drop cached keys whose KEYS_MANAGEMENT row was rotated or removed. Only the stored
+     * (3DES-encrypted) column values are compared, so the check never re-runs PBKDF2.
+     */
+    @Scheduled(fixedDelayString = "${pin.encryption.key-check-interval-ms:300000}",
+            initialDelayString = "${pin.encryption.key-check-interval-ms:300000}")
+    public void evictRotatedKeys() {
+        for (Map.Entry<String, BankEncryptionKeys> entry : bankKeysMap.entrySet()) {
+            String bankCode = entry.getKey();
+            BankEncryptionKeys cached = entry.getValue();
+            try {
+                List<String[]> rows = jdbcTemplate.query(
+                        "SELECT SECRET_KEY, VI FROM KEYS_MANAGEMENT WHERE BANK_CODE = ?",
+                        (rs, rowNum) -> new String[]{rs.getString("SECRET_KEY"), rs.getString("VI")},
+                        bankCode);
+
+                if (rows.isEmpty() || !cached.matchesStoredValues(rows.get(0)[0], rows.get(0)[1])) {
+                    bankKeysMap.remove(bankCode, cached);
+                    log.info("Encryption keys changed for bank {}, cached AES key evicted", bankCode);
+                }
+            } catch (Exception e) {
+                log.warn("Could not verify encryption keys for bank {}: {}", bankCode, e.getMessage());
+            }
+        }
+    }
+
+    public void evictBankKeys(String bankCode) {
+        bankKeysMap.remove(bankCode);
+    }
+
     /**
      * Decrypt using 3DES - exactly matches server implementation
      */
@@ -162,10 +198,17 @@ public class PinEncryptionUtil {
     private static class BankEncryptionKeys {
         private final String secretKey;
         private final String iv;
+        private final SecretKey aesKey;
+        private final String storedSecretKey;
+        private final String storedIv;
 
-        public BankEncryptionKeys(String secretKey, String iv) {
+        public BankEncryptionKeys(String secretKey, String iv, SecretKey aesKey,
+                                  String storedSecretKey, String storedIv) {
             this.secretKey = secretKey;
             this.iv = iv;
+            this.aesKey = aesKey;
+            this.storedSecretKey = storedSecretKey;
+            this.storedIv = storedIv;
         }
 
         public String getSecretKey() {
@@ -175,6 +218,15 @@ public class PinEncryptionUtil {
         public String getIv() {
             return iv;
         }
+
+        public SecretKey getAesKey() {
+            return aesKey;
+        }
+
+        public boolean matchesStoredValues(String storedSecretKey, String storedIv) {
+            return Objects.equals(this.storedSecretKey, storedSecretKey)
+                    && Objects.equals(this.storedIv, storedIv);
+        }
     }
 
     /**
@@ -274,13 +326,12 @@ public class PinEncryptionUtil {
         try {
             // Get the bank's encryption keys
             BankEncryptionKeys keys = getBankKeys(bankCode);
-            String key = keys.getSecretKey();
             String vi = keys.getIv();
 
             log.debug("Encrypting PIN for bank: {}", bankCode);
 
-            // Generate the AES key from password
-            SecretKey secretKey = getAESKeyFromPassword(key.toCharArray(), vi.getBytes());
+            // AES key is derived from the bank password once, when the keys are cached
+            SecretKey secretKey = keys.getAesKey();
 
             // Use VI bytes for the IV
             byte[] iv = vi.getBytes(StandardCharsets.UTF_8);
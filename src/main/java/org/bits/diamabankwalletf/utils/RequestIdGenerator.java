@@ -0,0 +1,150 @@
+package org.bits.diamabankwalletf.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request IDs and timestamps sent to the wallet backend.
+ *
+ * <p>IDs keep the backend's numeric yyMMdd layout: the date, the node digits, then a sequence
+ * filling the remaining width (yyMMdd + 1 node digit + 7 sequence digits by default, i.e. ten
+ * million IDs per node and per day; request-id.length=12 restores the legacy 12-digit width with
+ * 100 000 IDs per day). The sequence never goes below the share of the day already elapsed, so a
+ * restarted node does not reissue IDs as long as it averages fewer requests than its daily
+ * capacity; a burst above that moves it ahead of the clock. A node that runs out of sequence
+ * numbers for the day refuses to issue more rather than reuse an ID or put the wrong date in it.
+ * IDs are unique per node and increasing, and a single compare-and-set replaces the per-call
+ * Random and SimpleDateFormat instances.
+ *
+ * <p>Nodes only differ by request-id.node-id, so it must be set explicitly as soon as any store
+ * is shared between nodes (job leases, pending registrations, idempotency keys or OTP state);
+ * startup fails otherwise.
+ */
+@Slf4j
+@Component
+public class RequestIdGenerator {
+
+    private static final DateTimeFormatter ID_DATE_FORMAT = DateTimeFormatter.ofPattern("yyMMdd");
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int DATE_DIGITS = 6;
+    private static final int DAY_SHIFT = 40;
+    private static final long SEQUENCE_MASK = (1L << DAY_SHIFT) - 1;
+
+    private final Layout layout;
+    private final AtomicLong lastIssued = new AtomicLong();
+    private volatile Day currentDay;
+
+    public RequestIdGenerator(@Value("${request-id.node-id:}") String nodeId,
+                              @Value("${request-id.node-digits:1}") int nodeDigits,
+                              @Value("${request-id.length:14}") int length,
+                              @Value("${jobs.lease-store:local}") String jobLeaseStore,
+                              @Value("${registration.pending.store:local}") String pendingRegistrationStore,
+                              @Value("${idempotency.store:memory}") String idempotencyStore,
+                              @Value("${otp.store.type:memory}") String otpStore) {
+        int sequenceDigits = length - DATE_DIGITS - nodeDigits;
+        if (nodeDigits < 1 || sequenceDigits < 4 || sequenceDigits > 9) {
+            throw new IllegalArgumentException("request-id.length " + length + " leaves " + sequenceDigits
+                    + " sequence digits after " + nodeDigits + " node digits");
+        }
+        String node = nodeId.trim();
+        if (node.isEmpty()) {
+            if (!"local".equals(jobLeaseStore) || !"local".equals(pendingRegistrationStore)
+                    || !"memory".equals(idempotencyStore) || !"memory".equals(otpStore)) {
+                throw new IllegalStateException("request-id.node-id must be set on each node: jobs.lease-store="
+                        + jobLeaseStore + ", registration.pending.store=" + pendingRegistrationStore
+                        + ", idempotency.store=" + idempotencyStore + " and otp.store.type=" + otpStore
+                        + " mean several nodes share the backend, and they would issue the same request IDs");
+            }
+            node = "0";
+        }
+        if (!node.chars().allMatch(Character::isDigit) || node.length() > nodeDigits) {
+            throw new IllegalArgumentException("request-id.node-id " + node + " does not fit in " + nodeDigits + " digits");
+        }
+        this.layout = new Layout("0".repeat(nodeDigits - node.length()) + node, sequenceDigits);
+        log.info("Request IDs: node {}, {} sequence digits ({} per day)", layout.node(), sequenceDigits, layout.capacity());
+    }
+
+    /**
+     * Next request ID for this node, e.g. 25061801234567.
+     */
+    public String nextRequestId() {
+        long now = System.currentTimeMillis();
+        Day today = dayOf(now);
+        long todayFloor = (now - today.startMillis()) * layout.capacity() / (today.endMillis() - today.startMillis());
+
+        while (true) {
+            long last = lastIssued.get();
+            long lastDay = last >>> DAY_SHIFT;
+            Day day = today;
+            long floor = todayFloor;
+            if (lastDay > today.epochDay()) {
+                // Clock stepped back over midnight: stay on the day already issued
+                day = Day.of(LocalDate.ofEpochDay(lastDay));
+                floor = 0;
+            }
+            long sequence = lastDay == day.epochDay() ? Math.max((last & SEQUENCE_MASK) + 1, floor) : floor;
+            if (sequence >= layout.capacity()) {
+                log.error("Request ID sequence exhausted for {} after {} IDs on node {}",
+                        day.prefix(), layout.capacity(), layout.node());
+                throw new IllegalStateException("Request ID sequence exhausted for " + day.prefix()
+                        + "; raise request-id.length");
+            }
+            if (lastIssued.compareAndSet(last, (day.epochDay() << DAY_SHIFT) | sequence)) {
+                return format(day.prefix(), layout, sequence);
+            }
+        }
+    }
+
+    /**
+     * Current time in the backend's yyyy-MM-dd HH:mm:ss request date format.
+     */
+    public String currentTimestamp() {
+        return LocalDateTime.now().format(TIMESTAMP_FORMAT);
+    }
+
+    private static String format(String prefix, Layout layout, long sequence) {
+        String digits = Long.toString(sequence);
+        StringBuilder id = new StringBuilder(DATE_DIGITS + layout.node().length() + layout.sequenceDigits())
+                .append(prefix)
+                .append(layout.node());
+        for (int i = digits.length(); i < layout.sequenceDigits(); i++) {
+            id.append('0');
+        }
+        return id.append(digits).toString();
+    }
+
+    private Day dayOf(long now) {
+        Day day = currentDay;
+        if (day == null || now < day.startMillis() || now >= day.endMillis()) {
+            day = Day.of(Instant.ofEpochMilli(now).atZone(ZoneId.systemDefault()).toLocalDate());
+            currentDay = day;
+        }
+        return day;
+    }
+
+    private record Layout(String node, int sequenceDigits, long capacity) {
+
+        Layout(String node, int sequenceDigits) {
+            this(node, sequenceDigits, (long) Math.pow(10, sequenceDigits));
+        }
+    }
+
+    private record Day(long epochDay, long startMillis, long endMillis, String prefix) {
+
+        static Day of(LocalDate date) {
+            ZoneId zone = ZoneId.systemDefault();
+            return new Day(date.toEpochDay(),
+                    date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli(),
+                    date.format(ID_DATE_FORMAT));
+        }
+    }
+}
@@ -4,10 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import java.security.SecureRandom;
 import java.security.MessageDigest;
-import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
-import java.util.Date;
-import java.util.Random;
 import java.util.UUID;
 
 @Slf4j
@@ -140,18 +137,5 @@ public class SecurityUtils {
         return !allSame;
     }
 
-    public static String generateRequestId() {
-        SimpleDateFormat idFormat = new SimpleDateFormat("yyMMdd");
-        String datePrefix = idFormat.format(new Date());
-        int randomNum = new Random().nextInt(1_000_000); // 6 digits
-        String randomDigits = String.format("%06d", randomNum);
-        return datePrefix + randomDigits;
-    }
-
-    public static String getCurrentTimestamp() {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        return dateFormat.format(new Date());
-    }
-
 
 }
@@ -0,0 +1,69 @@
+package org.bits.diamabankwalletf.controller;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WalletControllerOffloadTest {
+
+    @Test
+    void callIsAssembledOffTheSubscribingThread() {
+        AtomicReference<Thread> assembledOn = new AtomicReference<>();
+
+        String result = WalletController.offServletThread(() -> {
+            assembledOn.set(Thread.currentThread());
+            return Mono.just("000");
+        }).block();
+
+        assertEquals("000", result);
+        assertNotEquals(Thread.currentThread(), assembledOn.get());
+        assertTrue(assembledOn.get().getName().startsWith("boundedElastic"), assembledOn.get().getName());
+    }
+
+    @Test
+    void blockingSetupDoesNotHoldTheCallerThreads() throws Exception {
+        // Two "servlet" threads hand out eight calls whose setup blocks until released
+        int calls = 8;
+        ExecutorService servletThreads = Executors.newFixedThreadPool(2);
+        CountDownLatch setupsRunning = new CountDownLatch(calls);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch answered = new CountDownLatch(calls);
+        try {
+            List<Mono<String>> pending = new ArrayList<>();
+            for (int i = 0; i < calls; i++) {
+                pending.add(WalletController.offServletThread(() -> {
+                    setupsRunning.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return Mono.just("000");
+                }));
+            }
+            for (Mono<String> call : pending) {
+                servletThreads.submit(() -> call.subscribe(response -> answered.countDown()));
+            }
+
+            // All setups block at once, which two caller threads could never do themselves
+            assertTrue(setupsRunning.await(10, TimeUnit.SECONDS));
+            assertEquals(calls, answered.getCount());
+            release.countDown();
+            assertTrue(answered.await(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            servletThreads.shutdownNow();
+        }
+    }
+}
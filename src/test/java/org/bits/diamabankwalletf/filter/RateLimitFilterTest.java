@@ -0,0 +1,110 @@
+package org.bits.diamabankwalletf.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitFilterTest {
+
+    private static final List<String> PROXIES = List.of("10.0.0.1", "10.0.0.2");
+
+    @Test
+    void forwardedForIsIgnoredFromAnUntrustedAddress() throws Exception {
+        RateLimitFilter filter = oneLoginPerIp();
+
+        assertEquals(200, login(filter, "203.0.113.5", "198.51.100.1").getStatus());
+        // A new forged header does not buy a new bucket
+        assertEquals(429, login(filter, "203.0.113.5", "198.51.100.2").getStatus());
+        assertEquals(200, login(filter, "203.0.113.6", null).getStatus());
+    }
+
+    @Test
+    void trustedProxiesAreWalkedBackToTheFirstUntrustedHop() throws Exception {
+        RateLimitFilter filter = oneLoginPerIp();
+
+        assertEquals(200, login(filter, "10.0.0.1", "6.6.6.6, 198.51.100.7, 10.0.0.2").getStatus());
+        // Same client through the other proxy, with a different forged entry on the left
+        assertEquals(429, login(filter, "10.0.0.2", "7.7.7.7,198.51.100.7").getStatus());
+        assertEquals(200, login(filter, "10.0.0.1", "198.51.100.8").getStatus());
+    }
+
+    @Test
+    void onlyTrustedHopsFallBackToTheRemoteAddress() throws Exception {
+        RateLimitFilter filter = oneLoginPerIp();
+
+        assertEquals(200, login(filter, "10.0.0.1", "10.0.0.2, ").getStatus());
+        assertEquals(429, login(filter, "10.0.0.1", null).getStatus());
+        // The proxy's own bucket is not the one of the clients behind it
+        assertEquals(200, login(filter, "10.0.0.1", "198.51.100.9").getStatus());
+    }
+
+    @Test
+    void rejectionTellsWhenToRetry() throws Exception {
+        // 2 per 10 minutes: one token every 5 minutes
+        RateLimitFilter filter = filter(new MockEnvironment()
+                .withProperty("rate-limit.rules.login-phone.paths[0]", "/api/auth/login")
+                .withProperty("rate-limit.rules.login-phone.key", "PHONE")
+                .withProperty("rate-limit.rules.login-phone.capacity", "2")
+                .withProperty("rate-limit.rules.login-phone.period", "10m"));
+
+        assertEquals(200, login(filter, "203.0.113.5", null, "{\"phoneNumber\":\"221770000000\"}").getStatus());
+        assertEquals(200, login(filter, "203.0.113.6", null, "{\"phoneNumber\":\"221770000000\"}").getStatus());
+        // A number is the same phone as its text
+        MockHttpServletResponse rejected = login(filter, "203.0.113.7", null, "{\"phoneNumber\":221770000000}");
+
+        assertEquals(429, rejected.getStatus());
+        assertEquals("300", rejected.getHeader("Retry-After"));
+        String body = rejected.getContentAsString();
+        assertTrue(body.contains("\"respCode\":\"RATE_LIMIT_EXCEEDED\""), body);
+        assertEquals(200, login(filter, "203.0.113.5", null, "{\"phoneNumber\":\"221770000001\"}").getStatus());
+    }
+
+    private static RateLimitFilter oneLoginPerIp() {
+        return filter(new MockEnvironment()
+                .withProperty("rate-limit.rules.login-ip.paths[0]", "/api/auth/login")
+                .withProperty("rate-limit.rules.login-ip.key", "IP")
+                .withProperty("rate-limit.rules.login-ip.capacity", "1")
+                .withProperty("rate-limit.rules.login-ip.period", "1m"));
+    }
+
+    private static RateLimitFilter filter(MockEnvironment environment) {
+        return new RateLimitFilter(new ObjectMapper(), new SimpleMeterRegistry(), environment, true, 1_000, PROXIES);
+    }
+
+    private static MockHttpServletResponse login(RateLimitFilter filter, String remoteAddr, String forwardedFor)
+            throws Exception {
+        return login(filter, remoteAddr, forwardedFor, "{}");
+    }
+
+    private static MockHttpServletResponse login(RateLimitFilter filter, String remoteAddr, String forwardedFor,
+                                                 String body) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        if (response.getStatus() == 429) {
+            assertNull(chain.getRequest(), "rejected request reached the chain");
+        }
+        return response;
+    }
+}
@@ -0,0 +1,71 @@
+package org.bits.diamabankwalletf.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    // System.nanoTime() may be negative: start there
+    private static final long START = -5_000 * SECOND;
+
+    @Test
+    void allowsABurstOfCapacityThenWaitsOneInterval() {
+        // 5 per 10 s: one token every 2 s
+        TokenBucket bucket = new TokenBucket(5, 10 * SECOND);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(START));
+        }
+        assertEquals(2 * SECOND, bucket.tryAcquire(START));
+        // A refused request takes nothing: the wait only shrinks with time
+        assertEquals(2 * SECOND, bucket.tryAcquire(START));
+        assertEquals(SECOND / 2, bucket.tryAcquire(START + 3 * SECOND / 2));
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        TokenBucket bucket = new TokenBucket(5, 10 * SECOND);
+        for (int i = 0; i < 5; i++) {
+            bucket.tryAcquire(START);
+        }
+
+        // Half the period refills two and a half tokens: two requests pass
+        long later = START + 5 * SECOND;
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(SECOND, bucket.tryAcquire(later));
+
+        assertEquals(0, bucket.tryAcquire(later + SECOND));
+        assertEquals(2 * SECOND, bucket.tryAcquire(later + SECOND));
+    }
+
+    @Test
+    void idleBucketIsFullAfterOnePeriodAndNeverFuller() {
+        TokenBucket bucket = new TokenBucket(5, 10 * SECOND);
+        for (int i = 0; i < 5; i++) {
+            bucket.tryAcquire(START);
+        }
+
+        // Idle for ten periods: still only capacity requests at once
+        long later = START + 100 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(later));
+        }
+        assertEquals(2 * SECOND, bucket.tryAcquire(later));
+    }
+
+    @Test
+    void capacityOfOneWaitsAFullPeriod() {
+        TokenBucket bucket = new TokenBucket(1, TimeUnit.MINUTES.toNanos(15));
+
+        assertEquals(0, bucket.tryAcquire(START));
+        assertEquals(TimeUnit.MINUTES.toNanos(15), bucket.tryAcquire(START));
+        assertEquals(TimeUnit.MINUTES.toNanos(5), bucket.tryAcquire(START + TimeUnit.MINUTES.toNanos(10)));
+        assertEquals(0, bucket.tryAcquire(START + TimeUnit.MINUTES.toNanos(15)));
+    }
+}
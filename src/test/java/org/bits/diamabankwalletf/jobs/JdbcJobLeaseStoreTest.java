@@ -0,0 +1,77 @@
+package org.bits.diamabankwalletf.jobs;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@JdbcTest
+class JdbcJobLeaseStoreTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcJobLeaseStore store;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE WALLET_JOB_LEASES (LEASE_NAME VARCHAR(100) PRIMARY KEY, "
+                + "OWNER VARCHAR(100) NOT NULL, LEASED_UNTIL BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE WALLET_JOB_NODES (NODE_ID VARCHAR(100) PRIMARY KEY, LAST_SEEN BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE WALLET_JOB_RUNS (JOB_NAME VARCHAR(100) NOT NULL, NODE_ID VARCHAR(100) NOT NULL, "
+                + "STARTED_AT BIGINT NOT NULL, DURATION_MS BIGINT NOT NULL, OUTCOME VARCHAR(20) NOT NULL, "
+                + "ERROR_MESSAGE VARCHAR(500))");
+        store = new JdbcJobLeaseStore(jdbcTemplate, 30);
+    }
+
+    @Test
+    void onlyOneNodeHoldsALease() {
+        assertTrue(store.tryAcquire("job#0", "node-a", 1_000, 5_000));
+        assertFalse(store.tryAcquire("job#0", "node-b", 2_000, 6_000));
+        assertTrue(store.tryAcquire("job#1", "node-b", 2_000, 6_000));
+    }
+
+    @Test
+    void expiredLeaseIsTakenOver() {
+        assertTrue(store.tryAcquire("job", "node-a", 1_000, 5_000));
+        assertTrue(store.tryAcquire("job", "node-b", 5_000, 9_000));
+        assertFalse(store.tryAcquire("job", "node-a", 6_000, 10_000));
+    }
+
+    @Test
+    void renewAndReleaseOnlyTouchOwnLeases() {
+        store.tryAcquire("job", "node-a", 1_000, 5_000);
+        store.renew(List.of("job"), "node-b", 50_000);
+        assertTrue(store.tryAcquire("job", "node-b", 5_000, 9_000));
+
+        store.release("job", "node-a", 1_000);
+        assertFalse(store.tryAcquire("job", "node-a", 6_000, 10_000));
+        store.release("job", "node-b", 7_000);
+        assertTrue(store.tryAcquire("job", "node-a", 7_000, 11_000));
+    }
+
+    @Test
+    void liveNodesAndRunHistory() {
+        store.heartbeat("node-b", 10_000);
+        store.heartbeat("node-a", 10_000);
+        store.heartbeat("node-c", 1_000);
+        store.heartbeat("node-c", 2_000);
+        assertEquals(List.of("node-a", "node-b"), store.liveNodes(5_000));
+
+        store.recordRun(new JobRun("job#0", "node-a", 1_000, 12, "SUCCEEDED", null));
+        store.recordRun(new JobRun("job#1", "node-b", 2_000, 30, "FAILED", "boom"));
+        List<JobRun> runs = store.recentRuns(10);
+        assertEquals(2, runs.size());
+        assertEquals("job#1", runs.get(0).job());
+        assertEquals("boom", runs.get(0).error());
+        assertNull(runs.get(1).error());
+    }
+}
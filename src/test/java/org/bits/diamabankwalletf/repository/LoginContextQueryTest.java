@@ -0,0 +1,152 @@
+package org.bits.diamabankwalletf.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.bits.diamabankwalletf.dto.LoginContext;
+import org.bits.diamabankwalletf.model.Customer;
+import org.bits.diamabankwalletf.model.Device;
+import org.bits.diamabankwalletf.model.Wallet;
+import org.bits.diamabankwalletf.service.WalletAuthService;
+import org.bits.diamabankwalletf.service.WalletPrincipalCache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class LoginContextQueryTest {
+
+    private static final String PHONE = "221770000001";
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private WalletAuthService walletAuthService;
+
+    @BeforeEach
+    void setUp() {
+        Wallet wallet = new Wallet();
+        wallet.setWalletNumber("W0001");
+        wallet.setSupplementaryData1("-");
+        wallet.setBankCode("00100");
+        wallet.setClientCode("CLNT0001");
+        wallet.setPhoneNumber(PHONE);
+        wallet.setStatusWallet("L");
+        entityManager.persist(wallet);
+
+        Customer customer = new Customer();
+        customer.setCustomerId("C0001");
+        customer.setPhoneNumber(PHONE);
+        customer.setBlockAccess("N");
+        entityManager.persist(customer);
+
+        entityManager.persist(new Device("device-1", PHONE));
+        entityManager.persist(new Device("device-2", PHONE));
+        entityManager.persist(new Device("device-3", "221770000002"));
+
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // PIN checks and PIN expiry run no SQL; only the login state and its updates do
+        walletAuthService = new WalletAuthService(walletRepository, customerRepository, null, null,
+                new WalletPrincipalCache(walletRepository, new SimpleMeterRegistry(), 100, 60));
+    }
+
+    @Test
+    void loginStateIsReadWithOneQuery() {
+        List<LoginContext> rows = walletRepository.findLoginContexts(PHONE, "device-2");
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, rows.size());
+        LoginContext context = rows.get(0);
+        assertEquals("W0001", context.getWallet().getWalletNumber());
+        assertNotNull(context.getCustomer());
+        assertEquals("device-2", context.getRegisteredDeviceId());
+        assertTrue(context.isBlocked());
+        assertFalse(context.isCancelled());
+    }
+
+    @Test
+    void deviceIsOnlyFoundWhenRegisteredToThePhone() {
+        // One row whatever the number of devices registered to the phone
+        List<LoginContext> unknown = walletRepository.findLoginContexts(PHONE, "device-9");
+        List<LoginContext> otherPhone = walletRepository.findLoginContexts(PHONE, "device-3");
+        List<LoginContext> noDevice = walletRepository.findLoginContexts(PHONE, null);
+
+        for (List<LoginContext> rows : List.of(unknown, otherPhone, noDevice)) {
+            assertEquals(1, rows.size());
+            assertNull(rows.get(0).getRegisteredDeviceId());
+        }
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void duplicateCustomerRowsComeInCustomerIdOrder() {
+        Customer duplicate = new Customer();
+        duplicate.setCustomerId("C0000");
+        duplicate.setPhoneNumber(PHONE);
+        duplicate.setBlockAccess("Y");
+        entityManager.persist(duplicate);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<LoginContext> rows = walletRepository.findLoginContexts(PHONE, "device-1");
+
+        assertEquals(List.of("C0000", "C0001"), rows.stream().map(row -> row.getCustomer().getCustomerId()).toList());
+        assertEquals("C0000", walletAuthService.loadLoginContext(PHONE, "device-1").orElseThrow()
+                .getCustomer().getCustomerId());
+    }
+
+    @Test
+    void successfulLoginRunsThreeStatements() {
+        LoginContext context = walletAuthService.loadLoginContext(PHONE, "device-1").orElseThrow();
+        walletAuthService.recordSuccessfulLogin(context);
+        entityManager.flush();
+
+        // The joined read, then one update each for WALLET_DATA and CUSTOMER_DWS
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getEntityUpdateCount());
+    }
+
+    @Test
+    void failedLoginRunsThreeStatements() {
+        LoginContext context = walletAuthService.loadLoginContext(PHONE, "device-1").orElseThrow();
+        walletAuthService.handleFailedLogin(context);
+        entityManager.flush();
+
+        assertEquals(3, statistics.getPrepareStatementCount());
+        entityManager.clear();
+        assertEquals(1, customerRepository.findById("C0001").orElseThrow().getNumberOfTries());
+    }
+
+    @Test
+    void unknownPhoneHasNoLoginState() {
+        assertTrue(walletRepository.findLoginContexts("221779999999", "device-1").isEmpty());
+        assertTrue(walletAuthService.loadLoginContext("221779999999", "device-1").isEmpty());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,258 @@
+package org.bits.diamabankwalletf.service;
+
+import org.bits.diamabankwalletf.model.BranchData;
+import org.bits.diamabankwalletf.repository.BranchDataRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the grid against a brute-force haversine scan of the same points. Which cells a query
+ * walks depends on the cell size and on how many cells are occupied, so the tests pick both to
+ * reach each path: the cell range with and without the longitude wrap, the all-longitudes rows
+ * near the poles, and the walk over occupied cells of a sparse grid.
+ */
+class BranchLocationIndexTest {
+
+    private static final double KM_PER_DEGREE = Math.PI * BranchLocationIndex.EARTH_RADIUS_KM / 180;
+
+    @Test
+    void radiusQueriesMatchBruteForce() {
+        Random random = new Random(42);
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            points.add(new double[]{random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180});
+        }
+        // Clusters across the antimeridian and around both poles
+        for (int i = 0; i < 1_000; i++) {
+            double longitude = 179 + random.nextDouble() * 2;
+            points.add(new double[]{random.nextDouble() * 10 - 5, longitude > 180 ? longitude - 360 : longitude});
+            points.add(new double[]{88 + random.nextDouble() * 2, random.nextDouble() * 360 - 180});
+            points.add(new double[]{-90 + random.nextDouble() * 2, random.nextDouble() * 360 - 180});
+        }
+
+        for (double cellDegrees : new double[]{0.1, 1, 10}) {
+            BranchLocationIndex index = index(cellDegrees, points);
+            for (int q = 0; q < 200; q++) {
+                double latitude;
+                double longitude;
+                switch (q % 4) {
+                    case 0 -> {
+                        latitude = random.nextDouble() * 10 - 5;
+                        longitude = random.nextBoolean() ? 180 - random.nextDouble() : -180 + random.nextDouble();
+                    }
+                    case 1 -> {
+                        latitude = (random.nextBoolean() ? 1 : -1) * (88 + random.nextDouble() * 2);
+                        longitude = random.nextDouble() * 360 - 180;
+                    }
+                    default -> {
+                        latitude = random.nextDouble() * 180 - 90;
+                        longitude = random.nextDouble() * 360 - 180;
+                    }
+                }
+                for (double radiusKm : new double[]{1, 25, 150, 1_000, 12_000}) {
+                    assertSameAsBruteForce(points, index.findNearby(latitude, longitude, radiusKm, null),
+                            latitude, longitude, radiusKm);
+                }
+            }
+        }
+    }
+
+    @Test
+    void cellRangeWrapsAroundTheAntimeridian() {
+        List<double[]> points = filler(1, 60);
+        points.add(new double[]{0, 179.95});
+        points.add(new double[]{0, -179.95});
+        points.add(new double[]{0.05, 180});
+        points.add(new double[]{0, 179.5});
+        BranchLocationIndex index = index(1, points);
+
+        // Two rows of five cells are probed, fewer than the occupied ones: cells 357..359 then 0..1
+        List<BranchLocationIndex.NearbyBranch> east = index.findNearby(0, 179.99, 20.0, null);
+        assertEquals(List.of("P60", "P62", "P61"), ids(east));
+        List<BranchLocationIndex.NearbyBranch> west = index.findNearby(0, -179.99, 20.0, null);
+        assertEquals(List.of("P61", "P62", "P60"), ids(west));
+        assertSameAsBruteForce(points, west, 0, -179.99, 20);
+        assertSameAsBruteForce(points, index.findNearby(0, 179.99, 60.0, null), 0, 179.99, 60);
+    }
+
+    @Test
+    void queriesNearThePoleSearchEveryLongitude() {
+        List<double[]> points = filler(10, 216);
+        points.add(new double[]{89.95, 0});
+        points.add(new double[]{89.95, 90});
+        points.add(new double[]{89.95, 180});
+        points.add(new double[]{89.95, -90});
+        points.add(new double[]{89.5, 45});
+        BranchLocationIndex index = index(10, points);
+
+        // One row of 36 cells is probed, fewer than the 216 occupied ones
+        List<BranchLocationIndex.NearbyBranch> found = index.findNearby(89.99, 45, 20.0, null);
+        assertEquals(4, found.size());
+        assertSameAsBruteForce(points, found, 89.99, 45, 20);
+        assertSameAsBruteForce(points, index.findNearby(-89.99, -135, 500.0, null), -89.99, -135, 500);
+        assertSameAsBruteForce(points, index.findNearby(89.99, -135, 100.0, null), 89.99, -135, 100);
+    }
+
+    @Test
+    void sparseGridWalksTheOccupiedCells() {
+        List<double[]> points = List.of(new double[]{14.69, -17.44}, new double[]{14.70, -17.46},
+                new double[]{12.56, -16.27}, new double[]{-33.9, 18.4});
+        BranchLocationIndex index = index(0.1, points);
+
+        // Four occupied cells, far fewer than any query probes
+        assertEquals(List.of("P0", "P1"), ids(index.findNearby(14.69, -17.44, 5.0, null)));
+        assertEquals(List.of("P0", "P1", "P2"), ids(index.findNearby(14.69, -17.44, 500.0, null)));
+        assertSameAsBruteForce(points, index.findNearby(0, 0, 8_000.0, null), 0, 0, 8_000);
+    }
+
+    @Test
+    void nearestDoublesTheRadiusUntilEnoughPointsAndTruncates() {
+        List<double[]> points = new ArrayList<>();
+        for (double km : new double[]{1, 3, 10, 100, 1_000}) {
+            points.add(new double[]{0, km / KM_PER_DEGREE});
+        }
+        BranchLocationIndex index = index(0.1, points);
+
+        // The first circle (one cell, about 11 km) holds three points; 100 km needs four doublings
+        List<BranchLocationIndex.NearbyBranch> nearest = index.findNearby(0, 0, null, 4);
+        assertEquals(List.of("P0", "P1", "P2", "P3"), ids(nearest));
+        assertEquals(100, nearest.get(3).distanceKm(), 0.01);
+        assertEquals(List.of("P0", "P1"), ids(index.findNearby(0, 0, null, 2)));
+
+        // More than there are: the radius grows to the antipode and every point is returned
+        assertEquals(5, index.findNearby(0, 0, null, 10).size());
+        // A radius bounds the result before the limit truncates it
+        assertEquals(List.of("P0", "P1"), ids(index.findNearby(0, 0, 50.0, 2)));
+        assertEquals(List.of("P0", "P1", "P2"), ids(index.findNearby(0, 0, 50.0, 10)));
+        // No positive limit means no limit
+        assertEquals(5, index.findNearby(0, 0, null, 0).size());
+    }
+
+    @Test
+    void nearestMatchesBruteForce() {
+        Random random = new Random(7);
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            points.add(new double[]{random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180});
+        }
+        BranchLocationIndex index = index(0.1, points);
+
+        for (int q = 0; q < 100; q++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            List<Double> expected = bruteForce(points, latitude, longitude, Double.MAX_VALUE).stream()
+                    .limit(5).toList();
+            List<Double> actual = index.findNearby(latitude, longitude, null, 5).stream()
+                    .map(BranchLocationIndex.NearbyBranch::distanceKm).toList();
+            assertEquals(expected, actual);
+        }
+    }
+
+    /**
+     * Query times of the grid and of a full scan. Run with {@code mvn test -Dbenchmark=true
+     * -Dtest=BranchLocationIndexTest}; points are spread over West Africa like real branches.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {10_000, 100_000})
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark(int size) {
+        Random random = new Random(size);
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            points.add(new double[]{10 + random.nextDouble() * 10, -18 + random.nextDouble() * 10});
+        }
+        BranchLocationIndex index = index(0.1, points);
+        double[][] queries = new double[2_000][];
+        for (int q = 0; q < queries.length; q++) {
+            queries[q] = new double[]{10 + random.nextDouble() * 10, -18 + random.nextDouble() * 10};
+        }
+
+        long found = 0;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (double[] query : queries) {
+                found += index.findNearby(query[0], query[1], 5.0, null).size();
+            }
+            long radius = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (double[] query : queries) {
+                found += index.findNearby(query[0], query[1], null, 10).size();
+            }
+            long nearest = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (double[] query : queries) {
+                found += bruteForce(points, query[0], query[1], 5.0).size();
+            }
+            long scan = System.nanoTime() - start;
+
+            System.out.printf("%,d points, round %d: radius 5 km %.1f us, nearest 10 %.1f us, full scan %.1f us per query (%d)%n",
+                    size, round, radius / 1e3 / queries.length, nearest / 1e3 / queries.length,
+                    scan / 1e3 / queries.length, found);
+        }
+    }
+
+    private static BranchLocationIndex index(double cellDegrees, List<double[]> points) {
+        List<BranchData> rows = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            BranchData row = new BranchData();
+            row.setAtmId("P" + i);
+            row.setLatitude(Double.toString(points.get(i)[0]));
+            row.setLongitude(Double.toString(points.get(i)[1]));
+            rows.add(row);
+        }
+        BranchDataRepository repository = mock(BranchDataRepository.class);
+        when(repository.findAllWithCoordinates()).thenReturn(rows);
+        BranchLocationIndex index = new BranchLocationIndex(repository, cellDegrees);
+        index.refresh();
+        return index;
+    }
+
+    /**
+     * One point in each of {@code count} cells, filling rows from the south pole up; none lies
+     * near the points the tests query.
+     */
+    private static List<double[]> filler(double cellDegrees, int count) {
+        List<double[]> points = new ArrayList<>();
+        int lonCells = (int) Math.ceil(360 / cellDegrees);
+        for (int i = 0; i < count; i++) {
+            points.add(new double[]{-90 + (i / lonCells + 0.5) * cellDegrees, -180 + (i % lonCells + 0.5) * cellDegrees});
+        }
+        return points;
+    }
+
+    private static List<Double> bruteForce(List<double[]> points, double latitude, double longitude, double radiusKm) {
+        List<Double> distances = new ArrayList<>();
+        for (double[] point : points) {
+            double distance = BranchLocationIndex.distanceKm(latitude, longitude, point[0], point[1]);
+            if (distance <= radiusKm) {
+                distances.add(distance);
+            }
+        }
+        distances.sort(Comparator.naturalOrder());
+        return distances;
+    }
+
+    private static void assertSameAsBruteForce(List<double[]> points, List<BranchLocationIndex.NearbyBranch> found,
+                                               double latitude, double longitude, double radiusKm) {
+        List<Double> actual = found.stream().map(BranchLocationIndex.NearbyBranch::distanceKm).toList();
+        assertEquals(bruteForce(points, latitude, longitude, radiusKm), actual,
+                () -> "query at " + latitude + "," + longitude + " within " + radiusKm + " km");
+    }
+
+    private static List<String> ids(List<BranchLocationIndex.NearbyBranch> found) {
+        return found.stream().map(nearby -> nearby.branch().atmId()).toList();
+    }
+}
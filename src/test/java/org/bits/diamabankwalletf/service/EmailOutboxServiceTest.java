@@ -0,0 +1,189 @@
+package org.bits.diamabankwalletf.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailOutboxServiceTest {
+
+    private FakeSmtpServer smtp;
+    private EmailOutboxService outbox;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtp = new FakeSmtpServer();
+
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(smtp.port());
+
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+
+        outbox = new EmailOutboxService(mailSender, templateEngine, new SimpleMeterRegistry(),
+                "wallet@example.com", 100, 1, 20, 3, 50, 1_000);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        outbox.shutdown();
+        smtp.close();
+    }
+
+    @Test
+    void queuedEmailsShareOneConnection() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(outbox.enqueue("support@example.com", "Comment " + i, "comment-email",
+                    Map.of("userName", "User " + i, "comment", "Bonjour")));
+        }
+        outbox.start();
+
+        smtp.awaitMessages(5);
+        assertEquals(5, smtp.messages().size());
+        assertEquals(1, smtp.connections());
+        assertTrue(smtp.messages().get(0).contains("Subject: Comment 0"));
+        assertTrue(smtp.messages().get(0).contains("User 0"));
+    }
+
+    @Test
+    void refusedEmailIsRetried() throws Exception {
+        smtp.refuseNext(1);
+        outbox.start();
+
+        assertTrue(outbox.enqueue("support@example.com", "Plainte", "complaint-template",
+                Map.of("title", "Carte bloquée")));
+
+        smtp.awaitMessages(1);
+        assertEquals(1, smtp.messages().size());
+        assertTrue(smtp.messages().get(0).contains("Subject: Plainte"));
+    }
+
+    /**
+     * Just enough SMTP for JavaMail: accepts every command, records each message body and can
+     * refuse the next messages with a transient 451 at the end of DATA.
+     */
+    private static final class FakeSmtpServer implements AutoCloseable {
+
+        private final ServerSocket serverSocket;
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger toRefuse = new AtomicInteger();
+
+        FakeSmtpServer() throws IOException {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread acceptor = new Thread(this::acceptLoop, "fake-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        int connections() {
+            return connections.get();
+        }
+
+        List<String> messages() {
+            return messages;
+        }
+
+        void refuseNext(int count) {
+            toRefuse.set(count);
+        }
+
+        void awaitMessages(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (messages.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+        }
+
+        private void acceptLoop() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    Thread session = new Thread(() -> serve(socket), "fake-smtp-session");
+                    session.setDaemon(true);
+                    session.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+                reply(out, "220 localhost fake SMTP");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                    switch (command) {
+                        case "EHLO", "HELO" -> reply(out, "250 localhost");
+                        case "DATA" -> {
+                            reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                            StringBuilder body = new StringBuilder();
+                            while ((line = in.readLine()) != null && !line.equals(".")) {
+                                body.append(line).append('\n');
+                            }
+                            if (toRefuse.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                                reply(out, "451 Try again later");
+                            } else {
+                                messages.add(body.toString());
+                                reply(out, "250 OK");
+                            }
+                        }
+                        case "QUIT" -> {
+                            reply(out, "221 Bye");
+                            return;
+                        }
+                        default -> reply(out, "250 OK");
+                    }
+                }
+            } catch (IOException e) {
+                // Client went away
+            }
+        }
+
+        private static void reply(Writer out, String line) throws IOException {
+            out.write(line + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.bits.diamabankwalletf.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.bits.diamabankwalletf.model.AuthorizationFee;
+import org.bits.diamabankwalletf.repository.AuthorizationFeeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that FeeRuleEngine picks the same AUTHORIZATION_FEES row as the repository query it
+ * replaces. H2 sorts NULLs high here, as Oracle does: NULL minimums take part in the ordering.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fee-parity;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({FeeRuleEngine.class, SimpleMeterRegistry.class})
+class FeeRuleEngineParityTest {
+
+    private static final List<String> BANKS = List.of("00100", "00200", "00300");
+    private static final List<String> MESSAGE_TYPES = Arrays.asList("ON_US", "OFF_US", null);
+    private static final List<String> AMOUNTS = List.of("0", "50", "100", "100.001", "150", "300", "500",
+            "750", "1000", "1000.5", "2000", "4999.999", "5000", "5001", "10000000");
+
+    @Autowired
+    private FeeRuleEngine feeRuleEngine;
+
+    @Autowired
+    private AuthorizationFeeRepository feeRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        // Bank 00100: overlapping bands, some with a NULL (wildcard) message type or bound
+        entityManager.persist(fee(2, "00100", "ON_US", "0", "1000"));
+        entityManager.persist(fee(3, "00100", "ON_US", "0", "500"));
+        entityManager.persist(fee(4, "00100", "OFF_US", "1000", null));
+        entityManager.persist(fee(5, "00100", null, "500", "5000"));
+        entityManager.persist(fee(7, "00100", "ON_US", null, "100"));
+        // Bank 00200: a single band
+        entityManager.persist(fee(8, "00200", null, "100", "200"));
+        // A NULL equality column never matches
+        entityManager.persist(fee(9, null, null, null, null));
+        entityManager.flush();
+        entityManager.clear();
+
+        feeRuleEngine.reload();
+    }
+
+    @Test
+    void engineMatchesTheQueryForEveryCombination() {
+        for (String bank : BANKS) {
+            for (String messageType : MESSAGE_TYPES) {
+                for (String amount : AMOUNTS) {
+                    assertEquals(queryIndex(bank, messageType, amount), engineIndex(bank, messageType, amount),
+                            "bank " + bank + ", message type " + messageType + ", amount " + amount);
+                }
+            }
+        }
+    }
+
+    @Test
+    void overlappingBandsAreResolvedLikeTheQuery() {
+        // NULL minimum sorts first under MINIMUM DESC
+        assertEquals(Optional.of(7L), engineIndex("00100", "ON_US", "50"));
+        // Same minimum: the smaller maximum wins
+        assertEquals(Optional.of(3L), engineIndex("00100", "ON_US", "300"));
+        // Higher minimum wins, even over a rule matching the message type exactly
+        assertEquals(Optional.of(5L), engineIndex("00100", "ON_US", "750"));
+        assertEquals(Optional.of(4L), engineIndex("00100", "OFF_US", "2000"));
+        assertEquals(Optional.of(5L), engineIndex("00100", null, "1000"));
+        assertEquals(Optional.empty(), engineIndex("00100", "ON_US", "5001"));
+        assertEquals(Optional.empty(), engineIndex("00200", "ON_US", "250"));
+        assertEquals(Optional.empty(), engineIndex("00300", "ON_US", "150"));
+    }
+
+    private Optional<Long> engineIndex(String bank, String messageType, String amount) {
+        return feeRuleEngine.findApplicableFee("01", "324", "001", "W", "000", bank, "W", messageType,
+                new BigDecimal(amount)).map(AuthorizationFee::getIndexFees);
+    }
+
+    private Optional<Long> queryIndex(String bank, String messageType, String amount) {
+        return feeRepository.findApplicableFees("01", "324", "001", "W", "000", bank, "W", messageType,
+                new BigDecimal(amount)).stream().findFirst().map(AuthorizationFee::getIndexFees);
+    }
+
+    private static AuthorizationFee fee(long index, String bank, String messageType, String minimum, String maximum) {
+        AuthorizationFee fee = new AuthorizationFee();
+        fee.setIndexFees(index);
+        fee.setProcessingCode("01");
+        fee.setCurrencyCode("324");
+        fee.setWalletProductCode("001");
+        fee.setWalletType("W");
+        fee.setActionCode("000");
+        fee.setBankCode(bank);
+        fee.setOriginTransaction("W");
+        fee.setMessageType(messageType);
+        fee.setMinimum(minimum != null ? new BigDecimal(minimum) : null);
+        fee.setMaximum(maximum != null ? new BigDecimal(maximum) : null);
+        fee.setFixedAmount(BigDecimal.valueOf(100 + index));
+        fee.setWording("Rule " + index);
+        return fee;
+    }
+}
@@ -0,0 +1,146 @@
+package org.bits.diamabankwalletf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bits.diamabankwalletf.dto.ResponseServiceJson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyServiceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private IdempotencyService idempotencyService;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(meterRegistry, 1_000, 60, 60_000);
+        idempotencyService = new IdempotencyService(store, new ObjectMapper(), meterRegistry, 10, 2_000);
+    }
+
+    @Test
+    void duplicateArrivingWhileTheFirstRunsJoinsIt() throws Exception {
+        Sinks.One<ResponseServiceJson> backend = Sinks.one();
+
+        CompletableFuture<ResponseServiceJson> first = transfer("K1", "100", () -> backend.asMono()).toFuture();
+        CompletableFuture<ResponseServiceJson> second = transfer("K1", "100", () -> Mono.just(response("000"))).toFuture();
+        assertFalse(first.isDone() || second.isDone());
+
+        backend.tryEmitValue(response("000", "AUTH1"));
+
+        assertEquals("AUTH1", first.get(5, TimeUnit.SECONDS).getAuthCode());
+        assertEquals("AUTH1", second.get(5, TimeUnit.SECONDS).getAuthCode());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void completedResponseIsReplayed() {
+        transfer("K1", "100", () -> Mono.just(response("000", "AUTH1"))).block(TIMEOUT);
+
+        ResponseServiceJson replayed = transfer("K1", "100", () -> Mono.just(response("000", "AUTH2"))).block(TIMEOUT);
+
+        assertEquals("AUTH1", replayed.getAuthCode());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void keyReusedForAnotherPayloadIsRefused() {
+        transfer("K1", "100", () -> Mono.just(response("000"))).block(TIMEOUT);
+
+        ResponseServiceJson refused = transfer("K1", "250", () -> Mono.just(response("000"))).block(TIMEOUT);
+
+        assertEquals("999", refused.getRespCode());
+        assertTrue(refused.getMessage().contains("different request"));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void keysAreScopedToTheOwner() {
+        transfer("K1", "100", () -> Mono.just(response("000"))).block(TIMEOUT);
+
+        idempotencyService.execute("transfer", "22170000002", "K1", Map.of("amount", "100"), ResponseServiceJson.class,
+                () -> count(Mono.just(response("000")))).block(TIMEOUT);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void failureBeforeTheRequestWasSentReleasesTheKey() {
+        transfer("K1", "100", () -> Mono.just(response("999"))).block(TIMEOUT);
+
+        ResponseServiceJson retried = transfer("K1", "100", () -> Mono.just(response("000", "AUTH2"))).block(TIMEOUT);
+
+        assertEquals("AUTH2", retried.getAuthCode());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void failureAfterTheRequestWasSentKeepsTheKeyUntilReconciled() {
+        // What WalletBackendGateway does before a response timeout mapped to 999 by the service
+        ResponseServiceJson timedOut = transfer("K1", "100", () -> Mono.deferContextual(context -> {
+            context.<AtomicBoolean>get(WalletBackendGateway.REQUEST_SENT).set(true);
+            return Mono.just(response("999"));
+        })).block(TIMEOUT);
+        assertEquals("999", timedOut.getRespCode());
+
+        ResponseServiceJson retried = transfer("K1", "100", () -> Mono.just(response("000"))).block(TIMEOUT);
+        assertEquals("999", retried.getRespCode());
+        assertTrue(retried.getMessage().contains("unknown"));
+        assertEquals(1, calls.get());
+
+        assertTrue(idempotencyService.clearUnknown("transfer", "22170000001", "K1"));
+        assertEquals("000", transfer("K1", "100", () -> Mono.just(response("000"))).block(TIMEOUT).getRespCode());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void errorAfterTheRequestWasSentKeepsTheKey() {
+        assertThrows(IllegalStateException.class, () -> transfer("K1", "100", () -> Mono.deferContextual(context -> {
+            context.<AtomicBoolean>get(WalletBackendGateway.REQUEST_SENT).set(true);
+            return Mono.<ResponseServiceJson>error(new IllegalStateException("connection reset"));
+        })).block(TIMEOUT));
+
+        assertTrue(transfer("K1", "100", () -> Mono.just(response("000"))).block(TIMEOUT).getMessage().contains("unknown"));
+        assertEquals(1, calls.get());
+    }
+
+    private Mono<ResponseServiceJson> transfer(String key, String amount,
+                                               Supplier<Mono<ResponseServiceJson>> backend) {
+        return idempotencyService.execute("transfer", "22170000001", key, Map.of("amount", amount),
+                ResponseServiceJson.class, () -> count(backend.get()));
+    }
+
+    private Mono<ResponseServiceJson> count(Mono<ResponseServiceJson> call) {
+        calls.incrementAndGet();
+        return call;
+    }
+
+    private static ResponseServiceJson response(String respCode) {
+        return response(respCode, null);
+    }
+
+    private static ResponseServiceJson response(String respCode, String authCode) {
+        ResponseServiceJson response = new ResponseServiceJson();
+        response.setRespCode(respCode);
+        response.setAuthCode(authCode);
+        response.setMessage("OK");
+        return response;
+    }
+}
@@ -0,0 +1,35 @@
+package org.bits.diamabankwalletf.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InMemoryOtpStateStoreTest extends OtpStateStoreContractTest {
+
+    @Override
+    OtpStateStore createStore() {
+        return new InMemoryOtpStateStore(1_000);
+    }
+
+    @Test
+    void limitsApplyUpToTheirBoundaries() {
+        InMemoryOtpStateStore.OtpState state = new InMemoryOtpStateStore.OtpState("123456", 1_000, 0,
+                3, 1_000, 1_000, 3_601_000);
+
+        assertEquals(OtpStateStore.IssueResult.TOO_FREQUENT,
+                InMemoryOtpStateStore.evaluate(state, 60_999, POLICY));
+        assertEquals(OtpStateStore.IssueResult.HOURLY_LIMIT_EXCEEDED,
+                InMemoryOtpStateStore.evaluate(state, 61_000, POLICY));
+        assertEquals(OtpStateStore.IssueResult.HOURLY_LIMIT_EXCEEDED,
+                InMemoryOtpStateStore.evaluate(state, 3_600_999, POLICY));
+        // The window is over: a new one starts
+        assertEquals(OtpStateStore.IssueResult.ALLOWED,
+                InMemoryOtpStateStore.evaluate(state, 3_601_000, POLICY));
+
+        // Attempts recorded before any code do not count as a request
+        InMemoryOtpStateStore.OtpState attemptsOnly = new InMemoryOtpStateStore.OtpState(null, 0, 2,
+                0, 1_000, 0, 301_000);
+        assertEquals(OtpStateStore.IssueResult.ALLOWED,
+                InMemoryOtpStateStore.evaluate(attemptsOnly, 1_001, POLICY));
+    }
+}
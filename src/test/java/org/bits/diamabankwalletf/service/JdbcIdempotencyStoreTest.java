@@ -0,0 +1,93 @@
+package org.bits.diamabankwalletf.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@JdbcTest
+class JdbcIdempotencyStoreTest {
+
+    private static final long IN_FLIGHT_TIMEOUT_MS = 60_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS WALLET_IDEMPOTENCY_KEYS (IDEMPOTENCY_KEY VARCHAR(200) PRIMARY KEY, "
+                + "FINGERPRINT VARCHAR(64) NOT NULL, RESPONSE CLOB, CREATED_AT BIGINT NOT NULL, COMPLETED_AT BIGINT)");
+        jdbcTemplate.update("DELETE FROM WALLET_IDEMPOTENCY_KEYS");
+        store = new JdbcIdempotencyStore(jdbcTemplate, 60, IN_FLIGHT_TIMEOUT_MS);
+    }
+
+    @Test
+    void firstClaimWinsAndLaterOnesSeeItsState() {
+        assertEquals(IdempotencyStore.Status.ACQUIRED, store.claim("k", "fp-a").status());
+        assertEquals(IdempotencyStore.Status.IN_PROGRESS, store.claim("k", "fp-a").status());
+        assertEquals(IdempotencyStore.Status.MISMATCH, store.claim("k", "fp-b").status());
+
+        store.complete("k", "{\"respCode\":\"000\"}");
+        IdempotencyStore.Claim replay = store.claim("k", "fp-a");
+        assertEquals(IdempotencyStore.Status.COMPLETED, replay.status());
+        assertEquals("{\"respCode\":\"000\"}", replay.response());
+        assertEquals(IdempotencyStore.Status.MISMATCH, store.claim("k", "fp-b").status());
+    }
+
+    @Test
+    void releasedClaimCanBeClaimedAgain() {
+        store.claim("k", "fp-a");
+        store.release("k");
+
+        assertEquals(IdempotencyStore.Status.ACQUIRED, store.claim("k", "fp-a").status());
+    }
+
+    @Test
+    void staleClaimIsTakenOverByOneRequestOnly() {
+        long abandonedAt = System.currentTimeMillis() - IN_FLIGHT_TIMEOUT_MS - 1_000;
+        jdbcTemplate.update("INSERT INTO WALLET_IDEMPOTENCY_KEYS (IDEMPOTENCY_KEY, FINGERPRINT, CREATED_AT) VALUES (?, ?, ?)",
+                "k", "fp-a", abandonedAt);
+
+        assertEquals(IdempotencyStore.Status.ACQUIRED, store.claim("k", "fp-b").status());
+        assertEquals(IdempotencyStore.Status.MISMATCH, store.claim("k", "fp-a").status());
+        assertEquals(IdempotencyStore.Status.IN_PROGRESS, store.claim("k", "fp-b").status());
+        assertTrue(jdbcTemplate.queryForObject(
+                "SELECT CREATED_AT FROM WALLET_IDEMPOTENCY_KEYS WHERE IDEMPOTENCY_KEY = 'k'", Long.class) > abandonedAt);
+    }
+
+    @Test
+    void unknownKeyIsRefusedUntilCleared() {
+        store.claim("k", "fp-a");
+        store.markUnknown("k");
+        // Past the in-flight timeout an unknown key is still not taken over
+        jdbcTemplate.update("UPDATE WALLET_IDEMPOTENCY_KEYS SET CREATED_AT = ?",
+                System.currentTimeMillis() - IN_FLIGHT_TIMEOUT_MS - 1_000);
+
+        assertEquals(IdempotencyStore.Status.UNKNOWN, store.claim("k", "fp-a").status());
+        assertEquals(IdempotencyStore.Status.MISMATCH, store.claim("k", "fp-b").status());
+
+        store.release("k");
+        assertEquals(IdempotencyStore.Status.UNKNOWN, store.claim("k", "fp-a").status());
+
+        assertTrue(store.clearUnknown("k"));
+        assertFalse(store.clearUnknown("k"));
+        assertEquals(IdempotencyStore.Status.ACQUIRED, store.claim("k", "fp-a").status());
+    }
+
+    @Test
+    void completedKeyIsNotClearedAsUnknown() {
+        store.claim("k", "fp-a");
+        store.complete("k", "{}");
+
+        assertFalse(store.clearUnknown("k"));
+        store.markUnknown("k");
+        assertEquals(IdempotencyStore.Status.COMPLETED, store.claim("k", "fp-a").status());
+    }
+}
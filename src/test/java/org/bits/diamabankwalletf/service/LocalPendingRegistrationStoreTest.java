@@ -0,0 +1,63 @@
+package org.bits.diamabankwalletf.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bits.diamabankwalletf.dto.CustomerRegistrationRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalPendingRegistrationStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void startupDeletesOnlyItsOwnLeftoverSpillFiles() throws IOException {
+        Path unrelated = Files.writeString(directory.resolve("keep.txt"), "not ours");
+        LocalPendingRegistrationStore first = store();
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest();
+        request.setFaceId(Base64.getEncoder().encodeToString(new byte[4096]));
+        first.put("AUTH-1", request);
+
+        Path spillDirectory = directory.resolve("pending-registrations");
+        Path foreign = Files.writeString(spillDirectory.resolve("report.csv"), "not ours either");
+        assertEquals(2, list(spillDirectory).size());
+
+        // A restart finds the spill file of an entry that no longer exists
+        store();
+
+        assertEquals(List.of(foreign), list(spillDirectory));
+        assertTrue(Files.exists(unrelated));
+    }
+
+    @Test
+    void spilledImagesAreReadBackAndDeleted() throws IOException {
+        LocalPendingRegistrationStore store = store();
+        String face = Base64.getEncoder().encodeToString(new byte[4096]);
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest();
+        request.setFaceId(face);
+        store.put("AUTH-2", request);
+
+        assertEquals(face, store.take("AUTH-2").orElseThrow().getFaceId());
+        assertEquals(List.of(), list(directory.resolve("pending-registrations")));
+    }
+
+    private LocalPendingRegistrationStore store() throws IOException {
+        return new LocalPendingRegistrationStore(new SimpleMeterRegistry(), 15, 1 << 20, 1024, directory.toString());
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.bits.diamabankwalletf.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Behaviour every {@link OtpStateStore} must share, run against each implementation by its
+ * subclass. Expiry is tested with real time and windows of a few hundred milliseconds.
+ */
+abstract class OtpStateStoreContractTest {
+
+    static final String PHONE = "22170000001";
+
+    // One minute between requests, three requests an hour, codes valid five minutes
+    static final OtpStateStore.Policy POLICY = new OtpStateStore.Policy(60_000, 3, 3_600_000, 300_000);
+
+    OtpStateStore store;
+
+    abstract OtpStateStore createStore();
+
+    @BeforeEach
+    void setUpStore() {
+        store = createStore();
+        store.remove(PHONE);
+    }
+
+    @Test
+    void issueStoresTheCodeAndResetsTheAttempts() {
+        store.recordVerificationAttempt(PHONE, POLICY);
+        OtpStateStore.Policy noInterval = new OtpStateStore.Policy(0, 3, 3_600_000, 300_000);
+
+        long before = System.currentTimeMillis();
+        assertEquals(OtpStateStore.IssueResult.ALLOWED, store.issue(PHONE, "123456", noInterval));
+        assertEquals(0, store.getVerificationAttempts(PHONE));
+
+        OtpStateStore.VerificationState state = store.recordVerificationAttempt(PHONE, noInterval);
+        assertEquals(1, state.attempts());
+        assertEquals("123456", state.otp());
+        assertTrue(state.otpCreatedAt() >= before && state.otpCreatedAt() <= System.currentTimeMillis());
+
+        // A new code replaces the old one and starts its attempts from zero
+        assertEquals(OtpStateStore.IssueResult.ALLOWED, store.issue(PHONE, "654321", noInterval));
+        state = store.recordVerificationAttempt(PHONE, noInterval);
+        assertEquals(1, state.attempts());
+        assertEquals("654321", state.otp());
+    }
+
+    @Test
+    void requestsInsideTheMinimumIntervalAreTooFrequent() {
+        assertEquals(OtpStateStore.IssueResult.ALLOWED, store.issue(PHONE, "111111", POLICY));
+
+        assertEquals(OtpStateStore.IssueResult.TOO_FREQUENT, store.checkIssue(PHONE, POLICY));
+        assertEquals(OtpStateStore.IssueResult.TOO_FREQUENT, store.issue(PHONE, "222222", POLICY));
+        // The refused request left the first code in place
+        assertEquals("111111", store.recordVerificationAttempt(PHONE, POLICY).otp());
+    }
+
+    @Test
+    void requestsOverTheWindowLimitAreRefused() {
+        OtpStateStore.Policy noInterval = new OtpStateStore.Policy(0, 3, 3_600_000, 300_000);
+
+        // Checking does not count as a request
+        for (int i = 0; i < 5; i++) {
+            assertEquals(OtpStateStore.IssueResult.ALLOWED, store.checkIssue(PHONE, noInterval));
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals(OtpStateStore.IssueResult.ALLOWED, store.issue(PHONE, "00000" + i, noInterval));
+        }
+        assertEquals(OtpStateStore.IssueResult.HOURLY_LIMIT_EXCEEDED, store.checkIssue(PHONE, noInterval));
+        assertEquals(OtpStateStore.IssueResult.HOURLY_LIMIT_EXCEEDED, store.issue(PHONE, "000003", noInterval));
+        assertEquals("000002", store.recordVerificationAttempt(PHONE, noInterval).otp());
+
+        // Other phone numbers have their own window
+        assertEquals(OtpStateStore.IssueResult.ALLOWED, store.issue(PHONE + "9", "999999", noInterval));
+        store.remove(PHONE + "9");
+    }
+
+    @Test
+    void windowLimitResetsWhenTheWindowIsOver() throws InterruptedException {
+        OtpStateStore.Policy shortWindow = new OtpStateStore.Policy(0, 2, 300, 300_000);
+        assertEquals(OtpStateStore.IssueResult.ALLOWED, store.issue(PHONE, "000001", shortWindow));
+        assertEquals(OtpStateStore.IssueResult.ALLOWED, store.issue(PHONE, "000002", shortWindow));
+        assertEquals(OtpStateStore.IssueResult.HOURLY_LIMIT_EXCEEDED, store.issue(PHONE, "000003", shortWindow));
+
+        Thread.sleep(400);
+
+        assertEquals(OtpStateStore.IssueResult.ALLOWED, store.issue(PHONE, "000004", shortWindow));
+        assertEquals(OtpStateStore.IssueResult.ALLOWED, store.issue(PHONE, "000005", shortWindow));
+        assertEquals(OtpStateStore.IssueResult.HOURLY_LIMIT_EXCEEDED, store.issue(PHONE, "000006", shortWindow));
+    }
+
+    @Test
+    void attemptsAreCountedWithoutACode() {
+        for (int i = 1; i <= 4; i++) {
+            OtpStateStore.VerificationState state = store.recordVerificationAttempt(PHONE, POLICY);
+            assertEquals(i, state.attempts());
+            assertNull(state.otp());
+        }
+        assertEquals(4, store.getVerificationAttempts(PHONE));
+    }
+
+    @Test
+    void clearingTheCodeKeepsTheRateLimit() {
+        assertEquals(OtpStateStore.IssueResult.ALLOWED, store.issue(PHONE, "123456", POLICY));
+        store.recordVerificationAttempt(PHONE, POLICY);
+        store.recordVerificationAttempt(PHONE, POLICY);
+
+        store.clearOtp(PHONE);
+
+        assertEquals(0, store.getVerificationAttempts(PHONE));
+        assertEquals(OtpStateStore.IssueResult.TOO_FREQUENT, store.checkIssue(PHONE, POLICY));
+        OtpStateStore.VerificationState state = store.recordVerificationAttempt(PHONE, POLICY);
+        assertNull(state.otp());
+        assertEquals(1, state.attempts());
+
+        // Removing drops the rate limit as well
+        store.remove(PHONE);
+        assertEquals(OtpStateStore.IssueResult.ALLOWED, store.checkIssue(PHONE, POLICY));
+    }
+
+    @Test
+    void stateExpiresOnceTheCodeAndTheWindowAreOver() throws InterruptedException {
+        OtpStateStore.Policy shortLived = new OtpStateStore.Policy(60_000, 3, 300, 300);
+        assertEquals(OtpStateStore.IssueResult.ALLOWED, store.issue(PHONE, "123456", shortLived));
+        store.recordVerificationAttempt(PHONE, shortLived);
+        assertEquals(OtpStateStore.IssueResult.TOO_FREQUENT, store.checkIssue(PHONE, shortLived));
+
+        Thread.sleep(400);
+
+        assertEquals(0, store.getVerificationAttempts(PHONE));
+        assertEquals(OtpStateStore.IssueResult.ALLOWED, store.checkIssue(PHONE, shortLived));
+        OtpStateStore.VerificationState state = store.recordVerificationAttempt(PHONE, shortLived);
+        assertNull(state.otp());
+        assertEquals(1, state.attempts());
+    }
+
+    @Test
+    void attemptsWithoutACodeExpireAfterTheCodeLifetime() throws InterruptedException {
+        OtpStateStore.Policy shortLived = new OtpStateStore.Policy(60_000, 3, 3_600_000, 300);
+        store.recordVerificationAttempt(PHONE, shortLived);
+        store.recordVerificationAttempt(PHONE, shortLived);
+
+        Thread.sleep(400);
+
+        assertEquals(0, store.getVerificationAttempts(PHONE));
+    }
+}
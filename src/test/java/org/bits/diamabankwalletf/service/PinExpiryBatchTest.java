@@ -0,0 +1,176 @@
+package org.bits.diamabankwalletf.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the PIN expiry jobs against synthetic wallets on H2. The volume defaults to 100 000
+ * wallets; run with -Dpin-expiry.test.wallets=1000000 for the full-size throughput figures.
+ */
+@DataJpaTest(properties = "wallet.pin.expiry.chunk-size=1000")
+@Import({PinExpiryService.class, BatchCheckpointStore.class, SmsOutboxService.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PinExpiryBatchTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PinExpiryBatchTest.class);
+
+    private static final String INSERT_WALLET_SQL = "INSERT INTO WALLET_DATA (WALLET_NUMBER, SUPPLEMENTARY_DATA_1, "
+            + "BANK_CODE, CLIENT_CODE, STATUS_WALLET, PHONE_NUMBER, PIN_EXPIRY_DATE, PIN_CHANGE_REQUIRED, "
+            + "PIN_EXPIRY_NOTIFICATION_SENT) VALUES (?, '-', '00100', ?, 'A', ?, ?, 'N', 'N')";
+
+    @Autowired
+    private PinExpiryService pinExpiryService;
+
+    @Autowired
+    private BatchCheckpointStore checkpointStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // An Oracle DATE keeps the time of day, an H2 DATE does not
+        jdbcTemplate.execute("ALTER TABLE WALLET_DATA ALTER COLUMN PIN_EXPIRY_DATE SET DATA TYPE TIMESTAMP");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS WALLET_BATCH_CHECKPOINTS (JOB_NAME VARCHAR(64) PRIMARY KEY, "
+                + "RUN_DATE DATE NOT NULL, LAST_WALLET_NUMBER VARCHAR(100) NOT NULL, "
+                + "LAST_SUPPLEMENTARY_DATA VARCHAR(200) NOT NULL, LAST_BANK_CODE VARCHAR(5) NOT NULL, "
+                + "PROCESSED BIGINT NOT NULL, UPDATED_AT BIGINT NOT NULL)");
+        jdbcTemplate.update("DELETE FROM WALLET_BATCH_CHECKPOINTS");
+        jdbcTemplate.update("DELETE FROM EPS_SMS_LOG");
+        jdbcTemplate.update("DELETE FROM WALLET_DATA");
+    }
+
+    @Test
+    void jobsProcessEveryMatchingWalletOnce() {
+        int wallets = Integer.getInteger("pin-expiry.test.wallets", 100_000);
+        LocalDateTime now = LocalDateTime.now();
+        // Quarters: expired, expiring in 5 days, expiring in 2 days, expiring in 60 days
+        List<LocalDateTime> expiries = List.of(now.minusDays(10), now.plusDays(5), now.plusDays(2), now.plusDays(60));
+        insertWallets(wallets, i -> expiries.get(i % 4));
+
+        long started = System.nanoTime();
+        pinExpiryService.markExpiredPinsForChange();
+        pinExpiryService.sendSevenDayExpiryNotifications();
+        pinExpiryService.sendThreeDayExpiryNotifications();
+        pinExpiryService.sendOneDayExpiryNotifications();
+        long elapsedMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+
+        log.info("PIN expiry jobs: {} wallets in {} ms ({} wallets/s)",
+                wallets, elapsedMs, wallets * 1000L / elapsedMs);
+
+        assertEquals(wallets / 4, count("PIN_CHANGE_REQUIRED = 'Y'"));
+        assertEquals(wallets / 4, count("PIN_EXPIRY_NOTIFICATION_SENT = '7'"));
+        assertEquals(wallets / 4, count("PIN_EXPIRY_NOTIFICATION_SENT = '3'"));
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM WALLET_BATCH_CHECKPOINTS", Long.class));
+        assertEquals(3L * wallets / 4, smsCount());
+
+        // A second run finds nothing left to do
+        pinExpiryService.sendSevenDayExpiryNotifications();
+        assertEquals(3L * wallets / 4, smsCount());
+    }
+
+    @Test
+    void interruptedJobResumesAfterCheckpoint() {
+        LocalDate today = LocalDate.now();
+        insertWallets(10, i -> today.minusDays(1).atStartOfDay());
+        checkpointStore.save("pin-expired", today,
+                new BatchCheckpointStore.WalletKey(walletNumber(3), "-", "00100"), 4);
+
+        pinExpiryService.markExpiredPinsForChange();
+
+        List<String> marked = jdbcTemplate.queryForList(
+                "SELECT WALLET_NUMBER FROM WALLET_DATA WHERE PIN_CHANGE_REQUIRED = 'Y' ORDER BY WALLET_NUMBER", String.class);
+        assertEquals(IntStream.range(4, 10).mapToObj(PinExpiryBatchTest::walletNumber).toList(), marked);
+        assertTrue(checkpointStore.load("pin-expired", today).isEmpty());
+    }
+
+    @Test
+    void checkpointFromAnEarlierDayIsIgnored() {
+        LocalDate today = LocalDate.now();
+        insertWallets(10, i -> today.minusDays(1).atStartOfDay());
+        checkpointStore.save("pin-expired", today.minusDays(1),
+                new BatchCheckpointStore.WalletKey(walletNumber(3), "-", "00100"), 4);
+
+        pinExpiryService.markExpiredPinsForChange();
+
+        assertEquals(10, count("PIN_CHANGE_REQUIRED = 'Y'"));
+    }
+
+    @Test
+    void shardsTogetherCoverEveryWallet() {
+        insertWallets(1_000, i -> LocalDate.now().minusDays(1).atStartOfDay());
+
+        pinExpiryService.markExpiredPinsForChange(0, 4);
+        long firstShard = count("PIN_CHANGE_REQUIRED = 'Y'");
+        assertTrue(firstShard > 0 && firstShard < 1_000);
+
+        for (int shard = 1; shard < 4; shard++) {
+            pinExpiryService.markExpiredPinsForChange(shard, 4);
+        }
+
+        assertEquals(1_000, count("PIN_CHANGE_REQUIRED = 'Y'"));
+    }
+
+    @Test
+    void expiryIsComparedWithTheTimeOfDay() {
+        LocalDateTime now = LocalDateTime.now();
+        // Expired an hour ago, in an hour, in 20 hours and in 25 hours
+        List<LocalDateTime> expiries = List.of(now.minusHours(1), now.plusHours(1), now.plusHours(20), now.plusHours(25));
+        insertWallets(4, expiries::get);
+
+        pinExpiryService.markExpiredPinsForChange();
+        assertEquals(List.of(walletNumber(0)), jdbcTemplate.queryForList(
+                "SELECT WALLET_NUMBER FROM WALLET_DATA WHERE PIN_CHANGE_REQUIRED = 'Y'", String.class));
+
+        // The "expire demain" notice goes out the day before, not on the expiry day
+        pinExpiryService.sendOneDayExpiryNotifications();
+        assertEquals(List.of(walletNumber(1), walletNumber(2)), jdbcTemplate.queryForList(
+                "SELECT WALLET_NUMBER FROM WALLET_DATA WHERE PIN_EXPIRY_NOTIFICATION_SENT = '1' ORDER BY WALLET_NUMBER",
+                String.class));
+        assertEquals(2L, smsCount());
+    }
+
+    private void insertWallets(int count, IntFunction<LocalDateTime> expiry) {
+        int batchSize = 5_000;
+        for (int from = 0; from < count; from += batchSize) {
+            List<Integer> batch = IntStream.range(from, Math.min(count, from + batchSize)).boxed().toList();
+            jdbcTemplate.batchUpdate(INSERT_WALLET_SQL, batch, batch.size(), (ps, i) -> {
+                ps.setString(1, walletNumber(i));
+                ps.setString(2, "CL" + i);
+                ps.setString(3, String.format("2217%08d", i));
+                ps.setTimestamp(4, Timestamp.valueOf(expiry.apply(i)));
+            });
+        }
+    }
+
+    private long smsCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM EPS_SMS_LOG", Long.class);
+    }
+
+    private long count(String condition) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM WALLET_DATA WHERE " + condition, Long.class);
+    }
+
+    private static String walletNumber(int i) {
+        return String.format("W%08d", i);
+    }
+}
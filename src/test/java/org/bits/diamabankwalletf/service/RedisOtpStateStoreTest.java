@@ -0,0 +1,61 @@
+package org.bits.diamabankwalletf.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the Lua scripts on a real Redis in a container; skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RedisOtpStateStoreTest extends OtpStateStoreContractTest {
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379);
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+
+    @Override
+    OtpStateStore createStore() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        return new RedisOtpStateStore(redisTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void stateIsOneHashWhoseTtlCoversTheWindow() {
+        OtpStateStore.Policy policy = new OtpStateStore.Policy(0, 3, 600_000, 60_000);
+        store.issue(PHONE, "123456", policy);
+
+        String key = "otp:state:" + PHONE;
+        assertEquals("123456", redisTemplate.opsForHash().get(key, "otp"));
+        assertEquals("1", redisTemplate.opsForHash().get(key, "count"));
+        long ttl = redisTemplate.getExpire(key);
+        assertTrue(ttl > 540 && ttl <= 600, "TTL " + ttl);
+    }
+
+    @Test
+    void attemptWithoutACodeGetsATtl() {
+        store.recordVerificationAttempt(PHONE, POLICY);
+
+        long ttl = redisTemplate.getExpire("otp:state:" + PHONE);
+        assertTrue(ttl > 240 && ttl <= 300, "TTL " + ttl);
+    }
+}
@@ -0,0 +1,129 @@
+package org.bits.diamabankwalletf.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WalletBackendCircuitBreakerTest {
+
+    @Test
+    void opensOnceTheFailureRateIsReached() {
+        WalletBackendCircuitBreaker breaker = breaker(new WalletBackendCircuitBreaker.Settings(10, 4, 50, 1_000, 60_000, 2));
+
+        call(breaker, false);
+        call(breaker, false);
+        call(breaker, true);
+        // Three calls are below the minimum, whatever their outcome
+        assertEquals(WalletBackendCircuitBreaker.State.CLOSED, breaker.getState());
+
+        call(breaker, true);
+        assertEquals(WalletBackendCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void staysClosedBelowTheFailureRate() {
+        WalletBackendCircuitBreaker breaker = breaker(new WalletBackendCircuitBreaker.Settings(4, 4, 50, 1_000, 60_000, 2));
+
+        for (int i = 0; i < 12; i++) {
+            call(breaker, i % 4 == 0);
+        }
+
+        assertEquals(WalletBackendCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void slowCallsCountAsFailures() {
+        WalletBackendCircuitBreaker breaker = breaker(new WalletBackendCircuitBreaker.Settings(10, 4, 50, 500, 60_000, 2));
+
+        for (long durationMs : new long[]{10, 499, 500}) {
+            assertTrue(breaker.tryAcquirePermission());
+            breaker.onSuccess(durationMs);
+        }
+        assertEquals(WalletBackendCircuitBreaker.State.CLOSED, breaker.getState());
+
+        // Answered, but at or above the slow-call threshold
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.onSuccess(2_000);
+        assertEquals(WalletBackendCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void halfOpenLetsTrialCallsThroughAndClosesWhenTheySucceed() {
+        WalletBackendCircuitBreaker breaker = breaker(new WalletBackendCircuitBreaker.Settings(10, 2, 50, 1_000, 0, 2));
+        call(breaker, true);
+        call(breaker, true);
+        assertEquals(WalletBackendCircuitBreaker.State.OPEN, breaker.getState());
+
+        // The open period is over: only halfOpenCalls trial calls get a permission
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(WalletBackendCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+        assertFalse(breaker.tryAcquirePermission());
+
+        breaker.onSuccess(10);
+        assertEquals(WalletBackendCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(10);
+        assertEquals(WalletBackendCircuitBreaker.State.CLOSED, breaker.getState());
+
+        // The window starts empty again after closing
+        call(breaker, true);
+        assertEquals(WalletBackendCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedTrialCallReopensTheCircuit() throws InterruptedException {
+        WalletBackendCircuitBreaker breaker = breaker(new WalletBackendCircuitBreaker.Settings(10, 2, 50, 1_000, 100, 2));
+        call(breaker, true);
+        call(breaker, true);
+        assertFalse(breaker.tryAcquirePermission());
+
+        Thread.sleep(150);
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(WalletBackendCircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onFailure();
+        assertEquals(WalletBackendCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void slowTrialCallReopensTheCircuit() {
+        WalletBackendCircuitBreaker breaker = breaker(new WalletBackendCircuitBreaker.Settings(10, 2, 50, 1_000, 0, 2));
+        call(breaker, true);
+        call(breaker, true);
+
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.onSuccess(1_500);
+        assertEquals(WalletBackendCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void ignoredTrialCallFreesItsPermission() {
+        WalletBackendCircuitBreaker breaker = breaker(new WalletBackendCircuitBreaker.Settings(10, 2, 50, 1_000, 0, 1));
+        call(breaker, true);
+        call(breaker, true);
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertFalse(breaker.tryAcquirePermission());
+        breaker.onIgnored();
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(WalletBackendCircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    private static WalletBackendCircuitBreaker breaker(WalletBackendCircuitBreaker.Settings settings) {
+        return new WalletBackendCircuitBreaker("/test", settings);
+    }
+
+    private static void call(WalletBackendCircuitBreaker breaker, boolean fails) {
+        assertTrue(breaker.tryAcquirePermission());
+        if (fails) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess(10);
+        }
+    }
+}
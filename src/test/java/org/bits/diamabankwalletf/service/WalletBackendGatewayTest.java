@@ -0,0 +1,191 @@
+package org.bits.diamabankwalletf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bits.diamabankwalletf.dto.DSDResponse;
+import org.bits.diamabankwalletf.exception.WalletBackendUnavailableException;
+import org.bits.diamabankwalletf.utils.RequestIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the gateway against a stub wallet backend: a local HTTP server that answers /getToken,
+ * holds /slow until released and fails /dsd/initiate with a 500.
+ */
+class WalletBackendGatewayTest {
+
+    private StubBackend backend;
+    private WalletBackendGateway gateway;
+    private DSDService dsdService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        backend = new StubBackend();
+        String url = "http://127.0.0.1:" + backend.port();
+
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("wallet.backend.endpoints.slow", "/slow")
+                .withProperty("wallet.backend.endpoints.dsd-initiate", "/dsd/initiate")
+                .withProperty("wallet.backend.bulkhead.slow", "1");
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = new ObjectMapper();
+        WebClient webClient = WebClient.create();
+
+        ServiceAccountTokenManager tokenManager = new ServiceAccountTokenManager(webClient, objectMapper, meterRegistry,
+                new RequestIdGenerator("1", 1, 14, "local", "local", "memory", "memory"));
+        ReflectionTestUtils.setField(tokenManager, "walletBackendUrl", url);
+        ReflectionTestUtils.setField(tokenManager, "apiUsername", "service");
+        ReflectionTestUtils.setField(tokenManager, "apiPassword", "secret");
+        ReflectionTestUtils.setField(tokenManager, "tokenTtlSeconds", 300L);
+        ReflectionTestUtils.setField(tokenManager, "refreshAheadSeconds", 60L);
+
+        // Circuit: opens once 2 calls were seen with 50 % failures, and stays open for a minute
+        gateway = new WalletBackendGateway(webClient, tokenManager, objectMapper, meterRegistry, environment,
+                url, Duration.ofSeconds(10), 50, 10, 2, 50, 10_000, 60_000, 1);
+
+        WalletCreationService walletCreationService = new WalletCreationService(gateway, null, null, tokenManager);
+        dsdService = new DSDService(walletCreationService, null, gateway, new RestTemplate());
+        ReflectionTestUtils.setField(dsdService, "walletBackendUrl", url);
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend.close();
+    }
+
+    @Test
+    void bulkheadRejectsCallsOverTheEndpointLimit() throws Exception {
+        CountDownLatch answered = new CountDownLatch(1);
+        gateway.post("/slow", Map.of("n", 1), Map.class).subscribe(body -> answered.countDown());
+        backend.awaitHeld();
+
+        WalletBackendUnavailableException rejected = assertThrows(WalletBackendUnavailableException.class,
+                () -> gateway.post("/slow", Map.of("n", 2), Map.class).block());
+        assertEquals("slow", rejected.getEndpoint());
+        assertEquals("too many concurrent calls", rejected.getReason());
+        assertEquals(1, backend.hits("/slow"));
+
+        // Once the first call is answered its permit is back
+        backend.release();
+        assertTrue(answered.await(10, TimeUnit.SECONDS));
+        assertEquals("000", gateway.post("/slow", Map.of("n", 3), Map.class).block().get("respCode"));
+        assertEquals(2, backend.hits("/slow"));
+    }
+
+    @Test
+    void openCircuitFailsFastWith999() {
+        for (int i = 0; i < 2; i++) {
+            DSDResponse failed = dsdService.initiateDSDPayment("22171000000", "CH123", "A", "1000");
+            assertEquals("500", failed.getRespCode());
+        }
+        assertEquals(2, backend.hits("/dsd/initiate"));
+
+        DSDResponse refused = dsdService.initiateDSDPayment("22171000000", "CH123", "A", "1000");
+
+        assertEquals("999", refused.getRespCode());
+        assertEquals("ANNULE", refused.getStatus());
+        // Refused before any request went out
+        assertEquals(2, backend.hits("/dsd/initiate"));
+    }
+
+    /**
+     * Just enough of the wallet backend for the gateway: a token, an endpoint that waits until
+     * released and one that always fails.
+     */
+    private static final class StubBackend implements AutoCloseable {
+
+        private final HttpServer server;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+        private final CountDownLatch held = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        StubBackend() throws IOException {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.setExecutor(executor);
+            server.createContext("/getToken", exchange -> {
+                exchange.getResponseHeaders().add("Authorization", "Bearer stub-token");
+                reply(exchange, 200, "{\"respCode\":\"000\"}");
+            });
+            server.createContext("/slow", exchange -> {
+                count(exchange);
+                held.countDown();
+                try {
+                    released.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                reply(exchange, 200, "{\"respCode\":\"000\"}");
+            });
+            server.createContext("/dsd/initiate", exchange -> {
+                count(exchange);
+                reply(exchange, 500, "{\"respCode\":\"500\"}");
+            });
+            server.start();
+        }
+
+        int port() {
+            return server.getAddress().getPort();
+        }
+
+        int hits(String path) {
+            AtomicInteger count = hits.get(path);
+            return count != null ? count.get() : 0;
+        }
+
+        void awaitHeld() throws InterruptedException {
+            assertTrue(held.await(10, TimeUnit.SECONDS));
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        private void count(HttpExchange exchange) throws IOException {
+            exchange.getRequestBody().readAllBytes();
+            hits.computeIfAbsent(exchange.getRequestURI().getPath(), key -> new AtomicInteger()).incrementAndGet();
+        }
+
+        private static void reply(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        @Override
+        public void close() {
+            released.countDown();
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
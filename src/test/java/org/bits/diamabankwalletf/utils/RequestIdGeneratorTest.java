@@ -0,0 +1,102 @@
+package org.bits.diamabankwalletf.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestIdGeneratorTest {
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        RequestIdGenerator generator = new RequestIdGenerator("7", 2, 16, "local", "local", "memory", "memory");
+        int threads = 16;
+        int perThread = 20_000;
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    String previous = null;
+                    for (int i = 0; i < perThread; i++) {
+                        String id = generator.nextRequestId();
+                        assertTrue(ids.add(id), "duplicate request ID " + id);
+                        assertTrue(previous == null || id.compareTo(previous) > 0, "IDs not increasing");
+                        previous = id;
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * perThread, ids.size());
+    }
+
+    @Test
+    void idsKeepTheBackendLayout() {
+        RequestIdGenerator generator = new RequestIdGenerator("4", 1, 14, "local", "local", "memory", "memory");
+        String id = generator.nextRequestId();
+
+        assertEquals(14, id.length());
+        assertTrue(id.chars().allMatch(Character::isDigit));
+        assertTrue(id.startsWith(LocalDate.now().format(DateTimeFormatter.ofPattern("yyMMdd")) + "4"));
+        assertTrue(generator.currentTimestamp().matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}"));
+    }
+
+    @Test
+    void exhaustedSequenceFailsInsteadOfChangingTheDate() {
+        // 4 sequence digits: at most 10 000 IDs a day
+        RequestIdGenerator generator = new RequestIdGenerator("1", 1, 11, "local", "local", "memory", "memory");
+        String prefix = LocalDate.now().format(DateTimeFormatter.ofPattern("yyMMdd")) + "1";
+        int issued = 0;
+        String previous = null;
+        try {
+            while (issued <= 10_000) {
+                String id = generator.nextRequestId();
+                assertEquals(11, id.length(), "ID " + id + " changed length");
+                assertTrue(id.startsWith(prefix), "ID " + id + " left today's prefix");
+                assertTrue(previous == null || id.compareTo(previous) > 0, "IDs not increasing");
+                previous = id;
+                issued++;
+            }
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("exhausted"));
+        }
+        assertTrue(issued > 0 && issued <= 10_000, issued + " IDs issued");
+        assertThrows(IllegalStateException.class, generator::nextRequestId);
+    }
+
+    @Test
+    void nodeIdIsRequiredWhenNodesShareTheBackend() {
+        assertThrows(IllegalStateException.class,
+                () -> new RequestIdGenerator("", 1, 14, "jdbc", "local", "memory", "memory"));
+        assertThrows(IllegalStateException.class,
+                () -> new RequestIdGenerator("", 1, 14, "local", "shared", "memory", "memory"));
+        assertThrows(IllegalStateException.class,
+                () -> new RequestIdGenerator("", 1, 14, "local", "local", "jdbc", "memory"));
+        assertThrows(IllegalStateException.class,
+                () -> new RequestIdGenerator("", 1, 14, "local", "local", "memory", "redis"));
+        assertTrue(new RequestIdGenerator("", 1, 14, "local", "local", "memory", "memory").nextRequestId().startsWith(
+                LocalDate.now().format(DateTimeFormatter.ofPattern("yyMMdd")) + "0"));
+    }
+}